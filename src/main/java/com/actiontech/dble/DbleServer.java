@@ -8,9 +8,10 @@ package com.actiontech.dble;
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.datasource.PhysicalDBNode;
 import com.actiontech.dble.backend.datasource.PhysicalDBPool;
+import com.actiontech.dble.backend.datasource.PhysicalDatasource;
 import com.actiontech.dble.backend.mysql.xa.*;
 import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
-import com.actiontech.dble.backend.mysql.xa.recovery.impl.FileSystemRepository;
+import com.actiontech.dble.backend.mysql.xa.recovery.impl.BinaryLogRepository;
 import com.actiontech.dble.backend.mysql.xa.recovery.impl.KVStoreRepository;
 import com.actiontech.dble.buffer.BufferPool;
 import com.actiontech.dble.buffer.DirectByteBufferPool;
@@ -39,6 +40,7 @@ import com.actiontech.dble.server.variables.VarsExtractorHandler;
 import com.actiontech.dble.sqlengine.OneRawSQLQueryResultHandler;
 import com.actiontech.dble.sqlengine.SQLJob;
 import com.actiontech.dble.statistic.stat.SqlResultSizeRecorder;
+import com.actiontech.dble.statistic.stat.QueryResultDispatcher;
 import com.actiontech.dble.statistic.stat.UserStat;
 import com.actiontech.dble.statistic.stat.UserStatAnalyzer;
 import com.actiontech.dble.util.*;
@@ -67,7 +69,9 @@ public final class DbleServer {
     public static final String NAME = "Dble_";
     private static final long TIME_UPDATE_PERIOD = 20L;
     private static final long DEFAULT_SQL_STAT_RECYCLE_PERIOD = 5 * 1000L;
+    private static final long DEFAULT_SQL_STAT_DISPATCH_PERIOD = 50L;
     private static final long DEFAULT_OLD_CONNECTION_CLEAR_PERIOD = 5 * 1000L;
+    private static final long DEFAULT_CON_WAIT_CHECK_PERIOD = 100L;
 
     private static final DbleServer INSTANCE = new DbleServer();
     private static final Logger LOGGER = LoggerFactory.getLogger("Server");
@@ -107,6 +111,8 @@ public final class DbleServer {
     private ExecutorService businessExecutor;
     private ExecutorService complexQueryExecutor;
     private ExecutorService timerExecutor;
+    /* the global table check may take long, it must not delay the other timer tasks */
+    private ExecutorService globalTableCheckExecutor;
     private InterProcessMutex dnIndexLock;
     private long totalNetWorkBufferSize = 0;
     private XASessionCheck xaSessionCheck;
@@ -401,15 +407,18 @@ public final class DbleServer {
         //dataHost heartBeat  will be influence by dataHostWithoutWR
         scheduler.scheduleAtFixedRate(dataNodeHeartbeat(), 0L, system.getDataNodeHeartbeatPeriod(), TimeUnit.MILLISECONDS);
         scheduler.scheduleAtFixedRate(dataSourceOldConsClear(), 0L, DEFAULT_OLD_CONNECTION_CLEAR_PERIOD, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(conWaitTimeoutCheck(), 0L, DEFAULT_CON_WAIT_CHECK_PERIOD, TimeUnit.MILLISECONDS);
         scheduler.scheduleWithFixedDelay(xaSessionCheck(), 0L, system.getXaSessionCheckPeriod(), TimeUnit.MILLISECONDS);
         scheduler.scheduleWithFixedDelay(xaLogClean(), 0L, system.getXaLogCleanPeriod(), TimeUnit.MILLISECONDS);
         scheduler.scheduleWithFixedDelay(resultSetMapClear(), 0L, system.getClearBigSqLResultSetMapMs(), TimeUnit.MILLISECONDS);
         if (system.getUseSqlStat() == 1) {
             //sql record detail timing clean
             scheduler.scheduleWithFixedDelay(recycleSqlStat(), 0L, DEFAULT_SQL_STAT_RECYCLE_PERIOD, TimeUnit.MILLISECONDS);
+            scheduler.scheduleWithFixedDelay(dispatchSqlStat(), 0L, DEFAULT_SQL_STAT_DISPATCH_PERIOD, TimeUnit.MILLISECONDS);
         }
 
         if (system.getUseGlobleTableCheck() == 1) {    // will be influence by dataHostWithoutWR
+            globalTableCheckExecutor = ExecutorUtil.createFixed("GlobalTableChecker", 1);
             scheduler.scheduleWithFixedDelay(globalTableConsistencyCheck(), 0L, system.getGlableTableCheckPeriod(), TimeUnit.MILLISECONDS);
         }
 
@@ -727,6 +736,7 @@ public final class DbleServer {
                     @Override
                     public void run() {
                         XAStateLog.cleanCompleteRecoveryLog();
+                        XAStateLog.compactRecoveryLog(false);
                     }
                 });
             }
@@ -766,6 +776,24 @@ public final class DbleServer {
         };
     }
 
+    private Runnable conWaitTimeoutCheck() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                timerExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (PhysicalDBPool dbPool : DbleServer.getInstance().getConfig().getDataHosts().values()) {
+                            for (PhysicalDatasource ds : dbPool.getAllDataSources()) {
+                                ds.conWaitTimeoutCheck();
+                            }
+                        }
+                    }
+                });
+            }
+        };
+    }
+
     // heartbeat for idle connection
     private Runnable dataNodeConHeartBeatCheck(final long heartPeriod) {
         return new Runnable() {
@@ -814,6 +842,21 @@ public final class DbleServer {
         };
     }
 
+    //pass the query results collected to the sql stat analyzers
+    private Runnable dispatchSqlStat() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                businessExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        QueryResultDispatcher.drain();
+                    }
+                });
+            }
+        };
+    }
+
     //clean up the old data in SqlStat
     private Runnable recycleSqlStat() {
         return new Runnable() {
@@ -836,7 +879,7 @@ public final class DbleServer {
             @Override
             public void run() {
 
-                timerExecutor.execute(new Runnable() {
+                globalTableCheckExecutor.execute(new Runnable() {
                     @Override
                     public void run() {
                         if (!DbleServer.getInstance().getConfig().isDataHostWithoutWR()) {
@@ -858,6 +901,8 @@ public final class DbleServer {
             genXidSeq(coordinatorLogEntry1.getId());
             XAStateLog.flushMemoryRepository(coordinatorLogEntry1.getId(), coordinatorLogEntry1);
         }
+        // start a new log with the recovered entries
+        XAStateLog.compactRecoveryLog(true);
         for (CoordinatorLogEntry coordinatorLogEntry : coordinatorLogEntries) {
             boolean needRollback = false;
             boolean needCommit = false;
@@ -939,7 +984,7 @@ public final class DbleServer {
      * covert the collection to array
      **/
     private CoordinatorLogEntry[] getCoordinatorLogEntries() {
-        Repository fileRepository = isUseZK() ? new KVStoreRepository() : new FileSystemRepository();
+        Repository fileRepository = isUseZK() ? new KVStoreRepository() : new BinaryLogRepository();
         Collection<CoordinatorLogEntry> allCoordinatorLogEntries = fileRepository.getAllCoordinatorLogEntries();
         fileRepository.close();
         if (allCoordinatorLogEntries == null) {
@@ -15,10 +15,14 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConMap {
     // key--schema
     private final ConcurrentMap<String, ConQueue> items = new ConcurrentHashMap<>();
+    // key--schema, the borrowed connections which are not closed
+    private final ConcurrentMap<String, AtomicInteger> activeCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
 
     public ConQueue getSchemaConQueue(String schema) {
         ConQueue queue = items.get(schema);
@@ -63,38 +67,44 @@ public class ConMap {
         return items.values();
     }
 
-    public int getActiveCountForSchema(String schema, PhysicalDatasource dataSource) {
-        int total = 0;
-        for (NIOProcessor processor : DbleServer.getInstance().getProcessors()) {
-            for (BackendConnection con : processor.getBackends().values()) {
-                if (con instanceof MySQLConnection) {
-                    MySQLConnection mysqlCon = (MySQLConnection) con;
+    public int getActiveCountForSchema(String schema) {
+        AtomicInteger count = activeCounts.get(schema);
+        return count == null ? 0 : count.get();
+    }
 
-                    if (mysqlCon.getSchema().equals(schema) &&
-                            mysqlCon.getPool() == dataSource &&
-                            mysqlCon.isBorrowed()) {
-                        total++;
-                    }
-                }
+    public int getActiveCountForDs() {
+        return activeCount.get();
+    }
+
+    /**
+     * move an active connection between schemas, null schema means the connection is not active
+     *
+     * @param oldSchema the schema the connection was active in
+     * @param newSchema the schema the connection is active in
+     */
+    public void changeActiveSchema(String oldSchema, String newSchema) {
+        if (newSchema != null) {
+            getActiveCounter(newSchema).incrementAndGet();
+            if (oldSchema == null) {
+                activeCount.incrementAndGet();
+            }
+        }
+        if (oldSchema != null) {
+            getActiveCounter(oldSchema).decrementAndGet();
+            if (newSchema == null) {
+                activeCount.decrementAndGet();
             }
         }
-        return total;
     }
 
-    public int getActiveCountForDs(PhysicalDatasource dataSource) {
-        int total = 0;
-        for (NIOProcessor processor : DbleServer.getInstance().getProcessors()) {
-            for (BackendConnection con : processor.getBackends().values()) {
-                if (con instanceof MySQLConnection) {
-                    MySQLConnection mysqlCon = (MySQLConnection) con;
-
-                    if (mysqlCon.getPool() == dataSource && mysqlCon.isBorrowed() && !mysqlCon.isClosed()) {
-                        total++;
-                    }
-                }
-            }
+    private AtomicInteger getActiveCounter(String schema) {
+        AtomicInteger count = activeCounts.get(schema);
+        if (count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = activeCounts.putIfAbsent(schema, newCount);
+            return (count == null) ? newCount : count;
         }
-        return total;
+        return count;
     }
 
     public void clearConnections(String reason, PhysicalDatasource dataSource) {
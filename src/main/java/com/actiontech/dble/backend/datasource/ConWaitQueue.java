@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.datasource;
+
+import com.actiontech.dble.backend.mysql.nio.handler.ResponseHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * the requests waiting for a backend connection of a datasource which has reached maxCon.
+ * the waiters are served in arrival order, the released connection is handed to the oldest waiter directly.
+ */
+public class ConWaitQueue {
+    /* the upper bounds of the wait time buckets, unit millisecond */
+    public static final long[] WAIT_TIME_BOUNDS = new long[]{1L, 10L, 100L, 1000L};
+
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong servedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong rejectCount = new AtomicLong();
+    private final AtomicLongArray waitTimes = new AtomicLongArray(WAIT_TIME_BOUNDS.length + 1);
+
+    /**
+     * @return false if the queue is full
+     */
+    public boolean offer(Waiter waiter, int maxSize) {
+        if (waiting.incrementAndGet() > maxSize) {
+            waiting.decrementAndGet();
+            rejectCount.incrementAndGet();
+            return false;
+        }
+        waiters.offer(waiter);
+        return true;
+    }
+
+    /**
+     * take the oldest waiter which is not timeout
+     *
+     * @return null if no waiter
+     */
+    public Waiter poll() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.finish()) {
+                waiting.decrementAndGet();
+                servedCount.incrementAndGet();
+                addWaitTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.getStartTime()));
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * take the oldest waiter which wants the same autocommit as the connection, like the idle
+     * queue prefers the connections of the same autocommit, or the oldest one if there is none
+     *
+     * @return null if no waiter
+     */
+    public Waiter poll(boolean autocommit) {
+        for (Waiter waiter : waiters) {
+            if (waiter.isAutocommit() == autocommit && waiters.remove(waiter) && waiter.finish()) {
+                waiting.decrementAndGet();
+                servedCount.incrementAndGet();
+                addWaitTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.getStartTime()));
+                return waiter;
+            }
+        }
+        return poll();
+    }
+
+    /**
+     * remove the waiters which have waited longer than timeout
+     *
+     * @param timeout unit millisecond
+     */
+    public List<Waiter> removeTimeout(long timeout) {
+        List<Waiter> timeoutWaiters = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Waiter waiter : waiters) {
+            if (now - waiter.getStartTime() < TimeUnit.MILLISECONDS.toNanos(timeout)) {
+                // the later ones are newer
+                break;
+            }
+            if (waiters.remove(waiter) && waiter.finish()) {
+                waiting.decrementAndGet();
+                timeoutCount.incrementAndGet();
+                addWaitTime(timeout);
+                timeoutWaiters.add(waiter);
+            }
+        }
+        return timeoutWaiters;
+    }
+
+    public List<Waiter> removeAll() {
+        List<Waiter> allWaiters = new ArrayList<>();
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.finish()) {
+                waiting.decrementAndGet();
+                allWaiters.add(waiter);
+            }
+        }
+        return allWaiters;
+    }
+
+    private void addWaitTime(long waitTime) {
+        int i = 0;
+        while (i < WAIT_TIME_BOUNDS.length && waitTime >= WAIT_TIME_BOUNDS[i]) {
+            i++;
+        }
+        waitTimes.incrementAndGet(i);
+    }
+
+    public boolean isEmpty() {
+        return waiting.get() == 0;
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getServedCount() {
+        return servedCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getRejectCount() {
+        return rejectCount.get();
+    }
+
+    /**
+     * @return the count of each wait time bucket, the last one is for the wait time not less than the last bound
+     */
+    public long[] getWaitTimes() {
+        long[] result = new long[waitTimes.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = waitTimes.get(i);
+        }
+        return result;
+    }
+
+    public static class Waiter {
+        private final String schema;
+        private final boolean autocommit;
+        private final ResponseHandler handler;
+        private final Object attachment;
+        private final long startTime;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        public Waiter(String schema, boolean autocommit, ResponseHandler handler, Object attachment) {
+            this.schema = schema;
+            this.autocommit = autocommit;
+            this.handler = handler;
+            this.attachment = attachment;
+            this.startTime = System.nanoTime();
+        }
+
+        /**
+         * a waiter is either served or timeout
+         */
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+
+        public String getSchema() {
+            return schema;
+        }
+
+        public boolean isAutocommit() {
+            return autocommit;
+        }
+
+        public ResponseHandler getHandler() {
+            return handler;
+        }
+
+        public Object getAttachment() {
+            return attachment;
+        }
+
+        /**
+         * @return unit nanosecond
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+    }
+}
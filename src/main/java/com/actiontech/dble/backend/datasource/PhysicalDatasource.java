@@ -38,6 +38,7 @@ public abstract class PhysicalDatasource {
     private final int size;
     private final DBHostConfig config;
     private final ConMap conMap = new ConMap();
+    private final ConWaitQueue conWaitQueue = new ConWaitQueue();
     private DBHeartbeat heartbeat;
     private final boolean readNode;
     private volatile long heartbeatRecoveryTime;
@@ -74,6 +75,7 @@ public abstract class PhysicalDatasource {
         heartbeat.stop();
         dying.compareAndSet(false, true);
         closeByDyingAll();
+        failWaiters(this.name + "will to die");
     }
 
     public long getReadCount() {
@@ -133,7 +135,7 @@ public abstract class PhysicalDatasource {
     }
 
     public int getActiveCountForSchema(String schema) {
-        return conMap.getActiveCountForSchema(schema, this);
+        return conMap.getActiveCountForSchema(schema);
     }
 
     public int getIdleCountForSchema(String schema) {
@@ -235,7 +237,7 @@ public abstract class PhysicalDatasource {
                 break;
             }
         }
-        if (this.conMap.getActiveCountForDs(this) == 0) {
+        if (this.conMap.getActiveCountForDs() == 0) {
             this.dbPool.delRDs(this);
         }
     }
@@ -277,11 +279,68 @@ public abstract class PhysicalDatasource {
     }
 
     public int getActiveCount() {
-        return this.conMap.getActiveCountForDs(this);
+        return this.conMap.getActiveCountForDs();
+    }
+
+    /**
+     * called by the connection of this datasource when it becomes active or inactive, or changes
+     * its schema while it is active. null schema means the connection is not active
+     */
+    public void changeActiveSchema(String oldSchema, String newSchema) {
+        this.conMap.changeActiveSchema(oldSchema, newSchema);
     }
 
     public void clearCons(String reason) {
         this.conMap.clearConnections(reason, this);
+        failWaiters(reason);
+    }
+
+    public ConWaitQueue getConWaitQueue() {
+        return conWaitQueue;
+    }
+
+    /**
+     * fail the requests which have waited for a connection longer than conWaitTimeout
+     */
+    public void conWaitTimeoutCheck() {
+        long timeout = DbleServer.getInstance().getConfig().getSystem().getConWaitTimeout();
+        for (ConWaitQueue.Waiter waiter : conWaitQueue.removeTimeout(timeout)) {
+            LOGGER.warn(AlarmCode.CORE_PERFORMANCE_WARN + "wait for connection of " + this.name + " timeout");
+            failWaiter(waiter, new IOException("the max activeConnnections size can not be max than maxconnections, wait timeout"));
+        }
+    }
+
+    private void failWaiters(String reason) {
+        if (conWaitQueue.isEmpty()) {
+            return;
+        }
+        for (ConWaitQueue.Waiter waiter : conWaitQueue.removeAll()) {
+            failWaiter(waiter, new IOException(reason));
+        }
+    }
+
+    /**
+     * a failed callback must not strand the waiters behind it
+     */
+    private void failWaiter(ConWaitQueue.Waiter waiter, IOException e) {
+        try {
+            waiter.getHandler().connectionError(e, null);
+        } catch (Throwable t) {
+            LOGGER.warn("fail the waiter for connection of " + this.name + " error", t);
+        }
+    }
+
+    /**
+     * hand the connection to the waiter without putting it into the idle queue
+     */
+    private void handOver(final BackendConnection conn, final ConWaitQueue.Waiter waiter) {
+        takeCon(conn, waiter.getSchema());
+        conn.setAttachment(waiter.getAttachment());
+        DbleServer.getInstance().getComplexQueryExecutor().execute(new Runnable() {
+            public void run() {
+                waiter.getHandler().connectionAcquired(conn);
+            }
+        });
     }
 
     public void clearConsByDying() {
@@ -370,6 +429,9 @@ public abstract class PhysicalDatasource {
         } else {
             int activeCons = this.getActiveCount();
             if (activeCons + 1 > size) {
+                if (waitForConnection(schema, autocommit, handler, attachment)) {
+                    return;
+                }
                 LOGGER.warn(AlarmCode.CORE_PERFORMANCE_WARN + "the max activeConnnections size can not be max than maxconnections");
                 throw new IOException("the max activeConnnections size can not be max than maxconnections");
             } else { // create connection
@@ -398,6 +460,27 @@ public abstract class PhysicalDatasource {
         return takeCon(con, schema);
     }
 
+    /**
+     * @return false if the wait queue is full
+     */
+    private boolean waitForConnection(String schema, boolean autocommit, ResponseHandler handler, Object attachment) {
+        int maxWaiting = DbleServer.getInstance().getConfig().getSystem().getConWaitQueueSize();
+        if (!conWaitQueue.offer(new ConWaitQueue.Waiter(schema, autocommit, handler, attachment), maxWaiting)) {
+            return false;
+        }
+        // a connection may be released before the waiter is queued
+        BackendConnection con = this.conMap.tryTakeCon(schema, autocommit);
+        if (con != null) {
+            ConWaitQueue.Waiter waiter = conWaitQueue.poll(con.isAutocommit());
+            if (waiter != null) {
+                handOver(con, waiter);
+            } else {
+                returnCon(con);
+            }
+        }
+        return true;
+    }
+
     private void returnCon(BackendConnection c) {
         if (dying.get()) {
             c.close("dying");
@@ -406,6 +489,13 @@ public abstract class PhysicalDatasource {
         }
 
         c.setAttachment(null);
+        if (!conWaitQueue.isEmpty()) {
+            ConWaitQueue.Waiter waiter = conWaitQueue.poll(c.isAutocommit());
+            if (waiter != null) {
+                handOver(c, waiter);
+                return;
+            }
+        }
         c.setBorrowed(false);
         c.setLastTime(TimeUtil.currentTimeMillis());
         ConQueue queue = this.conMap.getSchemaConQueue(c.getSchema());
@@ -437,6 +527,17 @@ public abstract class PhysicalDatasource {
         if (queue != null) {
             queue.removeCon(conn);
         }
+        // the closed connection leaves room for a new one
+        if (!conWaitQueue.isEmpty() && !dying.get() && this.getActiveCount() < size) {
+            ConWaitQueue.Waiter waiter = conWaitQueue.poll();
+            if (waiter != null) {
+                try {
+                    createNewConnection(waiter.getHandler(), waiter.getAttachment(), waiter.getSchema());
+                } catch (IOException e) {
+                    failWaiter(waiter, e);
+                }
+            }
+        }
     }
 
     /**
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.heartbeat;
+
+import com.actiontech.dble.backend.datasource.PhysicalDBNode;
+import com.actiontech.dble.meta.protocol.StructureMeta;
+import com.actiontech.dble.sqlengine.MultiRowSQLQueryResultHandler;
+import com.actiontech.dble.sqlengine.SQLJob;
+import com.actiontech.dble.sqlengine.SQLQueryResult;
+import com.actiontech.dble.sqlengine.SQLQueryResultListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * check the consistency of a global table between its data nodes chunk by chunk.
+ * <p>
+ * the chunks are the ranges of the primary key tuple, bounded on the first data node, so a chunk has
+ * at most chunkSize rows even if the leading key column has few distinct values.
+ * every data node returns COUNT(*) and BIT_XOR(CRC32(row)) of a chunk, the rows are only fetched
+ * for the chunks whose checksums still differ at a second look.
+ * <p>
+ * after each chunk the checker sleeps as long as the chunk took, and halves or doubles the next
+ * chunk toward CHUNK_TARGET_MILLIS, so it reads slower when the backends are busy.
+ */
+public class GlobalTableChecksumChecker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GlobalTableChecksumChecker.class);
+    static final String BOUND_COLUMN = "chunk_bound";
+    static final String COUNT_COLUMN = "chunk_count";
+    static final String CHECKSUM_COLUMN = "chunk_checksum";
+    static final String KEY_COLUMN = "row_key";
+    static final String ROW_CHECKSUM_COLUMN = "row_checksum";
+    static final long CHUNK_TARGET_MILLIS = 100;
+    static final int MIN_CHUNK_SIZE = 100;
+    private static final int MAX_DIFF_KEYS = 10;
+    private static final int MAX_REPORTED_CHUNKS = 10000;
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Set<String> INTEGER_TYPES = new HashSet<>(Arrays.asList("tinyint", "smallint", "mediumint",
+            "int", "integer", "bigint"));
+
+    private final String tableName;
+    private final List<PhysicalDBNode> dataNodes;
+    /* the primary key columns, empty if the table has no primary key and is checked as one chunk */
+    private final List<String> keyColumns;
+    /* the key columns whose bounds are written as numbers */
+    private final boolean[] integerKeys;
+    private final String[] boundColumns;
+    private final String keyExpr;
+    private final String rowChecksum;
+    private final int maxChunkSize;
+    private final long timeout;
+    private int chunkSize;
+
+    /**
+     * @param maxChunkSize the rows of a chunk when the backends are idle
+     * @param timeout      milliseconds to wait for a query
+     */
+    public GlobalTableChecksumChecker(StructureMeta.TableMeta tableMeta, List<PhysicalDBNode> dataNodes,
+                                      int maxChunkSize, long timeout) {
+        this.tableName = quote(tableMeta.getTableName());
+        this.dataNodes = dataNodes;
+        List<String> keys = new ArrayList<>();
+        if (tableMeta.hasPrimary()) {
+            for (String key : tableMeta.getPrimary().getColumnsList()) {
+                keys.add(quote(key));
+            }
+        }
+        this.keyColumns = keys;
+        this.keyExpr = keys.size() == 1 ? keys.get(0) : "CONCAT_WS(','," + join(keys) + ")";
+        this.integerKeys = new boolean[keys.size()];
+        this.boundColumns = new String[keys.size()];
+        List<String> columns = new ArrayList<>(tableMeta.getColumnsCount());
+        for (StructureMeta.ColumnMeta column : tableMeta.getColumnsList()) {
+            String quoted = quote(column.getName());
+            columns.add(quoted);
+            int keyIndex = keys.indexOf(quoted);
+            if (keyIndex >= 0) {
+                integerKeys[keyIndex] = isIntegerType(column.getDataType());
+            }
+        }
+        for (int i = 0; i < boundColumns.length; i++) {
+            boundColumns[i] = BOUND_COLUMN + i;
+        }
+        this.rowChecksum = rowChecksum(columns);
+        this.maxChunkSize = Math.max(MIN_CHUNK_SIZE, maxChunkSize);
+        this.timeout = timeout;
+        this.chunkSize = this.maxChunkSize;
+    }
+
+    /**
+     * @return the results of the chunks, the consistent ones after the first MAX_REPORTED_CHUNKS are left out.
+     * the check stops at the chunk whose query fails
+     */
+    public List<ChunkResult> check() throws InterruptedException {
+        List<ChunkResult> results = new ArrayList<>();
+        String[] lower = null;
+        for (int index = 0; ; index++) {
+            long start = System.currentTimeMillis();
+            String[] upper = null;
+            if (!keyColumns.isEmpty()) {
+                List<List<Map<String, String>>> bound = query(dataNodes.subList(0, 1), boundSql(lower), boundColumns);
+                if (bound == null) {
+                    break;
+                }
+                upper = bound.get(0).isEmpty() ? null : boundValues(bound.get(0).get(0));
+            }
+            ChunkResult chunk = checkChunk(index, lower, upper);
+            if (chunk == null) {
+                break;
+            }
+            long millis = System.currentTimeMillis() - start;
+            chunk.millis = millis;
+            if (results.size() < MAX_REPORTED_CHUNKS || !chunk.isConsistent()) {
+                results.add(chunk);
+            }
+            if (upper == null) {
+                break;
+            }
+            lower = upper;
+            chunkSize = nextChunkSize(chunkSize, millis, maxChunkSize);
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+        return results;
+    }
+
+    private ChunkResult checkChunk(int index, String[] lower, String[] upper) throws InterruptedException {
+        String where = rangeCondition(keyColumns, integerKeys, lower, upper);
+        String checksumSql = "SELECT COUNT(*) AS " + COUNT_COLUMN + ",COALESCE(BIT_XOR(" + rowChecksum + "),0) AS " +
+                CHECKSUM_COLUMN + " FROM " + tableName + where;
+        List<List<Map<String, String>>> sums = query(dataNodes, checksumSql, COUNT_COLUMN, CHECKSUM_COLUMN);
+        if (sums == null) {
+            return null;
+        }
+        List<String> diffNodes = diffNodes(sums);
+        if (!diffNodes.isEmpty()) {
+            // the writes in flight differ the nodes for a moment, look again before drilling down
+            TimeUnit.MILLISECONDS.sleep(CHUNK_TARGET_MILLIS);
+            sums = query(dataNodes, checksumSql, COUNT_COLUMN, CHECKSUM_COLUMN);
+            if (sums == null) {
+                return null;
+            }
+            diffNodes = diffNodes(sums);
+        }
+        ChunkResult chunk = new ChunkResult(index, boundString(lower), boundString(upper),
+                parseLong(sums.get(0).get(0).get(COUNT_COLUMN)));
+        if (!diffNodes.isEmpty()) {
+            chunk.diffNodes = diffNodes;
+            chunk.diffKeys = Collections.emptySet();
+            if (!keyColumns.isEmpty()) {
+                String rowsSql = "SELECT " + keyExpr + " AS " + KEY_COLUMN + "," + rowChecksum + " AS " +
+                        ROW_CHECKSUM_COLUMN + " FROM " + tableName + where;
+                List<List<Map<String, String>>> rows = query(dataNodes, rowsSql, KEY_COLUMN, ROW_CHECKSUM_COLUMN);
+                if (rows != null) {
+                    chunk.diffKeys = diffKeys(rows, MAX_DIFF_KEYS);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private String boundSql(String[] lower) {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            sb.append(i == 0 ? "" : ",").append(keyColumns.get(i)).append(" AS ").append(boundColumns[i]);
+        }
+        return sb.append(" FROM ").append(tableName).append(rangeCondition(keyColumns, integerKeys, lower, null)).
+                append(" ORDER BY ").append(join(keyColumns)).append(" LIMIT ").append(chunkSize - 1).append(",1").toString();
+    }
+
+    private String[] boundValues(Map<String, String> row) {
+        String[] values = new String[boundColumns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(boundColumns[i]);
+        }
+        return values;
+    }
+
+    /**
+     * run the sql on the data nodes in parallel
+     *
+     * @return the rows of every data node, null if the sql fails or times out on some node
+     */
+    private List<List<Map<String, String>>> query(List<PhysicalDBNode> nodes, String sql, String... columns) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(nodes.size());
+        List<NodeQuery> queries = new ArrayList<>(nodes.size());
+        for (PhysicalDBNode dn : nodes) {
+            NodeQuery nodeQuery = new NodeQuery(latch);
+            nodeQuery.job = new SQLJob(sql, dn.getDatabase(), new MultiRowSQLQueryResultHandler(columns, nodeQuery),
+                    dn.getDbPool().getSource());
+            queries.add(nodeQuery);
+            nodeQuery.job.run();
+        }
+        boolean done = latch.await(timeout, TimeUnit.MILLISECONDS);
+        List<List<Map<String, String>>> rows = new ArrayList<>(nodes.size());
+        for (int i = 0; i < queries.size(); i++) {
+            NodeQuery nodeQuery = queries.get(i);
+            if (!done && !nodeQuery.job.isFinished()) {
+                nodeQuery.job.terminate("global table check timeout");
+            }
+            if (nodeQuery.rows == null) {
+                LOGGER.info("global table check of " + tableName + " stopped, the sql failed in data node " +
+                        nodes.get(i).getName() + ": " + sql);
+                return null;
+            }
+            rows.add(nodeQuery.rows);
+        }
+        return rows;
+    }
+
+    /**
+     * @return the data nodes whose count or checksum is different from the first one
+     */
+    List<String> diffNodes(List<List<Map<String, String>>> sums) {
+        List<String> nodes = new ArrayList<>();
+        Map<String, String> first = sums.get(0).get(0);
+        for (int i = 1; i < sums.size(); i++) {
+            Map<String, String> sum = sums.get(i).get(0);
+            if (!Objects.equals(first.get(COUNT_COLUMN), sum.get(COUNT_COLUMN)) ||
+                    !Objects.equals(first.get(CHECKSUM_COLUMN), sum.get(CHECKSUM_COLUMN))) {
+                nodes.add(dataNodes.get(i).getName());
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the sorted keys which are missed or have different checksums in some node, at most limit ones
+     */
+    static Set<String> diffKeys(List<List<Map<String, String>>> rows, int limit) {
+        List<Map<String, String>> checksums = new ArrayList<>(rows.size());
+        Set<String> allKeys = new TreeSet<>();
+        for (List<Map<String, String>> nodeRows : rows) {
+            Map<String, String> nodeChecksums = new HashMap<>(nodeRows.size());
+            for (Map<String, String> row : nodeRows) {
+                nodeChecksums.put(row.get(KEY_COLUMN), row.get(ROW_CHECKSUM_COLUMN));
+            }
+            checksums.add(nodeChecksums);
+            allKeys.addAll(nodeChecksums.keySet());
+        }
+        Set<String> keys = new TreeSet<>();
+        for (String key : allKeys) {
+            String checksum = checksums.get(0).get(key);
+            for (Map<String, String> nodeChecksums : checksums) {
+                if (checksum == null || !checksum.equals(nodeChecksums.get(key))) {
+                    keys.add(key);
+                    break;
+                }
+            }
+            if (keys.size() >= limit) {
+                break;
+            }
+        }
+        return keys;
+    }
+
+    static int nextChunkSize(int chunkSize, long millis, int maxChunkSize) {
+        if (millis > CHUNK_TARGET_MILLIS * 2) {
+            return Math.max(MIN_CHUNK_SIZE, chunkSize / 2);
+        } else if (millis < CHUNK_TARGET_MILLIS / 2) {
+            return Math.min(maxChunkSize, chunkSize * 2);
+        }
+        return chunkSize;
+    }
+
+    /**
+     * the bounds of a composite key are expanded into OR terms, MySQL before 5.7.3 uses no index range
+     * for a row constructor comparison like (a,b) > (1,2)
+     *
+     * @param keys        the key columns
+     * @param integerKeys the key columns whose values are written as numbers
+     */
+    static String rangeCondition(List<String> keys, boolean[] integerKeys, String[] lower, String[] upper) {
+        StringBuilder sb = new StringBuilder();
+        if (lower != null) {
+            sb.append(" WHERE ").append(bound(keys, integerKeys, lower, ">", ">"));
+        }
+        if (upper != null) {
+            sb.append(lower == null ? " WHERE " : " AND ").append(bound(keys, integerKeys, upper, "<", "<="));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * eg: (a,b,c) > (1,2,3) is written as (a > 1 OR (a = 1 AND b > 2) OR (a = 1 AND b = 2 AND c > 3))
+     *
+     * @param op     the operator of the columns except the last one
+     * @param lastOp the operator of the last column
+     */
+    private static String bound(List<String> keys, boolean[] integerKeys, String[] values, String op, String lastOp) {
+        int last = keys.size() - 1;
+        if (last == 0) {
+            return keys.get(0) + " " + lastOp + " " + literal(values[0], integerKeys[0]);
+        }
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i <= last; i++) {
+            if (i > 0) {
+                sb.append(" OR (");
+            }
+            for (int j = 0; j < i; j++) {
+                sb.append(keys.get(j)).append(" = ").append(literal(values[j], integerKeys[j])).append(" AND ");
+            }
+            sb.append(keys.get(i)).append(" ").append(i == last ? lastOp : op).append(" ").
+                    append(literal(values[i], integerKeys[i]));
+            if (i > 0) {
+                sb.append(")");
+            }
+        }
+        return sb.append(")").toString();
+    }
+
+    private static String boundString(String[] values) {
+        if (values == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            sb.append(sb.length() == 0 ? "" : ",").append(value);
+        }
+        return sb.toString();
+    }
+
+    static boolean isIntegerType(String dataType) {
+        String type = dataType.toLowerCase();
+        int end = type.indexOf('(');
+        return INTEGER_TYPES.contains((end < 0 ? type : type.substring(0, end)).trim());
+    }
+
+    /**
+     * CONCAT_WS skips NULL, so the NULL flags of the columns are appended to tell NULL from ''
+     */
+    static String rowChecksum(List<String> columns) {
+        StringBuilder nullFlags = new StringBuilder();
+        for (String column : columns) {
+            nullFlags.append(nullFlags.length() == 0 ? "" : ",").append("ISNULL(").append(column).append(")");
+        }
+        return "CRC32(CONCAT_WS('#'," + join(columns) + ",CONCAT(" + nullFlags + ")))";
+    }
+
+    /**
+     * the value of an integer column is written as a number, so the comparison is not done as strings
+     * and the index is used without conversion
+     */
+    static String literal(String value, boolean isInteger) {
+        if (isInteger && INTEGER.matcher(value).matches()) {
+            return value;
+        }
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
+    private static String quote(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+
+    private static String join(List<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            sb.append(sb.length() == 0 ? "" : ",").append(name);
+        }
+        return sb.toString();
+    }
+
+    private static long parseLong(String value) {
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    private static class NodeQuery implements SQLQueryResultListener<SQLQueryResult<List<Map<String, String>>>> {
+        private final CountDownLatch latch;
+        private SQLJob job;
+        private volatile List<Map<String, String>> rows;
+
+        NodeQuery(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onResult(SQLQueryResult<List<Map<String, String>>> result) {
+            if (result.isSuccess()) {
+                rows = result.getResult();
+            }
+            latch.countDown();
+        }
+    }
+
+    public static class ChunkResult {
+        private final int index;
+        private final String lowerBound;
+        private final String upperBound;
+        private final long rows;
+        private long millis;
+        private List<String> diffNodes = Collections.emptyList();
+        private Set<String> diffKeys = Collections.emptySet();
+
+        ChunkResult(int index, String lowerBound, String upperBound, long rows) {
+            this.index = index;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.rows = rows;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return exclusive, null means unbounded
+         */
+        public String getLowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * @return inclusive, null means unbounded
+         */
+        public String getUpperBound() {
+            return upperBound;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isConsistent() {
+            return diffNodes.isEmpty();
+        }
+
+        public List<String> getDiffNodes() {
+            return diffNodes;
+        }
+
+        public Set<String> getDiffKeys() {
+            return diffKeys;
+        }
+    }
+}
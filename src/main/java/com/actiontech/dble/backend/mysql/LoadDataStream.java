@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.buffer.BufferPool;
+import com.actiontech.dble.net.BackendAIOConnection;
+import com.actiontech.dble.net.mysql.MySQLPacket;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * the data of load data sent to one data node while the client is still uploading it.
+ * the lines are encoded into packets which are queued until the backend requests the file,
+ * after that they are written to the backend connection directly.
+ * the producer should stop reading from the client while isFull, the drain listener is told when the stream
+ * may not be full any more: the backend connection has flushed its write queue, or the stream has finished.
+ */
+public class LoadDataStream {
+    /* the packets queued in the stream or in the write queue of the backend connection */
+    private static final int MAX_PENDING_PACKETS = 32;
+
+    private final CharsetEncoder encoder;
+    private final BufferPool bufferPool;
+    private final int chunkSize;
+    private final Runnable drainListener;
+    private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+    /* the size of pending, isFull is called by the drain listener without the lock of the stream */
+    private volatile int pendingSize = 0;
+    private ByteBuffer current;
+    private volatile BackendAIOConnection conn;
+    private byte packId;
+    private boolean ended = false;
+    private volatile boolean finished = false;
+    private String abortReason;
+
+    public LoadDataStream(String charset, Runnable drainListener) {
+        this.drainListener = drainListener;
+        this.encoder = Charset.forName(CharsetUtil.getJavaCharset(charset)).newEncoder().
+                onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bufferPool = DbleServer.getInstance().getBufferPool();
+        this.chunkSize = DbleServer.getInstance().getConfig().getSystem().getBufferPoolChunkSize();
+    }
+
+    /**
+     * the backend requests the file, the packets are numbered from packId
+     */
+    public void start(BackendAIOConnection connection, byte startPackId) {
+        synchronized (this) {
+            this.conn = connection;
+            this.packId = startPackId;
+            if (abortReason != null) {
+                connection.close(abortReason);
+                return;
+            }
+            connection.setWriteQueueEmptyListener(drainListener);
+            ByteBuffer buffer;
+            while ((buffer = pending.poll()) != null) {
+                send(buffer);
+            }
+            pendingSize = 0;
+            if (ended) {
+                sendEnd();
+            }
+        }
+        // the pending packets are moved to the write queue of the connection
+        drainListener.run();
+    }
+
+    public synchronized void write(char[] chars, int start, int end, char[] lineTerminator) {
+        if (ended || finished) {
+            return;
+        }
+        encode(CharBuffer.wrap(chars, start, end - start), false);
+        encode(CharBuffer.wrap(lineTerminator), false);
+    }
+
+    /**
+     * all the lines are written, the empty packet is sent once the backend requested the file
+     */
+    public synchronized void end() {
+        if (ended || finished) {
+            return;
+        }
+        ended = true;
+        encode(CharBuffer.allocate(0), true);
+        while (encoder.flush(current()) == CoderResult.OVERFLOW) {
+            seal();
+        }
+        if (current.position() > MySQLPacket.PACKET_HEADER_SIZE) {
+            seal();
+        } else {
+            // no data left, such as a node without lines, sendEnd leaves nothing for discard to recycle
+            bufferPool.recycle(current);
+            current = null;
+        }
+        if (conn != null) {
+            sendEnd();
+        }
+    }
+
+    /**
+     * stop the load of this data node, the backend connection is closed so that the statement fails
+     */
+    public void abort(String reason) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            abortReason = reason;
+            discard();
+            if (conn != null) {
+                conn.close(reason);
+            }
+        }
+        drainListener.run();
+    }
+
+    /**
+     * the backend has answered or its connection is gone before the empty packet is sent, the data is dropped
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            discard();
+        }
+        drainListener.run();
+    }
+
+    public boolean isFull() {
+        if (finished) {
+            return false;
+        }
+        BackendAIOConnection connection = conn;
+        if (connection == null) {
+            return pendingSize >= MAX_PENDING_PACKETS;
+        }
+        return !connection.isClosed() && connection.getWriteQueue().size() >= MAX_PENDING_PACKETS;
+    }
+
+    public synchronized boolean isEnded() {
+        return ended || finished;
+    }
+
+    private void encode(CharBuffer in, boolean endOfInput) {
+        while (encoder.encode(in, current(), endOfInput) == CoderResult.OVERFLOW) {
+            seal();
+        }
+    }
+
+    private ByteBuffer current() {
+        if (current == null) {
+            current = bufferPool.allocate(chunkSize);
+            current.limit(chunkSize - 1);
+            current.position(MySQLPacket.PACKET_HEADER_SIZE);
+        }
+        return current;
+    }
+
+    /**
+     * the current packet is full
+     */
+    private void seal() {
+        ByteBuffer buffer = current;
+        current = null;
+        int length = buffer.position() - MySQLPacket.PACKET_HEADER_SIZE;
+        buffer.put(0, (byte) (length & 0xff));
+        buffer.put(1, (byte) (length >>> 8));
+        buffer.put(2, (byte) (length >>> 16));
+        if (conn == null) {
+            pending.offer(buffer);
+            pendingSize = pending.size();
+        } else {
+            send(buffer);
+        }
+    }
+
+    private void send(ByteBuffer buffer) {
+        buffer.put(3, ++packId);
+        conn.write(buffer);
+    }
+
+    private void sendEnd() {
+        finished = true;
+        conn.setWriteQueueEmptyListener(null);
+        conn.write(new byte[]{0, 0, 0, ++packId});
+    }
+
+    private void discard() {
+        finished = true;
+        if (conn != null) {
+            conn.setWriteQueueEmptyListener(null);
+        }
+        ByteBuffer buffer;
+        while ((buffer = pending.poll()) != null) {
+            bufferPool.recycle(buffer);
+        }
+        pendingSize = 0;
+        if (current != null) {
+            bufferPool.recycle(current);
+            current = null;
+        }
+    }
+}
@@ -28,6 +28,10 @@ public final class LoadDataUtil {
         BackendAIOConnection backendAIOConnection = (BackendAIOConnection) conn;
         RouteResultsetNode rrn = (RouteResultsetNode) conn.getAttachment();
         LoadData loadData = rrn.getLoadData();
+        if (loadData.getStream() != null) {
+            loadData.getStream().start(backendAIOConnection, packId);
+            return;
+        }
         List<String> loadDataData = loadData.getData();
         try {
             if (loadDataData != null && loadDataData.size() > 0) {
@@ -62,6 +66,24 @@ public final class LoadDataUtil {
 
     }
 
+    /**
+     * the backend answers the load data before the file is sent completely or its connection is gone,
+     * drop the data streamed to it
+     */
+    public static void cancelStream(BackendConnection conn) {
+        Object attachment = conn.getAttachment();
+        if (attachment instanceof RouteResultsetNode) {
+            cancelStream((RouteResultsetNode) attachment);
+        }
+    }
+
+    public static void cancelStream(RouteResultsetNode node) {
+        LoadData loadData = node.getLoadData();
+        if (loadData != null && loadData.getStream() != null) {
+            loadData.getStream().cancel();
+        }
+    }
+
     public static byte writeToBackConnection(byte packID, InputStream inputStream, BackendAIOConnection backendAIOConnection) throws IOException {
         try {
             int packSize = DbleServer.getInstance().getConfig().getSystem().getBufferPoolChunkSize() - 5;
@@ -5,6 +5,9 @@
 */
 package com.actiontech.dble.backend.mysql;
 
+import com.actiontech.dble.route.RouteTemplate;
+import com.actiontech.dble.route.parser.util.ParameterizedSql;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
@@ -20,6 +23,8 @@ public class PreparedStatement {
     private int columnsNumber;
     private int parametersNumber;
     private int[] parametersType;
+    /* the positions of the parameter markers in the statement */
+    private int[] parametersPosition;
     /**
      * store the byte data from COM_STMT_SEND_LONG_DATA
      * <pre>
@@ -28,13 +33,21 @@ public class PreparedStatement {
      * </pre>
      */
     private Map<Long, ByteArrayOutputStream> longDataMap;
+    /* the statement with parameter markers, null if it can not be parameterized */
+    private ParameterizedSql parameterizedSql;
+    /* the route template of the select and the schema it is made in */
+    private RouteTemplate routeTemplate;
+    private String routeSchema;
+    /* the parameter which the sharding column of the route template is compared with */
+    private int shardingParam = -1;
 
-    public PreparedStatement(long id, String statement, int columnsNumber, int parametersNumber) {
+    public PreparedStatement(long id, String statement, int columnsNumber, int[] parametersPosition) {
         this.id = id;
         this.statement = statement;
         this.columnsNumber = columnsNumber;
-        this.parametersNumber = parametersNumber;
+        this.parametersNumber = parametersPosition.length;
         this.parametersType = new int[parametersNumber];
+        this.parametersPosition = parametersPosition;
         this.longDataMap = new HashMap<>();
     }
 
@@ -58,6 +71,36 @@ public class PreparedStatement {
         return parametersType;
     }
 
+    public int[] getParametersPosition() {
+        return parametersPosition;
+    }
+
+    public ParameterizedSql getParameterizedSql() {
+        return parameterizedSql;
+    }
+
+    public void setParameterizedSql(ParameterizedSql parameterizedSql) {
+        this.parameterizedSql = parameterizedSql;
+    }
+
+    public RouteTemplate getRouteTemplate() {
+        return routeTemplate;
+    }
+
+    public String getRouteSchema() {
+        return routeSchema;
+    }
+
+    public int getShardingParam() {
+        return shardingParam;
+    }
+
+    public void setRouteTemplate(RouteTemplate template, String schema, int param) {
+        this.routeTemplate = template;
+        this.routeSchema = schema;
+        this.shardingParam = param;
+    }
+
     public ByteArrayOutputStream getLongData(long paramId) {
         return longDataMap.get(paramId);
     }
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.channels.NetworkChannel;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
@@ -43,6 +44,8 @@ public class MySQLConnection extends BackendAIOConnection {
     private volatile String schema = null;
     private volatile String oldSchema;
     private volatile boolean borrowed = false;
+    /* the schema the connection is counted in as an active connection of the pool, null if it is not counted */
+    private String activeSchema = null;
     private volatile boolean modifiedSQLExecuted = false;
     private volatile boolean isDDL = false;
     private volatile boolean isRunning;
@@ -191,6 +194,19 @@ public class MySQLConnection extends BackendAIOConnection {
             this.oldSchema = curSchema;
             this.schema = newSchema;
         }
+        updateActiveSchema();
+    }
+
+    /**
+     * keep the active connection counters of the pool, a connection is active if it is borrowed and not closed
+     */
+    private synchronized void updateActiveSchema() {
+        String newActiveSchema = borrowed && !isClosed() ? schema : null;
+        if (pool == null || Objects.equals(activeSchema, newActiveSchema)) {
+            return;
+        }
+        pool.changeActiveSchema(activeSchema, newActiveSchema);
+        activeSchema = newActiveSchema;
     }
 
     public MySQLDataSource getPool() {
@@ -525,6 +541,7 @@ public class MySQLConnection extends BackendAIOConnection {
         if (!isClosed.get()) {
             isQuit.set(true);
             super.close(reason);
+            updateActiveSchema();
             pool.connectionClosed(this);
         }
     }
@@ -559,6 +576,8 @@ public class MySQLConnection extends BackendAIOConnection {
             return;
         }
         complexQuery = false;
+        // the reads may be stopped by flow control of the last handler
+        enableReadOfAll();
         metaDataSynced = true;
         attachment = null;
         statusSync = null;
@@ -579,6 +598,12 @@ public class MySQLConnection extends BackendAIOConnection {
         return false;
     }
 
+    @Override
+    protected boolean handleDirect(ByteBuffer buffer) {
+        return !isSupportCompress() && handler instanceof MySQLConnectionHandler &&
+                ((MySQLConnectionHandler) handler).handleDirect(buffer);
+    }
+
     public void writeQueueAvailable() {
         if (respHandler != null) {
             respHandler.writeQueueAvailable();
@@ -613,6 +638,7 @@ public class MySQLConnection extends BackendAIOConnection {
     public void setBorrowed(boolean borrowed) {
         this.lastTime = TimeUtil.currentTimeMillis();
         this.borrowed = borrowed;
+        updateActiveSchema();
     }
 
     @Override
@@ -7,6 +7,7 @@ package com.actiontech.dble.backend.mysql.nio;
 
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.ByteUtil;
+import com.actiontech.dble.backend.mysql.nio.handler.DirectRowResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.LoadDataResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.ResponseHandler;
 import com.actiontech.dble.net.handler.BackendAsyncHandler;
@@ -17,6 +18,7 @@ import com.actiontech.dble.net.mysql.RequestFilePacket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -57,11 +59,37 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
     public void handle(byte[] data) {
         if (source.isComplexQuery()) {
             offerData(data, DbleServer.getInstance().getComplexQueryExecutor());
+        } else if (isDirectResponse()) {
+            handleDataDirect(data, source.getProcessor().getExecutor());
         } else {
             offerData(data, source.getProcessor().getExecutor());
         }
     }
 
+    private boolean isDirectResponse() {
+        ResponseHandler respHand = responseHandler;
+        return respHand instanceof DirectRowResponseHandler && ((DirectRowResponseHandler) respHand).isDirectResponse();
+    }
+
+    /**
+     * forward the row packet to the handler in the reactor thread without copying it,
+     * only when all the packets before it have been handled, so the order and resultStatus are right
+     */
+    public boolean handleDirect(ByteBuffer buffer) {
+        if (resultStatus != RESULT_STATUS_FIELD_EOF || isHandling.get() || !dataQueue.isEmpty()) {
+            return false;
+        }
+        ResponseHandler respHand = responseHandler;
+        if (!(respHand instanceof DirectRowResponseHandler)) {
+            return false;
+        }
+        byte type = buffer.get(buffer.position() + 4);
+        if (type == ErrorPacket.FIELD_COUNT || type == EOFPacket.FIELD_COUNT) {
+            return false;
+        }
+        return ((DirectRowResponseHandler) respHand).directRowResponse(buffer, source);
+    }
+
     @Override
     protected void offerDataError() {
         resultStatus = RESULT_STATUS_INIT;
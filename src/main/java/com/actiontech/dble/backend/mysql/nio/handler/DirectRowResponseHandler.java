@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler;
+
+import com.actiontech.dble.backend.BackendConnection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * the handler which can forward a row packet from the read buffer of the backend connection without copying it
+ * into a byte[] and passing it to the executor
+ */
+public interface DirectRowResponseHandler {
+    /**
+     * called in the reactor thread, the row packet is from buffer.position() to buffer.limit()
+     *
+     * @return false if the handler needs the row as byte[], the row is handled by rowResponse then
+     */
+    boolean directRowResponse(ByteBuffer buffer, BackendConnection conn);
+
+    /**
+     * @return true if all the responses can be handled in the reactor thread, the handling never blocks
+     */
+    boolean isDirectResponse();
+}
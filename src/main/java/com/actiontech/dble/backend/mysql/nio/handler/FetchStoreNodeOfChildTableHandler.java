@@ -8,113 +8,207 @@ package com.actiontech.dble.backend.mysql.nio.handler;
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.datasource.PhysicalDBNode;
+import com.actiontech.dble.backend.mysql.CharsetUtil;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.cache.CachePool;
+import com.actiontech.dble.config.model.TableConfig;
 import com.actiontech.dble.net.mysql.ErrorPacket;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
 import com.actiontech.dble.route.RouteResultsetNode;
 import com.actiontech.dble.server.NonBlockingSession;
 import com.actiontech.dble.server.parser.ServerParse;
+import com.actiontech.dble.sqlengine.SQLQueryResultListener;
+import com.actiontech.dble.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * company where id=(select company_id from customer where id=3); the one which
  * return data (id) is the data node to store child table's records
+ * <p>
+ * the join key values missing in the cache are looked up together by one query with IN on each data node
+ * of the root parent, the listener is called with join key value -> data node when all the nodes answered
  *
  * @author wuzhih, huqing.yan
  */
 public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(FetchStoreNodeOfChildTableHandler.class);
-    private final String sql;
-    private AtomicBoolean hadResult = new AtomicBoolean(false);
-    private volatile String dataNode;
-    private AtomicInteger finished = new AtomicInteger(0);
-    protected final ReentrantLock lock = new ReentrantLock();
-    private Condition result = lock.newCondition();
+    private final TableConfig tc;
+    private final String schema;
     private final NonBlockingSession session;
+    /* join key value -> data node */
+    private final Map<String, String> dataNodes = new ConcurrentHashMap<>();
+    /* the join key value without apostrophe -> join key value, the ones to look up */
+    private final Map<String, String> missingKeys = new ConcurrentHashMap<>();
+    private final Set<BackendConnection> finishedConns = Collections.newSetFromMap(new ConcurrentHashMap<BackendConnection, Boolean>());
+    private final AtomicInteger unfinished = new AtomicInteger(0);
+    private String sql;
+    private SQLQueryResultListener<Map<String, String>> listener;
 
-    public FetchStoreNodeOfChildTableHandler(String sql, NonBlockingSession session) {
-        this.sql = sql;
+    public FetchStoreNodeOfChildTableHandler(TableConfig tc, String schema, NonBlockingSession session) {
+        this.tc = tc;
+        this.schema = schema;
         this.session = session;
     }
 
-    public String execute(String schema, ArrayList<String> dataNodes) {
-        String key = schema + ":" + sql;
+    /**
+     * @param joinKeyVals the join key values as they are in sql
+     * @return true if all the data nodes are found in the cache
+     */
+    public boolean loadFromCache(Collection<String> joinKeyVals) {
         CachePool cache = DbleServer.getInstance().getCacheService().getCachePool("ER_SQL2PARENTID");
-        if (cache != null) {
-            String cacheResult = (String) cache.get(key);
-            if (cacheResult != null) {
-                return cacheResult;
+        for (String joinKeyVal : joinKeyVals) {
+            if (dataNodes.containsKey(joinKeyVal)) {
+                continue;
+            }
+            String dataNode = cache == null ? null : (String) cache.get(getCacheKey(joinKeyVal));
+            if (dataNode != null) {
+                dataNodes.put(joinKeyVal, dataNode);
+            } else {
+                missingKeys.put(StringUtil.removeApostrophe(joinKeyVal), joinKeyVal);
             }
         }
+        return missingKeys.isEmpty();
+    }
 
-        int totalCount = dataNodes.size();
+    /**
+     * @return join key value -> data node, the values not found are absent
+     */
+    public Map<String, String> getDataNodes() {
+        return dataNodes;
+    }
 
-        LOGGER.debug("find child node with sql:" + sql);
-        for (String dn : dataNodes) {
-            if (!LOGGER.isDebugEnabled()) {
-                //no early return when debug
-                if (dataNode != null) {
-                    LOGGER.debug(" found return ");
-                    return dataNode;
-                }
+    /**
+     * look up the values missing in the cache, the listener is called in the ComplexQueryExecutor
+     */
+    public void execute(SQLQueryResultListener<Map<String, String>> resultListener) {
+        this.listener = resultListener;
+        if (missingKeys.isEmpty()) {
+            onFinished();
+            return;
+        }
+        sql = buildLocateSql(tc.getLocateRTableKeysSql(), missingKeys.values());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("find child node with sql:" + sql);
+        }
+
+        List<String> rootDataNodes = tc.getRootParent().getDataNodes();
+        unfinished.set(rootDataNodes.size());
+        for (String dn : rootDataNodes) {
+            execute(dn);
+        }
+    }
+
+    private void execute(String dn) {
+        PhysicalDBNode mysqlDN = DbleServer.getInstance().getConfig().getDataNodes().get(dn);
+        try {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("execute in data_node " + dn);
             }
-            PhysicalDBNode mysqlDN = DbleServer.getInstance().getConfig().getDataNodes().get(dn);
-            try {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("execute in data_node " + dn);
+            RouteResultsetNode node = new RouteResultsetNode(dn, ServerParse.SELECT, sql);
+            node.setRunOnSlave(false); // get child node from master
+            BackendConnection conn = session.getTarget(node);
+            if (session.tryExistsCon(conn, node)) {
+                if (session.closed()) {
+                    session.clearResources(true);
+                    finish(null);
+                    return;
                 }
-                RouteResultsetNode node = new RouteResultsetNode(dn, ServerParse.SELECT, sql);
-                node.setRunOnSlave(false); // get child node from master
-                BackendConnection conn = session.getTarget(node);
-                if (session.tryExistsCon(conn, node)) {
-                    if (session.closed()) {
-                        session.clearResources(true);
-                        return null;
-                    }
-                    conn.setResponseHandler(this);
-                    ((MySQLConnection) conn).setComplexQuery(true);
-                    conn.execute(node, session.getSource(), isAutoCommit());
-                } else {
-                    mysqlDN.getConnection(mysqlDN.getDatabase(), session.getSource().isTxStart(), session.getSource().isAutocommit(), node, this, node);
-                }
-            } catch (Exception e) {
-                LOGGER.info("get connection err " + e);
+                conn.setResponseHandler(this);
+                ((MySQLConnection) conn).setComplexQuery(true);
+                conn.execute(node, session.getSource(), isAutoCommit());
+            } else {
+                mysqlDN.getConnection(mysqlDN.getDatabase(), session.getSource().isTxStart(), session.getSource().isAutocommit(), node, this, node);
             }
+        } catch (Exception e) {
+            LOGGER.info("get connection err " + e);
+            finish(null);
         }
-        lock.lock();
-        try {
-            while (dataNode == null) {
-                try {
-                    result.await(50, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    break;
-                }
-                if (dataNode != null || finished.get() >= totalCount) {
-                    break;
-                }
+    }
+
+    /**
+     * one query looks up all the join key values
+     */
+    static String buildLocateSql(String locateRTableKeysSql, Collection<String> joinKeyVals) {
+        StringBuilder sb = new StringBuilder(locateRTableKeysSql.toLowerCase());
+        boolean first = true;
+        for (String joinKeyVal : joinKeyVals) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(joinKeyVal);
+            first = false;
+        }
+        return sb.append(')').toString();
+    }
+
+    private String getCacheKey(String joinKeyVal) {
+        return schema + ":" + tc.getLocateRTableKeySql().toLowerCase() + joinKeyVal;
+    }
+
+    /**
+     * the value returned may differ from the one in sql, such as 'A' for 'a' or 1.0 for 1
+     */
+    private String matchJoinKey(String value) {
+        String joinKeyVal = missingKeys.get(value);
+        if (joinKeyVal != null) {
+            return joinKeyVal;
+        }
+        for (Map.Entry<String, String> entry : missingKeys.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(value) || isSameNumber(entry.getKey(), value)) {
+                return entry.getValue();
             }
-        } finally {
-            lock.unlock();
         }
+        return null;
+    }
+
+    private static boolean isSameNumber(String a, String b) {
+        try {
+            return new BigDecimal(a.trim()).compareTo(new BigDecimal(b.trim())) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param conn null if the query is not sent
+     */
+    private void finish(BackendConnection conn) {
+        if (conn != null && !finishedConns.add(conn)) {
+            return;
+        }
+        if (unfinished.decrementAndGet() == 0) {
+            onFinished();
+        }
+    }
+
+    private void onFinished() {
         if (!LOGGER.isDebugEnabled()) {
             //no cached when debug
-            if (dataNode != null && cache != null) {
-                cache.putIfAbsent(key, dataNode);
+            CachePool cache = DbleServer.getInstance().getCacheService().getCachePool("ER_SQL2PARENTID");
+            if (cache != null) {
+                for (String joinKeyVal : missingKeys.values()) {
+                    String dataNode = dataNodes.get(joinKeyVal);
+                    if (dataNode != null) {
+                        cache.putIfAbsent(getCacheKey(joinKeyVal), dataNode);
+                    }
+                }
             }
         }
-        return dataNode;
-
+        // the connection may be used by the session to execute the insert, so leave the response thread
+        DbleServer.getInstance().getComplexQueryExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onResult(dataNodes);
+            }
+        });
     }
 
     private boolean isAutoCommit() {
@@ -140,19 +234,19 @@ public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
 
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
-        finished.incrementAndGet();
         LOGGER.info("connectionError " + e);
+        finish(null);
     }
 
     @Override
     public void errorResponse(byte[] data, BackendConnection conn) {
-        finished.incrementAndGet();
         ErrorPacket err = new ErrorPacket();
         err.read(data);
         LOGGER.info("errorResponse " + err.getErrNo() + " " + new String(err.getMessage()));
         if (canReleaseConn()) {
             conn.release();
         }
+        finish(conn);
     }
 
     @Override
@@ -162,10 +256,10 @@ public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
         }
         boolean executeResponse = conn.syncAndExecute();
         if (executeResponse) {
-            finished.incrementAndGet();
             if (canReleaseConn()) {
                 conn.release();
             }
+            finish(conn);
         }
     }
 
@@ -174,15 +268,25 @@ public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("received rowResponse response from  " + conn);
         }
-        if (hadResult.compareAndSet(false, true)) {
-            lock.lock();
-            try {
-                dataNode = ((RouteResultsetNode) conn.getAttachment()).getName();
-                result.signal();
-            } finally {
-                lock.unlock();
-            }
-        } else {
+        RowDataPacket rowDataPkg = rowPacket;
+        if (rowDataPkg == null) {
+            rowDataPkg = new RowDataPacket(1);
+            rowDataPkg.read(row);
+        }
+        byte[] value = rowDataPkg.getValue(0);
+        if (value == null) {
+            return false;
+        }
+        String joinKeyVal;
+        try {
+            joinKeyVal = matchJoinKey(new String(value, CharsetUtil.getJavaCharset(conn.getCharset().getResults())));
+        } catch (UnsupportedEncodingException e) {
+            joinKeyVal = matchJoinKey(new String(value));
+        }
+        String dataNode = ((RouteResultsetNode) conn.getAttachment()).getName();
+        if (joinKeyVal == null) {
+            LOGGER.info("can't match the value " + new String(value) + " of child table store, sql is:  " + sql);
+        } else if (dataNodes.put(joinKeyVal, dataNode) != null) {
             LOGGER.info("find multi data nodes for child table store, sql is:  " + sql);
         }
         return false;
@@ -194,18 +298,18 @@ public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("rowEofResponse" + conn);
         }
-        finished.incrementAndGet();
         if (canReleaseConn()) {
             conn.release();
         }
+        finish(conn);
     }
 
     private void executeException(BackendConnection c, Throwable e) {
-        finished.incrementAndGet();
         LOGGER.info("executeException   " + e);
         if (canReleaseConn()) {
             c.release();
         }
+        finish(c);
     }
 
     @Override
@@ -216,6 +320,7 @@ public class FetchStoreNodeOfChildTableHandler implements ResponseHandler {
     @Override
     public void connectionClose(BackendConnection conn, String reason) {
         LOGGER.info("connection closed " + conn + " reason:" + reason);
+        finish(conn);
     }
 
     @Override
@@ -54,7 +54,9 @@ public class GetConnectionHandler implements ResponseHandler {
     public void connectionError(Throwable e, BackendConnection conn) {
         finishedCount.addAndGet(1);
         LOGGER.info("connect error " + conn + e);
-        conn.release();
+        if (conn != null) {
+            conn.release();
+        }
     }
 
     @Override
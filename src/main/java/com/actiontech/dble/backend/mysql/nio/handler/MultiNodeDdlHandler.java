@@ -157,7 +157,8 @@ public class MultiNodeDdlHandler extends MultiNodeHandler {
                 setFail(new String(err.getMessage()));
             }
             errConn = true;
-            if (!conn.syncAndExecute()) {
+            // conn is null when no backend connection was got, such as waiting for one timeout
+            if (conn != null && !conn.syncAndExecute()) {
                 return;
             }
             if (--nodeCount <= 0) {
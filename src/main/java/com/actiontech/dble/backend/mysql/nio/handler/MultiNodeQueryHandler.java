@@ -33,15 +33,20 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author mycat
  */
 public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataResponseHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiNodeQueryHandler.class);
+    /* a connection still sending rows after discarding so many of them is closed instead of being drained */
+    private static final int MAX_ROWS_AFTER_LIMIT = 1024;
     protected final RouteResultset rrs;
     protected final NonBlockingSession session;
     private final boolean sessionAutocommit;
@@ -61,6 +66,15 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
     private List<FieldPacket> fieldPackets = new ArrayList<>();
     private volatile ByteBuffer byteBuffer;
     private Set<BackendConnection> closedConnSet;
+    /* the connections closed because the rows after the limit are useless */
+    private Set<BackendConnection> cancelledConnSet;
+    /* the connections which have sent row eof or been cancelled, only used when the limit can cancel */
+    private Set<BackendConnection> endedConnSet;
+    /* the count of the rows discarded after the limit is reached, for each connection */
+    private Map<BackendConnection, Integer> afterLimitRows;
+    private volatile boolean limitReached = false;
+    /* data node -> the time it finished, for the sql stat */
+    private final Map<String, Long> nodeEndTimes = new ConcurrentHashMap<>();
 
     public MultiNodeQueryHandler(RouteResultset rrs, NonBlockingSession session) {
         super(session);
@@ -90,6 +104,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         super.reset(initCount);
         this.netInBytes = 0;
         this.netOutBytes = 0;
+        this.nodeEndTimes.clear();
     }
 
     public NonBlockingSession getSession() {
@@ -141,7 +156,10 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
 
     @Override
     public void connectionClose(BackendConnection conn, String reason) {
-        if (checkClosedConn(conn)) {
+        if (rrs.isLoadData()) {
+            LoadDataUtil.cancelStream(conn);
+        }
+        if (isCancelled(conn) || checkClosedConn(conn)) {
             return;
         }
         LOGGER.info("backend connect" + reason);
@@ -155,6 +173,9 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
 
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
+        if (rrs.isLoadData() && conn != null) {
+            LoadDataUtil.cancelStream(conn);
+        }
         LOGGER.info("backend connect", e);
         ErrorPacket errPacket = new ErrorPacket();
         errPacket.setPacketId(++packetId);
@@ -166,6 +187,15 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
 
     @Override
     public void connectionAcquired(final BackendConnection conn) {
+        if (limitReached) {
+            // the limit is reached by the other nodes, no need to query this node
+            conn.setAttachment(null);
+            conn.release();
+            if (decrementCountBy(1)) {
+                onAllNodesEnd(new EOFPacket().toBytes(), session.getSource());
+            }
+            return;
+        }
         final RouteResultsetNode node = (RouteResultsetNode) conn.getAttachment();
         session.bindConnection(node, conn);
         innerExecute(conn, node);
@@ -173,6 +203,12 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
 
     @Override
     public void errorResponse(byte[] data, BackendConnection conn) {
+        if (isCancelled(conn)) {
+            return;
+        }
+        if (rrs.isLoadData()) {
+            LoadDataUtil.cancelStream(conn);
+        }
         ErrorPacket errPacket = new ErrorPacket();
         errPacket.read(data);
         errPacket.setPacketId(1); //TODO :CONFIRM ?++packetId??
@@ -199,6 +235,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
     @Override
     public void okResponse(byte[] data, BackendConnection conn) {
         this.netOutBytes += data.length;
+        recordNodeEnd(conn);
         boolean executeResponse = conn.syncAndExecute();
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("received ok response ,executeResponse:" + executeResponse + " from " + conn);
@@ -281,8 +318,9 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         }
 
         this.netOutBytes += eof.length;
+        recordNodeEnd(conn);
 
-        if (errorResponse.get()) {
+        if (errorResponse.get() || (canCancelAfterLimit() && !endNode(conn, false))) {
             return;
         }
 
@@ -296,20 +334,24 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         }
 
         if (decrementCountBy(1)) {
-            if (!rrs.isCallStatement() || (rrs.isCallStatement() && rrs.getProcedure().isResultSimpleValue())) {
-                if (this.sessionAutocommit && !session.getSource().isTxStart() && !session.getSource().isLocked()) { // clear all connections
-                    session.releaseConnections(false);
-                }
+            onAllNodesEnd(eof, source);
+        }
 
-                if (this.isFail() || session.closed()) {
-                    tryErrorFinished(true);
-                    return;
-                }
+    }
+
+    private void onAllNodesEnd(byte[] eof, ServerConnection source) {
+        if (!rrs.isCallStatement() || (rrs.isCallStatement() && rrs.getProcedure().isResultSimpleValue())) {
+            if (this.sessionAutocommit && !session.getSource().isTxStart() && !session.getSource().isLocked()) { // clear all connections
+                session.releaseConnections(false);
             }
-            writeEofResult(eof, source);
-            doSqlStat(source);
-        }
 
+            if (this.isFail() || session.closed()) {
+                tryErrorFinished(true);
+                return;
+            }
+        }
+        writeEofResult(eof, source);
+        doSqlStat(source);
     }
 
     @Override
@@ -323,54 +365,75 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
             //conn.close(error);
             return true;
         }
+        boolean cancel = false;
         lock.lock();
         try {
-            this.selectRows++;
-            RouteResultsetNode rNode = (RouteResultsetNode) conn.getAttachment();
-            String dataNode = rNode.getName();
-
-            if (rrs.getLimitSize() >= 0) {
-                if (selectRows <= rrs.getLimitStart() ||
-                        (selectRows > (rrs.getLimitStart() < 0 ? 0 : rrs.getLimitStart()) + rrs.getLimitSize())) {
-                    return false;
-                }
-            }
-            RowDataPacket rowDataPkg = null;
-            // cache primaryKey-> dataNode
-            if (primaryKeyIndex != -1) {
-                rowDataPkg = new RowDataPacket(fieldCount);
-                rowDataPkg.read(row);
-                String primaryKey = new String(rowDataPkg.fieldValues.get(primaryKeyIndex));
-                LayerCachePool pool = DbleServer.getInstance().getRouterService().getTableId2DataNodeCache();
-                if (pool != null) {
-                    pool.putIfAbsent(primaryKeyTable, primaryKey, dataNode);
-                }
+            if (isCancelled(conn)) {
+                return false;
             }
-            row[3] = ++packetId;
-            if (prepared) {
-                if (rowDataPkg == null) {
-                    rowDataPkg = new RowDataPacket(fieldCount);
-                    rowDataPkg.read(row);
+            this.selectRows++;
+            long limitEnd = (rrs.getLimitStart() < 0 ? 0 : rrs.getLimitStart()) + rrs.getLimitSize();
+            if (rrs.getLimitSize() < 0 || (selectRows > rrs.getLimitStart() && selectRows <= limitEnd)) {
+                writeRow(row, conn);
+                if (selectRows == limitEnd && canCancelAfterLimit()) {
+                    limitReached = true;
                 }
-                BinaryRowDataPacket binRowDataPk = new BinaryRowDataPacket();
-                binRowDataPk.read(fieldPackets, rowDataPkg);
-                binRowDataPk.write(byteBuffer, session.getSource(), true);
-            } else {
-                byteBuffer = session.getSource().writeToBuffer(row, byteBuffer);
+            } else if (limitReached) {
+                cancel = discardAfterLimit(conn);
             }
         } catch (Exception e) {
             handleDataProcessException(e);
         } finally {
             lock.unlock();
         }
+        if (cancel) {
+            cancelAfterLimit(conn);
+        }
         return false;
     }
 
+    private void writeRow(byte[] row, BackendConnection conn) throws Exception {
+        RouteResultsetNode rNode = (RouteResultsetNode) conn.getAttachment();
+        String dataNode = rNode.getName();
+        RowDataPacket rowDataPkg = null;
+        // cache primaryKey-> dataNode
+        if (primaryKeyIndex != -1) {
+            rowDataPkg = new RowDataPacket(fieldCount);
+            rowDataPkg.read(row);
+            String primaryKey = new String(rowDataPkg.fieldValues.get(primaryKeyIndex));
+            LayerCachePool pool = DbleServer.getInstance().getRouterService().getTableId2DataNodeCache();
+            if (pool != null) {
+                pool.putIfAbsent(primaryKeyTable, primaryKey, dataNode);
+            }
+        }
+        row[3] = ++packetId;
+        if (prepared) {
+            if (rowDataPkg == null) {
+                rowDataPkg = new RowDataPacket(fieldCount);
+                rowDataPkg.read(row);
+            }
+            BinaryRowDataPacket binRowDataPk = new BinaryRowDataPacket();
+            binRowDataPk.read(fieldPackets, rowDataPkg);
+            binRowDataPk.write(byteBuffer, session.getSource(), true);
+        } else {
+            byteBuffer = session.getSource().writeToBuffer(row, byteBuffer);
+        }
+    }
+
     @Override
     public void clearResources() {
         if (closedConnSet != null) {
             closedConnSet.clear();
         }
+        if (cancelledConnSet != null) {
+            cancelledConnSet.clear();
+        }
+        if (endedConnSet != null) {
+            endedConnSet.clear();
+        }
+        if (afterLimitRows != null) {
+            afterLimitRows.clear();
+        }
     }
 
     @Override
@@ -410,7 +473,10 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
             if (errConnection == null) {
                 errConnection = new ArrayList<>();
             }
-            errConnection.add(conn);
+            // conn is null when no backend connection was got, such as waiting for one timeout
+            if (conn != null) {
+                errConnection.add(conn);
+            }
             if (--nodeCount <= 0) {
                 handleDdl();
                 session.handleSpecial(rrs, session.getSource().getSchema(), false);
@@ -444,7 +510,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
             }
             assert rrs != null;
             QueryResult queryResult = new QueryResult(session.getSource().getUser(), rrs.getSqlType(),
-                    rrs.getStatement(), selectRows, netInBytes, netOutBytes, startTime, System.currentTimeMillis(), resultSize);
+                    rrs.getStatement(), rrs.getStatStatement(), new HashMap<>(nodeEndTimes), selectRows, netInBytes, netOutBytes, startTime, System.currentTimeMillis(), resultSize);
             QueryResultDispatcher.dispatchQuery(queryResult);
         }
     }
@@ -500,6 +566,87 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         }
     }
 
+    /**
+     * the connection can be closed without affecting the session only if it is not in a transaction
+     */
+    private boolean canCancelAfterLimit() {
+        ServerConnection source = session.getSource();
+        return rrs.getSqlType() == ServerParse.SELECT && !rrs.isCallStatement() && this.sessionAutocommit &&
+                !source.isTxStart() && !source.isLocked();
+    }
+
+    /**
+     * the rows after the limit are read and discarded, a connection with a small rest result ends by itself
+     *
+     * @return true if the connection has discarded MAX_ROWS_AFTER_LIMIT rows and is cancelled now
+     */
+    private boolean discardAfterLimit(BackendConnection conn) {
+        if (afterLimitRows == null) {
+            afterLimitRows = new HashMap<>();
+        }
+        Integer discarded = afterLimitRows.get(conn);
+        int rows = discarded == null ? 1 : discarded + 1;
+        afterLimitRows.put(conn, rows);
+        return rows == MAX_ROWS_AFTER_LIMIT && endNode(conn, true);
+    }
+
+    /**
+     * the data node of the connection has finished its part of the query
+     */
+    protected void recordNodeEnd(BackendConnection conn) {
+        Object node = conn.getAttachment();
+        if (node instanceof RouteResultsetNode) {
+            nodeEndTimes.put(((RouteResultsetNode) node).getName(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * close the connection which has a large rest result after the limit instead of reading it to the end,
+     * the pool creates new connections when needed. called without holding the lock
+     */
+    private void cancelAfterLimit(BackendConnection conn) {
+        RouteResultsetNode node = (RouteResultsetNode) conn.getAttachment();
+        recordNodeEnd(conn);
+        conn.close("rows after limit are not needed");
+        session.releaseConnection(node, LOGGER.isDebugEnabled(), false);
+        if (decrementCountBy(1)) {
+            onAllNodesEnd(new EOFPacket().toBytes(), session.getSource());
+        }
+    }
+
+    /**
+     * @return false if the connection has ended already
+     */
+    private boolean endNode(BackendConnection conn, boolean cancel) {
+        lock.lock();
+        try {
+            if (endedConnSet == null) {
+                endedConnSet = new HashSet<>();
+            }
+            if (!endedConnSet.add(conn)) {
+                return false;
+            }
+            if (cancel) {
+                if (cancelledConnSet == null) {
+                    cancelledConnSet = new HashSet<>(1);
+                }
+                cancelledConnSet.add(conn);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCancelled(BackendConnection conn) {
+        lock.lock();
+        try {
+            return cancelledConnSet != null && cancelledConnSet.contains(conn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private boolean checkClosedConn(BackendConnection conn) {
         lock.lock();
         try {
@@ -522,9 +669,21 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         this.prepared = prepared;
     }
 
+    private boolean isModifiedSQLExecuted(BackendConnection conn) {
+        if (conn != null) {
+            return conn.isModifiedSQLExecuted();
+        }
+        for (BackendConnection target : session.getTargetMap().values()) {
+            if (target.isModifiedSQLExecuted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected void handleEndPacket(byte[] data, AutoTxOperation txOperation, BackendConnection conn) {
         ServerConnection source = session.getSource();
-        if (source.isAutocommit() && !source.isTxStart() && conn.isModifiedSQLExecuted()) {
+        if (source.isAutocommit() && !source.isTxStart() && isModifiedSQLExecuted(conn)) {
             if (nodeCount < 0) {
                 return;
             }
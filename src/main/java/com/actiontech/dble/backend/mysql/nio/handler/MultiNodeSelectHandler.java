@@ -85,6 +85,7 @@ public class MultiNodeSelectHandler extends MultiNodeQueryHandler {
 
     @Override
     public void rowEofResponse(final byte[] eof, boolean isLeft, BackendConnection conn) {
+        recordNodeEnd(conn);
         BlockingQueue<HeapItem> queue = queues.get(conn);
         if (queue == null)
             return;
@@ -101,4 +101,9 @@ public class ShowTablesHandler extends SingleNodeHandler {
         }
         return false;
     }
+
+    @Override
+    protected boolean isPassThrough() {
+        return false;
+    }
 }
@@ -41,4 +41,9 @@ public class ShowVariablesHandler extends SingleNodeHandler {
         }
         return false;
     }
+
+    @Override
+    protected boolean isPassThrough() {
+        return false;
+    }
 }
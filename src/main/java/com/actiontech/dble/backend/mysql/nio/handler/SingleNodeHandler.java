@@ -18,6 +18,7 @@ import com.actiontech.dble.route.RouteResultset;
 import com.actiontech.dble.route.RouteResultsetNode;
 import com.actiontech.dble.server.NonBlockingSession;
 import com.actiontech.dble.server.ServerConnection;
+import com.actiontech.dble.server.parser.ServerParse;
 import com.actiontech.dble.statistic.stat.QueryResult;
 import com.actiontech.dble.statistic.stat.QueryResultDispatcher;
 import com.actiontech.dble.util.StringUtil;
@@ -26,12 +27,13 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * @author mycat
  */
-public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandler {
+public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandler, DirectRowResponseHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SingleNodeHandler.class);
 
@@ -56,6 +58,7 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
 
 
     private volatile boolean waitingResponse;
+    private final boolean directResponse;
 
     public SingleNodeHandler(RouteResultset rrs, NonBlockingSession session) {
         this.rrs = rrs;
@@ -67,6 +70,9 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
             throw new IllegalArgumentException("session is null!");
         }
         this.session = session;
+        this.directResponse = DbleServer.getInstance().getConfig().getSystem().getUseDirectExecute() == 1 &&
+                rrs.getSqlType() == ServerParse.SELECT && !rrs.isCallStatement() && !rrs.isLoadData() &&
+                !rrs.hasPrimaryKeyToCache();
     }
 
 
@@ -114,6 +120,19 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
 
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
+        if (rrs.isLoadData()) {
+            LoadDataUtil.cancelStream(node);
+        }
+        if (conn == null) {
+            // no backend connection was got, such as waiting for one timeout, report it like a failed execute
+            ServerConnection source = session.getSource();
+            session.handleSpecial(rrs, source.getSchema(), false);
+            LOGGER.info(String.valueOf(source) + rrs, e);
+            waitingResponse = false;
+            recycleResources();
+            source.writeErrMessage(ErrorCode.ERR_HANDLE_DATA, e.toString());
+            return;
+        }
         session.handleSpecial(rrs, session.getSource().getSchema(), true);
         recycleResources();
         session.getSource().close(e.getMessage());
@@ -124,6 +143,9 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
         ErrorPacket err = new ErrorPacket();
         err.read(data);
         err.setPacketId(++packetId);
+        if (rrs.isLoadData()) {
+            LoadDataUtil.cancelStream(conn);
+        }
         backConnectionErr(err, conn);
     }
 
@@ -227,8 +249,9 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
             if (rrs.getStatement() != null) {
                 netInBytes += rrs.getStatement().getBytes().length;
             }
-            QueryResult queryResult = new QueryResult(session.getSource().getUser(), rrs.getSqlType(), rrs.getStatement(), selectRows,
-                    netInBytes, netOutBytes, startTime, System.currentTimeMillis(), resultSize);
+            long endTime = System.currentTimeMillis();
+            QueryResult queryResult = new QueryResult(session.getSource().getUser(), rrs.getSqlType(), rrs.getStatement(), rrs.getStatStatement(),
+                    Collections.singletonMap(node.getName(), endTime), selectRows, netInBytes, netOutBytes, startTime, endTime, resultSize);
             QueryResultDispatcher.dispatchQuery(queryResult);
         }
     }
@@ -343,6 +366,31 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
         return false;
     }
 
+    @Override
+    public boolean isDirectResponse() {
+        return directResponse;
+    }
+
+    @Override
+    public boolean directRowResponse(ByteBuffer rowBuffer, BackendConnection conn) {
+        if (!isPassThrough()) {
+            return false;
+        }
+        int length = rowBuffer.remaining();
+        this.netOutBytes += length;
+        this.selectRows++;
+        rowBuffer.put(rowBuffer.position() + 3, ++packetId);
+        buffer = session.getSource().writeToBuffer(rowBuffer, allocBuffer());
+        return true;
+    }
+
+    /**
+     * the rows are sent to the client as they are, no need to parse them
+     */
+    protected boolean isPassThrough() {
+        return primaryKeyIndex == -1 && !prepared;
+    }
+
     @Override
     public void writeQueueAvailable() {
 
@@ -350,6 +398,9 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
 
     @Override
     public void connectionClose(BackendConnection conn, String reason) {
+        if (rrs.isLoadData()) {
+            LoadDataUtil.cancelStream(node);
+        }
         ErrorPacket err = new ErrorPacket();
         err.setPacketId(++packetId);
         err.setErrNo(ErrorCode.ER_ERROR_ON_CLOSE);
@@ -221,7 +221,7 @@ public abstract class BaseHandlerBuilder {
                 // can not merge,need distinct then order by
                 DistinctHandler dh = new DistinctHandler(getSequenceId(), session, node.getColumnsSelected());
                 addHandler(dh);
-                OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys());
+                OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys(), getTopN());
                 addHandler(oh);
             } else {
                 DistinctHandler dh = new DistinctHandler(getSequenceId(), session, node.getColumnsSelected(),
@@ -237,11 +237,11 @@ public abstract class BaseHandlerBuilder {
             if (node.getOrderBys().size() > 0) {
                 if (node.getGroupBys().size() > 0) {
                     if (!PlanUtil.orderContains(node.getGroupBys(), node.getOrderBys())) {
-                        OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys());
+                        OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys(), getTopN());
                         addHandler(oh);
                     }
                 } else if (isOrderNeeded(node, node.getOrderBys())) {
-                    OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys());
+                    OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys(), getTopN());
                     addHandler(oh);
                 }
             }
@@ -253,6 +253,16 @@ public abstract class BaseHandlerBuilder {
 
     }
 
+    /**
+     * the rows needed by the LimitHandler which directly follows the order by, -1 if no limit
+     */
+    private long getTopN() {
+        if (node.getLimitTo() <= 0) {
+            return -1L;
+        }
+        return Math.max(0L, node.getLimitFrom()) + node.getLimitTo();
+    }
+
     /**
      * add a handler into handler chain
      */
@@ -298,6 +308,10 @@ public abstract class BaseHandlerBuilder {
      * @return
      */
     private boolean isJoinNodeOrderMatch(JoinNode jn, List<Order> orderBys) {
+        if (jn.getStrategy() == JoinNode.Strategy.HASH) {
+            // the result of hash join is not ordered
+            return false;
+        }
         // onCondition column in orderBys will be saved to onOrders,
         // eg: if jn.onCond = (t1.id=t2.id),
         // orderBys is t1.id,t2.id,t1.name, and onOrders = {t1.id,t2.id};
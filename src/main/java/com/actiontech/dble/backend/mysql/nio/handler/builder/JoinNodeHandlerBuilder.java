@@ -9,6 +9,7 @@ import com.actiontech.dble.backend.mysql.nio.handler.builder.sqlvisitor.PushDown
 import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.OrderByHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.TempTableHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.impl.join.HashJoinHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.join.JoinHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.join.NotInHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.util.CallBackHandler;
@@ -129,6 +130,12 @@ class JoinNodeHandlerBuilder extends BaseHandlerBuilder {
             pres.add(lh);
             DMLResponseHandler rh = buildJoinChild(right, false);
             pres.add(rh);
+        } else if (node.getStrategy() == JoinNode.Strategy.HASH) {
+            // hash join need not sort the children
+            DMLResponseHandler lh = buildUnorderedJoinChild(left, true);
+            pres.add(lh);
+            DMLResponseHandler rh = buildUnorderedJoinChild(right, false);
+            pres.add(rh);
 
         } else {
             throw new MySQLOutPutException(ErrorCode.ER_QUERYHANDLER, "", "strategy [" + node.getStrategy() + "] not implement yet!");
@@ -137,11 +144,7 @@ class JoinNodeHandlerBuilder extends BaseHandlerBuilder {
     }
 
     private DMLResponseHandler buildJoinChild(PlanNode child, boolean isLeft) {
-        BaseHandlerBuilder builder = hBuilder.getBuilder(session, child, isExplain);
-        if (builder.getSubQueryBuilderList().size() > 0) {
-            this.getSubQueryBuilderList().addAll(builder.getSubQueryBuilderList());
-        }
-        DMLResponseHandler endHandler = builder.getEndHandler();
+        DMLResponseHandler endHandler = getJoinChildEndHandler(child);
         if (isLeft) {
             if (!node.isLeftOrderMatch()) {
                 OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getLeftJoinOnOrders());
@@ -159,12 +162,31 @@ class JoinNodeHandlerBuilder extends BaseHandlerBuilder {
         return endHandler;
     }
 
+    private DMLResponseHandler getJoinChildEndHandler(PlanNode child) {
+        BaseHandlerBuilder builder = hBuilder.getBuilder(session, child, isExplain);
+        if (builder.getSubQueryBuilderList().size() > 0) {
+            this.getSubQueryBuilderList().addAll(builder.getSubQueryBuilderList());
+        }
+        return builder.getEndHandler();
+    }
+
+    private DMLResponseHandler buildUnorderedJoinChild(PlanNode child, boolean isLeft) {
+        DMLResponseHandler endHandler = getJoinChildEndHandler(child);
+        endHandler.setLeft(isLeft);
+        return endHandler;
+    }
+
     @Override
     public void buildOwn() {
         if (node.isNotIn()) {
             NotInHandler nh = new NotInHandler(getSequenceId(), session, node.getLeftJoinOnOrders(),
                     node.getRightJoinOnOrders());
             addHandler(nh);
+        } else if (node.getStrategy() == JoinNode.Strategy.HASH) {
+            HashJoinHandler hh = new HashJoinHandler(getSequenceId(), session, node.isLeftOuterJoin(),
+                    node.isLeftHashBuild(), node.getLeftJoinOnOrders(), node.getRightJoinOnOrders(),
+                    node.getOtherJoinOnFilter());
+            addHandler(hh);
         } else {
             JoinHandler jh = new JoinHandler(getSequenceId(), session, node.isLeftOuterJoin(),
                     node.getLeftJoinOnOrders(), node.getRightJoinOnOrders(), node.getOtherJoinOnFilter());
@@ -134,7 +134,7 @@ public class BaseSelectHandler extends BaseDMLHandler {
     public void connectionError(Throwable e, BackendConnection conn) {
         if (terminate.get())
             return;
-        LOGGER.info(conn.toString() + "|connectionError()|" + e.getMessage());
+        LOGGER.info(String.valueOf(conn) + "|connectionError()|" + e.getMessage());
         session.onQueryError(e.getMessage().getBytes());
     }
 
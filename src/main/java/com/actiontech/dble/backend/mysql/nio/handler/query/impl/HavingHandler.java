@@ -7,16 +7,14 @@ package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
 
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
-import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ItemEvaluator;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
-import com.actiontech.dble.plan.common.field.Field;
 import com.actiontech.dble.plan.common.item.Item;
 import com.actiontech.dble.server.NonBlockingSession;
 import org.apache.log4j.Logger;
 
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * having is just as same as where
@@ -33,9 +31,8 @@ public class HavingHandler extends BaseDMLHandler {
     }
 
     private Item having = null;
-    private Item havingItem = null;
-    private List<Field> sourceFields;
-    private ReentrantLock lock = new ReentrantLock();
+    // rows may come from several threads without order by, evaluated without lock
+    private ItemEvaluator havingEvaluator = null;
 
     @Override
     public HandlerType type() {
@@ -47,30 +44,21 @@ public class HavingHandler extends BaseDMLHandler {
         if (terminate.get())
             return;
         this.fieldPackets = fieldPackets;
-        this.sourceFields = HandlerTool.createFields(this.fieldPackets);
         /**
          * having will not be pushed down because of aggregate function
          */
-        this.havingItem = HandlerTool.createItem(this.having, this.sourceFields, 0, false, this.type());
+        this.havingEvaluator = new ItemEvaluator(this.fieldPackets, this.having, false, this.type());
         nextHandler.fieldEofResponse(null, null, this.fieldPackets, null, this.isLeft, conn);
     }
 
     public boolean rowResponse(byte[] rowNull, final RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
         if (terminate.get())
             return true;
-        lock.lock();
-        try {
-            HandlerTool.initFields(this.sourceFields, rowPacket.fieldValues);
-            /* filter by having statement */
-            if (havingItem.valBool()) {
-                nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
-            } else {
-                // nothing
-            }
-            return false;
-        } finally {
-            lock.unlock();
+        /* filter by having statement */
+        if (havingEvaluator.valBool(rowPacket.fieldValues)) {
+            nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
         }
+        return false;
     }
 
     @Override
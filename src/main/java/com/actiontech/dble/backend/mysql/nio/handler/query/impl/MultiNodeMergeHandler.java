@@ -11,6 +11,7 @@ import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.util.ArrayMinHeap;
+import com.actiontech.dble.backend.mysql.nio.handler.util.FlowControlledQueue;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HeapItem;
 import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
 import com.actiontech.dble.config.ErrorCode;
@@ -24,9 +25,7 @@ import org.apache.log4j.Logger;
 
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -40,8 +39,9 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
     private final int queueSize;
     private final ReentrantLock lock;
     private final List<BaseSelectHandler> exeHandlers;
-    // map;conn->blocking queue.if receive row packet, add to the queue,if receive rowEof packet, add NullHeapItem into queue;
-    private Map<MySQLConnection, BlockingQueue<HeapItem>> queues;
+    // map;conn->flow controlled queue.if receive row packet, add to the queue,if receive rowEof packet, add NullHeapItem into queue;
+    // when a queue is full, stop reading from its connection instead of blocking the thread which delivers the rows
+    private Map<MySQLConnection, FlowControlledQueue<HeapItem>> queues;
     private List<Order> orderBys;
     private RowDataComparator rowComparator;
     private RouteResultsetNode[] route;
@@ -81,7 +81,7 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 MySQLConnection exeConn = exeHandler.initConnection();
                 if (exeConn != null) {
                     exeConn.setComplexQuery(true);
-                    queues.put(exeConn, new LinkedBlockingQueue<HeapItem>(queueSize));
+                    queues.put(exeConn, new FlowControlledQueue<HeapItem>(exeConn, queueSize));
                     exeHandler.execute(exeConn);
                 }
             }
@@ -126,15 +126,10 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
             nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
         } else {
             MySQLConnection mySQLConn = (MySQLConnection) conn;
-            BlockingQueue<HeapItem> queue = queues.get(mySQLConn);
+            FlowControlledQueue<HeapItem> queue = queues.get(mySQLConn);
             if (queue == null)
                 return true;
-            HeapItem item = new HeapItem(row, rowPacket, mySQLConn);
-            try {
-                queue.put(item);
-            } catch (InterruptedException e) {
-                //ignore error
-            }
+            queue.offer(new HeapItem(row, rowPacket, mySQLConn));
         }
         return false;
     }
@@ -156,14 +151,10 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 lock.unlock();
             }
         } else {
-            BlockingQueue<HeapItem> queue = queues.get(conn);
+            FlowControlledQueue<HeapItem> queue = queues.get(conn);
             if (queue == null)
                 return;
-            try {
-                queue.put(HeapItem.nullItem());
-            } catch (InterruptedException e) {
-                //ignore error
-            }
+            queue.offer(HeapItem.nullItem());
         }
     }
 
@@ -187,7 +178,7 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 }
             });
             // init heap
-            for (Map.Entry<MySQLConnection, BlockingQueue<HeapItem>> entry : queues.entrySet()) {
+            for (Map.Entry<MySQLConnection, FlowControlledQueue<HeapItem>> entry : queues.entrySet()) {
                 HeapItem firstItem = entry.getValue().take();
                 heap.add(firstItem);
             }
@@ -198,7 +189,7 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 if (top.isNullItem()) {
                     heap.poll();
                 } else {
-                    BlockingQueue<HeapItem> topItemQueue = queues.get(top.getIndex());
+                    FlowControlledQueue<HeapItem> topItemQueue = queues.get(top.getIndex());
                     HeapItem item = topItemQueue.take();
                     heap.replaceTop(item);
                     if (nextHandler.rowResponse(top.getRowData(), top.getRowPacket(), this.isLeft, top.getIndex())) {
@@ -206,7 +197,7 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                         while (!heap.isEmpty()) {
                             HeapItem itemToDiscard = heap.poll();
                             if (!itemToDiscard.isNullItem()) {
-                                BlockingQueue<HeapItem> discardQueue = queues.get(itemToDiscard.getIndex());
+                                FlowControlledQueue<HeapItem> discardQueue = queues.get(itemToDiscard.getIndex());
                                 while (true) {
                                     if (discardQueue.take().isNullItem() || terminate.get()) {
                                         break;
@@ -231,25 +222,20 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
 
     @Override
     protected void terminateThread() throws Exception {
-        for (Entry<MySQLConnection, BlockingQueue<HeapItem>> entry : this.queues.entrySet()) {
+        for (Entry<MySQLConnection, FlowControlledQueue<HeapItem>> entry : this.queues.entrySet()) {
             // add EOF to signal atoMerge thread
             entry.getValue().clear();
-            entry.getValue().put(new HeapItem(null, null, entry.getKey()));
+            entry.getValue().offer(new HeapItem(null, null, entry.getKey()));
         }
         recycleConn();
     }
 
     @Override
     protected void recycleResources() {
-        Iterator<Entry<MySQLConnection, BlockingQueue<HeapItem>>> iterator = this.queues.entrySet().iterator();
+        Iterator<Entry<MySQLConnection, FlowControlledQueue<HeapItem>>> iterator = this.queues.entrySet().iterator();
         while (iterator.hasNext()) {
-            Entry<MySQLConnection, BlockingQueue<HeapItem>> entry = iterator.next();
-            // fair lock queue,poll for clear
-            while (true) {
-                if (entry.getValue().poll() == null) {
-                    break;
-                }
-            }
+            Entry<MySQLConnection, FlowControlledQueue<HeapItem>> entry = iterator.next();
+            entry.getValue().clear();
             iterator.remove();
         }
     }
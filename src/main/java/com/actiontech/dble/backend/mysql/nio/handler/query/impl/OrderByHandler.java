@@ -13,6 +13,7 @@ import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
 import com.actiontech.dble.backend.mysql.store.LocalResult;
 import com.actiontech.dble.backend.mysql.store.SortedLocalResult;
+import com.actiontech.dble.backend.mysql.store.TopNLocalResult;
 import com.actiontech.dble.buffer.BufferPool;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
@@ -27,16 +28,25 @@ import java.util.concurrent.LinkedBlockingDeque;
 
 public class OrderByHandler extends OwnThreadDMLHandler {
     private static final Logger LOGGER = Logger.getLogger(OrderByHandler.class);
+    /* the max rows kept in memory by the topN sort, the bigger limit uses the sort which can flush to disk */
+    private static final long MAX_TOP_N = 10000L;
 
     private List<Order> orders;
+    /* the count of rows needed by the next LimitHandler(offset+count), -1 if not followed by limit */
+    private final long topN;
     private BlockingQueue<RowDataPacket> queue;
     /* tmp object for ordering,support Memory-mapped file or file */
     private LocalResult localResult;
     private BufferPool pool;
 
     public OrderByHandler(long id, NonBlockingSession session, List<Order> orders) {
+        this(id, session, orders, -1L);
+    }
+
+    public OrderByHandler(long id, NonBlockingSession session, List<Order> orders, long topN) {
         super(id, session);
         this.orders = orders;
+        this.topN = topN;
         int queueSize = DbleServer.getInstance().getConfig().getSystem().getOrderByQueueSize();
         this.queue = new LinkedBlockingDeque<>(queueSize);
     }
@@ -56,8 +66,13 @@ public class OrderByHandler extends OwnThreadDMLHandler {
 
         this.fieldPackets = fieldPackets;
         RowDataComparator cmp = new RowDataComparator(this.fieldPackets, orders, isAllPushDown(), type());
-        localResult = new SortedLocalResult(pool, fieldPackets.size(), cmp, CharsetUtil.getJavaCharset(conn.getCharset().getResults())).
-                setMemSizeController(session.getOrderBufferMC());
+        String charset = CharsetUtil.getJavaCharset(conn.getCharset().getResults());
+        if (topN > 0 && topN <= MAX_TOP_N) {
+            localResult = new TopNLocalResult(pool, fieldPackets.size(), cmp, (int) topN, charset);
+        } else {
+            localResult = new SortedLocalResult(pool, fieldPackets.size(), cmp, charset);
+        }
+        localResult.setMemSizeController(session.getOrderBufferMC());
         nextHandler.fieldEofResponse(null, null, fieldPackets, null, this.isLeft, conn);
         startOwnThread(conn);
     }
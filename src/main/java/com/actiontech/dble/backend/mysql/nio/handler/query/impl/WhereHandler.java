@@ -7,15 +7,13 @@ package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
 
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
-import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ItemEvaluator;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
-import com.actiontech.dble.plan.common.field.Field;
 import com.actiontech.dble.plan.common.item.Item;
 import com.actiontech.dble.server.NonBlockingSession;
 
 import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class WhereHandler extends BaseDMLHandler {
 
@@ -26,10 +24,8 @@ public class WhereHandler extends BaseDMLHandler {
     }
 
     private Item where = null;
-    private Item whereItem = null;
-    private List<Field> sourceFields;
-    // if merge handler have no order by, the row response is not thread safe
-    private ReentrantLock lock = new ReentrantLock();
+    // rows may come from several threads without order by, evaluated without lock
+    private ItemEvaluator whereEvaluator = null;
 
     @Override
     public HandlerType type() {
@@ -41,28 +37,18 @@ public class WhereHandler extends BaseDMLHandler {
         if (terminate.get())
             return;
         this.fieldPackets = fieldPackets;
-        this.sourceFields = HandlerTool.createFields(this.fieldPackets);
-        whereItem = HandlerTool.createItem(this.where, this.sourceFields, 0, this.isAllPushDown(), this.type()
-        );
+        whereEvaluator = new ItemEvaluator(this.fieldPackets, this.where, this.isAllPushDown(), this.type());
         nextHandler.fieldEofResponse(null, null, this.fieldPackets, null, this.isLeft, conn);
     }
 
     public boolean rowResponse(byte[] rowNull, final RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
         if (terminate.get())
             return true;
-        lock.lock();
-        try {
-            HandlerTool.initFields(this.sourceFields, rowPacket.fieldValues);
-            /* use whereto filter */
-            if (whereItem.valBool()) {
-                nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
-            } else {
-                // nothing
-            }
-            return false;
-        } finally {
-            lock.unlock();
+        /* use whereto filter */
+        if (whereEvaluator.valBool(rowPacket.fieldValues)) {
+            nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
         }
+        return false;
     }
 
     public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
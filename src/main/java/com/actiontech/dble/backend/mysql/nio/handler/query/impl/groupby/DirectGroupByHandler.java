@@ -12,9 +12,9 @@ import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.groupby.directgroupby.DGRowPacket;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.groupby.directgroupby.GroupByBucket;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ArrayMinHeap;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
 import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
-import com.actiontech.dble.backend.mysql.store.GroupByLocalResult;
 import com.actiontech.dble.backend.mysql.store.LocalResult;
 import com.actiontech.dble.buffer.BufferPool;
 import com.actiontech.dble.net.mysql.FieldPacket;
@@ -29,6 +29,7 @@ import com.actiontech.dble.util.TimeUtil;
 import org.apache.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -38,19 +39,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * groupBy is Behind OrderBy
  * use groupbylocalresult to calc groupby . try to merge before store to groupby LocalResult
  * these cases can't merge : 1.sum function contains distinct  2. groupconcat
+ * <p>
+ * the rows are partitioned into the buckets by the hash of the group by columns, so the groups of the buckets are
+ * disjoint, every bucket groups and spills by itself, and the sorted outputs of the buckets are merged by a heap
  *
  * @author ActionTech
  */
 public class DirectGroupByHandler extends OwnThreadDMLHandler {
     private static final Logger LOGGER = Logger.getLogger(DirectGroupByHandler.class);
 
-    private BlockingQueue<RowDataPacket> queue;
-
     private List<Order> groupBys;
     private List<ItemSum> referredSumFunctions;
 
     private BufferPool pool;
-    private LocalResult groupLocalResult;
     private AtomicBoolean groupStart = new AtomicBoolean(false);
 
     private List<ItemSum> sums = new ArrayList<>();
@@ -59,9 +60,19 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
 
     private List<FieldPacket> localResultFps;
 
-    private BlockingQueue<RowDataPacket> outQueue;
-    int bucketSize = 10;
+    private final int bucketSize;
+    /* the input and output queue of every bucket */
+    private final List<BlockingQueue<RowDataPacket>> queues;
+    private final List<BlockingQueue<RowDataPacket>> outQueues;
     private List<GroupByBucket> buckets;
+    /* used to choose the bucket of a row, every producer thread hashes with its own comparator */
+    private final ThreadLocal<RowDataComparator> partitionComparator = new ThreadLocal<RowDataComparator>() {
+        @Override
+        protected RowDataComparator initialValue() {
+            return new RowDataComparator(localResultFps, groupBys, isAllPushDown(), type());
+        }
+    };
+    private RowDataComparator mergeComparator;
 
     /**
      * @param groupBys
@@ -73,8 +84,13 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
         this.groupBys = groupBys;
         this.referredSumFunctions = referredSumFunctions;
         int queueSize = DbleServer.getInstance().getConfig().getSystem().getMergeQueueSize();
-        this.queue = new LinkedBlockingQueue<>(queueSize);
-        this.outQueue = new LinkedBlockingQueue<>(queueSize);
+        this.bucketSize = Math.max(1, DbleServer.getInstance().getConfig().getSystem().getGroupByBucketSize());
+        this.queues = new ArrayList<>(bucketSize);
+        this.outQueues = new ArrayList<>(bucketSize);
+        for (int i = 0; i < bucketSize; i++) {
+            queues.add(new LinkedBlockingQueue<RowDataPacket>(queueSize));
+            outQueues.add(new LinkedBlockingQueue<RowDataPacket>(queueSize));
+        }
         this.buckets = new ArrayList<>();
     }
 
@@ -105,15 +121,11 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
         // row in localresult is DGRowPacket which is added aggregate functions result from origin rowdatapacket
         localResultFps = this.fieldPackets;
         List<ItemSum> localResultReferredSums = referredSumFunctions;
-        RowDataComparator comparator = new RowDataComparator(this.localResultFps, this.groupBys, this.isAllPushDown(), this.type()
-        );
-        groupLocalResult = new GroupByLocalResult(pool, localResultFps.size(), comparator, localResultFps,
-                localResultReferredSums, this.isAllPushDown(), CharsetUtil.getJavaCharset(conn.getCharset().getResults())).
-                setMemSizeController(session.getOtherBufferMC());
+        mergeComparator = new RowDataComparator(this.localResultFps, this.groupBys, this.isAllPushDown(), this.type());
         for (int i = 0; i < bucketSize; i++) {
             RowDataComparator tmpComparator = new RowDataComparator(this.localResultFps, this.groupBys,
                     this.isAllPushDown(), this.type());
-            GroupByBucket bucket = new GroupByBucket(queue, outQueue, pool, localResultFps.size(), tmpComparator,
+            GroupByBucket bucket = new GroupByBucket(queues.get(i), outQueues.get(i), pool, localResultFps.size(), tmpComparator,
                     localResultFps, localResultReferredSums, this.isAllPushDown(), CharsetUtil.getJavaCharset(conn.getCharset().getResults()));
             bucket.setMemSizeController(session.getOtherBufferMC());
             buckets.add(bucket);
@@ -145,26 +157,38 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
         MySQLConnection conn = (MySQLConnection) objects[0];
         recordElapsedTime("local group by thread is start:");
         try {
-            int eofCount = 0;
-            for (; ; ) {
-                RowDataPacket row = outQueue.take();
-                if (row.getFieldCount() == 0) {
-                    eofCount++;
-                    if (eofCount == bucketSize)
-                        break;
-                    else
-                        continue;
+            ArrayMinHeap<BucketRow> heap = new ArrayMinHeap<>(bucketSize, new Comparator<BucketRow>() {
+                @Override
+                public int compare(BucketRow o1, BucketRow o2) {
+                    return mergeComparator.compare(o1.row, o2.row);
+                }
+            });
+            for (int i = 0; i < bucketSize; i++) {
+                RowDataPacket firstRow = outQueues.get(i).take();
+                if (firstRow.getFieldCount() != 0) {
+                    heap.add(new BucketRow(firstRow, i));
                 }
-                groupLocalResult.add(row);
             }
-            recordElapsedTime("local group by thread is end:");
-            groupLocalResult.done();
             recordElapsedTime("local group by thread is done for read:");
-            if (!hasFirstRow.get()) {
-                if (HandlerTool.needSendNoRow(this.groupBys))
-                    sendNoRowGroupRowPacket(conn);
-            } else {
-                sendGroupRowPacket(conn);
+            List<ItemSum> sendSums = makeSendSums();
+            boolean noNeedRows = false;
+            while (!heap.isEmpty()) {
+                BucketRow top = heap.peak();
+                RowDataPacket row = top.row;
+                RowDataPacket nextRow = outQueues.get(top.bucket).take();
+                if (nextRow.getFieldCount() == 0) {
+                    heap.poll();
+                } else {
+                    heap.replaceTop(new BucketRow(nextRow, top.bucket));
+                }
+                // keep taking the rows until all buckets end, otherwise the bucket threads block
+                if (!noNeedRows) {
+                    noNeedRows = sendGroupRowPacket(conn, row, sendSums);
+                }
+            }
+            recordElapsedTime("local group by thread is end:");
+            if (!hasFirstRow.get() && HandlerTool.needSendNoRow(this.groupBys)) {
+                sendNoRowGroupRowPacket(conn);
             }
             nextHandler.rowEofResponse(null, this.isLeft, conn);
         } catch (Exception e) {
@@ -188,7 +212,8 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
         hasFirstRow.compareAndSet(false, true);
         try {
             DGRowPacket row = new DGRowPacket(rowPacket, this.referredSumFunctions.size());
-            queue.put(row);
+            int hash = partitionComparator.get().hash(row);
+            queues.get((hash & Integer.MAX_VALUE) % bucketSize).put(row);
         } catch (InterruptedException e) {
             //ignore error
         }
@@ -202,16 +227,14 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
             return;
         try {
             // @bug1042
-            for (int i = 0; i < bucketSize; i++)
+            for (BlockingQueue<RowDataPacket> queue : queues)
                 queue.put(new RowDataPacket(0));
         } catch (InterruptedException e) {
             //ignore error
         }
     }
 
-    private void sendGroupRowPacket(MySQLConnection conn) {
-        groupLocalResult.done();
-        RowDataPacket row = null;
+    private List<ItemSum> makeSendSums() {
         List<Field> localFields = HandlerTool.createFields(localResultFps);
         List<ItemSum> sendSums = new ArrayList<>();
         for (ItemSum selSum : referredSumFunctions) {
@@ -219,10 +242,7 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
             sendSums.add(sum);
         }
         prepareSumAggregators(sendSums, true);
-        while ((row = groupLocalResult.next()) != null) {
-            if (sendGroupRowPacket(conn, row, sendSums))
-                break;
-        }
+        return sendSums;
     }
 
     private boolean sendGroupRowPacket(MySQLConnection conn, RowDataPacket row, List<ItemSum> sendSums) {
@@ -301,19 +321,33 @@ public class DirectGroupByHandler extends OwnThreadDMLHandler {
 
     @Override
     protected void terminateThread() throws Exception {
-        this.queue.clear();
-        for (int i = 0; i < bucketSize; i++)
+        for (BlockingQueue<RowDataPacket> queue : queues) {
+            queue.clear();
             queue.put(new RowDataPacket(0));
+        }
     }
 
     @Override
     protected void recycleResources() {
-        this.queue.clear();
-        if (this.groupLocalResult != null)
-            this.groupLocalResult.close();
+        for (BlockingQueue<RowDataPacket> queue : queues) {
+            queue.clear();
+        }
         for (LocalResult bucket : buckets) {
             bucket.close();
         }
     }
 
+    /**
+     * the head row of a bucket's output
+     */
+    private static final class BucketRow {
+        private final RowDataPacket row;
+        private final int bucket;
+
+        private BucketRow(RowDataPacket row, int bucket) {
+            this.row = row;
+            this.bucket = bucket;
+        }
+    }
+
 }
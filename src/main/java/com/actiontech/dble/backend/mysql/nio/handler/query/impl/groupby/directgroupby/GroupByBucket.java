@@ -5,6 +5,7 @@
 
 package com.actiontech.dble.backend.mysql.nio.handler.query.impl.groupby.directgroupby;
 
+import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
 import com.actiontech.dble.backend.mysql.store.GroupByLocalResult;
 import com.actiontech.dble.buffer.BufferPool;
@@ -16,7 +17,8 @@ import java.util.List;
 import java.util.concurrent.BlockingQueue;
 
 /**
- * GroupByBucket,generate Group By tmp result in every bucket in parallel ,and merge the buckets finally
+ * GroupByBucket,generate Group By result of a hash partition in every bucket in parallel ,and merge the sorted
+ * outputs of the buckets finally
  */
 public class GroupByBucket extends GroupByLocalResult {
     private BlockingQueue<RowDataPacket> inData;
@@ -33,10 +35,10 @@ public class GroupByBucket extends GroupByLocalResult {
     }
 
     /**
-     * new Group by thread
+     * run the Group by of the bucket in complexQueryExecutor
      */
     public void start() {
-        Thread thread = new Thread(new Runnable() {
+        DbleServer.getInstance().getComplexQueryExecutor().execute(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -56,7 +58,6 @@ public class GroupByBucket extends GroupByLocalResult {
                 }
             }
         });
-        thread.start();
     }
 
 }
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl.join;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.CharsetUtil;
+import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.util.FlowControlledQueue;
+import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ItemEvaluator;
+import com.actiontech.dble.backend.mysql.nio.handler.util.HashJoinKeyMaker;
+import com.actiontech.dble.backend.mysql.nio.handler.util.TwoTableComparator;
+import com.actiontech.dble.backend.mysql.store.LocalResult;
+import com.actiontech.dble.backend.mysql.store.UnSortedLocalResult;
+import com.actiontech.dble.backend.mysql.store.memalloc.MemSizeController;
+import com.actiontech.dble.buffer.BufferPool;
+import com.actiontech.dble.net.AbstractConnection;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.Item.ItemResult;
+import com.actiontech.dble.server.NonBlockingSession;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * join strategy is hash,the data need not be ordered.
+ * the rows of build side are put into a hash table, then the rows of probe side look up the table.
+ * if the hash table can not be hold by the join buffer, both sides are partitioned by the hash of
+ * join columns into local results which can flush to disk, and joined partition by partition.
+ * probe side is always the left side of left join.
+ * the rows are queued without blocking the reactor threads, a connection stops reading when the
+ * queue of its side is full: the probe side waits until the build side is read to the end.
+ *
+ * @author ActionTech
+ */
+public class HashJoinHandler extends OwnThreadDMLHandler {
+    private static final Logger LOGGER = Logger.getLogger(HashJoinHandler.class);
+    private static final int PARTITION_COUNT = 16;
+    private static final int PARTITION_BITS = 4;
+
+    private final boolean isLeftJoin;
+    private final boolean isLeftBuild;
+    private final List<Order> leftOrders;
+    private final List<Order> rightOrders;
+    private final Item otherJoinOn;
+    private final FlowControlledQueue<RowDataPacket> buildQueue;
+    private final FlowControlledQueue<RowDataPacket> probeQueue;
+    private final MemSizeController memController;
+    private AtomicBoolean fieldSent = new AtomicBoolean(false);
+    private List<FieldPacket> leftFieldPackets = new ArrayList<>();
+    private List<FieldPacket> rightFieldPackets = new ArrayList<>();
+    private BufferPool pool;
+    private String charset = "UTF-8";
+
+    private HashJoinKeyMaker buildKeyMaker;
+    private HashJoinKeyMaker probeKeyMaker;
+    // not null if some join column is not in hash key
+    private TwoTableComparator keyComparator;
+    private ItemEvaluator otherJoinOnEvaluator;
+
+    private Map<List<Object>, List<RowDataPacket>> hashTable = new HashMap<>();
+    private long hashTableMemory = 0;
+    // not null if the hash table is spilled
+    private LocalResult[] buildPartitions;
+    private LocalResult[] probePartitions;
+
+    public HashJoinHandler(long id, NonBlockingSession session, boolean isLeftJoin, boolean isLeftBuild,
+                           List<Order> leftOrder, List<Order> rightOrder, Item otherJoinOn) {
+        super(id, session);
+        this.isLeftJoin = isLeftJoin;
+        this.isLeftBuild = isLeftBuild;
+        this.leftOrders = leftOrder;
+        this.rightOrders = rightOrder;
+        this.otherJoinOn = otherJoinOn;
+        int queueSize = DbleServer.getInstance().getConfig().getSystem().getJoinQueueSize();
+        this.buildQueue = new FlowControlledQueue<>(queueSize);
+        this.probeQueue = new FlowControlledQueue<>(queueSize);
+        this.memController = session.getJoinBufferMC();
+    }
+
+    @Override
+    public HandlerType type() {
+        return HandlerType.JOIN;
+    }
+
+    @Override
+    public void fieldEofResponse(byte[] headerNull, List<byte[]> fieldsNull, final List<FieldPacket> fieldPackets,
+                                 byte[] eofNull, boolean isLeft, final BackendConnection conn) {
+        if (this.pool == null)
+            this.pool = DbleServer.getInstance().getBufferPool();
+
+        if (isLeft) {
+            leftFieldPackets = fieldPackets;
+        } else {
+            rightFieldPackets = fieldPackets;
+        }
+        if (!fieldSent.compareAndSet(false, true)) {
+            this.charset = CharsetUtil.getJavaCharset(conn.getCharset().getResults());
+            List<FieldPacket> newFieldPacket = new ArrayList<>();
+            newFieldPacket.addAll(leftFieldPackets);
+            newFieldPacket.addAll(rightFieldPackets);
+            nextHandler.fieldEofResponse(null, null, newFieldPacket, null, this.isLeft, conn);
+            if (otherJoinOn != null) {
+                otherJoinOnEvaluator = new ItemEvaluator(newFieldPacket, this.otherJoinOn, this.isAllPushDown(),
+                        this.type());
+            }
+            startOwnThread(conn);
+        }
+    }
+
+    @Override
+    public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+        if (terminate.get()) {
+            return true;
+        }
+        AbstractConnection from = conn instanceof AbstractConnection ? (AbstractConnection) conn : null;
+        if (isLeft == isLeftBuild) {
+            buildQueue.offer(rowPacket, from);
+        } else {
+            probeQueue.offer(rowPacket, from);
+        }
+        return false;
+    }
+
+    @Override
+    public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
+        if (terminate.get()) {
+            return;
+        }
+        if (isLeft == isLeftBuild) {
+            buildQueue.offer(new RowDataPacket(0), null);
+        } else {
+            probeQueue.offer(new RowDataPacket(0), null);
+        }
+    }
+
+    @Override
+    protected void ownThreadJob(Object... objects) {
+        MySQLConnection conn = (MySQLConnection) objects[0];
+        try {
+            initKeyMakers();
+            if (!buildHashTable())
+                return;
+            if (buildPartitions == null) {
+                probeHashTable(conn);
+            } else {
+                probeByPartitions(conn);
+            }
+            if (terminate.get())
+                return;
+            nextHandler.rowEofResponse(null, isLeft, conn);
+            HandlerTool.terminateHandlerTree(this);
+        } catch (Exception e) {
+            String msg = "hash join thread error, " + e.getLocalizedMessage();
+            LOGGER.info(msg, e);
+            session.onQueryError(msg.getBytes());
+        }
+    }
+
+    private void initKeyMakers() {
+        List<Item> leftKeys = new ArrayList<>();
+        for (Order order : leftOrders) {
+            leftKeys.add(order.getItem());
+        }
+        List<Item> rightKeys = new ArrayList<>();
+        for (Order order : rightOrders) {
+            rightKeys.add(order.getItem());
+        }
+        List<ItemResult> hashTypes = HashJoinKeyMaker.getHashTypes(leftFieldPackets, rightFieldPackets, leftKeys,
+                rightKeys, this.isAllPushDown(), this.type());
+        HashJoinKeyMaker leftKeyMaker = new HashJoinKeyMaker(leftFieldPackets, leftKeys, hashTypes,
+                this.isAllPushDown(), this.type());
+        HashJoinKeyMaker rightKeyMaker = new HashJoinKeyMaker(rightFieldPackets, rightKeys, hashTypes,
+                this.isAllPushDown(), this.type());
+        buildKeyMaker = isLeftBuild ? leftKeyMaker : rightKeyMaker;
+        probeKeyMaker = isLeftBuild ? rightKeyMaker : leftKeyMaker;
+        if (!HashJoinKeyMaker.isAllHashable(hashTypes)) {
+            keyComparator = new TwoTableComparator(leftFieldPackets, rightFieldPackets, leftOrders, rightOrders,
+                    this.isAllPushDown(), this.type());
+        }
+    }
+
+    /**
+     * @return false if terminated
+     */
+    private boolean buildHashTable() throws InterruptedException {
+        while (true) {
+            if (terminate.get())
+                return false;
+            RowDataPacket row = buildQueue.take();
+            if (row.getFieldCount() == 0)
+                return true;
+            List<Object> key = buildKeyMaker.makeKey(row);
+            if (key == null) // null never joins, build side is never the outer side
+                continue;
+            if (buildPartitions != null) {
+                buildPartitions[partition(key)].add(row);
+                continue;
+            }
+            putToTable(hashTable, key, row);
+            int size = row.calcPacketSize();
+            hashTableMemory += size;
+            if (!memController.addSize(size)) {
+                spillHashTable();
+            }
+        }
+    }
+
+    private void spillHashTable() {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("hash table of hash join is too large, partition it to disk, size:" + hashTableMemory);
+        }
+        int buildCount = isLeftBuild ? leftFieldPackets.size() : rightFieldPackets.size();
+        int probeCount = isLeftBuild ? rightFieldPackets.size() : leftFieldPackets.size();
+        buildPartitions = new LocalResult[PARTITION_COUNT];
+        probePartitions = new LocalResult[PARTITION_COUNT];
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            buildPartitions[i] = new UnSortedLocalResult(buildCount, pool, this.charset).
+                    setMemSizeController(memController);
+            probePartitions[i] = new UnSortedLocalResult(probeCount, pool, this.charset).
+                    setMemSizeController(memController);
+        }
+        final Map<List<Object>, List<RowDataPacket>> table = hashTable;
+        hashTable = new HashMap<>();
+        memController.subSize(hashTableMemory);
+        hashTableMemory = 0;
+        for (Map.Entry<List<Object>, List<RowDataPacket>> entry : table.entrySet()) {
+            LocalResult partition = buildPartitions[partition(entry.getKey())];
+            for (RowDataPacket row : entry.getValue()) {
+                partition.add(row);
+            }
+        }
+    }
+
+    private void probeHashTable(MySQLConnection conn) throws Exception {
+        while (true) {
+            if (terminate.get())
+                return;
+            RowDataPacket row = probeQueue.take();
+            if (row.getFieldCount() == 0)
+                return;
+            if (probeRow(row, hashTable, probeKeyMaker.makeKey(row), conn))
+                return;
+        }
+    }
+
+    private void probeByPartitions(MySQLConnection conn) throws Exception {
+        while (true) {
+            if (terminate.get())
+                return;
+            RowDataPacket row = probeQueue.take();
+            if (row.getFieldCount() == 0)
+                break;
+            List<Object> key = probeKeyMaker.makeKey(row);
+            if (key == null) {
+                // can not match any row, send it at once
+                if (probeRow(row, hashTable, null, conn))
+                    return;
+            } else {
+                probePartitions[partition(key)].add(row);
+            }
+        }
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            buildPartitions[i].done();
+            probePartitions[i].done();
+        }
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            if (terminate.get())
+                return;
+            // the partition is expected to be smaller than the join buffer, it can't be partitioned again
+            Map<List<Object>, List<RowDataPacket>> table = new HashMap<>();
+            RowDataPacket row;
+            while ((row = buildPartitions[i].next()) != null) {
+                putToTable(table, buildKeyMaker.makeKey(row), row);
+                int size = row.calcPacketSize();
+                hashTableMemory += size;
+                if (!memController.addSize(size) && LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("partition " + i + " of hash join is larger than the join buffer, size:" + hashTableMemory);
+                }
+            }
+            buildPartitions[i].close();
+            while ((row = probePartitions[i].next()) != null) {
+                if (probeRow(row, table, probeKeyMaker.makeKey(row), conn))
+                    return;
+            }
+            probePartitions[i].close();
+            memController.subSize(hashTableMemory);
+            hashTableMemory = 0;
+        }
+    }
+
+    /**
+     * @return if is interrupted by next handler ,return true,else false
+     */
+    private boolean probeRow(RowDataPacket probe, Map<List<Object>, List<RowDataPacket>> table, List<Object> key,
+                             MySQLConnection conn) throws Exception {
+        List<RowDataPacket> builds = key == null ? null : table.get(key);
+        int matchCount = 0;
+        if (builds != null) {
+            for (RowDataPacket build : builds) {
+                RowDataPacket leftRow = isLeftBuild ? build : probe;
+                RowDataPacket rightRow = isLeftBuild ? probe : build;
+                if (keyComparator != null && keyComparator.compare(leftRow, rightRow) != 0)
+                    continue;
+                RowDataPacket rowPacket = joinRow(leftRow, rightRow);
+                if (otherJoinOnEvaluator != null) {
+                    if (!otherJoinOnEvaluator.valBool(rowPacket.fieldValues))
+                        continue;
+                }
+                matchCount++;
+                if (nextHandler.rowResponse(null, rowPacket, isLeft, conn))
+                    return true;
+            }
+        }
+        if (matchCount == 0 && isLeftJoin) {
+            return nextHandler.rowResponse(null, joinRow(probe, null), isLeft, conn);
+        }
+        return false;
+    }
+
+    private RowDataPacket joinRow(RowDataPacket leftRow, RowDataPacket rightRow) {
+        RowDataPacket rowPacket = new RowDataPacket(leftFieldPackets.size() + rightFieldPackets.size());
+        for (byte[] value : leftRow.fieldValues) {
+            rowPacket.add(value);
+        }
+        if (rightRow == null) {
+            for (int i = 0; i < rightFieldPackets.size(); i++) {
+                rowPacket.add(null);
+            }
+        } else {
+            for (byte[] value : rightRow.fieldValues) {
+                rowPacket.add(value);
+            }
+        }
+        return rowPacket;
+    }
+
+    private static void putToTable(Map<List<Object>, List<RowDataPacket>> table, List<Object> key,
+                                   RowDataPacket row) {
+        List<RowDataPacket> rows = table.get(key);
+        if (rows == null) {
+            rows = new ArrayList<>(1);
+            table.put(key, rows);
+        }
+        rows.add(row);
+    }
+
+    /**
+     * use the high bits, HashMap of one partition uses the low bits
+     */
+    private static int partition(List<Object> key) {
+        return (key.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - PARTITION_BITS);
+    }
+
+    @Override
+    protected void terminateThread() throws Exception {
+        buildQueue.clear();
+        buildQueue.offer(new RowDataPacket(0), null);
+        probeQueue.clear();
+        probeQueue.offer(new RowDataPacket(0), null);
+    }
+
+    @Override
+    protected void recycleResources() {
+        buildQueue.clear();
+        probeQueue.clear();
+        hashTable.clear();
+        if (hashTableMemory > 0) {
+            memController.subSize(hashTableMemory);
+            hashTableMemory = 0;
+        }
+        closePartitions(buildPartitions);
+        closePartitions(probePartitions);
+    }
+
+    private void closePartitions(LocalResult[] partitions) {
+        if (partitions == null)
+            return;
+        for (LocalResult partition : partitions) {
+            partition.close();
+        }
+    }
+
+}
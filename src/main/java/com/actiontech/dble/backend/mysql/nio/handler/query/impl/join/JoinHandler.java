@@ -11,6 +11,7 @@ import com.actiontech.dble.backend.mysql.CharsetUtil;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ItemEvaluator;
 import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
 import com.actiontech.dble.backend.mysql.nio.handler.util.TwoTableComparator;
 import com.actiontech.dble.backend.mysql.store.LocalResult;
@@ -19,7 +20,6 @@ import com.actiontech.dble.buffer.BufferPool;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
 import com.actiontech.dble.plan.Order;
-import com.actiontech.dble.plan.common.field.Field;
 import com.actiontech.dble.plan.common.item.Item;
 import com.actiontech.dble.server.NonBlockingSession;
 import com.actiontech.dble.util.FairLinkedBlockingDeque;
@@ -52,9 +52,8 @@ public class JoinHandler extends OwnThreadDMLHandler {
     private RowDataComparator rightComparator;
     // @bug 1097
     // only join columns same is not enough
-    private List<Field> joinRowFields;
     private Item otherJoinOn;
-    private Item otherJoinOnItem;
+    private ItemEvaluator otherJoinOnEvaluator;
     // @bug 1208
     private String charset = "UTF-8";
     // prevent multi thread rowresponse
@@ -101,18 +100,16 @@ public class JoinHandler extends OwnThreadDMLHandler {
             newFieldPacket.addAll(leftFieldPackets);
             newFieldPacket.addAll(rightFieldPackets);
             nextHandler.fieldEofResponse(null, null, newFieldPacket, null, this.isLeft, conn);
-            otherJoinOnItem = makeOtherJoinOnItem(newFieldPacket, conn);
+            otherJoinOnEvaluator = makeOtherJoinOnEvaluator(newFieldPacket);
             // logger.debug("all ready");
             startOwnThread(conn);
         }
     }
 
-    private Item makeOtherJoinOnItem(List<FieldPacket> rowPackets, BackendConnection conn) {
-        this.joinRowFields = HandlerTool.createFields(rowPackets);
+    private ItemEvaluator makeOtherJoinOnEvaluator(List<FieldPacket> rowPackets) {
         if (otherJoinOn == null)
             return null;
-        Item ret = HandlerTool.createItem(this.otherJoinOn, this.joinRowFields, 0, this.isAllPushDown(), this.type());
-        return ret;
+        return new ItemEvaluator(rowPackets, this.otherJoinOn, this.isAllPushDown(), this.type());
     }
 
     @Override
@@ -266,9 +263,8 @@ public class JoinHandler extends OwnThreadDMLHandler {
                     for (byte[] value : rightRow.fieldValues) {
                         rowPacket.add(value);
                     }
-                    if (otherJoinOnItem != null) {
-                        HandlerTool.initFields(joinRowFields, rowPacket.fieldValues);
-                        if (!otherJoinOnItem.valBool())
+                    if (otherJoinOnEvaluator != null) {
+                        if (!otherJoinOnEvaluator.valBool(rowPacket.fieldValues))
                             continue;
                     }
                     matchCount++;
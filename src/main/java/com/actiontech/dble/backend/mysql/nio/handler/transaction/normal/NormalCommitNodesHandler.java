@@ -60,7 +60,9 @@ public class NormalCommitNodesHandler extends AbstractCommitNodesHandler {
         this.waitUntilSendFinish();
         LOGGER.info("backend connect", e);
         this.setFail(e.getMessage());
-        conn.quit();
+        if (conn != null) {
+            conn.quit();
+        }
         if (decrementCountBy(1)) {
             cleanAndFeedback();
         }
@@ -88,7 +88,9 @@ public class NormalRollbackNodesHandler extends AbstractRollbackNodesHandler {
         LOGGER.info("backend connect", e);
         String errMsg = new String(StringUtil.encode(e.getMessage(), session.getSource().getCharset().getResults()));
         this.setFail(errMsg);
-        conn.quit(); //quit if not rollback
+        if (conn != null) {
+            conn.quit(); //quit if not rollback
+        }
         if (decrementCountBy(1)) {
             cleanAndFeedback();
         }
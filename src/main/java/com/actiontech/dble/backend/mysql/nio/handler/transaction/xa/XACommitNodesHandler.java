@@ -265,7 +265,12 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
     }
 
     private void innerConnectError(BackendConnection conn) {
-        if (conn instanceof MySQLConnection) {
+        if (conn == null) {
+            // no backend connection was got, the branch can't be committed
+            if (decrementCountBy(1)) {
+                cleanAndFeedback();
+            }
+        } else if (conn instanceof MySQLConnection) {
             MySQLConnection mysqlCon = (MySQLConnection) conn;
             if (mysqlCon.getXaStatus() == TxState.TX_STARTED_STATE) {
                 mysqlCon.quit();
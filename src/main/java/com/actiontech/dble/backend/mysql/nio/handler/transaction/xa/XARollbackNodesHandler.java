@@ -259,7 +259,14 @@ public class XARollbackNodesHandler extends AbstractRollbackNodesHandler {
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
         this.waitUntilSendFinish();
-        if (conn instanceof MySQLConnection) {
+        if (conn == null) {
+            // no backend connection was got, the branch can't be rolled back
+            LOGGER.info("backend connect", e);
+            this.setFail(e.toString());
+            if (decrementCountBy(1)) {
+                cleanAndFeedback();
+            }
+        } else if (conn instanceof MySQLConnection) {
             MySQLConnection mysqlCon = (MySQLConnection) conn;
             if (mysqlCon.getXaStatus() == TxState.TX_STARTED_STATE) {
                 mysqlCon.quit();
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.net.AbstractConnection;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * queue between backend connections and a consumer thread.
+ * offer never blocks the producer, instead the connection which offers stops reading from its socket
+ * when the queue reaches highWater and all the stopped ones start reading again when the consumer
+ * drains it to lowWater.
+ * the queue stops the reads as one owner of them, so a connection which feeds several queues in a handler
+ * chain keeps stopped until each of the queues resumes it.
+ *
+ * @author ActionTech
+ */
+public class FlowControlledQueue<T> {
+    private final BlockingQueue<T> queue = new LinkedBlockingQueue<>();
+    private final AbstractConnection conn;
+    private final int highWater;
+    private final int lowWater;
+    private final Set<AbstractConnection> pausedConns = new HashSet<>(2);
+    private volatile boolean paused = false;
+
+    public FlowControlledQueue(AbstractConnection conn, int highWater) {
+        this.conn = conn;
+        this.highWater = Math.max(highWater, 1);
+        this.lowWater = this.highWater / 2;
+    }
+
+    /**
+     * for the items from several connections, which are given by offer(item, from)
+     */
+    public FlowControlledQueue(int highWater) {
+        this(null, highWater);
+    }
+
+    public void offer(T item) {
+        offer(item, conn);
+    }
+
+    /**
+     * @param from the connection to stop reading if the queue is full, null if the item needs no flow control
+     */
+    public void offer(T item, AbstractConnection from) {
+        queue.offer(item);
+        if (from != null && queue.size() >= highWater) {
+            synchronized (this) {
+                if (queue.size() >= highWater && pausedConns.add(from)) {
+                    paused = true;
+                    from.disableRead(this);
+                    // the consumer may have drained the queue before it could see paused
+                    if (queue.size() <= lowWater) {
+                        resume();
+                    }
+                }
+            }
+        }
+    }
+
+    public T take() throws InterruptedException {
+        T item = queue.take();
+        if (paused && queue.size() <= lowWater) {
+            resume();
+        }
+        return item;
+    }
+
+    public void clear() {
+        queue.clear();
+        resume();
+    }
+
+    /**
+     * make sure the connections can be read again, called when the consumer will not take any more
+     */
+    public synchronized void resume() {
+        if (paused) {
+            paused = false;
+            for (AbstractConnection pausedConn : pausedConns) {
+                pausedConn.enableRead(this);
+            }
+            pausedConns.clear();
+        }
+    }
+}
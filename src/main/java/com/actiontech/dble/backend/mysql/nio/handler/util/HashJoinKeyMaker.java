@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.common.MySQLcom;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.Item.ItemResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * make the hash key of a row for hash join.
+ * two rows which are equal by TwoTableComparator must have the same key, so every join column
+ * is normalized by the type they are compared with. the columns which can not be normalized
+ * (real or temporal comparison) are left out of the key, the matched rows must be checked by
+ * TwoTableComparator again if exists such column.
+ *
+ * @author ActionTech
+ */
+public class HashJoinKeyMaker {
+    private final List<Field> sourceFields;
+    private final List<Item> keyItems;
+    /* the normalized type of each key, null if the key can not be hashed */
+    private final List<ItemResult> hashTypes;
+
+    public HashJoinKeyMaker(List<FieldPacket> fps, List<Item> keys, List<ItemResult> hashTypes, boolean isAllPushDown,
+                            DMLResponseHandler.HandlerType type) {
+        this.sourceFields = HandlerTool.createFields(fps);
+        this.keyItems = new ArrayList<>();
+        for (Item key : keys) {
+            keyItems.add(HandlerTool.createItem(key, sourceFields, 0, isAllPushDown, type));
+        }
+        this.hashTypes = hashTypes;
+    }
+
+    /**
+     * the type used to hash every join column pair
+     *
+     * @param leftFps
+     * @param rightFps
+     * @param leftKeys
+     * @param rightKeys
+     * @return element is null if the column can not be hashed
+     */
+    public static List<ItemResult> getHashTypes(List<FieldPacket> leftFps, List<FieldPacket> rightFps,
+                                                List<Item> leftKeys, List<Item> rightKeys, boolean isAllPushDown,
+                                                DMLResponseHandler.HandlerType type) {
+        List<Field> leftFields = HandlerTool.createFields(leftFps);
+        List<Field> rightFields = HandlerTool.createFields(rightFps);
+        List<ItemResult> types = new ArrayList<>();
+        for (int index = 0; index < leftKeys.size(); index++) {
+            Item left = HandlerTool.createItem(leftKeys.get(index), leftFields, 0, isAllPushDown, type);
+            Item right = HandlerTool.createItem(rightKeys.get(index), rightFields, 0, isAllPushDown, type);
+            if (isTemporalType(left) || isTemporalType(right)) {
+                types.add(null);
+                continue;
+            }
+            ItemResult cmpType = MySQLcom.itemCmpType(left.resultType(), right.resultType());
+            if (cmpType == ItemResult.REAL_RESULT) {
+                // compared with precision
+                types.add(null);
+            } else {
+                types.add(cmpType);
+            }
+        }
+        return types;
+    }
+
+    private static boolean isTemporalType(Item item) {
+        return item.isTemporal() || item.fieldType() == FieldTypes.MYSQL_TYPE_YEAR;
+    }
+
+    public static boolean isAllHashable(List<ItemResult> hashTypes) {
+        for (ItemResult type : hashTypes) {
+            if (type == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param row
+     * @return null if any join column is null, the row will never be joined
+     */
+    public List<Object> makeKey(RowDataPacket row) {
+        HandlerTool.initFields(sourceFields, row.fieldValues);
+        List<Object> key = new ArrayList<>(keyItems.size());
+        for (int index = 0; index < keyItems.size(); index++) {
+            Item item = keyItems.get(index);
+            ItemResult hashType = hashTypes.get(index);
+            Object value;
+            if (hashType == ItemResult.INT_RESULT) {
+                value = item.valInt();
+            } else if (hashType == ItemResult.DECIMAL_RESULT) {
+                BigDecimal decimal = item.valDecimal();
+                if (decimal != null) {
+                    value = decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+                } else {
+                    value = null;
+                }
+            } else {
+                value = item.valStr();
+            }
+            if (value == null || item.isNullValue())
+                return null;
+            if (hashType != null)
+                key.add(value);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.Item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * evaluate items on the rows of the field packets, can be called by any thread without lock.
+ * <p>
+ * the item created by HandlerTool.createItem reads the row through the fields it is bound to, so it
+ * can't be shared by threads. every thread evaluates with its own fields and its own copy of the items,
+ * which is created at the first row the thread meets and reused for the following rows.
+ */
+public class ItemEvaluator {
+    private final List<FieldPacket> fieldPackets;
+    private final List<Item> items;
+    private final boolean allPushDown;
+    /* null if the items are the columns of the row only */
+    private final DMLResponseHandler.HandlerType type;
+    private final ConcurrentMap<Thread, BoundItems> boundItems = new ConcurrentHashMap<>();
+    private final BoundItems creatorItems;
+    private volatile BoundItems lastItems;
+
+    public ItemEvaluator(List<FieldPacket> fps, Item item, boolean allPushDown, DMLResponseHandler.HandlerType type) {
+        this(fps, Collections.singletonList(item), allPushDown, type);
+    }
+
+    public ItemEvaluator(List<FieldPacket> fps, List<Item> items, boolean allPushDown,
+                         DMLResponseHandler.HandlerType type) {
+        this.fieldPackets = fps;
+        this.items = items;
+        this.allPushDown = allPushDown;
+        this.type = type;
+        // bind on the creating thread at once, so the unsupported item is found before any row comes
+        this.creatorItems = bind();
+        this.boundItems.put(creatorItems.owner, creatorItems);
+        this.lastItems = creatorItems;
+    }
+
+    /**
+     * the items are column references only, such as the order by columns pushed down
+     */
+    public static ItemEvaluator ofColumns(List<FieldPacket> fps, List<Item> columns) {
+        return new ItemEvaluator(fps, columns, false, null);
+    }
+
+    /**
+     * the items bound on the creating thread, for the metadata such as makeField only
+     */
+    public List<Item> getItems() {
+        return creatorItems.items;
+    }
+
+    /**
+     * @return the bool value of the first item on the row
+     */
+    public boolean valBool(List<byte[]> row) {
+        BoundItems bound = current();
+        HandlerTool.initFields(bound.fields, row);
+        return bound.items.get(0).valBool();
+    }
+
+    /**
+     * @return the values of all the items on the row
+     */
+    public List<byte[]> valBytes(List<byte[]> row) {
+        BoundItems bound = current();
+        HandlerTool.initFields(bound.fields, row);
+        return HandlerTool.getItemListBytes(bound.items);
+    }
+
+    private BoundItems current() {
+        Thread thread = Thread.currentThread();
+        BoundItems bound = lastItems;
+        if (bound.owner == thread) {
+            return bound;
+        }
+        bound = boundItems.get(thread);
+        if (bound == null) {
+            bound = bind();
+            boundItems.put(thread, bound);
+        }
+        lastItems = bound;
+        return bound;
+    }
+
+    private BoundItems bind() {
+        List<Field> fields = HandlerTool.createFields(fieldPackets);
+        List<Item> bound = new ArrayList<>(items.size());
+        for (Item item : items) {
+            if (type == null) {
+                bound.add(HandlerTool.createFieldItem(item, fields, 0));
+            } else {
+                bound.add(HandlerTool.createItem(item, fields, 0, allPushDown, type));
+            }
+        }
+        return new BoundItems(Thread.currentThread(), fields, bound);
+    }
+
+    private static final class BoundItems {
+        private final Thread owner;
+        private final List<Field> fields;
+        private final List<Item> items;
+
+        private BoundItems(Thread owner, List<Field> fields, List<Item> items) {
+            this.owner = owner;
+            this.fields = fields;
+            this.items = items;
+        }
+    }
+}
@@ -10,7 +10,9 @@ import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
 import com.actiontech.dble.plan.Order;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldUtil;
 import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.util.FastByteOperations;
 import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
 
 import java.util.ArrayList;
@@ -20,46 +22,43 @@ import java.util.List;
 
 public class RowDataComparator implements Comparator<RowDataPacket> {
 
-    private List<Field> sourceFields;
-    private List<Item> cmpItems;
+    /* shared by the threads comparing rows, the row values are bound to the fields of the calling thread */
+    private ItemEvaluator cmpEvaluator;
 
     private List<Field> cmpFields;
     private List<Boolean> ascList;
 
 
     public RowDataComparator(List<FieldPacket> fps, List<Order> orders, boolean allPushDown, DMLResponseHandler.HandlerType type) {
-        sourceFields = HandlerTool.createFields(fps);
         if (orders != null && orders.size() > 0) {
-            ascList = new ArrayList<>();
-            cmpFields = new ArrayList<>();
-            cmpItems = new ArrayList<>();
-            for (Order order : orders) {
-                Item cmpItem = HandlerTool.createItem(order.getItem(), sourceFields, 0, allPushDown, type);
-                cmpItems.add(cmpItem);
-                FieldPacket tmpFp = new FieldPacket();
-                cmpItem.makeField(tmpFp);
-                Field cmpField = HandlerTool.createField(tmpFp);
-                cmpFields.add(cmpField);
-                ascList.add(order.getSortOrder() == SQLOrderingSpecification.ASC);
-            }
+            initCmp(new ItemEvaluator(fps, getOrderItems(orders), allPushDown, type), orders);
         }
     }
 
     public RowDataComparator(List<FieldPacket> fps, List<Order> orders) {
-        sourceFields = HandlerTool.createFields(fps);
         if (orders != null && orders.size() > 0) {
-            ascList = new ArrayList<>();
-            cmpFields = new ArrayList<>();
-            cmpItems = new ArrayList<>();
-            for (Order order : orders) {
-                Item cmpItem = HandlerTool.createFieldItem(order.getItem(), sourceFields, 0);
-                cmpItems.add(cmpItem);
-                FieldPacket tmpFp = new FieldPacket();
-                cmpItem.makeField(tmpFp);
-                Field cmpField = HandlerTool.createField(tmpFp);
-                cmpFields.add(cmpField);
-                ascList.add(order.getSortOrder() == SQLOrderingSpecification.ASC);
-            }
+            initCmp(ItemEvaluator.ofColumns(fps, getOrderItems(orders)), orders);
+        }
+    }
+
+    private static List<Item> getOrderItems(List<Order> orders) {
+        List<Item> orderItems = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderItems.add(order.getItem());
+        }
+        return orderItems;
+    }
+
+    private void initCmp(ItemEvaluator evaluator, List<Order> orders) {
+        cmpEvaluator = evaluator;
+        ascList = new ArrayList<>();
+        cmpFields = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            FieldPacket tmpFp = new FieldPacket();
+            evaluator.getItems().get(i).makeField(tmpFp);
+            Field cmpField = HandlerTool.createField(tmpFp);
+            cmpFields.add(cmpField);
+            ascList.add(orders.get(i).getSortOrder() == SQLOrderingSpecification.ASC);
         }
     }
 
@@ -81,6 +80,11 @@ public class RowDataComparator implements Comparator<RowDataPacket> {
     @Override
     public int compare(RowDataPacket o1, RowDataPacket o2) {
         if (this.ascList != null && this.ascList.size() > 0) {
+            byte[] key1 = getSortKey(o1);
+            byte[] key2 = getSortKey(o2);
+            if (key1 != null && key2 != null) {
+                return FastByteOperations.compareUnsigned(key1, 0, key1.length, key2, 0, key2.length);
+            }
             int cmpValue = cmp(o1, o2, 0);
             return cmpValue;
         } else {
@@ -88,13 +92,81 @@ public class RowDataComparator implements Comparator<RowDataPacket> {
         }
     }
 
+    /**
+     * the rows which are equal in compare(o1, o2) have the same hash, it is not cached in the row
+     */
+    public int hash(RowDataPacket o) {
+        if (this.ascList == null || this.ascList.size() == 0) {
+            return 0;
+        }
+        List<byte[]> bo = cmpEvaluator.valBytes(o.fieldValues);
+        int hash = 1;
+        for (int i = 0; i < cmpFields.size(); i++) {
+            hash = 31 * hash + cmpFields.get(i).hash(bo.get(i));
+        }
+        return hash;
+    }
+
+    /**
+     * the sort key is encoded once per row and cached in the row, the compare values are kept only
+     * if some of them can't be encoded
+     */
+    private byte[] getSortKey(RowDataPacket o) {
+        RowDataPacket.CmpCache cache = o.getCmpCache(this);
+        if (cache == null) {
+            List<byte[]> bo = cmpEvaluator.valBytes(o.fieldValues);
+            byte[] key = encodeSortKey(bo);
+            cache = o.cacheCmpValue(this, key, key == null ? bo : null);
+        }
+        return cache.getSortKey();
+    }
+
+    /**
+     * each value is written as a null flag followed by the field's sort key,
+     * the bytes of a DESC value are inverted
+     *
+     * @return null if some value can't be encoded
+     */
+    private byte[] encodeSortKey(List<byte[]> bo) {
+        byte[][] keys = new byte[bo.size()][];
+        int length = 0;
+        for (int i = 0; i < keys.length; i++) {
+            byte[] value = bo.get(i);
+            if (value != null) {
+                keys[i] = cmpFields.get(i).getSortKey(value);
+                if (keys[i] == null) {
+                    return null;
+                }
+                length += keys[i].length;
+            }
+            length++;
+        }
+        byte[] sortKey = new byte[length];
+        int pos = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int start = pos;
+            if (keys[i] == null) {
+                // NULL is the smallest
+                sortKey[pos++] = 0;
+            } else {
+                sortKey[pos++] = 1;
+                System.arraycopy(keys[i], 0, sortKey, pos, keys[i].length);
+                pos += keys[i].length;
+            }
+            if (!ascList.get(i)) {
+                FieldUtil.invertBytes(sortKey, start, pos);
+            }
+        }
+        return sortKey;
+    }
+
     private List<byte[]> getCmpBytes(RowDataPacket o) {
-        if (o.getCmpValue(this) == null) {
-            HandlerTool.initFields(sourceFields, o.fieldValues);
-            List<byte[]> bo = HandlerTool.getItemListBytes(cmpItems);
-            o.cacheCmpValue(this, bo);
+        RowDataPacket.CmpCache cache = o.getCmpCache(this);
+        if (cache == null || cache.getCmpValue() == null) {
+            byte[] key = getSortKey(o);
+            cache = o.cacheCmpValue(this, key, cmpEvaluator.valBytes(o.fieldValues));
         }
-        return o.getCmpValue(this);
+        return cache.getCmpValue();
     }
 
     private int cmp(RowDataPacket o1, RowDataPacket o2, int index) {
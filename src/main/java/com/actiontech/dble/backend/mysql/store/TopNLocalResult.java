@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.store;
+
+import com.actiontech.dble.backend.mysql.nio.handler.util.ArrayMinHeap;
+import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
+import com.actiontech.dble.backend.mysql.store.result.ResultExternal;
+import com.actiontech.dble.buffer.BufferPool;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+
+import java.util.Collections;
+
+/**
+ * localresult to keep the first topN rows in order,used by order by followed by limit
+ * the top of the heap is the biggest row kept, the rows are always in memory
+ *
+ * @author ActionTech
+ */
+public class TopNLocalResult extends LocalResult {
+
+    private final RowDataComparator rowCmp;
+    private final int topN;
+    private ArrayMinHeap<RowDataPacket> heap;
+
+    public TopNLocalResult(BufferPool pool, int fieldsCount, RowDataComparator rowCmp, int topN, String charset) {
+        super(Math.min(topN, DEFAULT_INITIAL_CAPACITY), fieldsCount, pool, charset);
+        this.rowCmp = rowCmp;
+        this.topN = topN;
+        this.heap = new ArrayMinHeap<>(Math.min(topN, DEFAULT_INITIAL_CAPACITY), Collections.reverseOrder(rowCmp));
+    }
+
+    /**
+     * add a row into topN localresult,if the row is not less than all the rows kept,do not add
+     *
+     * @param row
+     */
+    @Override
+    public void add(RowDataPacket row) {
+        lock.lock();
+        try {
+            if (isClosed)
+                return;
+            int incrementSize;
+            if (heap.size() < topN) {
+                heap.add(row);
+                rowCount++;
+                incrementSize = getRowMemory(row);
+            } else if (rowCmp.compare(row, heap.peak()) < 0) {
+                incrementSize = getRowMemory(row) - getRowMemory(heap.peak());
+                heap.replaceTop(row);
+            } else {
+                return;
+            }
+            lastRow = row;
+            currentMemory += incrementSize;
+            if (bufferMC != null) {
+                // the size is bounded by topN, never flush to disk
+                bufferMC.addSize(incrementSize);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected ResultExternal makeExternal() {
+        return null;
+    }
+
+    @Override
+    protected void doneOnlyMemory() {
+        rows.addAll(heap);
+        heap.clear();
+        Collections.sort(rows, this.rowCmp);
+    }
+
+    @Override
+    protected void beforeFlushRows() {
+        // never flush to disk
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            heap.clear();
+            super.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -100,6 +100,10 @@ public enum TxState {
         }
     }
 
+    public int getValue() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return String.valueOf(this.value);
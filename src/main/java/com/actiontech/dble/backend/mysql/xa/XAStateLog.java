@@ -8,7 +8,7 @@ package com.actiontech.dble.backend.mysql.xa;
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
-import com.actiontech.dble.backend.mysql.xa.recovery.impl.FileSystemRepository;
+import com.actiontech.dble.backend.mysql.xa.recovery.impl.BinaryLogRepository;
 import com.actiontech.dble.backend.mysql.xa.recovery.impl.InMemoryRepository;
 import com.actiontech.dble.backend.mysql.xa.recovery.impl.KVStoreRepository;
 import com.actiontech.dble.log.alarm.AlarmCode;
@@ -33,12 +33,16 @@ public final class XAStateLog {
 
     public static final Logger LOGGER = LoggerFactory.getLogger(XAStateLog.class);
     private static final Repository FILE_REPOSITORY;
+    /* null if the log is saved in the kv store */
+    private static final BinaryLogRepository BINARY_LOG_REPOSITORY;
 
     static {
         if (DbleServer.getInstance().isUseZK()) {
             FILE_REPOSITORY = new KVStoreRepository();
+            BINARY_LOG_REPOSITORY = null;
         } else {
-            FILE_REPOSITORY = new FileSystemRepository();
+            BINARY_LOG_REPOSITORY = new BinaryLogRepository();
+            FILE_REPOSITORY = BINARY_LOG_REPOSITORY;
         }
     }
 
@@ -64,6 +68,11 @@ public final class XAStateLog {
                 sessionState == TxState.TX_ROLLBACKING_STATE) {
             return writeCheckpoint(xaTxId);
         }
+        if (BINARY_LOG_REPOSITORY != null &&
+                (sessionState == TxState.TX_COMMITTED_STATE || sessionState == TxState.TX_ROLLBACKED_STATE)) {
+            // the transaction is finished, losing the record only makes the recovery redo it
+            BINARY_LOG_REPOSITORY.append(coordinatorLogEntry, false);
+        }
         return true;
     }
 
@@ -89,6 +98,16 @@ public final class XAStateLog {
     }
 
     public static boolean writeCheckpoint(String xaTxId) {
+        if (BINARY_LOG_REPOSITORY != null) {
+            return BINARY_LOG_REPOSITORY.append(IN_MEMORY_REPOSITORY.get(xaTxId), true);
+        }
+        return writeFullCheckpoint(xaTxId);
+    }
+
+    /**
+     * write all the entries in memory into the kv store
+     */
+    private static boolean writeFullCheckpoint(String xaTxId) {
         lock.lock();
         try {
             while (isWriting) {
@@ -191,6 +210,17 @@ public final class XAStateLog {
         flushMemoryRepository(xaTxId, coordinatorLogEntry);
     }
 
+    /**
+     * rewrite the binary log with the entries in memory
+     *
+     * @param force compact even if the log is small
+     */
+    public static void compactRecoveryLog(boolean force) {
+        if (BINARY_LOG_REPOSITORY != null && (force || BINARY_LOG_REPOSITORY.needCompact())) {
+            BINARY_LOG_REPOSITORY.compact(IN_MEMORY_REPOSITORY);
+        }
+    }
+
     public static void cleanCompleteRecoveryLog() {
         for (CoordinatorLogEntry entry : IN_MEMORY_REPOSITORY.getAllCoordinatorLogEntries()) {
             if (entry.getTxState() == TxState.TX_COMMITTED_STATE || entry.getTxState() == TxState.TX_ROLLBACKED_STATE) {
@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa.recovery.impl;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.xa.CoordinatorLogEntry;
+import com.actiontech.dble.backend.mysql.xa.ParticipantLogEntry;
+import com.actiontech.dble.backend.mysql.xa.TxState;
+import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
+import com.actiontech.dble.config.model.SystemConfig;
+import com.actiontech.dble.log.alarm.AlarmCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * the append-only binary log of the xa transactions, one record for each state change of a transaction.
+ * a record is [length][crc32][entry], the last record of the same xid wins when replaying.
+ * <p>
+ * the records appended at the same time share one write and one fsync: the first thread which finds
+ * no flushing writes all the pending records, the others wait for it.
+ * the log is compacted by rewriting it with the entries in memory.
+ */
+public class BinaryLogRepository implements Repository {
+    public static final Logger LOGGER = LoggerFactory.getLogger(BinaryLogRepository.class);
+    private static final String SUFFIX = ".bin";
+    private static final int HEADER_SIZE = 8;
+    /* a record longer than it must be broken */
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    private File file;
+    private File legacyDir;
+    private String legacyName;
+    private FileChannel channel;
+    /* the size of the valid records in the file */
+    private long fileSize;
+    private long compactedSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private boolean flushing = false;
+    private List<Record> pending = new ArrayList<>();
+
+    public BinaryLogRepository() {
+        SystemConfig systemConfig = DbleServer.getInstance().getConfig().getSystem();
+        init(systemConfig.getXaRecoveryLogBaseDir(), systemConfig.getXaRecoveryLogBaseName());
+    }
+
+    public BinaryLogRepository(String baseDir, String baseName) {
+        init(baseDir, baseName);
+    }
+
+    @Override
+    public void init() {
+        SystemConfig systemConfig = DbleServer.getInstance().getConfig().getSystem();
+        init(systemConfig.getXaRecoveryLogBaseDir(), systemConfig.getXaRecoveryLogBaseName());
+    }
+
+    private void init(String baseDir, String baseName) {
+        File dir = new File(baseDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        this.file = new File(dir, baseName + SUFFIX);
+        this.legacyDir = dir;
+        this.legacyName = baseName;
+    }
+
+    /**
+     * append the entry to the log
+     *
+     * @param sync wait until the record is forced to disk, otherwise the record is written with the next flush
+     * @return false if the record failed to write
+     */
+    public boolean append(CoordinatorLogEntry entry, boolean sync) {
+        if (entry == null) {
+            return true;
+        }
+        lock.lock();
+        try {
+            // encode in the lock, so the records in the file keep the order of the changes
+            Record record = new Record(encode(entry), sync);
+            pending.add(record);
+            if (!sync) {
+                if (!flushing) {
+                    flush();
+                }
+                return true;
+            }
+            while (!record.done) {
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                } else {
+                    flush();
+                }
+            }
+            return record.success;
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to encode xa log of " + entry.getId(), e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * write the pending records as the leader, the lock is released while writing
+     */
+    private void flush() {
+        flushing = true;
+        List<Record> batch = pending;
+        pending = new ArrayList<>();
+        lock.unlock();
+        boolean success;
+        try {
+            success = write(batch);
+        } finally {
+            lock.lock();
+        }
+        finishFlush(batch, success);
+    }
+
+    private void finishFlush(List<Record> batch, boolean success) {
+        for (Record record : batch) {
+            record.success = success;
+            record.done = true;
+        }
+        flushing = false;
+        flushed.signalAll();
+    }
+
+    private boolean write(List<Record> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        boolean force = false;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i).data);
+            force |= batch.get(i).sync;
+        }
+        try {
+            openChannelIfNecessary();
+            long written = 0;
+            while (buffers[buffers.length - 1].hasRemaining()) {
+                written += channel.write(buffers);
+            }
+            if (force) {
+                channel.force(false);
+            }
+            fileSize += written;
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to write xa log", e);
+            discardBrokenTail();
+            return false;
+        }
+    }
+
+    /**
+     * cut the half written records, otherwise the records appended after them can't be replayed
+     */
+    private void discardBrokenTail() {
+        try {
+            if (channel != null) {
+                channel.truncate(fileSize);
+                channel.position(fileSize);
+            }
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to truncate xa log", e);
+            closeChannel();
+        }
+    }
+
+    private void openChannelIfNecessary() throws IOException {
+        if (channel == null) {
+            FileChannel newChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                fileSize = readValidSize(newChannel);
+                newChannel.truncate(fileSize);
+                newChannel.position(fileSize);
+            } catch (IOException e) {
+                newChannel.close();
+                throw e;
+            }
+            channel = newChannel;
+            if (compactedSize == 0) {
+                compactedSize = fileSize;
+            }
+        }
+    }
+
+    private static long readValidSize(FileChannel readChannel) throws IOException {
+        readChannel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(readChannel)));
+        return replay(in, new ReplayCallback() {
+            @Override
+            public void onEntry(CoordinatorLogEntry entry) {
+            }
+        });
+    }
+
+    /**
+     * @return true if the log is large enough and has doubled since the last compaction
+     */
+    public boolean needCompact() {
+        lock.lock();
+        try {
+            return fileSize >= MIN_COMPACT_SIZE && fileSize >= 2 * compactedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * rewrite the log with the entries of the source repository.
+     * the pending records are flushed first and the entries are encoded in the lock,
+     * so every record appended later is newer than the rewritten ones.
+     */
+    public boolean compact(Repository source) {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            flushing = true;
+            List<Record> batch = pending;
+            pending = new ArrayList<>();
+            List<byte[]> snapshot = null;
+            try {
+                snapshot = encodeAll(source.getAllCoordinatorLogEntries());
+            } catch (IOException e) {
+                LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to encode xa log", e);
+            }
+            lock.unlock();
+            boolean success;
+            boolean compacted = false;
+            try {
+                success = write(batch);
+                if (snapshot != null) {
+                    compacted = rewrite(snapshot);
+                }
+            } finally {
+                lock.lock();
+            }
+            finishFlush(batch, success);
+            return compacted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static List<byte[]> encodeAll(Collection<CoordinatorLogEntry> entries) throws IOException {
+        List<byte[]> records = new ArrayList<>(entries.size());
+        for (CoordinatorLogEntry entry : entries) {
+            records.add(encode(entry));
+        }
+        return records;
+    }
+
+    /**
+     * write the records into a temp file and replace the log with it
+     */
+    private boolean rewrite(List<byte[]> records) {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        long size = 0;
+        try (FileChannel tmpChannel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (byte[] record : records) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    size += tmpChannel.write(buffer);
+                }
+            }
+            tmpChannel.force(false);
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to compact xa log", e);
+            return false;
+        }
+        closeChannel();
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to replace xa log", e);
+            return false;
+        }
+        fileSize = size;
+        compactedSize = Math.max(size, 1);
+        return true;
+    }
+
+    @Override
+    public void put(String id, CoordinatorLogEntry coordinatorLogEntry) {
+        append(coordinatorLogEntry, true);
+    }
+
+    @Override
+    public void remove(String id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CoordinatorLogEntry get(String coordinatorId) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * replay the log, the log of the old version is read if there is no binary log
+     */
+    @Override
+    public Collection<CoordinatorLogEntry> getAllCoordinatorLogEntries() {
+        if (!file.exists()) {
+            return readLegacyLog();
+        }
+        final Map<String, CoordinatorLogEntry> entries = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            replay(in, new ReplayCallback() {
+                @Override
+                public void onEntry(CoordinatorLogEntry entry) {
+                    entries.remove(entry.getId());
+                    entries.put(entry.getId(), entry);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Error in recover", e);
+        }
+        return entries.values();
+    }
+
+    private Collection<CoordinatorLogEntry> readLegacyLog() {
+        File[] legacyFiles = legacyDir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(legacyName) && name.endsWith(".log");
+            }
+        });
+        if (legacyFiles == null || legacyFiles.length == 0) {
+            return Collections.emptyList();
+        }
+        FileSystemRepository legacy = new FileSystemRepository(legacyDir.getPath(), legacyName);
+        try {
+            return legacy.getAllCoordinatorLogEntries();
+        } finally {
+            legacy.close();
+        }
+    }
+
+    /**
+     * @return the size of the valid records, the broken tail left by a crash is ignored
+     */
+    private static long replay(DataInputStream in, ReplayCallback callback) throws IOException {
+        long size = 0;
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            long checksum;
+            byte[] data;
+            try {
+                length = in.readInt();
+                checksum = in.readInt() & 0xffffffffL;
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                data = new byte[length];
+                in.readFully(data);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(data, 0, data.length);
+            if (crc.getValue() != checksum) {
+                break;
+            }
+            callback.onEntry(decode(data));
+            size += HEADER_SIZE + length;
+        }
+        return size;
+    }
+
+    static byte[] encode(CoordinatorLogEntry entry) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeUTF(entry.getId());
+        out.writeByte(entry.getTxState().getValue());
+        // the participants not set yet are skipped, as the json log does
+        List<ParticipantLogEntry> participants = new ArrayList<>(entry.getParticipants().length);
+        for (ParticipantLogEntry participant : entry.getParticipants()) {
+            if (participant != null) {
+                participants.add(participant);
+            }
+        }
+        out.writeShort(participants.size());
+        for (ParticipantLogEntry participant : participants) {
+            out.writeUTF(participant.getHost());
+            out.writeInt(participant.getPort());
+            out.writeLong(participant.getExpires());
+            out.writeByte(participant.getTxState().getValue());
+            out.writeBoolean(participant.getSchema() != null);
+            if (participant.getSchema() != null) {
+                out.writeUTF(participant.getSchema());
+            }
+        }
+        out.flush();
+        byte[] record = bos.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        ByteBuffer header = ByteBuffer.wrap(record, 0, HEADER_SIZE);
+        header.putInt(record.length - HEADER_SIZE);
+        header.putInt((int) crc.getValue());
+        return record;
+    }
+
+    static CoordinatorLogEntry decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        String id = in.readUTF();
+        TxState txState = readTxState(in);
+        ParticipantLogEntry[] participants = new ParticipantLogEntry[in.readShort()];
+        for (int i = 0; i < participants.length; i++) {
+            String host = in.readUTF();
+            int port = in.readInt();
+            long expires = in.readLong();
+            TxState participantState = readTxState(in);
+            String schema = in.readBoolean() ? in.readUTF() : null;
+            participants[i] = new ParticipantLogEntry(id, host, port, expires, schema, participantState);
+        }
+        return new CoordinatorLogEntry(id, participants, txState);
+    }
+
+    private static TxState readTxState(DataInputStream in) throws IOException {
+        byte value = in.readByte();
+        TxState txState = TxState.valueOf(value);
+        if (txState == null) {
+            throw new IOException("unknown xa state " + value);
+        }
+        return txState;
+    }
+
+    /**
+     * the log is rewritten by compact(Repository), which keeps the order with the appending records
+     */
+    @Override
+    public boolean writeCheckpoint(Collection<CoordinatorLogEntry> checkpointContent) {
+        InMemoryRepository content = new InMemoryRepository();
+        for (CoordinatorLogEntry entry : checkpointContent) {
+            content.put(entry.getId(), entry);
+        }
+        return compact(content);
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            closeChannel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.info("Error closing file - ignoring", e);
+            }
+            channel = null;
+        }
+    }
+
+    private interface ReplayCallback {
+        void onEntry(CoordinatorLogEntry entry);
+    }
+
+    private static final class Record {
+        private final byte[] data;
+        private final boolean sync;
+        private boolean done;
+        private boolean success;
+
+        private Record(byte[] data, boolean sync) {
+            this.data = data;
+            this.sync = sync;
+        }
+    }
+}
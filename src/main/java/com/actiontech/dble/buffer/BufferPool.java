@@ -6,7 +6,7 @@
 package com.actiontech.dble.buffer;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
 
 /**
  * BufferPool
@@ -26,9 +26,12 @@ public interface BufferPool {
 
     long size();
 
-    int getSharedOptsCount();
+    /**
+     * @return the count of the buffers allocated from heap because the direct memory is exhausted
+     */
+    long getHeapAllocateCount();
 
     int getChunkSize();
 
-    ConcurrentMap<Long, Long> getNetDirectMemoryUsage();
+    Map<Long, Long> getNetDirectMemoryUsage();
 }
@@ -29,78 +29,46 @@ public class ByteBufferPage {
         this.buf = buf;
     }
 
+    public ByteBuffer getBuf() {
+        return buf;
+    }
+
     public ByteBuffer allocateChunk(int theChunkCount) {
         if (!allocLockStatus.compareAndSet(false, true)) {
             return null;
         }
-        int startChunk = -1;
-        int continueCount = 0;
         try {
-            for (int i = 0; i < chunkCount; i++) {
-                if (!chunkAllocateTrack.get(i)) {
-                    if (startChunk == -1) {
-                        startChunk = i;
-                        continueCount = 1;
-                        if (theChunkCount == 1) {
-                            break;
-                        }
-                    } else {
-                        if (++continueCount == theChunkCount) {
-                            break;
-                        }
-                    }
-                } else {
-                    startChunk = -1;
-                    continueCount = 0;
-                }
-            }
-            if (continueCount == theChunkCount) {
-                int offStart = startChunk * chunkSize;
-                int offEnd = offStart + theChunkCount * chunkSize;
-                buf.limit(offEnd);
-                buf.position(offStart);
+            // jump over the used and the free chunks run by run
+            int startChunk = chunkAllocateTrack.nextClearBit(0);
+            while (startChunk + theChunkCount <= chunkCount) {
+                int endChunk = chunkAllocateTrack.nextSetBit(startChunk);
+                if (endChunk < 0 || endChunk - startChunk >= theChunkCount) {
+                    int offStart = startChunk * chunkSize;
+                    int offEnd = offStart + theChunkCount * chunkSize;
+                    buf.limit(offEnd);
+                    buf.position(offStart);
 
-                ByteBuffer newBuf = buf.slice();
-                //sun.nio.ch.DirectBuffer theBuf = (DirectBuffer) newBuf;
-                //System.out.println("offAddress " + (theBuf.address() - startAddress));
-                markChunksUsed(startChunk, theChunkCount);
-                return newBuf;
-            } else {
-                //System.out.println("contiue Count " + contiueCount + " theChunkCount " + theChunkCount);
-                return null;
+                    ByteBuffer newBuf = buf.slice();
+                    chunkAllocateTrack.set(startChunk, startChunk + theChunkCount);
+                    return newBuf;
+                }
+                startChunk = chunkAllocateTrack.nextClearBit(endChunk);
             }
+            return null;
         } finally {
             allocLockStatus.set(false);
         }
     }
 
-    private void markChunksUsed(int startChunk, int theChunkCount) {
-        for (int i = 0; i < theChunkCount; i++) {
-            chunkAllocateTrack.set(startChunk + i);
-        }
-    }
-
-    private void markChunksUnused(int startChunk, int theChunkCount) {
-        for (int i = 0; i < theChunkCount; i++) {
-            chunkAllocateTrack.clear(startChunk + i);
+    public void recycleBuffer(int startChunk, int chunkNum) {
+        while (!this.allocLockStatus.compareAndSet(false, true)) {
+            Thread.yield();
         }
-    }
-
-    public boolean recycleBuffer(ByteBuffer parent, int startChunk, int chunkNum) {
-
-        if (parent == this.buf) {
-
-            while (!this.allocLockStatus.compareAndSet(false, true)) {
-                Thread.yield();
-            }
-            try {
-                markChunksUnused(startChunk, chunkNum);
-            } finally {
-                allocLockStatus.set(false);
-            }
-            return true;
+        try {
+            chunkAllocateTrack.clear(startChunk, startChunk + chunkNum);
+        } finally {
+            allocLockStatus.set(false);
         }
-        return false;
     }
 
     public long getUsage() {
@@ -10,12 +10,25 @@ import org.slf4j.LoggerFactory;
 import sun.nio.ch.DirectBuffer;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * DirectByteBufferPool
+ * <p>
+ * every thread starts allocating from its own page, so the threads do not contend on the same page lock,
+ * the reactor threads(named with LOCAL_BUF_THREAD_PREX) keep a small cache of single chunks.
+ * a buffer, cached or in use, is charged to the usage of the thread which holds it, so the usage of all
+ * threads adds up to capacity() - size().
  *
  * @author wuzhih
  * @author zagnix
@@ -24,25 +37,63 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class DirectByteBufferPool implements BufferPool {
     private static final Logger LOGGER = LoggerFactory.getLogger(DirectByteBufferPool.class);
     public static final String LOCAL_BUF_THREAD_PREX = "$_";
+    /* the key of the usage of the exited threads in getNetDirectMemoryUsage */
+    public static final long EXITED_THREADS_ID = -1L;
+    /* the max count of the single chunks cached by a reactor thread */
+    private static final int LOCAL_CACHE_SIZE = 32;
     private ByteBufferPage[] allPages;
+    /**
+     * the buffer of page->the index of page, the parent of an allocated buffer is the buffer of its page
+     */
+    private final Map<ByteBuffer, Integer> pageIndexes;
+    /**
+     * the first chunk of an allocated buffer->the usage of the thread charged with it
+     */
+    private final AtomicReferenceArray<AtomicLong> chunkOwners;
+    private final int chunksPerPage;
     private final int chunkSize;
-    // private int prevAllocatedPage = 0;
-    private AtomicInteger prevAllocatedPage;
     private final int pageSize;
     private final short pageCount;
     /**
      * thread ID->the size of Direct Buffer
      */
-    private final ConcurrentMap<Long, Long> memoryUsage;
+    private final ConcurrentMap<Long, AtomicLong> memoryUsage;
+    /**
+     * thread ID->the thread, to find the exited ones in memoryUsage
+     */
+    private final ConcurrentMap<Long, Thread> usageThreads = new ConcurrentHashMap<>();
+    /**
+     * the usages of the exited threads which still hold buffers, they only go down as the buffers are recycled
+     */
+    private final Set<AtomicLong> exitedUsages = Collections.newSetFromMap(new ConcurrentHashMap<AtomicLong, Boolean>());
+    /**
+     * the count of the buffers allocated from heap because the pages are exhausted
+     */
+    private final AtomicLong heapAllocateCount = new AtomicLong(0);
+    private final ThreadLocal<LocalState> localState = new ThreadLocal<LocalState>() {
+        @Override
+        protected LocalState initialValue() {
+            Thread thread = Thread.currentThread();
+            removeExitedThreads();
+            AtomicLong usage = new AtomicLong(0);
+            memoryUsage.put(thread.getId(), usage);
+            usageThreads.put(thread.getId(), thread);
+            boolean cacheable = thread.getName().startsWith(LOCAL_BUF_THREAD_PREX);
+            return new LocalState((int) (thread.getId() % allPages.length), usage, cacheable);
+        }
+    };
 
     public DirectByteBufferPool(int pageSize, short chunkSize, short pageCount) {
         allPages = new ByteBufferPage[pageCount];
+        pageIndexes = new IdentityHashMap<>(pageCount);
         this.chunkSize = chunkSize;
         this.pageSize = pageSize;
         this.pageCount = pageCount;
-        prevAllocatedPage = new AtomicInteger(0);
+        this.chunksPerPage = pageSize / chunkSize;
+        chunkOwners = new AtomicReferenceArray<>(chunksPerPage * pageCount);
         for (int i = 0; i < pageCount; i++) {
             allPages[i] = new ByteBufferPage(ByteBuffer.allocateDirect(pageSize), chunkSize);
+            pageIndexes.put(allPages[i].getBuf(), i);
         }
         memoryUsage = new ConcurrentHashMap<>();
     }
@@ -71,24 +122,26 @@ public class DirectByteBufferPool implements BufferPool {
 
     public ByteBuffer allocate(int size) {
         final int theChunkCount = size / chunkSize + (size % chunkSize == 0 ? 0 : 1);
-        int selectedPage = prevAllocatedPage.incrementAndGet() % allPages.length;
-        ByteBuffer byteBuf = allocateBuffer(theChunkCount, selectedPage, allPages.length);
-        if (byteBuf == null) {
-            byteBuf = allocateBuffer(theChunkCount, 0, selectedPage);
-        }
-        final long threadId = Thread.currentThread().getId();
-
-        if (byteBuf != null) {
-            if (memoryUsage.containsKey(threadId)) {
-                memoryUsage.put(threadId, memoryUsage.get(threadId) + byteBuf.capacity());
-            } else {
-                memoryUsage.put(threadId, (long) byteBuf.capacity());
+        LocalState state = localState.get();
+        if (theChunkCount == 1 && state.cache != null) {
+            ByteBuffer cached = state.cache.poll();
+            if (cached != null) {
+                // charged to this thread since it was cached
+                return cached;
             }
         }
+        int selectedPage = state.page;
+        ByteBuffer byteBuf = allocateBuffer(state, theChunkCount, selectedPage, allPages.length);
+        if (byteBuf == null) {
+            byteBuf = allocateBuffer(state, theChunkCount, 0, selectedPage);
+        }
 
         if (byteBuf == null) {
+            heapAllocateCount.incrementAndGet();
             return ByteBuffer.allocate(size);
         }
+        chunkOwners.set(chunkIndex(state.page, (DirectBuffer) byteBuf), state.usage);
+        state.usage.addAndGet(byteBuf.capacity());
         return byteBuf;
     }
 
@@ -98,46 +151,101 @@ public class DirectByteBufferPool implements BufferPool {
             return;
         }
 
-        final long size = theBuf.capacity();
-
-        boolean recycled = false;
         DirectBuffer thisNavBuf = (DirectBuffer) theBuf;
-        int chunkCount = theBuf.capacity() / chunkSize;
-        DirectBuffer parentBuf = (DirectBuffer) thisNavBuf.attachment();
-        int startChunk = (int) ((thisNavBuf.address() - parentBuf.address()) / this.chunkSize);
-        for (ByteBufferPage allPage : allPages) {
-            if ((recycled = allPage.recycleBuffer((ByteBuffer) parentBuf, startChunk, chunkCount))) {
-                break;
-            }
+        Object parentBuf = thisNavBuf.attachment();
+        Integer pageIndex = parentBuf == null ? null : pageIndexes.get(parentBuf);
+        if (pageIndex == null) {
+            LOGGER.info("warning ,not recycled buffer " + theBuf);
+            return;
         }
-        final long threadId = Thread.currentThread().getId();
 
-        if (memoryUsage.containsKey(threadId)) {
-            memoryUsage.put(threadId, memoryUsage.get(threadId) - size);
-        }
-        if (!recycled) {
+        // the buffer may be recycled by another thread, charge it back to the allocating one
+        int chunkIndex = chunkIndex(pageIndex, thisNavBuf);
+        AtomicLong owner = chunkOwners.getAndSet(chunkIndex, null);
+        if (owner == null) {
+            // recycled twice
             LOGGER.info("warning ,not recycled buffer " + theBuf);
+            return;
         }
+        LocalState state = localState.get();
+        if (theBuf.capacity() == chunkSize && state.cache != null && state.cache.size() < LOCAL_CACHE_SIZE) {
+            // the cached chunk is still used for the page, so it is charged to the caching thread
+            if (owner != state.usage) {
+                owner.addAndGet(-theBuf.capacity());
+                state.usage.addAndGet(theBuf.capacity());
+            }
+            chunkOwners.set(chunkIndex, state.usage);
+            theBuf.clear();
+            state.cache.push(theBuf);
+            return;
+        }
+        owner.addAndGet(-theBuf.capacity());
+        int chunkCount = theBuf.capacity() / chunkSize;
+        allPages[pageIndex].recycleBuffer(chunkIndex - pageIndex * chunksPerPage, chunkCount);
     }
 
-    private ByteBuffer allocateBuffer(int theChunkCount, int startPage, int endPage) {
+    private ByteBuffer allocateBuffer(LocalState state, int theChunkCount, int startPage, int endPage) {
         for (int i = startPage; i < endPage; i++) {
             ByteBuffer buffer = allPages[i].allocateChunk(theChunkCount);
             if (buffer != null) {
-                prevAllocatedPage.getAndSet(i);
+                state.page = i;
                 return buffer;
             }
         }
         return null;
     }
 
+    private int chunkIndex(int pageIndex, DirectBuffer buf) {
+        long offset = buf.address() - ((DirectBuffer) allPages[pageIndex].getBuf()).address();
+        return pageIndex * chunksPerPage + (int) (offset / chunkSize);
+    }
+
     public int getChunkSize() {
         return chunkSize;
     }
 
+    /**
+     * the buffers still held by the exited threads are added up under EXITED_THREADS_ID
+     */
     @Override
-    public ConcurrentMap<Long, Long> getNetDirectMemoryUsage() {
-        return memoryUsage;
+    public Map<Long, Long> getNetDirectMemoryUsage() {
+        removeExitedThreads();
+        Map<Long, Long> usage = new HashMap<>(memoryUsage.size() + 1);
+        for (Map.Entry<Long, AtomicLong> entry : memoryUsage.entrySet()) {
+            usage.put(entry.getKey(), entry.getValue().get());
+        }
+        long exited = 0;
+        for (AtomicLong exitedUsage : exitedUsages) {
+            exited += exitedUsage.get();
+        }
+        if (exited != 0) {
+            usage.put(EXITED_THREADS_ID, exited);
+        }
+        return usage;
+    }
+
+    /**
+     * drop the usages of the exited threads, keep the ones which still hold buffers until they are recycled
+     */
+    private void removeExitedThreads() {
+        Iterator<Map.Entry<Long, Thread>> threads = usageThreads.entrySet().iterator();
+        while (threads.hasNext()) {
+            Map.Entry<Long, Thread> entry = threads.next();
+            if (entry.getValue().isAlive()) {
+                continue;
+            }
+            threads.remove();
+            AtomicLong usage = memoryUsage.remove(entry.getKey());
+            if (usage != null && usage.get() != 0) {
+                exitedUsages.add(usage);
+            }
+        }
+        Iterator<AtomicLong> exited = exitedUsages.iterator();
+        while (exited.hasNext()) {
+            if (exited.next().get() == 0) {
+                exited.remove();
+            }
+        }
     }
 
     /**
@@ -162,10 +270,20 @@ public class DirectByteBufferPool implements BufferPool {
         return this.capacity() - usage;
     }
 
-    //TODO
-    public int getSharedOptsCount() {
-        return 0;
+    public long getHeapAllocateCount() {
+        return heapAllocateCount.get();
     }
 
+    private static final class LocalState {
+        /* the page tried first */
+        private int page;
+        private final AtomicLong usage;
+        private final ArrayDeque<ByteBuffer> cache;
 
+        private LocalState(int page, AtomicLong usage, boolean cacheable) {
+            this.page = page;
+            this.usage = usage;
+            this.cache = cacheable ? new ArrayDeque<ByteBuffer>(LOCAL_CACHE_SIZE) : null;
+        }
+    }
 }
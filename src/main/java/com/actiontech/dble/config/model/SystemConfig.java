@@ -54,10 +54,14 @@ public final class SystemConfig {
     private static final int DEFAULT_MERGE_QUEUE_SIZE = 1024;
     private static final int DEFAULT_ORDER_BY_QUEUE_SIZE = 1024;
     private static final int DEFAULT_JOIN_QUEUE_SIZE = 1024;
+    private static final int DEFAULT_GROUP_BY_BUCKET_SIZE = Math.min(DEFAULT_PROCESSORS, 4);
     private static final int DEFAULT_NEST_LOOP_ROWS_SIZE = 2000;
     private static final int DEFAULT_NEST_LOOP_CONN_SIZE = 4;
     private static final int DEFAULT_MAPPED_FILE_SIZE = 1024 * 1024 * 64;
     private static final boolean DEFAULT_USE_JOIN_STRATEGY = false;
+    private static final long DEFAULT_TABLE_STATISTIC_PERIOD = 30 * 60 * 1000L;
+    private static final int DEFAULT_CON_WAIT_QUEUE_SIZE = 1024;
+    private static final long DEFAULT_CON_WAIT_TIMEOUT = 3 * 1000L;
 
     private int frontSocketSoRcvbuf = 1024 * 1024;
     private int frontSocketSoSndbuf = 4 * 1024 * 1024;
@@ -106,11 +110,17 @@ public final class SystemConfig {
     private int serverNodeId = 1;
     private int useCompression = 0;
     private int useSqlStat = 1;
+    // record one of every sqlStatSampling queries of each thread in sql stat
+    private int sqlStatSampling = 1;
+    // 1 means the simple selects are executed in the reactor threads without passing to the executors
+    private int useDirectExecute = 0;
 
     private int checkTableConsistency = 0;
     private long checkTableConsistencyPeriod = CHECK_TABLE_CONSISTENCY_PERIOD;
     private int useGlobleTableCheck = 1;
     private long glableTableCheckPeriod;
+    // the max rows of a chunk checked at a time by the global table check, less when the backends are busy
+    private int globalTableCheckChunkSize = 1000;
 
 
     private String xaRecoveryLogBaseDir;
@@ -119,17 +129,25 @@ public final class SystemConfig {
     private String transactionLogBaseName;
     private String viewPersistenceConfBaseDir;
     private String viewPersistenceConfBaseName;
+    // 1 means start from the table meta snapshot of last run and reload the meta from the data nodes in background
+    private int useMetaSnapshot = 0;
+    private String metaSnapshotBaseDir;
+    private String metaSnapshotBaseName;
     private int transactionRatateSize;
 
     private int mergeQueueSize;
     private int orderByQueueSize;
     private int joinQueueSize;
+    private int groupByBucketSize;
     private int nestLoopRowsSize;
     private int nestLoopConnSize;
     private int mappedFileSize;
     private boolean useZKSwitch = DEFAULT_USE_ZK_SWITCH;
 
     private boolean useJoinStrategy;
+    private long tableStatisticPeriod;
+    private int conWaitQueueSize;
+    private long conWaitTimeout;
 
 
 
@@ -161,16 +179,22 @@ public final class SystemConfig {
         this.xaRecoveryLogBaseName = "tmlog";
         this.viewPersistenceConfBaseDir = SystemConfig.getHomePath() + "/viewConf/";
         this.viewPersistenceConfBaseName = "viewJson";
+        this.metaSnapshotBaseDir = SystemConfig.getHomePath() + "/metaSnapshot/";
+        this.metaSnapshotBaseName = "tableMeta";
         this.transactionLogBaseDir = SystemConfig.getHomePath() + File.separatorChar + DEFAULT_TRANSACTION_BASE_DIR;
         this.transactionLogBaseName = DEFAULT_TRANSACTION_BASE_NAME;
         this.transactionRatateSize = DEFAULT_TRANSACTION_ROTATE_SIZE;
         this.mergeQueueSize = DEFAULT_MERGE_QUEUE_SIZE;
         this.orderByQueueSize = DEFAULT_ORDER_BY_QUEUE_SIZE;
         this.joinQueueSize = DEFAULT_JOIN_QUEUE_SIZE;
+        this.groupByBucketSize = DEFAULT_GROUP_BY_BUCKET_SIZE;
         this.nestLoopRowsSize = DEFAULT_NEST_LOOP_ROWS_SIZE;
         this.nestLoopConnSize = DEFAULT_NEST_LOOP_CONN_SIZE;
         this.mappedFileSize = DEFAULT_MAPPED_FILE_SIZE;
         this.useJoinStrategy = DEFAULT_USE_JOIN_STRATEGY;
+        this.tableStatisticPeriod = DEFAULT_TABLE_STATISTIC_PERIOD;
+        this.conWaitQueueSize = DEFAULT_CON_WAIT_QUEUE_SIZE;
+        this.conWaitTimeout = DEFAULT_CON_WAIT_TIMEOUT;
     }
 
     public int getTransactionRatateSize() {
@@ -218,6 +242,33 @@ public final class SystemConfig {
         this.useJoinStrategy = useJoinStrategy;
     }
 
+    public long getTableStatisticPeriod() {
+        return tableStatisticPeriod;
+    }
+
+    @SuppressWarnings("unused")
+    public void setTableStatisticPeriod(long tableStatisticPeriod) {
+        this.tableStatisticPeriod = tableStatisticPeriod;
+    }
+
+    public int getConWaitQueueSize() {
+        return conWaitQueueSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setConWaitQueueSize(int conWaitQueueSize) {
+        this.conWaitQueueSize = conWaitQueueSize;
+    }
+
+    public long getConWaitTimeout() {
+        return conWaitTimeout;
+    }
+
+    @SuppressWarnings("unused")
+    public void setConWaitTimeout(long conWaitTimeout) {
+        this.conWaitTimeout = conWaitTimeout;
+    }
+
     public String getXaRecoveryLogBaseDir() {
         return xaRecoveryLogBaseDir;
     }
@@ -254,6 +305,15 @@ public final class SystemConfig {
         this.glableTableCheckPeriod = glableTableCheckPeriod;
     }
 
+    public int getGlobalTableCheckChunkSize() {
+        return globalTableCheckChunkSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setGlobalTableCheckChunkSize(int globalTableCheckChunkSize) {
+        this.globalTableCheckChunkSize = globalTableCheckChunkSize;
+    }
+
     public int getSequnceHandlerType() {
         return sequnceHandlerType;
     }
@@ -324,6 +384,24 @@ public final class SystemConfig {
         this.useSqlStat = useSqlStat;
     }
 
+    public int getUseDirectExecute() {
+        return useDirectExecute;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUseDirectExecute(int useDirectExecute) {
+        this.useDirectExecute = useDirectExecute;
+    }
+
+    public int getSqlStatSampling() {
+        return sqlStatSampling;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSqlStatSampling(int sqlStatSampling) {
+        this.sqlStatSampling = sqlStatSampling;
+    }
+
     public int getUseCompression() {
         return useCompression;
     }
@@ -677,6 +755,15 @@ public final class SystemConfig {
         this.joinQueueSize = joinQueueSize;
     }
 
+    public int getGroupByBucketSize() {
+        return groupByBucketSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setGroupByBucketSize(int groupByBucketSize) {
+        this.groupByBucketSize = groupByBucketSize;
+    }
+
     public int getMergeQueueSize() {
         return mergeQueueSize;
     }
@@ -732,6 +819,33 @@ public final class SystemConfig {
         this.viewPersistenceConfBaseName = viewPersistenceConfBaseName;
     }
 
+    public int getUseMetaSnapshot() {
+        return useMetaSnapshot;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUseMetaSnapshot(int useMetaSnapshot) {
+        this.useMetaSnapshot = useMetaSnapshot;
+    }
+
+    public String getMetaSnapshotBaseDir() {
+        return metaSnapshotBaseDir;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMetaSnapshotBaseDir(String metaSnapshotBaseDir) {
+        this.metaSnapshotBaseDir = metaSnapshotBaseDir;
+    }
+
+    public String getMetaSnapshotBaseName() {
+        return metaSnapshotBaseName;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMetaSnapshotBaseName(String metaSnapshotBaseName) {
+        this.metaSnapshotBaseName = metaSnapshotBaseName;
+    }
+
     @Override
     public String toString() {
         return "SystemConfig [" +
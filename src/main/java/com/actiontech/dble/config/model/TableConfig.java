@@ -38,6 +38,7 @@ public class TableConfig {
     private final String joinKey;
     private final String parentKey;
     private final String locateRTableKeySql;
+    private final String locateRTableKeysSql;
     private final TableConfig directRouteTC;
 
     public TableConfig(String name, String primaryKey, boolean autoIncrement, boolean needAddLimit,
@@ -110,6 +111,7 @@ public class TableConfig {
             locateRTableKeySql = null;
             directRouteTC = this;
         }
+        locateRTableKeysSql = locateRTableKeySql == null ? null : genLocateRootParentKeysSQL();
     }
 
     public String getPrimaryKey() {
@@ -132,40 +134,53 @@ public class TableConfig {
         return locateRTableKeySql;
     }
 
+    /**
+     * @return the sql to find which join key values exist, the values and ")" should be appended
+     */
+    public String getLocateRTableKeysSql() {
+        return locateRTableKeysSql;
+    }
+
     public boolean isGlobalTable() {
         return this.tableType == TableTypeEnum.TYPE_GLOBAL_TABLE;
     }
 
     public String genLocateRootParentSQL() {
+        TableConfig prevTC = this;
+        while (prevTC.parentTC.parentTC != null) {
+            prevTC = prevTC.parentTC;
+        }
+        return "SELECT " + prevTC.parentTC.name + '.' + prevTC.parentKey + genLocateRootParentCondition() + "=";
+    }
+
+    /**
+     * select the parent key instead of the root parent's, so that the row tells which value is found
+     */
+    public String genLocateRootParentKeysSQL() {
+        return "SELECT DISTINCT " + parentTC.name + '.' + parentKey + genLocateRootParentCondition() + " IN (";
+    }
+
+    private String genLocateRootParentCondition() {
         TableConfig tb = this;
         StringBuilder tableSb = new StringBuilder();
         StringBuilder condition = new StringBuilder();
-        TableConfig prevTC = null;
         int level = 0;
         String latestCond = null;
         while (tb.parentTC != null) {
             tableSb.append(tb.parentTC.name).append(',');
-            String relation = null;
             if (level == 0) {
-                latestCond = " " + tb.parentTC.getName() + '.' + tb.parentKey + "=";
+                latestCond = " " + tb.parentTC.getName() + '.' + tb.parentKey;
             } else {
-                relation = tb.parentTC.getName() + '.' + tb.parentKey + '=' + tb.name + '.' + tb.joinKey;
+                String relation = tb.parentTC.getName() + '.' + tb.parentKey + '=' + tb.name + '.' + tb.joinKey;
                 condition.append(relation).append(" AND ");
             }
             level++;
-            prevTC = tb;
             tb = tb.parentTC;
         }
-        String sql = "SELECT " +
-                prevTC.parentTC.name +
-                '.' +
-                prevTC.parentKey +
-                " FROM " +
+        return " FROM " +
                 tableSb.substring(0, tableSb.length() - 1) +
                 " WHERE " +
                 ((level < 2) ? latestCond : condition.toString() + latestCond);
-        return sql;
-
     }
 
     public String getPartitionColumn() {
@@ -105,6 +105,14 @@ public final class ShowHandler {
                 boolean isClearLarge = Boolean.valueOf(stmt.substring(rs >>> 8).trim());
                 ShowSQLLarge.execute(c, isClearLarge);
                 break;
+            case ManagerParseShow.SQL_DIGEST:
+                boolean isClearDigest = Boolean.valueOf(stmt.substring(rs >>> 8).trim());
+                ShowSQLDigest.execute(c, isClearDigest);
+                break;
+            case ManagerParseShow.SQL_DIGEST_DATANODE:
+                boolean isClearDigestNode = Boolean.valueOf(stmt.substring(rs >>> 8).trim());
+                ShowSQLDigest.executeDataNode(c, isClearDigestNode);
+                break;
             case ManagerParseShow.SQL_CONDITION:
                 ShowSQLCondition.execute(c);
                 break;
@@ -149,6 +157,12 @@ public final class ShowHandler {
             case ManagerParseShow.DATASOURCE_CLUSTER://by songwie
                 ShowDatasourceCluster.response(c);
                 break;
+            case ManagerParseShow.DATASOURCE_WAIT:
+                ShowDataSourceWait.execute(c);
+                break;
+            case ManagerParseShow.GLOBAL_TABLE_CHECK:
+                ShowGlobalTableCheck.execute(c);
+                break;
             case ManagerParseShow.DIRECTMEMORY_DETAIL:
                 ShowDirectMemory.execute(c, 2);
                 break;
@@ -7,6 +7,7 @@ package com.actiontech.dble.manager.response;
 
 import com.actiontech.dble.manager.ManagerConnection;
 import com.actiontech.dble.net.mysql.OkPacket;
+import com.actiontech.dble.statistic.stat.SqlDigestAnalyzer;
 import com.actiontech.dble.statistic.stat.UserStat;
 import com.actiontech.dble.statistic.stat.UserStatAnalyzer;
 import org.slf4j.Logger;
@@ -26,14 +27,15 @@ public final class ReloadUserStat {
         for (UserStat userStat : statMap.values()) {
             userStat.reset();
         }
+        SqlDigestAnalyzer.getInstance().clear();
 
-        LOGGER.info(String.valueOf(c) + "Reset show @@sql  @@sql.sum  @@sql.slow  @@sql.high  @@sql.large  @@sql.resultset success by manager");
+        LOGGER.info(String.valueOf(c) + "Reset show @@sql  @@sql.sum  @@sql.slow  @@sql.high  @@sql.large  @@sql.resultset  @@sql.digest success by manager");
 
         OkPacket ok = new OkPacket();
         ok.setPacketId(1);
         ok.setAffectedRows(1);
         ok.setServerStatus(2);
-        ok.setMessage("Reset show @@sql  @@sql.sum @@sql.slow  @@sql.high  @@sql.large  @@sql.resultset  success".getBytes());
+        ok.setMessage("Reset show @@sql  @@sql.sum @@sql.slow  @@sql.high  @@sql.large  @@sql.resultset  @@sql.digest  success".getBytes());
         ok.write(c);
     }
 
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.manager.response;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.datasource.ConWaitQueue;
+import com.actiontech.dble.backend.datasource.PhysicalDBPool;
+import com.actiontech.dble.backend.datasource.PhysicalDatasource;
+import com.actiontech.dble.backend.mysql.PacketUtil;
+import com.actiontech.dble.config.Fields;
+import com.actiontech.dble.manager.ManagerConnection;
+import com.actiontech.dble.net.mysql.EOFPacket;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.ResultSetHeaderPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.util.IntegerUtil;
+import com.actiontech.dble.util.LongUtil;
+import com.actiontech.dble.util.StringUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * show @@datasource.wait
+ * the requests waiting for backend connections of each dataSource, and the histogram of the wait time
+ */
+public final class ShowDataSourceWait {
+    private ShowDataSourceWait() {
+    }
+
+    private static final int FIELD_COUNT = 11;
+    private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
+    private static final FieldPacket[] FIELDS = new FieldPacket[FIELD_COUNT];
+    private static final EOFPacket EOF = new EOFPacket();
+
+    static {
+        int i = 0;
+        byte packetId = 0;
+        HEADER.setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("NAME", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("WAITING", Fields.FIELD_TYPE_LONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("SERVED", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("TIMEOUT", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("REJECTED", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("WAIT_LT_1MS", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("WAIT_LT_10MS", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("WAIT_LT_100MS", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("WAIT_LT_1S", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("WAIT_GE_1S", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("SIZE", Fields.FIELD_TYPE_LONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        EOF.setPacketId(++packetId);
+    }
+
+    public static void execute(ManagerConnection c) {
+        ByteBuffer buffer = c.allocate();
+
+        // write header
+        buffer = HEADER.write(buffer, c, true);
+
+        // write fields
+        for (FieldPacket field : FIELDS) {
+            buffer = field.write(buffer, c, true);
+        }
+
+        // write eof
+        buffer = EOF.write(buffer, c, true);
+
+        // write rows
+        byte packetId = EOF.getPacketId();
+        for (PhysicalDBPool dataHost : DbleServer.getInstance().getConfig().getDataHosts().values()) {
+            for (PhysicalDatasource ds : dataHost.getAllDataSources()) {
+                RowDataPacket row = getRow(ds, c.getCharset().getResults());
+                row.setPacketId(++packetId);
+                buffer = row.write(buffer, c, true);
+            }
+        }
+
+        // write last eof
+        EOFPacket lastEof = new EOFPacket();
+        lastEof.setPacketId(++packetId);
+        buffer = lastEof.write(buffer, c, true);
+
+        // post write
+        c.write(buffer);
+    }
+
+    private static RowDataPacket getRow(PhysicalDatasource ds, String charset) {
+        ConWaitQueue queue = ds.getConWaitQueue();
+        RowDataPacket row = new RowDataPacket(FIELD_COUNT);
+        row.add(StringUtil.encode(ds.getName(), charset));
+        row.add(IntegerUtil.toBytes(queue.getWaiting()));
+        row.add(LongUtil.toBytes(queue.getServedCount()));
+        row.add(LongUtil.toBytes(queue.getTimeoutCount()));
+        row.add(LongUtil.toBytes(queue.getRejectCount()));
+        for (long count : queue.getWaitTimes()) {
+            row.add(LongUtil.toBytes(count));
+        }
+        row.add(IntegerUtil.toBytes(ds.getSize()));
+        return row;
+    }
+}
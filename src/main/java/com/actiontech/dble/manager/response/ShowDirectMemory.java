@@ -19,7 +19,6 @@ import com.actiontech.dble.util.StringUtil;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * show @@directmemory
@@ -104,7 +103,7 @@ public final class ShowDirectMemory {
         // write rows
         byte packetId = DETAIL_EOF.getPacketId();
 
-        ConcurrentMap<Long, Long> networkBufferPool = DbleServer.getInstance().
+        Map<Long, Long> networkBufferPool = DbleServer.getInstance().
                 getBufferPool().getNetDirectMemoryUsage();
 
         for (Map.Entry<Long, Long> entry : networkBufferPool.entrySet()) {
@@ -143,7 +142,7 @@ public final class ShowDirectMemory {
         // write eof
         buffer = TOTAL_EOF.write(buffer, c, true);
 
-        ConcurrentMap<Long, Long> networkBufferPool = DbleServer.getInstance().
+        Map<Long, Long> networkBufferPool = DbleServer.getInstance().
                 getBufferPool().getNetDirectMemoryUsage();
 
         RowDataPacket row = new RowDataPacket(TOTAL_FIELD_COUNT);
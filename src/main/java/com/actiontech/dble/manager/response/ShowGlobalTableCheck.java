@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.manager.response;
+
+import com.actiontech.dble.backend.heartbeat.GlobalTableChecksumChecker.ChunkResult;
+import com.actiontech.dble.backend.mysql.PacketUtil;
+import com.actiontech.dble.config.Fields;
+import com.actiontech.dble.manager.ManagerConnection;
+import com.actiontech.dble.net.mysql.EOFPacket;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.ResultSetHeaderPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.server.util.GlobalTableUtil;
+import com.actiontech.dble.util.IntegerUtil;
+import com.actiontech.dble.util.LongUtil;
+import com.actiontech.dble.util.StringUtil;
+import org.apache.commons.lang.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * show @@global_table.check, the chunks of the last global table check.
+ * LOWER_BOUND is exclusive and UPPER_BOUND is inclusive, NULL means unbounded.
+ * the bound of a composite primary key is the values of its columns joined by ','
+ */
+public final class ShowGlobalTableCheck {
+    private ShowGlobalTableCheck() {
+    }
+
+    private static final int FIELD_COUNT = 9;
+    private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
+    private static final FieldPacket[] FIELDS = new FieldPacket[FIELD_COUNT];
+    private static final EOFPacket EOF = new EOFPacket();
+
+    static {
+        int i = 0;
+        byte packetId = 0;
+        HEADER.setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("TABLE", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("CHUNK", Fields.FIELD_TYPE_LONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("LOWER_BOUND", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("UPPER_BOUND", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("ROWS", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("TIME_MS", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("CONSISTENT", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("DIFF_DATANODES", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("DIFF_KEYS", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i].setPacketId(++packetId);
+
+        EOF.setPacketId(++packetId);
+    }
+
+    public static void execute(ManagerConnection c) {
+        ByteBuffer buffer = c.allocate();
+
+        // write header
+        buffer = HEADER.write(buffer, c, true);
+
+        // write fields
+        for (FieldPacket field : FIELDS) {
+            buffer = field.write(buffer, c, true);
+        }
+
+        // write eof
+        buffer = EOF.write(buffer, c, true);
+
+        // write rows
+        byte packetId = EOF.getPacketId();
+        String charset = c.getCharset().getResults();
+        for (Map.Entry<String, List<ChunkResult>> entry : GlobalTableUtil.getCheckResults().entrySet()) {
+            for (ChunkResult chunk : entry.getValue()) {
+                RowDataPacket row = getRow(entry.getKey(), chunk, charset);
+                row.setPacketId(++packetId);
+                buffer = row.write(buffer, c, true);
+            }
+        }
+
+        // write last eof
+        EOFPacket lastEof = new EOFPacket();
+        lastEof.setPacketId(++packetId);
+        buffer = lastEof.write(buffer, c, true);
+
+        // post write
+        c.write(buffer);
+    }
+
+    private static RowDataPacket getRow(String table, ChunkResult chunk, String charset) {
+        RowDataPacket row = new RowDataPacket(FIELD_COUNT);
+        row.add(StringUtil.encode(table, charset));
+        row.add(IntegerUtil.toBytes(chunk.getIndex()));
+        row.add(StringUtil.encode(chunk.getLowerBound(), charset));
+        row.add(StringUtil.encode(chunk.getUpperBound(), charset));
+        row.add(LongUtil.toBytes(chunk.getRows()));
+        row.add(LongUtil.toBytes(chunk.getMillis()));
+        row.add(StringUtil.encode(chunk.isConsistent() ? "true" : "false", charset));
+        row.add(StringUtil.encode(StringUtils.join(chunk.getDiffNodes(), ","), charset));
+        row.add(StringUtil.encode(StringUtils.join(chunk.getDiffKeys(), ","), charset));
+        return row;
+    }
+}
@@ -105,6 +105,7 @@ public final class ShowHelp {
         HELPS.put("show @@datasource.synstatus", "Report datasource data synchronous");
         HELPS.put("show @@datasource.syndetail where name=?", "Report datasource data synchronous detail");
         HELPS.put("show @@datasource.cluster", "Report datasource galary cluster variables");
+        HELPS.put("show @@datasource.wait", "Report the requests waiting for backend connections of dataSources");
         HELPS.put("show @@processor", "Report processor status");
         HELPS.put("show @@command", "Report commands status");
         HELPS.put("show @@connection", "Report connection status");
@@ -118,6 +119,8 @@ public final class ShowHelp {
         // helps.put("show @@sql where id = ?", "Report  specify SQL");
         HELPS.put("show @@sql.high", "Report Hight Frequency SQL");
         HELPS.put("show @@sql.slow", "Report slow SQL");
+        HELPS.put("show @@sql.digest", "Report latency percentiles per SQL digest");
+        HELPS.put("show @@sql.digest.datanode", "Report latency percentiles per data node");
         HELPS.put("show @@sql.resultset", "Report BIG RESULTSET SQL");
         HELPS.put("show @@sql.sum", "Report  User RW Stat ");
         HELPS.put("show @@sql.sum.user", "Report  User RW Stat ");
@@ -131,6 +134,7 @@ public final class ShowHelp {
         HELPS.put("show @@sysparam", "Report system param");
         HELPS.put("show @@syslog limit=?", "Report system log");
         HELPS.put("show @@white", "show server white host ");
+        HELPS.put("show @@global_table.check", "Report the chunks of the last global table consistency check");
         HELPS.put("show @@directmemory=1 or 2", "show server direct memory usage");
 
         // switch
@@ -114,7 +114,7 @@ public final class ShowProcessor {
         BufferPool bufferPool = processor.getBufferPool();
         long bufferSize = bufferPool.size();
         long bufferCapacity = bufferPool.capacity();
-        long bufferSharedOpts = bufferPool.getSharedOptsCount();
+        long bufferHeapAllocates = bufferPool.getHeapAllocateCount();
         long bufferUsagePercent = (bufferCapacity - bufferSize) * 100 / bufferCapacity;
         RowDataPacket row = new RowDataPacket(FIELD_COUNT);
         row.add(processor.getName().getBytes());
@@ -126,7 +126,7 @@ public final class ShowProcessor {
         row.add(LongUtil.toBytes(bufferSize));
         row.add(LongUtil.toBytes(bufferCapacity));
         row.add(LongUtil.toBytes(bufferUsagePercent));
-        row.add(LongUtil.toBytes(bufferSharedOpts));
+        row.add(LongUtil.toBytes(bufferHeapAllocates));
         row.add(IntegerUtil.toBytes(processor.getFrontends().size()));
         row.add(IntegerUtil.toBytes(processor.getBackends().size()));
         return row;
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.manager.response;
+
+import com.actiontech.dble.backend.mysql.PacketUtil;
+import com.actiontech.dble.config.Fields;
+import com.actiontech.dble.manager.ManagerConnection;
+import com.actiontech.dble.net.mysql.EOFPacket;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.ResultSetHeaderPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.statistic.stat.LatencyHistogram;
+import com.actiontech.dble.statistic.stat.SqlDigestAnalyzer;
+import com.actiontech.dble.statistic.stat.SqlLatencyStat;
+import com.actiontech.dble.util.FormatUtil;
+import com.actiontech.dble.util.LongUtil;
+import com.actiontech.dble.util.StringUtil;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * show @@sql.digest and show @@sql.digest.datanode, the time is in milliseconds.
+ * the rows and bytes are counted per query only, they are NULL for the data nodes
+ */
+public final class ShowSQLDigest {
+    private ShowSQLDigest() {
+    }
+
+    private static final int FIELD_COUNT = 12;
+    private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
+    private static final FieldPacket[] DIGEST_FIELDS = new FieldPacket[FIELD_COUNT];
+    private static final FieldPacket[] DATA_NODE_FIELDS = new FieldPacket[FIELD_COUNT];
+    private static final EOFPacket EOF = new EOFPacket();
+
+    static {
+        byte packetId = 0;
+        HEADER.setPacketId(++packetId);
+        initFields(DIGEST_FIELDS, "DIGEST", Fields.FIELD_TYPE_VAR_STRING, packetId);
+        packetId = initFields(DATA_NODE_FIELDS, "DATA_NODE", Fields.FIELD_TYPE_VARCHAR, packetId);
+        EOF.setPacketId(++packetId);
+    }
+
+    private static byte initFields(FieldPacket[] fields, String keyName, int keyType, byte startPacketId) {
+        int i = 0;
+        byte packetId = startPacketId;
+        fields[i] = PacketUtil.getField("ID", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField(keyName, keyType);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("COUNT", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("ROWS", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("NET_IN", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("NET_OUT", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("AVG_TIME", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("P50_TIME", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("P99_TIME", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("P999_TIME", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("MAX_TIME", Fields.FIELD_TYPE_LONGLONG);
+        fields[i++].setPacketId(++packetId);
+        fields[i] = PacketUtil.getField("LAST_TIME", Fields.FIELD_TYPE_VARCHAR);
+        fields[i].setPacketId(++packetId);
+        return packetId;
+    }
+
+    public static void execute(ManagerConnection c, boolean isClear) {
+        write(c, DIGEST_FIELDS, SqlDigestAnalyzer.getInstance().getDigestStats(isClear), true);
+    }
+
+    public static void executeDataNode(ManagerConnection c, boolean isClear) {
+        write(c, DATA_NODE_FIELDS, SqlDigestAnalyzer.getInstance().getDataNodeStats(isClear), false);
+    }
+
+    private static void write(ManagerConnection c, FieldPacket[] fields, List<SqlLatencyStat> stats, boolean withVolume) {
+        ByteBuffer buffer = c.allocate();
+
+        // write header
+        buffer = HEADER.write(buffer, c, true);
+
+        // write fields
+        for (FieldPacket field : fields) {
+            buffer = field.write(buffer, c, true);
+        }
+
+        // write eof
+        buffer = EOF.write(buffer, c, true);
+
+        // write rows
+        byte packetId = EOF.getPacketId();
+        int i = 1;
+        for (SqlLatencyStat stat : stats) {
+            RowDataPacket row = getRow(i++, stat, withVolume, c.getCharset().getResults());
+            row.setPacketId(++packetId);
+            buffer = row.write(buffer, c, true);
+        }
+
+        // write last eof
+        EOFPacket lastEof = new EOFPacket();
+        lastEof.setPacketId(++packetId);
+        buffer = lastEof.write(buffer, c, true);
+
+        // write buffer
+        c.write(buffer);
+    }
+
+    private static RowDataPacket getRow(int i, SqlLatencyStat stat, boolean withVolume, String charset) {
+        LatencyHistogram histogram = stat.getHistogram();
+        RowDataPacket row = new RowDataPacket(FIELD_COUNT);
+        row.add(LongUtil.toBytes(i));
+        row.add(StringUtil.encode(stat.getKey(), charset));
+        row.add(LongUtil.toBytes(stat.getCount()));
+        row.add(withVolume ? LongUtil.toBytes(stat.getRows()) : null);
+        row.add(withVolume ? LongUtil.toBytes(stat.getNetInBytes()) : null);
+        row.add(withVolume ? LongUtil.toBytes(stat.getNetOutBytes()) : null);
+        row.add(LongUtil.toBytes(histogram.getMean()));
+        row.add(LongUtil.toBytes(histogram.getValueAtPercentile(50)));
+        row.add(LongUtil.toBytes(histogram.getValueAtPercentile(99)));
+        row.add(LongUtil.toBytes(histogram.getValueAtPercentile(99.9)));
+        row.add(LongUtil.toBytes(histogram.getMax()));
+        row.add(StringUtil.encode(FormatUtil.formatDate(stat.getLastTime()), charset));
+        return row;
+    }
+}
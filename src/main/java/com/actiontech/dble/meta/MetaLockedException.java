@@ -0,0 +1,17 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+/**
+ * the meta of the table is locked by a ddl and the thread can't wait for it, such as a reactor thread
+ */
+public class MetaLockedException extends RuntimeException {
+    private static final long serialVersionUID = -2915382734416027367L;
+
+    public MetaLockedException(String schema, String table) {
+        super("schema:" + schema + ", table:" + table + " is doing ddl");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+import com.actiontech.dble.meta.protocol.StructureMeta;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * the table metas of all schemas saved in a local file, so the next start can serve with them
+ * before the metas are loaded from the data nodes.
+ * <p>
+ * file format: MAGIC, VERSION, then {true, schema, delimited TableMeta} for every table, false,
+ * and the crc32 of all the bytes before it.
+ */
+public final class MetaSnapshot {
+    private static final int MAGIC = 0x64626C65;
+    private static final int VERSION = 1;
+
+    private MetaSnapshot() {
+    }
+
+    /**
+     * write to a temp file and rename it, a crash while writing never leaves a broken snapshot
+     */
+    public static void write(Map<String, SchemaMeta> catalogs, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("can't create the directory " + parent);
+        }
+        File tmpFile = new File(parent, file.getName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tmpFile)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fos), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<String, SchemaMeta> schema : catalogs.entrySet()) {
+                for (StructureMeta.TableMeta tableMeta : schema.getValue().getTableMetas().values()) {
+                    out.writeBoolean(true);
+                    out.writeUTF(schema.getKey());
+                    tableMeta.writeDelimitedTo(out);
+                }
+            }
+            out.writeBoolean(false);
+            out.flush();
+            // the crc itself is out of the checked bytes
+            new DataOutputStream(fos).writeLong(crc.getValue());
+            fos.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return schema -> table -> TableMeta, null if the file does not exist
+     * @throws IOException if the file is broken or written by another version
+     */
+    public static Map<String, Map<String, StructureMeta.TableMeta>> read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        Map<String, Map<String, StructureMeta.TableMeta>> tables = new HashMap<>();
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("unknown meta snapshot format of " + file);
+            }
+            while (in.readBoolean()) {
+                String schema = in.readUTF();
+                StructureMeta.TableMeta tableMeta = StructureMeta.TableMeta.parseDelimitedFrom(in);
+                if (tableMeta == null) {
+                    throw new EOFException("meta snapshot " + file + " is truncated");
+                }
+                Map<String, StructureMeta.TableMeta> schemaTables = tables.get(schema);
+                if (schemaTables == null) {
+                    schemaTables = new HashMap<>();
+                    tables.put(schema, schemaTables);
+                }
+                schemaTables.put(tableMeta.getTableName(), tableMeta);
+            }
+            long checksum = crc.getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("checksum of meta snapshot " + file + " mismatch");
+            }
+        }
+        return tables;
+    }
+}
@@ -26,10 +26,13 @@ import com.actiontech.dble.meta.table.MetaHelper;
 import com.actiontech.dble.meta.table.MetaHelper.IndexType;
 import com.actiontech.dble.meta.table.SchemaMetaHandler;
 import com.actiontech.dble.meta.table.TableMetaCheckHandler;
+import com.actiontech.dble.meta.table.TableStatisticHandler;
 import com.actiontech.dble.plan.node.QueryNode;
 import com.actiontech.dble.server.util.SchemaUtil;
 import com.actiontech.dble.server.util.SchemaUtil.SchemaInfo;
+import com.actiontech.dble.util.ExecutorUtil;
 import com.actiontech.dble.util.KVPathUtil;
+import com.actiontech.dble.util.NameableExecutor;
 import com.actiontech.dble.util.StringUtil;
 import com.actiontech.dble.util.ZKUtils;
 import com.alibaba.druid.sql.ast.SQLExpr;
@@ -49,6 +52,8 @@ import org.apache.curator.utils.ZKPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.*;
@@ -67,6 +72,7 @@ public class ProxyMetaManager {
     private Condition condRelease = metaLock.newCondition();
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> checkTaskHandler;
+    private ScheduledFuture<?> statisticTaskHandler;
     private AtomicInteger metaCount = new AtomicInteger(0);
     private Repository repository = null;
     private AtomicInteger version = new AtomicInteger(0);
@@ -103,6 +109,27 @@ public class ProxyMetaManager {
         }
     }
 
+    /**
+     * the same as addMetaLock, but never waits
+     *
+     * @return false if the table is locked by a ddl
+     */
+    private boolean tryAddMetaLock(String schema, String tbName) {
+        metaLock.lock();
+        try {
+            String lockKey = genLockKey(schema, tbName);
+            if (lockTables.contains(lockKey)) {
+                return false;
+            }
+            metaCount.incrementAndGet();
+            version.incrementAndGet();
+            lockTables.add(lockKey);
+            return true;
+        } finally {
+            metaLock.unlock();
+        }
+    }
+
     public boolean isMetaLocked(String schema, String tbName) {
         metaLock.lock();
         try {
@@ -193,6 +220,14 @@ public class ProxyMetaManager {
     }
 
     public StructureMeta.TableMeta getSyncTableMeta(String schema, String tbName) {
+        return getSyncTableMeta(schema, tbName, true);
+    }
+
+    /**
+     * @param canWait false if the thread must not wait for the ddl, such as a reactor thread
+     * @throws MetaLockedException if the table is doing ddl and canWait is false
+     */
+    public StructureMeta.TableMeta getSyncTableMeta(String schema, String tbName, boolean canWait) {
         while (true) {
             int oldVersion = version.get();
             if (metaCount.get() == 0) {
@@ -204,6 +239,9 @@ public class ProxyMetaManager {
                 metaLock.lock();
                 try {
                     if (lockTables.contains(genLockKey(schema, tbName))) {
+                        if (!canWait) {
+                            throw new MetaLockedException(schema, tbName);
+                        }
                         LOGGER.warn("schema:" + schema + ", table:" + tbName + " is doing ddl,Waiting for table metadata lock");
                         condRelease.await();
                     } else {
@@ -220,10 +258,21 @@ public class ProxyMetaManager {
 
 
     public QueryNode getSyncView(String schema, String vName) {
+        return getSyncView(schema, vName, true);
+    }
+
+    /**
+     * @param canWait false if the thread must not wait for the ddl, such as a reactor thread
+     * @throws MetaLockedException if the view is doing ddl and canWait is false
+     */
+    public QueryNode getSyncView(String schema, String vName, boolean canWait) {
         while (true) {
             metaLock.lock();
             try {
                 if (lockTables.contains(genLockKey(schema, vName))) {
+                    if (!canWait) {
+                        throw new MetaLockedException(schema, vName);
+                    }
                     LOGGER.info("schema:" + schema + ", view:" + vName + " is doing ddl,Waiting for table metadata lock");
                     condRelease.await();
                 } else {
@@ -241,6 +290,16 @@ public class ProxyMetaManager {
         return catalogs.get(schema).getTableMeta(tbName);
     }
 
+    /**
+     * @param schema
+     * @param tbName
+     * @return null if the statistic of the table has not been collected
+     */
+    public TableStatistic getTableStatistic(String schema, String tbName) {
+        SchemaMeta schemaMeta = catalogs.get(schema);
+        return schemaMeta == null ? null : schemaMeta.getTableStatistic(tbName);
+    }
+
 
     private Set<String> getSelfNodes(ServerConfig config) {
         Set<String> selfNode = null;
@@ -295,21 +354,44 @@ public class ProxyMetaManager {
             }
 
 
-            initMeta(config);
+            // syncMeta UNLOCK after the metas are loaded and the watchers are added
+            Runnable syncMetaUnlock = syncMetaUnlock(zkConn);
+            if (!initMeta(config, config.getSystem().getUseMetaSnapshot() == 1, syncMetaUnlock)) {
+                syncMetaUnlock.run();
+            }
             // online
             ZKUtils.createTempNode(KVPathUtil.getOnlinePath(), ZkConfig.getInstance().getValue(ZkParamCfg.ZK_CFG_MYID));
             //add watcher
             ZKUtils.addChildPathCache(ddlPath, new DDLChildListener());
             //add watcher
             ZKUtils.addViewPathCache(KVPathUtil.getViewPath(), new ViewChildListener());
-            // syncMeta UNLOCK
-            zkConn.delete().forPath(KVPathUtil.getSyncMetaLockPath());
+            syncMetaUnlock.run();
 
         } else {
-            initMeta(config);
+            initMeta(config, config.getSystem().getUseMetaSnapshot() == 1, null);
         }
     }
 
+    /**
+     * @return the task deleting syncMeta.lock at its second run
+     */
+    private static Runnable syncMetaUnlock(final CuratorFramework zkConn) {
+        final AtomicInteger waits = new AtomicInteger(2);
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (waits.decrementAndGet() != 0) {
+                    return;
+                }
+                try {
+                    zkConn.delete().forPath(KVPathUtil.getSyncMetaLockPath());
+                } catch (Exception e) {
+                    LOGGER.warn("delete " + KVPathUtil.getSyncMetaLockPath() + " failed", e);
+                }
+            }
+        };
+    }
+
 
     /**
      * recovery all the view info from KV system
@@ -347,27 +429,217 @@ public class ProxyMetaManager {
 
 
     public void initMeta(ServerConfig config) {
+        initMeta(config, false, null);
+    }
+
+    /**
+     * @param useSnapshot       start with the table metas saved by the last run if there are,
+     *                          and reload them from the data nodes in background
+     * @param afterRevalidation run after the background reload
+     * @return true if the metas are being reloaded in background
+     */
+    private boolean initMeta(ServerConfig config, boolean useSnapshot, Runnable afterRevalidation) {
         Set<String> selfNode = getSelfNodes(config);
-        SchemaMetaHandler handler = new SchemaMetaHandler(this, config, selfNode);
-        handler.execute();
+        Map<String, Map<String, StructureMeta.TableMeta>> snapshotTables = useSnapshot ? loadSnapshot(config, selfNode) : null;
+        if (snapshotTables != null) {
+            revalidateSnapshot(config, selfNode, snapshotTables, afterRevalidation);
+        } else {
+            SchemaMetaHandler handler = new SchemaMetaHandler(this, config, selfNode);
+            handler.execute();
+            saveSnapshot(config.getSystem());
+        }
         if (DbleServer.getInstance().isUseZK()) {
             loadViewFromKV();
         } else {
             loadViewFromFile();
         }
         SystemConfig system = config.getSystem();
-        if (system.getCheckTableConsistency() == 1) {
+        if (system.getCheckTableConsistency() == 1 || system.isUseJoinStrategy()) {
             scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("MetaDataChecker-%d").build());
+        }
+        if (system.getCheckTableConsistency() == 1) {
             checkTaskHandler = scheduler.scheduleWithFixedDelay(tableStructureCheckTask(selfNode), 0L, system.getCheckTableConsistencyPeriod(), TimeUnit.MILLISECONDS);
         }
+        // the statistics are only used for choosing join strategy
+        if (system.isUseJoinStrategy()) {
+            statisticTaskHandler = scheduler.scheduleWithFixedDelay(tableStatisticTask(config, selfNode), 0L, system.getTableStatisticPeriod(), TimeUnit.MILLISECONDS);
+        }
+        return snapshotTables != null;
+    }
+
+    private static File getSnapshotFile(SystemConfig system) {
+        return new File(system.getMetaSnapshotBaseDir(), system.getMetaSnapshotBaseName());
+    }
+
+    /**
+     * put the snapshot tables which are still in the config into the catalogs,
+     * the tables added to the config since the snapshot are loaded from the data nodes now
+     *
+     * @return the tables put, null if there is no usable snapshot
+     */
+    private Map<String, Map<String, StructureMeta.TableMeta>> loadSnapshot(ServerConfig config, Set<String> selfNode) {
+        Map<String, Map<String, StructureMeta.TableMeta>> snapshot;
+        try {
+            snapshot = MetaSnapshot.read(getSnapshotFile(config.getSystem()));
+        } catch (IOException e) {
+            LOGGER.warn("read the meta snapshot failed, load the metas from the data nodes", e);
+            return null;
+        }
+        if (snapshot == null) {
+            return null;
+        }
+        Map<String, Map<String, StructureMeta.TableMeta>> loaded = new HashMap<>();
+        Map<String, Set<String>> newTables = new HashMap<>();
+        int count = 0;
+        int newCount = 0;
+        for (SchemaConfig schema : config.getSchemas().values()) {
+            createDatabase(schema.getName());
+            Map<String, StructureMeta.TableMeta> schemaTables = snapshot.get(schema.getName());
+            if (schemaTables == null) {
+                schemaTables = Collections.emptyMap();
+            }
+            Set<String> schemaNewTables = new HashSet<>(schema.getTables().keySet());
+            schemaNewTables.removeAll(schemaTables.keySet());
+            newTables.put(schema.getName(), schemaNewTables);
+            newCount += schemaNewTables.size();
+            Map<String, StructureMeta.TableMeta> loadedTables = new HashMap<>();
+            for (StructureMeta.TableMeta tableMeta : schemaTables.values()) {
+                // the tables not in the config are single tables of the default data node
+                if (schema.getDataNode() != null || schema.getTables().containsKey(tableMeta.getTableName())) {
+                    addTable(schema.getName(), tableMeta);
+                    loadedTables.put(tableMeta.getTableName(), tableMeta);
+                }
+            }
+            count += loadedTables.size();
+            loaded.put(schema.getName(), loadedTables);
+        }
+        LOGGER.info("loaded " + count + " table metas from the meta snapshot");
+        if (newCount > 0) {
+            new SchemaMetaHandler(this, config, selfNode, newTables).execute();
+            LOGGER.info("loaded " + newCount + " table metas not in the meta snapshot from the data nodes");
+        }
+        return loaded;
+    }
+
+    private void saveSnapshot(SystemConfig system) {
+        if (system.getUseMetaSnapshot() != 1) {
+            return;
+        }
+        try {
+            MetaSnapshot.write(catalogs, getSnapshotFile(system));
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "write the meta snapshot failed", e);
+        }
+    }
+
+    private void revalidateSnapshot(final ServerConfig config, final Set<String> selfNode,
+                                    final Map<String, Map<String, StructureMeta.TableMeta>> snapshotTables,
+                                    final Runnable afterRevalidation) {
+        NameableExecutor executor = ExecutorUtil.createFixed("MetaSnapshotRevalidator", 1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ProxyMetaManager latest = new ProxyMetaManager();
+                    new SchemaMetaHandler(latest, config, selfNode).execute();
+                    int changed = mergeLatest(latest.getCatalogs(), snapshotTables);
+                    LOGGER.info("the metas from the data nodes are loaded, " + changed + " table metas of the snapshot changed");
+                    saveSnapshot(config.getSystem());
+                } finally {
+                    if (afterRevalidation != null) {
+                        afterRevalidation.run();
+                    }
+                }
+            }
+        });
+        // the thread ends after the task
+        executor.shutdown();
+    }
+
+    /**
+     * replace the snapshot tables with the latest metas under their meta locks and with the version bumped,
+     * the tables changed by ddl during loading or being changed by ddl are left alone
+     *
+     * @return the count of the snapshot tables added, changed or dropped
+     */
+    int mergeLatest(Map<String, SchemaMeta> latest, Map<String, Map<String, StructureMeta.TableMeta>> snapshotTables) {
+        int changed = 0;
+        for (Map.Entry<String, SchemaMeta> schema : latest.entrySet()) {
+            SchemaMeta current = catalogs.get(schema.getKey());
+            if (current == null) {
+                continue;
+            }
+            Map<String, StructureMeta.TableMeta> snapshot = snapshotTables.get(schema.getKey());
+            if (snapshot == null) {
+                snapshot = Collections.emptyMap();
+            }
+            Map<String, StructureMeta.TableMeta> latestTables = schema.getValue().getTableMetas();
+            for (StructureMeta.TableMeta tableMeta : latestTables.values()) {
+                StructureMeta.TableMeta old = snapshot.get(tableMeta.getTableName());
+                if ((old == null || !sameStructure(old, tableMeta)) &&
+                        mergeTable(schema.getKey(), current, tableMeta.getTableName(), old, tableMeta)) {
+                    changed++;
+                }
+            }
+            for (StructureMeta.TableMeta old : snapshot.values()) {
+                if (!latestTables.containsKey(old.getTableName()) &&
+                        mergeTable(schema.getKey(), current, old.getTableName(), old, null)) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param latest null means the table is dropped
+     * @return false if a ddl has replaced or dropped the snapshot one, or is doing that
+     */
+    private boolean mergeTable(String schema, SchemaMeta current, String table, StructureMeta.TableMeta old,
+                               StructureMeta.TableMeta latest) {
+        // never wait, the ddl may be waiting for syncMeta.lock which is released after the merge
+        if (!tryAddMetaLock(schema, table)) {
+            return false;
+        }
+        try {
+            if (current.getTableMeta(table) != old) {
+                return false;
+            }
+            if (latest == null) {
+                current.dropTable(table);
+            } else {
+                current.addTableMeta(table, latest);
+            }
+            return true;
+        } finally {
+            removeMetaLock(schema, table);
+        }
+    }
+
+    private static boolean sameStructure(StructureMeta.TableMeta tm1, StructureMeta.TableMeta tm2) {
+        return tm1.toBuilder().setVersion(0).build().equals(tm2.toBuilder().setVersion(0).build());
     }
 
     public void terminate() {
         if (checkTaskHandler != null) {
             checkTaskHandler.cancel(false);
+        }
+        if (statisticTaskHandler != null) {
+            statisticTaskHandler.cancel(false);
+        }
+        if (scheduler != null) {
             scheduler.shutdown();
         }
     }
+
+    private Runnable tableStatisticTask(final ServerConfig config, final Set<String> selfNode) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                new TableStatisticHandler(ProxyMetaManager.this, config, selfNode).execute();
+            }
+        };
+    }
     //Check the Consistency of table Structure
 
     private Runnable tableStructureCheckTask(final Set<String> selfNode) {
@@ -21,8 +21,14 @@ public class SchemaMeta {
 
     private final ConcurrentMap<String, ViewMeta> viewMetas;
 
+    /**
+     * <table,tableStatistic>
+     */
+    private final ConcurrentMap<String, TableStatistic> tableStatistics;
+
     public SchemaMeta() {
         this.tableMetas = new ConcurrentHashMap<>();
+        this.tableStatistics = new ConcurrentHashMap<>();
         this.viewMetas = new ConcurrentHashMap<>();
     }
 
@@ -36,6 +42,7 @@ public class SchemaMeta {
     }
 
     public StructureMeta.TableMeta dropTable(String tbName) {
+        this.tableStatistics.remove(tbName);
         return this.tableMetas.remove(tbName);
     }
 
@@ -43,6 +50,14 @@ public class SchemaMeta {
         return this.tableMetas.get(tbName);
     }
 
+    public void addTableStatistic(String tbName, TableStatistic statistic) {
+        this.tableStatistics.put(tbName, statistic);
+    }
+
+    public TableStatistic getTableStatistic(String tbName) {
+        return this.tableStatistics.get(tbName);
+    }
+
     /**
      * try to get a view meta of querynode
      *
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * estimated statistics of a logic table, merged from the statistics of every dataNode.
+ * the values come from information_schema of the backend, they are only estimates.
+ */
+public class TableStatistic {
+    private final long rowCount;
+    /* <lower case column name, cardinality>, only the first column of each index is recorded */
+    private final Map<String, Long> cardinalities;
+    private final long version;
+
+    public TableStatistic(long rowCount, Map<String, Long> cardinalities, long version) {
+        this.rowCount = rowCount;
+        this.cardinalities = Collections.unmodifiableMap(new HashMap<>(cardinalities));
+        this.version = version;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param column
+     * @return -1 if the column is not the first column of any index
+     */
+    public long getCardinality(String column) {
+        Long cardinality = cardinalities.get(column.toLowerCase());
+        return cardinality == null ? -1 : cardinality;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "TableStatistic [rowCount=" + rowCount + ", cardinalities=" + cardinalities + ", version=" + version + "]";
+    }
+}
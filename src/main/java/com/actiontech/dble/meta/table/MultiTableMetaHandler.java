@@ -29,22 +29,25 @@ public class MultiTableMetaHandler {
     private SchemaConfig config;
     private SchemaMetaHandler schemaMetaHandler;
     private Set<String> selfNode;
+    /* the tables to load, null means all the tables of the schema */
+    private Set<String> filterTables;
     private Lock singleTableLock = new ReentrantLock();
     private Condition collectTables = singleTableLock.newCondition();
 
-    MultiTableMetaHandler(SchemaMetaHandler schemaMetaHandler, SchemaConfig config, Set<String> selfNode) {
+    MultiTableMetaHandler(SchemaMetaHandler schemaMetaHandler, SchemaConfig config, Set<String> selfNode, Set<String> filterTables) {
         this.schemaMetaHandler = schemaMetaHandler;
         this.config = config;
         this.schema = config.getName();
         this.selfNode = selfNode;
-        this.shardTableCnt = new AtomicInteger(config.getTables().size());
+        this.filterTables = filterTables;
+        this.shardTableCnt = new AtomicInteger(filterTables == null ? config.getTables().size() : filterTables.size());
         this.singleTableCnt = new AtomicInteger(0);
     }
 
     public void execute() {
         this.schemaMetaHandler.getTmManager().createDatabase(schema);
         boolean existTable = false;
-        if (config.getDataNode() != null) {
+        if (config.getDataNode() != null && filterTables == null) {
             List<String> tables = getSingleTables();
             singleTableCnt.set(tables.size());
             for (String table : tables) {
@@ -54,6 +57,9 @@ public class MultiTableMetaHandler {
             }
         }
         for (Entry<String, TableConfig> entry : config.getTables().entrySet()) {
+            if (filterTables != null && !filterTables.contains(entry.getKey())) {
+                continue;
+            }
             existTable = true;
             AbstractTableMetaHandler tableHandler = new TableMetaInitHandler(this, schema, entry.getValue(), selfNode);
             tableHandler.execute();
@@ -11,6 +11,8 @@ import com.actiontech.dble.meta.ProxyMetaManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.locks.Condition;
@@ -25,10 +27,20 @@ public class SchemaMetaHandler {
 
     private ServerConfig config;
     private Set<String> selfNode;
+    /* schema -> the tables to load, null means all the tables */
+    private Map<String, Set<String>> filterTables;
     private final ProxyMetaManager tmManager;
 
     public SchemaMetaHandler(ProxyMetaManager tmManager, ServerConfig config, Set<String> selfNode) {
+        this(tmManager, config, selfNode, null);
+    }
+
+    /**
+     * only load the given tables of the config, the single tables of the default data node are not loaded
+     */
+    public SchemaMetaHandler(ProxyMetaManager tmManager, ServerConfig config, Set<String> selfNode, Map<String, Set<String>> filterTables) {
         this.tmManager = tmManager;
+        this.filterTables = filterTables;
         this.lock = new ReentrantLock();
         this.allSchemaDone = lock.newCondition();
         this.config = config;
@@ -38,7 +50,11 @@ public class SchemaMetaHandler {
 
     public void execute() {
         for (Entry<String, SchemaConfig> entry : config.getSchemas().entrySet()) {
-            MultiTableMetaHandler multiTableMeta = new MultiTableMetaHandler(this, entry.getValue(), selfNode);
+            Set<String> tables = null;
+            if (filterTables != null) {
+                tables = filterTables.containsKey(entry.getKey()) ? filterTables.get(entry.getKey()) : Collections.<String>emptySet();
+            }
+            MultiTableMetaHandler multiTableMeta = new MultiTableMetaHandler(this, entry.getValue(), selfNode, tables);
             multiTableMeta.execute();
         }
         waitAllNodeDone();
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta.table;
+
+import com.actiontech.dble.backend.datasource.PhysicalDBNode;
+import com.actiontech.dble.config.ServerConfig;
+import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.TableConfig;
+import com.actiontech.dble.meta.ProxyMetaManager;
+import com.actiontech.dble.meta.SchemaMeta;
+import com.actiontech.dble.meta.TableStatistic;
+import com.actiontech.dble.sqlengine.MultiRowSQLQueryResultHandler;
+import com.actiontech.dble.sqlengine.SQLJob;
+import com.actiontech.dble.sqlengine.SQLQueryResult;
+import com.actiontech.dble.sqlengine.SQLQueryResultListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * collect the row count and the index cardinality of every table from information_schema of each dataNode,
+ * and merge them into the statistics of the logic tables.
+ * global tables use the max value of the dataNodes, sharding tables use the sum.
+ */
+public class TableStatisticHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableStatisticHandler.class);
+    private static final String[] STATISTIC_COLS = new String[]{
+            "TABLE_NAME",
+            "TABLE_ROWS",
+            "COLUMN_NAME",
+            "CARDINALITY"};
+    // the job runs in the database of the dataNode, DATABASE() avoids quoting its name
+    private static final String STATISTIC_SQL = "SELECT T.TABLE_NAME, T.TABLE_ROWS, S.COLUMN_NAME, S.CARDINALITY " +
+            "FROM information_schema.TABLES T LEFT JOIN information_schema.STATISTICS S " +
+            "ON T.TABLE_SCHEMA = S.TABLE_SCHEMA AND T.TABLE_NAME = S.TABLE_NAME AND S.SEQ_IN_INDEX = 1 " +
+            "WHERE T.TABLE_SCHEMA = DATABASE()";
+
+    private final ProxyMetaManager tmManager;
+    private final ServerConfig config;
+    private final Set<String> selfNode;
+    /* <dataNode, <lower case table name, statistic>> */
+    private final Map<String, Map<String, NodeStatistic>> nodeStatistics = new ConcurrentHashMap<>();
+    private AtomicInteger nodesNumber;
+
+    public TableStatisticHandler(ProxyMetaManager tmManager, ServerConfig config, Set<String> selfNode) {
+        this.tmManager = tmManager;
+        this.config = config;
+        this.selfNode = selfNode;
+    }
+
+    public void execute() {
+        Set<String> dataNodes = new HashSet<>();
+        for (SchemaConfig schema : config.getSchemas().values()) {
+            for (TableConfig table : schema.getTables().values()) {
+                dataNodes.addAll(table.getDataNodes());
+            }
+        }
+        if (selfNode != null) {
+            dataNodes.removeAll(selfNode);
+        }
+        if (dataNodes.isEmpty()) {
+            return;
+        }
+        nodesNumber = new AtomicInteger(dataNodes.size());
+        for (String dataNode : dataNodes) {
+            PhysicalDBNode dn = config.getDataNodes().get(dataNode);
+            MultiRowSQLQueryResultHandler resultHandler = new MultiRowSQLQueryResultHandler(STATISTIC_COLS, new TableStatisticListener(dataNode));
+            SQLJob sqlJob = new SQLJob(STATISTIC_SQL, dn.getDatabase(), resultHandler, dn.getDbPool().getSource());
+            sqlJob.run();
+        }
+    }
+
+    private void mergeStatistics() {
+        long version = System.currentTimeMillis();
+        for (SchemaConfig schema : config.getSchemas().values()) {
+            SchemaMeta schemaMeta = tmManager.getCatalogs().get(schema.getName());
+            if (schemaMeta == null) {
+                continue;
+            }
+            for (TableConfig table : schema.getTables().values()) {
+                TableStatistic statistic = mergeTable(table, version);
+                if (statistic != null) {
+                    schemaMeta.addTableStatistic(table.getName(), statistic);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return null if any dataNode of the table has no statistic
+     */
+    private TableStatistic mergeTable(TableConfig table, long version) {
+        String tableName = table.getName().toLowerCase();
+        long rowCount = 0;
+        Map<String, Long> cardinalities = new HashMap<>();
+        for (String dataNode : table.getDataNodes()) {
+            Map<String, NodeStatistic> tables = nodeStatistics.get(dataNode);
+            NodeStatistic nodeStatistic = tables == null ? null : tables.get(tableName);
+            if (nodeStatistic == null) {
+                return null;
+            }
+            rowCount = merge(table, rowCount, nodeStatistic.rowCount);
+            for (Map.Entry<String, Long> entry : nodeStatistic.cardinalities.entrySet()) {
+                Long cardinality = cardinalities.get(entry.getKey());
+                cardinalities.put(entry.getKey(), cardinality == null ? entry.getValue() : merge(table, cardinality, entry.getValue()));
+            }
+        }
+        return new TableStatistic(rowCount, cardinalities, version);
+    }
+
+    private static long merge(TableConfig table, long total, long nodeValue) {
+        // every dataNode of a global table has the same data
+        return table.isGlobalTable() ? Math.max(total, nodeValue) : total + nodeValue;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static class NodeStatistic {
+        private long rowCount;
+        private Map<String, Long> cardinalities = new HashMap<>();
+    }
+
+    private class TableStatisticListener implements SQLQueryResultListener<SQLQueryResult<List<Map<String, String>>>> {
+        private final String dataNode;
+
+        TableStatisticListener(String dataNode) {
+            this.dataNode = dataNode;
+        }
+
+        @Override
+        public void onResult(SQLQueryResult<List<Map<String, String>>> result) {
+            if (result.isSuccess()) {
+                Map<String, NodeStatistic> tables = new HashMap<>();
+                for (Map<String, String> row : result.getResult()) {
+                    String tableName = row.get(STATISTIC_COLS[0]).toLowerCase();
+                    NodeStatistic statistic = tables.get(tableName);
+                    if (statistic == null) {
+                        statistic = new NodeStatistic();
+                        statistic.rowCount = parseLong(row.get(STATISTIC_COLS[1]));
+                        tables.put(tableName, statistic);
+                    }
+                    String column = row.get(STATISTIC_COLS[2]);
+                    if (column != null) {
+                        long cardinality = parseLong(row.get(STATISTIC_COLS[3]));
+                        Long old = statistic.cardinalities.get(column.toLowerCase());
+                        statistic.cardinalities.put(column.toLowerCase(), old == null ? cardinality : Math.max(old, cardinality));
+                    }
+                }
+                nodeStatistics.put(dataNode, tables);
+            } else {
+                LOGGER.info("Can't get table statistics from DataNode:" + dataNode + "!");
+            }
+            if (nodesNumber.decrementAndGet() == 0) {
+                mergeStatistics();
+            }
+        }
+    }
+}
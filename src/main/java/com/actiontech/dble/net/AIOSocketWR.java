@@ -17,6 +17,9 @@ public class AIOSocketWR extends SocketWR {
     private final AsynchronousSocketChannel channel;
     protected final AbstractConnection con;
     protected final AtomicBoolean writing = new AtomicBoolean(false);
+    private volatile boolean readDisabled = false;
+    // a read was skipped while disabled, enableRead must issue it
+    private final AtomicBoolean readSkipped = new AtomicBoolean(false);
 
 
     public AIOSocketWR(AbstractConnection conn) {
@@ -26,6 +29,13 @@ public class AIOSocketWR extends SocketWR {
 
     @Override
     public void asyncRead() {
+        if (readDisabled) {
+            readSkipped.set(true);
+            // enableRead may have run between the check and the set
+            if (readDisabled || !readSkipped.compareAndSet(true, false)) {
+                return;
+            }
+        }
         ByteBuffer theBuffer = con.readBuffer;
         if (theBuffer == null) {
             theBuffer = con.processor.getBufferPool().allocate(con.processor.getBufferPool().getChunkSize());
@@ -40,6 +50,24 @@ public class AIOSocketWR extends SocketWR {
 
     }
 
+    @Override
+    public void disableRead() {
+        readDisabled = true;
+    }
+
+    @Override
+    public void enableRead() {
+        readDisabled = false;
+        if (readSkipped.compareAndSet(true, false)) {
+            asyncRead();
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        // the buffer being written is kept in con.writeBuffer
+    }
+
     private void asyncWrite(final ByteBuffer buffer) {
 
         buffer.flip();
@@ -109,7 +137,10 @@ public class AIOSocketWR extends SocketWR {
         boolean noMoreData = false;
         noMoreData = this.write0();
         if (noMoreData && !con.writeQueue.isEmpty()) {
-            this.write0();
+            noMoreData = this.write0();
+        }
+        if (noMoreData && con.writeQueue.isEmpty()) {
+            con.onWriteQueueEmpty();
         }
 
 
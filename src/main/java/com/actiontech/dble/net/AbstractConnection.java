@@ -20,8 +20,10 @@ import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousChannel;
 import java.nio.channels.NetworkChannel;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -66,6 +68,10 @@ public abstract class AbstractConnection implements NIOConnection {
     private long idleTimeout;
 
     private final SocketWR socketWR;
+    // the owners which stop reading for flow control, the socket is read again when all of them resume
+    private final Set<Object> readHolders = new HashSet<>(2);
+    /* run by the writing thread when the write queue is flushed */
+    private volatile Runnable writeQueueEmptyListener;
 
     public AbstractConnection(NetworkChannel channel) {
         this.channel = channel;
@@ -262,6 +268,40 @@ public abstract class AbstractConnection implements NIOConnection {
         this.socketWR.doNextWriteCheck();
     }
 
+    /**
+     * stop reading on behalf of owner, the reads stay stopped until every owner has called enableRead
+     */
+    public void disableRead(Object owner) {
+        synchronized (readHolders) {
+            if (readHolders.add(owner) && readHolders.size() == 1) {
+                this.socketWR.disableRead();
+            }
+        }
+    }
+
+    /**
+     * a no-op if owner doesn't stop the reads, such as a stale owner of a released connection
+     */
+    public void enableRead(Object owner) {
+        synchronized (readHolders) {
+            if (readHolders.remove(owner) && readHolders.isEmpty()) {
+                this.socketWR.enableRead();
+            }
+        }
+    }
+
+    /**
+     * read again whoever stopped the reads, used when the connection is handed to a new user
+     */
+    public void enableReadOfAll() {
+        synchronized (readHolders) {
+            if (!readHolders.isEmpty()) {
+                readHolders.clear();
+                this.socketWR.enableRead();
+            }
+        }
+    }
+
     public void onReadData(int got) throws IOException {
         if (isClosed.get()) {
             return;
@@ -294,9 +334,15 @@ public abstract class AbstractConnection implements NIOConnection {
             if (position >= offset + length && readBuffer != null) {
                 // handle this package
                 readBuffer.position(offset);
-                byte[] data = new byte[length];
-                readBuffer.get(data, 0, length);
-                handle(data);
+                readBuffer.limit(offset + length);
+                boolean handled = handleDirect(readBuffer);
+                readBuffer.limit(readBuffer.capacity());
+                if (!handled) {
+                    readBuffer.position(offset);
+                    byte[] data = new byte[length];
+                    readBuffer.get(data, 0, length);
+                    handle(data);
+                }
                 // maybe handle stmt_close
                 if (isClosed()) {
                     return;
@@ -430,6 +476,15 @@ public abstract class AbstractConnection implements NIOConnection {
         }
     }
 
+    /**
+     * handle the packet from buffer.position() to buffer.limit() without copying it
+     *
+     * @return false if the packet should be handled by handle(byte[])
+     */
+    protected boolean handleDirect(ByteBuffer buffer) {
+        return false;
+    }
+
     public ByteBuffer writeToBuffer(byte[] src, ByteBuffer buffer) {
         int offset = 0;
         int length = src.length;
@@ -450,6 +505,26 @@ public abstract class AbstractConnection implements NIOConnection {
         return buffer;
     }
 
+    /**
+     * write the bytes from src.position() to src.limit()
+     */
+    public ByteBuffer writeToBuffer(ByteBuffer src, ByteBuffer buffer) {
+        int srcLimit = src.limit();
+        while (src.hasRemaining()) {
+            if (buffer.remaining() >= src.remaining()) {
+                buffer.put(src);
+                break;
+            } else {
+                src.limit(src.position() + buffer.remaining());
+                buffer.put(src);
+                src.limit(srcLimit);
+                write(buffer);
+                buffer = allocate();
+            }
+        }
+        return buffer;
+    }
+
     @Override
     public void close(String reason) {
         if (!isClosed.get()) {
@@ -513,6 +588,9 @@ public abstract class AbstractConnection implements NIOConnection {
         while ((buffer = writeQueue.poll()) != null) {
             recycle(buffer);
         }
+        if (socketWR != null) {
+            socketWR.cleanup();
+        }
     }
 
     private int getPacketLength(ByteBuffer buffer, int offset) {
@@ -535,6 +613,17 @@ public abstract class AbstractConnection implements NIOConnection {
         return writeQueue;
     }
 
+    public void setWriteQueueEmptyListener(Runnable listener) {
+        this.writeQueueEmptyListener = listener;
+    }
+
+    void onWriteQueueEmpty() {
+        Runnable listener = writeQueueEmptyListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
     private void closeSocket() {
         if (channel != null) {
             try {
@@ -52,6 +52,8 @@ public abstract class FrontendConnection extends AbstractConnection {
     protected boolean isAuthenticated;
     private boolean userReadOnly = true;
     private boolean sessionReadOnly = false;
+    /* the command is being executed in the reactor thread which reads it */
+    private boolean directExecuting = false;
 
     public FrontendConnection(NetworkChannel channel) throws IOException {
         super(channel);
@@ -108,6 +110,22 @@ public abstract class FrontendConnection extends AbstractConnection {
         processor.addFrontend(this);
     }
 
+    public boolean isDirectExecuting() {
+        return directExecuting;
+    }
+
+    public void setDirectExecuting(boolean directExecuting) {
+        this.directExecuting = directExecuting;
+    }
+
+    /**
+     * whether the command can be executed in the reactor thread which reads it,
+     * the one which may block or take long must be passed to the executor
+     */
+    public boolean isDirectExecutable(byte[] data) {
+        return false;
+    }
+
     public LoadDataInfileHandler getLoadDataInfileHandler() {
         return loadDataInfileHandler;
     }
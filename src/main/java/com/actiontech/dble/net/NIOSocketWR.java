@@ -16,10 +16,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NIOSocketWR extends SocketWR {
     private SelectionKey processKey;
-    private static final int OP_NOT_WRITE = ~SelectionKey.OP_WRITE;
     private final AbstractConnection con;
     private final SocketChannel channel;
     private final AtomicBoolean writing = new AtomicBoolean(false);
+    // guards every update of the interestOps of processKey and readDisabled
+    private final Object interestLock = new Object();
+    private boolean readDisabled = false;
+    /* the max count of the buffers flushed by one gathering write */
+    private static final int MAX_GATHER_COUNT = 16;
+    /* the flipped buffers taken from the writeQueue, [gatheredOffset, gatheredCount) are not written completely */
+    private final ByteBuffer[] gathered = new ByteBuffer[MAX_GATHER_COUNT];
+    private int gatheredOffset = 0;
+    private int gatheredCount = 0;
+    /* set by cleanup, the thread which holds writing at that time recycles the gathered buffers */
+    private volatile boolean cleaned = false;
 
     public NIOSocketWR(AbstractConnection con) {
         this.con = con;
@@ -28,7 +38,9 @@ public class NIOSocketWR extends SocketWR {
 
     public void register(Selector selector) throws IOException {
         try {
-            processKey = channel.register(selector, SelectionKey.OP_READ, con);
+            synchronized (interestLock) {
+                processKey = channel.register(selector, readDisabled ? 0 : SelectionKey.OP_READ, con);
+            }
         } finally {
             if (con.isClosed.get()) {
                 clearSelectionKey();
@@ -49,6 +61,7 @@ public class NIOSocketWR extends SocketWR {
                 if ((processKey.isValid() && (processKey.interestOps() & SelectionKey.OP_WRITE) != 0)) {
                     disableWrite();
                 }
+                con.onWriteQueueEmpty();
 
             } else {
 
@@ -58,75 +71,106 @@ public class NIOSocketWR extends SocketWR {
             }
 
         } catch (IOException e) {
+            writing.set(false);
             if (AbstractConnection.LOGGER.isDebugEnabled()) {
                 AbstractConnection.LOGGER.debug("caught err:", e);
             }
             con.close("err:" + e);
+        } finally {
+            if (cleaned) {
+                recycleGathered();
+            }
         }
 
     }
 
     private boolean write0() throws IOException {
-
-        int written = 0;
-        ByteBuffer buffer = con.writeBuffer;
-        if (buffer != null) {
-            while (buffer.hasRemaining()) {
-                written = channel.write(buffer);
-                if (written > 0) {
-                    con.netOutBytes += written;
-                    con.processor.addNetOutBytes(written);
-                    con.lastWriteTime = TimeUtil.currentTimeMillis();
-                } else {
-                    break;
+        while (true) {
+            boolean quit = gather();
+            if (gatheredOffset == gatheredCount) {
+                if (quit) {
+                    ByteBuffer quitMark = con.writeQueue.poll();
+                    if (quitMark != null) {
+                        con.recycle(quitMark);
+                    }
+                    con.close("quit send");
                 }
+                return true;
             }
 
-            if (buffer.hasRemaining()) {
+            long written = channel.write(gathered, gatheredOffset, gatheredCount - gatheredOffset);
+            if (written > 0) {
+                con.netOutBytes += written;
+                con.processor.addNetOutBytes(written);
+                con.lastWriteTime = TimeUtil.currentTimeMillis();
+            }
+            while (gatheredOffset < gatheredCount && !gathered[gatheredOffset].hasRemaining()) {
+                con.recycle(gathered[gatheredOffset]);
+                gathered[gatheredOffset++] = null;
+            }
+            if (gatheredOffset < gatheredCount) {
+                // the socket send buffer is full, wait for OP_WRITE
                 return false;
-            } else {
-                con.writeBuffer = null;
-                con.recycle(buffer);
             }
+            gatheredOffset = 0;
+            gatheredCount = 0;
+        }
+    }
+
+    /**
+     * move the unwritten buffers to the head of gathered, and fill the rest from the writeQueue
+     *
+     * @return true if the head of the writeQueue is the quit mark
+     */
+    private boolean gather() {
+        if (gatheredOffset > 0) {
+            int remain = gatheredCount - gatheredOffset;
+            System.arraycopy(gathered, gatheredOffset, gathered, 0, remain);
+            for (int i = remain; i < gatheredCount; i++) {
+                gathered[i] = null;
+            }
+            gatheredOffset = 0;
+            gatheredCount = remain;
         }
-        while ((buffer = con.writeQueue.poll()) != null) {
+        ByteBuffer buffer;
+        while (gatheredCount < MAX_GATHER_COUNT && (buffer = con.writeQueue.peek()) != null) {
             if (buffer.limit() == 0) {
-                con.recycle(buffer);
-                con.close("quit send");
+                // send the gathered buffers before quit
                 return true;
             }
-
+            con.writeQueue.poll();
             buffer.flip();
-            try {
-                while (buffer.hasRemaining()) {
-                    written = channel.write(buffer);
-                    if (written > 0) {
-                        con.lastWriteTime = TimeUtil.currentTimeMillis();
-                        con.netOutBytes += written;
-                        con.processor.addNetOutBytes(written);
-                        con.lastWriteTime = TimeUtil.currentTimeMillis();
-                    } else {
-                        break;
-                    }
-                }
-            } catch (IOException e) {
-                con.recycle(buffer);
-                throw e;
-            }
-            if (buffer.hasRemaining()) {
-                con.writeBuffer = buffer;
-                return false;
-            } else {
-                con.recycle(buffer);
+            gathered[gatheredCount++] = buffer;
+        }
+        return false;
+    }
+
+    @Override
+    public void cleanup() {
+        cleaned = true;
+        recycleGathered();
+    }
+
+    private void recycleGathered() {
+        // the writing thread will recycle them after its write
+        if (!writing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = gatheredOffset; i < gatheredCount; i++) {
+                con.recycle(gathered[i]);
+                gathered[i] = null;
             }
+            gatheredOffset = 0;
+            gatheredCount = 0;
+        } finally {
+            writing.set(false);
         }
-        return true;
     }
 
     private void disableWrite() {
         try {
-            SelectionKey key = this.processKey;
-            key.interestOps(key.interestOps() & OP_NOT_WRITE);
+            updateInterestOps(0, SelectionKey.OP_WRITE);
         } catch (Exception e) {
             AbstractConnection.LOGGER.info("can't disable write " + e + " con " + con);
         }
@@ -136,8 +180,7 @@ public class NIOSocketWR extends SocketWR {
     private void enableWrite(boolean wakeup) {
         boolean needWakeup = false;
         try {
-            SelectionKey key = this.processKey;
-            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            updateInterestOps(SelectionKey.OP_WRITE, 0);
             needWakeup = true;
         } catch (Exception e) {
             AbstractConnection.LOGGER.info("can't enable write " + e);
@@ -148,6 +191,48 @@ public class NIOSocketWR extends SocketWR {
         }
     }
 
+    @Override
+    public void disableRead() {
+        synchronized (interestLock) {
+            if (readDisabled) {
+                return;
+            }
+            readDisabled = true;
+            try {
+                updateInterestOps(0, SelectionKey.OP_READ);
+            } catch (Exception e) {
+                AbstractConnection.LOGGER.info("can't disable read " + e + " con " + con);
+            }
+        }
+    }
+
+    @Override
+    public void enableRead() {
+        synchronized (interestLock) {
+            if (!readDisabled) {
+                return;
+            }
+            readDisabled = false;
+            try {
+                updateInterestOps(SelectionKey.OP_READ, 0);
+                processKey.selector().wakeup();
+            } catch (Exception e) {
+                AbstractConnection.LOGGER.info("can't enable read " + e + " con " + con);
+            }
+        }
+    }
+
+    /**
+     * interestOps is read and written by the reactor, the writers and the flow control at the same time,
+     * the read-modify-write is serialized so that no update is lost
+     */
+    private void updateInterestOps(int add, int remove) {
+        synchronized (interestLock) {
+            SelectionKey key = this.processKey;
+            key.interestOps((key.interestOps() | add) & ~remove);
+        }
+    }
+
     private void clearSelectionKey() {
         try {
             SelectionKey key = this.processKey;
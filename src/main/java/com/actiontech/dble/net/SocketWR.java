@@ -12,4 +12,16 @@ public abstract class SocketWR {
     public abstract void asyncRead() throws IOException;
 
     public abstract void doNextWriteCheck();
+
+    /**
+     * stop reading from the socket until enableRead is called,used for flow control
+     */
+    public abstract void disableRead();
+
+    public abstract void enableRead();
+
+    /**
+     * recycle the buffers taken from the writeQueue but not written yet
+     */
+    public abstract void cleanup();
 }
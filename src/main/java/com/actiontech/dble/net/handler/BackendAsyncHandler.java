@@ -49,6 +49,26 @@ public abstract class BackendAsyncHandler implements NIOHandler {
         }
     }
 
+    /**
+     * handle the data in the current thread if no data is waiting or being handled, otherwise offer it
+     */
+    protected void handleDataDirect(byte[] data, Executor executor) {
+        if (!dataQueue.isEmpty() || !isHandling.compareAndSet(false, true)) {
+            offerData(data, executor);
+            return;
+        }
+        try {
+            handleData(data);
+        } catch (Exception e) {
+            handleDataError(e);
+        } finally {
+            isHandling.set(false);
+            if (dataQueue.size() > 0) {
+                handleQueue(executor);
+            }
+        }
+    }
+
     protected abstract void offerDataError();
 
     protected abstract void handleData(byte[] data);
@@ -5,6 +5,7 @@
 */
 package com.actiontech.dble.net.handler;
 
+import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.MySQLMessage;
 import com.actiontech.dble.config.ErrorCode;
 import com.actiontech.dble.net.FrontendConnection;
@@ -29,11 +30,13 @@ public class FrontendCommandHandler implements NIOHandler {
     private final AtomicBoolean handleStatus;
     protected final FrontendConnection source;
     protected final CommandCount commands;
+    private final boolean directExecute;
 
     public FrontendCommandHandler(FrontendConnection source) {
         this.source = source;
         this.commands = source.getProcessor().getCommands();
         this.handleStatus = new AtomicBoolean(false);
+        this.directExecute = DbleServer.getInstance().getConfig().getSystem().getUseDirectExecute() == 1;
     }
 
     @Override
@@ -46,6 +49,10 @@ public class FrontendCommandHandler implements NIOHandler {
             }
             return;
         }
+        if (directExecute && dataQueue.isEmpty() && source.isDirectExecutable(data) && handleStatus.compareAndSet(false, true)) {
+            handleDirect(data);
+            return;
+        }
         if (dataQueue.offer(data)) {
             handleQueue();
         } else {
@@ -105,6 +112,24 @@ public class FrontendCommandHandler implements NIOHandler {
         }
     }
 
+    /**
+     * execute the command in the reactor thread, no command is waiting or being executed
+     */
+    private void handleDirect(byte[] data) {
+        try {
+            source.setDirectExecuting(true);
+            handleData(data);
+        } catch (Exception e) {
+            handleDataError(e);
+        } finally {
+            source.setDirectExecuting(false);
+            handleStatus.set(false);
+            if (dataQueue.size() > 0) {
+                handleQueue();
+            }
+        }
+    }
+
     private void handleQueue() {
         if (this.handleStatus.compareAndSet(false, true)) {
             this.source.getProcessor().getExecutor().execute(new Runnable() {
@@ -116,15 +141,7 @@ public class FrontendCommandHandler implements NIOHandler {
                             handleData(data);
                         }
                     } catch (Exception e) {
-                        String msg = e.getMessage();
-                        if (StringUtil.isEmpty(msg)) {
-                            LOGGER.info("Maybe occur a bug, please check it.", e);
-                            msg = e.toString();
-                        } else {
-                            LOGGER.info("There is an error you may need know.", e);
-                        }
-                        source.writeErrMessage(ErrorCode.ER_UNKNOWN_ERROR, msg);
-                        dataQueue.clear();
+                        handleDataError(e);
                     } finally {
                         handleStatus.set(false);
                         if (dataQueue.size() > 0) {
@@ -135,4 +152,16 @@ public class FrontendCommandHandler implements NIOHandler {
             });
         }
     }
+
+    private void handleDataError(Exception e) {
+        String msg = e.getMessage();
+        if (StringUtil.isEmpty(msg)) {
+            LOGGER.info("Maybe occur a bug, please check it.", e);
+            msg = e.toString();
+        } else {
+            LOGGER.info("There is an error you may need know.", e);
+        }
+        source.writeErrMessage(ErrorCode.ER_UNKNOWN_ERROR, msg);
+        dataQueue.clear();
+    }
 }
@@ -13,9 +13,7 @@ import com.actiontech.dble.net.FrontendConnection;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * From server to client. One packet for each row in the result set.
@@ -45,12 +43,12 @@ public class RowDataPacket extends MySQLPacket {
 
     private int fieldCount;
     public final List<byte[]> fieldValues;
-    private Map<RowDataComparator, List<byte[]>> cmpValues;
+    /* the compare values of every comparator which compared the row, an immutable chain published as a whole */
+    private volatile CmpCache cmpCache;
 
     public RowDataPacket(int fieldCount) {
         this.fieldCount = fieldCount;
         this.fieldValues = new ArrayList<>(fieldCount);
-        cmpValues = new HashMap<>(1);
     }
 
     public void add(byte[] value) {
@@ -144,12 +142,21 @@ public class RowDataPacket extends MySQLPacket {
     }
 
 
-    public List<byte[]> getCmpValue(RowDataComparator comparator) {
-        return cmpValues.get(comparator);
+    /**
+     * @return null if the row is not compared by the comparator yet
+     */
+    public CmpCache getCmpCache(RowDataComparator comparator) {
+        for (CmpCache cache = cmpCache; cache != null; cache = cache.next) {
+            if (cache.owner == comparator)
+                return cache;
+        }
+        return null;
     }
 
-    public void cacheCmpValue(RowDataComparator comparator, List<byte[]> cmpValue) {
-        this.cmpValues.put(comparator, cmpValue);
+    public CmpCache cacheCmpValue(RowDataComparator comparator, byte[] key, List<byte[]> value) {
+        CmpCache cache = new CmpCache(comparator, key, value, cmpCache);
+        this.cmpCache = cache;
+        return cache;
     }
 
     public int getFieldCount() {
@@ -159,4 +166,26 @@ public class RowDataPacket extends MySQLPacket {
     public void setFieldCount(int fieldCount) {
         this.fieldCount = fieldCount;
     }
+
+    public static final class CmpCache {
+        private final RowDataComparator owner;
+        private final byte[] sortKey;
+        private final List<byte[]> cmpValue;
+        private final CmpCache next;
+
+        private CmpCache(RowDataComparator owner, byte[] sortKey, List<byte[]> cmpValue, CmpCache next) {
+            this.owner = owner;
+            this.sortKey = sortKey;
+            this.cmpValue = cmpValue;
+            this.next = next;
+        }
+
+        public byte[] getSortKey() {
+            return sortKey;
+        }
+
+        public List<byte[]> getCmpValue() {
+            return cmpValue;
+        }
+    }
 }
@@ -184,6 +184,23 @@ public abstract class Field {
 
     public abstract int compare(byte[] v1, byte[] v2);
 
+    /**
+     * the values which are equal in compare(v1, v2) must have the same hash
+     */
+    public int hash(byte[] v) {
+        return 0;
+    }
+
+    /**
+     * encode a not null value into bytes which compare unsigned in the same order as compare(v1, v2),
+     * the bytes of a value are never the prefix of another one's
+     *
+     * @return null if the value can't be encoded, use compare(v1, v2) instead
+     */
+    public byte[] getSortKey(byte[] v) {
+        return null;
+    }
+
     public boolean getDate(MySQLTime ltime, long fuzzydate) {
         String res = valStr();
         return res == null || MyTime.strToDatetimeWithWarn(res, ltime, fuzzydate);
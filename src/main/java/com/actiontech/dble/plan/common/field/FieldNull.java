@@ -72,4 +72,9 @@ public class FieldNull extends FieldStr {
         return -1;
     }
 
+    @Override
+    public byte[] getSortKey(byte[] v) {
+        return null;
+    }
+
 }
@@ -7,6 +7,8 @@ package com.actiontech.dble.plan.common.field;
 
 import com.actiontech.dble.plan.common.item.FieldTypes;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 
 public class FieldUtil {
@@ -68,6 +70,102 @@ public class FieldUtil {
         }
     }
 
+    /**
+     * sort key of the int in string bytes, in the same order as compareIntUsingStringBytes
+     *
+     * @return null if b is not an int
+     */
+    public static byte[] intStringSortKey(byte[] b) {
+        boolean negative = b.length > 0 && b[0] == '-';
+        int start = negative ? 1 : 0;
+        int len = b.length - start;
+        if (len == 0 || len > 0xff) {
+            return null;
+        }
+        byte[] key = new byte[len + 2];
+        key[0] = (byte) (negative ? 0x01 : 0x02);
+        key[1] = (byte) len;
+        for (int i = 0; i < len; i++) {
+            byte digit = b[start + i];
+            if (digit < '0' || digit > '9') {
+                return null;
+            }
+            key[i + 2] = digit;
+        }
+        if (negative) {
+            invertBytes(key, 1, key.length);
+        }
+        return key;
+    }
+
+    /**
+     * sort key of the decimal, the numerically equal ones such as 1.0 and 1 have the same key
+     */
+    public static byte[] decimalSortKey(BigDecimal value) {
+        if (value.signum() == 0) {
+            return new byte[]{0x02};
+        }
+        BigDecimal normalized = value.stripTrailingZeros();
+        String digits = normalized.unscaledValue().abs().toString();
+        // value = 0.[digits] * 10 ^ exponent, the first digit is not 0
+        long exponent = (long) digits.length() - normalized.scale();
+        byte[] key = new byte[digits.length() + 10];
+        key[0] = (byte) (value.signum() > 0 ? 0x03 : 0x01);
+        writeLong(key, 1, exponent ^ Long.MIN_VALUE);
+        for (int i = 0; i < digits.length(); i++) {
+            key[i + 9] = (byte) (digits.charAt(i) - '0' + 1);
+        }
+        // the last byte 0 ends the digits
+        if (value.signum() < 0) {
+            invertBytes(key, 1, key.length);
+        }
+        return key;
+    }
+
+    public static byte[] longSortKey(long value) {
+        byte[] key = new byte[8];
+        writeLong(key, 0, value ^ Long.MIN_VALUE);
+        return key;
+    }
+
+    /**
+     * sort key of the string in the same order as String.compareTo, the chars are written in 2 bytes,
+     * byte 0 is escaped as 0 0xff and the key ends with 0 0
+     */
+    public static byte[] stringSortKey(String value) {
+        byte[] key = new byte[value.length() * 4 + 2];
+        int pos = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            pos = writeEscaped(key, pos, (byte) (c >>> 8));
+            pos = writeEscaped(key, pos, (byte) c);
+        }
+        key[pos++] = 0;
+        key[pos++] = 0;
+        return pos == key.length ? key : Arrays.copyOf(key, pos);
+    }
+
+    private static int writeEscaped(byte[] key, int pos, byte b) {
+        key[pos++] = b;
+        if (b == 0) {
+            key[pos++] = (byte) 0xff;
+        }
+        return pos;
+    }
+
+    private static void writeLong(byte[] key, int pos, long value) {
+        for (int i = 7; i >= 0; i--) {
+            key[pos + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    public static void invertBytes(byte[] key, int from, int to) {
+        for (int i = from; i < to; i++) {
+            key[i] = (byte) ~key[i];
+        }
+    }
+
     public int getEnumPackLength(int elements) {
         return elements < 256 ? 1 : 2;
     }
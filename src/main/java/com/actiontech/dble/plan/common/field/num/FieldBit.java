@@ -6,6 +6,7 @@
 package com.actiontech.dble.plan.common.field.num;
 
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldUtil;
 import com.actiontech.dble.plan.common.item.FieldTypes;
 import com.actiontech.dble.plan.common.item.Item;
 
@@ -111,4 +112,24 @@ public class FieldBit extends Field {
         }
         return ret;
     }
+
+    @Override
+    public int hash(byte[] v) {
+        if (v == null)
+            return 0;
+        try {
+            return Long.valueOf(getBitInt(v)).hashCode();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getSortKey(byte[] v) {
+        try {
+            return FieldUtil.longSortKey(getBitInt(v));
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
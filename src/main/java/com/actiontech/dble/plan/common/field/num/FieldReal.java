@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.common.field.num;
 
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldUtil;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
 
@@ -115,4 +116,26 @@ public abstract class FieldReal extends FieldNum {
                 return -1;
             }
     }
+
+    @Override
+    public int hash(byte[] v) {
+        if (v == null)
+            return 0;
+        try {
+            double value = new BigDecimal(MySQLcom.getFullString(javaCharsetName, v)).doubleValue();
+            // 0.0 and -0.0 are equal in BigDecimal
+            return value == 0 ? 0 : Double.valueOf(value).hashCode();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getSortKey(byte[] v) {
+        try {
+            return FieldUtil.decimalSortKey(new BigDecimal(MySQLcom.getFullString(javaCharsetName, v)));
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
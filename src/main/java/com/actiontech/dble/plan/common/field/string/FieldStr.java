@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.common.field.string;
 
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldUtil;
 import com.actiontech.dble.plan.common.item.Item.ItemResult;
 
 import java.io.UnsupportedEncodingException;
@@ -121,4 +122,24 @@ public abstract class FieldStr extends Field {
         }
     }
 
+    @Override
+    public int hash(byte[] v) {
+        if (v == null)
+            return 0;
+        try {
+            return MySQLcom.getFullString(javaCharsetName, v).toUpperCase().hashCode();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getSortKey(byte[] v) {
+        try {
+            return FieldUtil.stringSortKey(MySQLcom.getFullString(javaCharsetName, v).toUpperCase());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
 }
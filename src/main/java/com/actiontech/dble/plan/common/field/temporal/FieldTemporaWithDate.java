@@ -6,6 +6,7 @@
 package com.actiontech.dble.plan.common.field.temporal;
 
 import com.actiontech.dble.plan.common.MySQLcom;
+import com.actiontech.dble.plan.common.field.FieldUtil;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
 
@@ -62,4 +63,28 @@ public abstract class FieldTemporaWithDate extends FieldTemporal {
                 return -1;
             }
     }
+
+    @Override
+    public int hash(byte[] v) {
+        if (v == null)
+            return 0;
+        try {
+            MySQLTime ltime = new MySQLTime();
+            MyTime.strToDatetimeWithWarn(MySQLcom.getFullString(javaCharsetName, v), ltime, MyTime.TIME_FUZZY_DATE);
+            return Long.valueOf(MyTime.timeToLonglongDatetimePacked(ltime)).hashCode();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getSortKey(byte[] v) {
+        try {
+            MySQLTime ltime = new MySQLTime();
+            MyTime.strToDatetimeWithWarn(MySQLcom.getFullString(javaCharsetName, v), ltime, MyTime.TIME_FUZZY_DATE);
+            return FieldUtil.longSortKey(MyTime.timeToLonglongDatetimePacked(ltime));
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.common.field.temporal;
 
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldUtil;
 import com.actiontech.dble.plan.common.item.FieldTypes;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
@@ -74,4 +75,28 @@ public class FieldTime extends FieldTemporal {
         }
     }
 
+    @Override
+    public int hash(byte[] v) {
+        if (v == null)
+            return 0;
+        try {
+            MySQLTime ltime = new MySQLTime();
+            MyTime.strToTimeWithWarn(MySQLcom.getFullString(javaCharsetName, v), ltime);
+            return Long.valueOf(MyTime.timeToLonglongDatetimePacked(ltime)).hashCode();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getSortKey(byte[] v) {
+        try {
+            MySQLTime ltime = new MySQLTime();
+            MyTime.strToTimeWithWarn(MySQLcom.getFullString(javaCharsetName, v), ltime);
+            return FieldUtil.longSortKey(MyTime.timeToLonglongDatetimePacked(ltime));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
 }
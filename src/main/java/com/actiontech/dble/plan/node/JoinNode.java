@@ -29,7 +29,7 @@ public class JoinNode extends PlanNode {
 
 
     public enum Strategy {
-        SORTMERGE, NESTLOOP
+        SORTMERGE, NESTLOOP, HASH
     }
 
     private boolean isNotIn = false;
@@ -73,6 +73,8 @@ public class JoinNode extends PlanNode {
     private List<ERTable> erKeys = new ArrayList<>();
 
     private Strategy strategy = Strategy.SORTMERGE;
+    // build the hash table from left node if strategy is HASH
+    private boolean isLeftHashBuild = false;
 
     public JoinNode() {
         this.leftOuter = false;
@@ -463,6 +465,14 @@ public class JoinNode extends PlanNode {
         this.strategy = strategy;
     }
 
+    public boolean isLeftHashBuild() {
+        return isLeftHashBuild;
+    }
+
+    public void setLeftHashBuild(boolean leftHashBuild) {
+        this.isLeftHashBuild = leftHashBuild;
+    }
+
     public Item getOtherJoinOnFilter() {
         return otherJoinOnFilter;
     }
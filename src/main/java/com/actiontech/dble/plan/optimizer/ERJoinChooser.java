@@ -20,11 +20,8 @@ import com.actiontech.dble.plan.util.PlanUtil;
 import com.actiontech.dble.route.parser.util.Pair;
 import com.actiontech.dble.util.StringUtil;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.Map.Entry;
-import java.util.Set;
 
 public class ERJoinChooser {
     /**
@@ -151,8 +148,9 @@ public class ERJoinChooser {
                 this.makedERJnList.add(erJoinNode);
             }
         }
-        if (makedERJnList.isEmpty())
-            // no er join
+        boolean reordered = sortJoinUnitsByRows();
+        if (makedERJnList.isEmpty() && !reordered)
+            // no er join and the cost order is the original one, keep the original join tree
             return jn;
 
         List<PlanNode> others = new ArrayList<>();
@@ -191,6 +189,67 @@ public class ERJoinChooser {
         return ret;
     }
 
+    /**
+     * reorder the join units by their estimated rows, the smaller one joins first.
+     * the unit which has join key with the joined ones is preferred to avoid cross join.
+     * the order is kept if any unit has no statistic
+     *
+     * @return true if the order is changed
+     */
+    private boolean sortJoinUnitsByRows() {
+        if (joinUnits.size() < 2)
+            return false;
+        final Map<PlanNode, Long> unitRows = new HashMap<>();
+        for (PlanNode unit : joinUnits) {
+            if (unit.type() != PlanNode.PlanNodeType.TABLE)
+                return false;
+            long rows = TableRowsEstimator.estimate((TableNode) unit);
+            if (rows < 0)
+                return false;
+            unitRows.put(unit, rows);
+        }
+        List<PlanNode> rest = new ArrayList<>(joinUnits);
+        Collections.sort(rest, new Comparator<PlanNode>() {
+            @Override
+            public int compare(PlanNode o1, PlanNode o2) {
+                return Long.compare(unitRows.get(o1), unitRows.get(o2));
+            }
+        });
+        List<PlanNode> joined = new ArrayList<PlanNode>(makedERJnList);
+        List<PlanNode> sorted = new ArrayList<>(rest.size());
+        while (!rest.isEmpty()) {
+            int next = 0;
+            for (int index = 0; index < rest.size(); index++) {
+                if (hasJoinKey(joined, rest.get(index))) {
+                    next = index;
+                    break;
+                }
+            }
+            PlanNode unit = rest.remove(next);
+            joined.add(unit);
+            sorted.add(unit);
+        }
+        boolean changed = !sorted.equals(joinUnits);
+        joinUnits = sorted;
+        return changed;
+    }
+
+    private boolean hasJoinKey(List<PlanNode> joined, PlanNode unit) {
+        for (List<JoinKeyInfo> selList : selLists) {
+            boolean hasUnit = false;
+            boolean hasJoined = false;
+            for (JoinKeyInfo jki : selList) {
+                if (jki.tn == unit)
+                    hasUnit = true;
+                else if (joined.contains(jki.tn))
+                    hasJoined = true;
+            }
+            if (hasUnit && hasJoined)
+                return true;
+        }
+        return false;
+    }
+
     /**
      * tryMakeERJoin by  selList and join Unitss info
      *
@@ -5,9 +5,13 @@
 
 package com.actiontech.dble.plan.optimizer;
 
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.config.model.SystemConfig;
+import com.actiontech.dble.plan.Order;
 import com.actiontech.dble.plan.common.item.Item;
 import com.actiontech.dble.plan.node.JoinNode;
 import com.actiontech.dble.plan.node.JoinNode.Strategy;
+import com.actiontech.dble.plan.node.PlanNode;
 import com.actiontech.dble.plan.node.TableNode;
 
 import java.util.ArrayList;
@@ -67,7 +71,7 @@ public class JoinStrategyChooser {
     private boolean tryLeftJoinNestLoop() {
         TableNode tnLeft = (TableNode) jn.getLeftNode();
         TableNode tnRight = (TableNode) jn.getRightNode();
-        // left join and only left node has where filter
+        // left join and only left node is small
         if (isSmallTable(tnLeft) && !isSmallTable(tnRight)) {
             handleNestLoopStrategy(true);
             return true;
@@ -76,6 +80,51 @@ public class JoinStrategyChooser {
         }
     }
 
+    /**
+     * tryHashJoin,an equi-join whose result need not be ordered can use hash join,
+     * so the join columns need not be ordered in the children
+     *
+     * @return boolean true:join use the hash join
+     */
+    public boolean tryHashJoin() {
+        if (jn.isNotIn() || jn.getJoinFilter().isEmpty())
+            return false;
+        if (!jn.getOrderBys().isEmpty() || !jn.getGroupBys().isEmpty())
+            return false;
+        boolean isLeftBuild;
+        if (jn.isInnerJoin()) {
+            // build from the small table
+            long leftRows = TableRowsEstimator.estimate((TableNode) jn.getLeftNode());
+            long rightRows = TableRowsEstimator.estimate((TableNode) jn.getRightNode());
+            if (leftRows >= 0 && rightRows >= 0) {
+                isLeftBuild = leftRows < rightRows;
+            } else {
+                isLeftBuild = isSmallTable((TableNode) jn.getLeftNode()) && !isSmallTable((TableNode) jn.getRightNode());
+            }
+        } else if (jn.isLeftOuterJoin()) {
+            // the left rows without matched must be kept, so probe the left
+            isLeftBuild = false;
+        } else {
+            return false;
+        }
+        jn.setStrategy(Strategy.HASH);
+        jn.setLeftHashBuild(isLeftBuild);
+        removeJoinOnOrder(jn.getLeftNode());
+        removeJoinOnOrder(jn.getRightNode());
+        jn.setLeftOrderMatch(false);
+        jn.setRightOrderMatch(false);
+        return true;
+    }
+
+    /**
+     * the join node has no order, so the order of child is only pushed by join on
+     */
+    private void removeJoinOnOrder(PlanNode child) {
+        if (child.getLimitTo() == -1) {
+            child.setOrderBys(new ArrayList<Order>());
+        }
+    }
+
     private void handleNestLoopStrategy(boolean isLeftSmall) {
         jn.setStrategy(Strategy.NESTLOOP);
         TableNode tnLeft = (TableNode) jn.getLeftNode();
@@ -85,12 +134,18 @@ public class JoinStrategyChooser {
     }
 
     /**
-     * the table contains where is small table now
+     * the table is small if its estimated rows can be held by the temp table of nest loop,
+     * the table contains where is small table if it has no statistic
      *
      * @param tn
      * @return
      */
     private boolean isSmallTable(TableNode tn) {
-        return tn.getWhereFilter() != null;
+        long rows = TableRowsEstimator.estimate(tn);
+        if (rows < 0) {
+            return tn.getWhereFilter() != null;
+        }
+        SystemConfig system = DbleServer.getInstance().getConfig().getSystem();
+        return rows <= (long) system.getNestLoopRowsSize() * system.getNestLoopConnSize();
     }
 }
@@ -21,7 +21,9 @@ public final class JoinStrategyProcessor {
             JoinNode jn = (JoinNode) qtn;
             if (jn.getLeftNode().type() == PlanNode.PlanNodeType.TABLE && jn.getRightNode().type() == PlanNode.PlanNodeType.TABLE) {
                 JoinStrategyChooser chooser = new JoinStrategyChooser((JoinNode) qtn);
-                chooser.tryNestLoop();
+                if (!chooser.tryNestLoop()) {
+                    chooser.tryHashJoin();
+                }
                 return qtn;
             }
         }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.plan.optimizer;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.meta.ProxyMetaManager;
+import com.actiontech.dble.meta.TableStatistic;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.actiontech.dble.plan.common.item.function.ItemFunc;
+import com.actiontech.dble.plan.common.item.function.ItemFunc.Functype;
+import com.actiontech.dble.plan.node.TableNode;
+
+/**
+ * estimate the rows a table node returns by the collected table statistics
+ */
+final class TableRowsEstimator {
+    /* the selectivity of column = const when the cardinality of the column is unknown */
+    private static final double EQUAL_SELECTIVITY = 0.1;
+    /* the selectivity of the other filters */
+    private static final double DEFAULT_SELECTIVITY = 0.33;
+
+    private TableRowsEstimator() {
+    }
+
+    /**
+     * @param tn
+     * @return -1 if the statistic of the table has not been collected
+     */
+    static long estimate(TableNode tn) {
+        ProxyMetaManager tmManager = DbleServer.getInstance().getTmManager();
+        if (tmManager == null) {
+            return -1;
+        }
+        TableStatistic statistic = tmManager.getTableStatistic(tn.getSchema(), tn.getTableName());
+        if (statistic == null) {
+            return -1;
+        }
+        double rows = statistic.getRowCount();
+        if (tn.getWhereFilter() != null) {
+            rows *= selectivity(tn.getWhereFilter(), statistic);
+        }
+        return (long) Math.ceil(rows);
+    }
+
+    private static double selectivity(Item filter, TableStatistic statistic) {
+        if (!(filter instanceof ItemFunc)) {
+            return DEFAULT_SELECTIVITY;
+        }
+        Functype functype = ((ItemFunc) filter).functype();
+        if (functype == Functype.COND_AND_FUNC) {
+            double result = 1;
+            for (Item arg : filter.arguments()) {
+                result *= selectivity(arg, statistic);
+            }
+            return result;
+        } else if (functype == Functype.COND_OR_FUNC) {
+            double result = 0;
+            for (Item arg : filter.arguments()) {
+                result += selectivity(arg, statistic);
+            }
+            return Math.min(result, 1);
+        } else if (functype == Functype.EQ_FUNC) {
+            Item arg0 = filter.arguments().get(0);
+            Item arg1 = filter.arguments().get(1);
+            ItemField column = null;
+            if (arg0 instanceof ItemField && arg1.basicConstItem()) {
+                column = (ItemField) arg0;
+            } else if (arg1 instanceof ItemField && arg0.basicConstItem()) {
+                column = (ItemField) arg1;
+            }
+            if (column == null) {
+                return DEFAULT_SELECTIVITY;
+            }
+            long cardinality = statistic.getCardinality(column.getItemName());
+            return cardinality > 0 ? 1.0 / cardinality : EQUAL_SELECTIVITY;
+        }
+        return DEFAULT_SELECTIVITY;
+    }
+}
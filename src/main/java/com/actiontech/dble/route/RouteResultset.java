@@ -24,6 +24,8 @@ public final class RouteResultset implements Serializable {
     private final int sqlType;
     private RouteResultsetNode[] nodes;
     private transient SQLStatement sqlStatement;
+    // the statement parsed when routing, kept for sql stat
+    private transient SQLStatement statStatement;
 
     private boolean needOptimizer;
     private int limitStart;
@@ -280,6 +282,14 @@ public final class RouteResultset implements Serializable {
         this.sqlStatement = sqlStatement;
     }
 
+    public SQLStatement getStatStatement() {
+        return statStatement;
+    }
+
+    public void setStatStatement(SQLStatement statStatement) {
+        this.statStatement = statStatement;
+    }
+
 
     @Override
     public String toString() {
@@ -14,6 +14,7 @@ import com.actiontech.dble.route.factory.RouteStrategyFactory;
 import com.actiontech.dble.route.handler.HintHandler;
 import com.actiontech.dble.route.handler.HintHandlerFactory;
 import com.actiontech.dble.route.handler.HintSQLHandler;
+import com.actiontech.dble.route.parser.util.ParameterizedSql;
 import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.parser.ServerParse;
 import org.slf4j.Logger;
@@ -27,6 +28,7 @@ import java.util.Map;
 public class RouteService {
     private static final Logger LOGGER = LoggerFactory.getLogger(RouteService.class);
     private static final String HINT_TYPE = "_serverHintType";
+    private static final String TEMPLATE_KEY_PREFIX = "TEMPLATE_";
     private final CachePool sqlRouteCache;
     private LayerCachePool tableId2DataNodeCache;
 
@@ -48,15 +50,27 @@ public class RouteService {
             throws SQLException {
         RouteResultset rrs;
         String cacheKey = null;
+        ParameterizedSql parameterizedSql = null;
+        String templateKey = null;
 
         /*
          *  SELECT  SQL,  not cached in debug mode
          */
         if (sqlType == ServerParse.SELECT && !LOGGER.isDebugEnabled() && sqlRouteCache != null) {
-            cacheKey = (schema == null ? "NULL" : schema.getName()) + "_" + sc.getUser() + "_" + stmt;
-            rrs = (RouteResultset) sqlRouteCache.get(cacheKey);
-            if (rrs != null) {
-                return rrs;
+            String keyPrefix = getCacheKeyPrefix(schema, sc.getUser());
+            cacheKey = keyPrefix + stmt;
+            Object cached = sqlRouteCache.get(cacheKey);
+            if (cached instanceof RouteResultset) {
+                return (RouteResultset) cached;
+            }
+            // the selects differ only in literals share the template
+            parameterizedSql = parameterize(schema, stmt.trim());
+            if (parameterizedSql != null) {
+                templateKey = TEMPLATE_KEY_PREFIX + keyPrefix + parameterizedSql.getTemplate();
+                rrs = routeByTemplate(templateKey, parameterizedSql, stmt.trim(), sqlType);
+                if (rrs != null) {
+                    return rrs;
+                }
             }
         }
 
@@ -111,12 +125,64 @@ public class RouteService {
             rrs = RouteStrategyFactory.getRouteStrategy().route(schema, sqlType, stmt, sc, tableId2DataNodeCache);
         }
 
-        if (rrs != null && sqlType == ServerParse.SELECT && rrs.isCacheAble() && !LOGGER.isDebugEnabled() && sqlRouteCache != null) {
-            sqlRouteCache.putIfAbsent(cacheKey, rrs);
+        if (rrs != null) {
+            cacheRoute(rrs, sqlType, stmt, cacheKey, parameterizedSql, templateKey);
         }
         return rrs;
     }
 
+    /**
+     * the route template cached by the select which has been routed
+     *
+     * @return null if the select has no route template
+     */
+    public RouteTemplate getRouteTemplate(SchemaConfig schema, String user, String stmt) {
+        if (LOGGER.isDebugEnabled() || sqlRouteCache == null) {
+            return null;
+        }
+        ParameterizedSql parameterizedSql = parameterize(schema, stmt.trim());
+        if (parameterizedSql == null) {
+            return null;
+        }
+        Object cached = sqlRouteCache.get(TEMPLATE_KEY_PREFIX + getCacheKeyPrefix(schema, user) + parameterizedSql.getTemplate());
+        return cached instanceof RouteTemplate ? (RouteTemplate) cached : null;
+    }
+
+    private static String getCacheKeyPrefix(SchemaConfig schema, String user) {
+        return (schema == null ? "NULL" : schema.getName()) + "_" + user + "_";
+    }
+
+    private void cacheRoute(RouteResultset rrs, int sqlType, String stmt, String cacheKey,
+                            ParameterizedSql parameterizedSql, String templateKey) {
+        if (sqlType != ServerParse.SELECT || !rrs.isCacheAble() || LOGGER.isDebugEnabled() || sqlRouteCache == null) {
+            return;
+        }
+        if (parameterizedSql != null) {
+            // the same trimmed select as parameterized, so the literal positions match
+            RouteTemplate template = RouteTemplate.create(parameterizedSql, stmt.trim(), rrs);
+            if (template != null) {
+                sqlRouteCache.putIfAbsent(templateKey, template);
+                return;
+            }
+        }
+        sqlRouteCache.putIfAbsent(cacheKey, rrs);
+    }
+
+    private static ParameterizedSql parameterize(SchemaConfig schema, String stmt) {
+        if (schema == null || RouteService.isHintSql(stmt) != -1) {
+            return null;
+        }
+        return ParameterizedSql.parameterize(stmt);
+    }
+
+    private RouteResultset routeByTemplate(String templateKey, ParameterizedSql parameterizedSql, String stmt, int sqlType) {
+        Object cached = sqlRouteCache.get(templateKey);
+        if (cached instanceof RouteTemplate) {
+            return ((RouteTemplate) cached).route(parameterizedSql, stmt, sqlType);
+        }
+        return null;
+    }
+
     private static int isHintSql(String sql) {
         char[] annotation = Versions.ANNOTATION_NAME.toCharArray();
         int j = 0;
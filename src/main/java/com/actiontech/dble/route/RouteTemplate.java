@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.TableConfig;
+import com.actiontech.dble.route.parser.util.ParameterizedSql;
+import com.actiontech.dble.route.util.RouterUtil;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * the route of a single table select which is decided only by "sharding column = literal".
+ * all the selects of the same template route in the same way, only the data node is calculated by the
+ * partition algorithm with the new literal, the statement need not be parsed again.
+ */
+public final class RouteTemplate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String schema;
+    private final String table;
+    private final String tableAlias;
+    private final String shardingColumn;
+    private final int literalIndex;
+    private final String primaryKey;
+    private final String[] groupByCols;
+    private final Boolean canRunInReadDB;
+    private final int limitStart;
+    private final int limitSize;
+    private final int nodeLimitStart;
+    private final int nodeLimitSize;
+
+    private RouteTemplate(RouteResultset rrs, String shardingColumn, int literalIndex) {
+        this.schema = rrs.getSchema();
+        this.table = rrs.getTable();
+        this.tableAlias = rrs.getTableAlias();
+        this.shardingColumn = shardingColumn;
+        this.literalIndex = literalIndex;
+        this.primaryKey = rrs.getPrimaryKey();
+        this.groupByCols = rrs.getGroupByCols();
+        this.canRunInReadDB = rrs.getCanRunInReadDB();
+        this.limitStart = rrs.getLimitStart();
+        this.limitSize = rrs.getLimitSize();
+        this.nodeLimitStart = rrs.getNodes()[0].getLimitStart();
+        this.nodeLimitSize = rrs.getNodes()[0].getLimitSize();
+    }
+
+    /**
+     * make the template from the route result of the select, the template must route the select
+     * to the same result, otherwise the select can not use template
+     *
+     * @param sql  parameterized select
+     * @param stmt the select
+     * @param rrs  the route result of the select
+     * @return null if the select can not use template
+     */
+    public static RouteTemplate create(ParameterizedSql sql, String stmt, RouteResultset rrs) {
+        if (rrs.isNeedOptimizer() || rrs.getSqlStatement() != null || rrs.isGlobalTable() ||
+                rrs.getNodes() == null || rrs.getNodes().length != 1 || rrs.getTable() == null) {
+            return null;
+        }
+        TableConfig tc = getShardingTable(rrs.getSchema(), rrs.getTable());
+        if (tc == null) {
+            return null;
+        }
+        int index = sql.getColumnLiteral(tc.getPartitionColumn());
+        if (index < 0) {
+            return null;
+        }
+        RouteTemplate template = new RouteTemplate(rrs, tc.getPartitionColumn(), index);
+        RouteResultset templateRrs = template.route(sql, stmt, rrs.getSqlType());
+        if (templateRrs == null || !isSameRoute(rrs, templateRrs)) {
+            return null;
+        }
+        return template;
+    }
+
+    public String getShardingColumn() {
+        return shardingColumn;
+    }
+
+    /**
+     * @return null if the select can not be routed by the template
+     */
+    public RouteResultset route(ParameterizedSql sql, String stmt, int sqlType) {
+        if (sql.getColumnLiteral(shardingColumn) != literalIndex) {
+            return null;
+        }
+        return route(sql.getLiterals().get(literalIndex), stmt, sqlType);
+    }
+
+    /**
+     * route the select of the same template whose sharding column value is known,
+     * such as the value bound to the parameter of a prepared statement
+     *
+     * @return null if the select can not be routed by the template
+     */
+    public RouteResultset route(String shardingValue, String stmt, int sqlType) {
+        TableConfig tc = getShardingTable(schema, table);
+        if (tc == null || !shardingColumn.equals(tc.getPartitionColumn())) {
+            return null;
+        }
+        String dataNode;
+        try {
+            Integer nodeIndex = tc.getRule().getRuleAlgorithm().calculate(shardingValue);
+            List<String> dataNodes = tc.getDataNodes();
+            if (nodeIndex == null || nodeIndex < 0 || nodeIndex >= dataNodes.size()) {
+                return null;
+            }
+            dataNode = dataNodes.get(nodeIndex);
+        } catch (RuntimeException e) {
+            // let the normal route report the error
+            return null;
+        }
+        RouteResultset rrs = new RouteResultset(stmt, sqlType);
+        rrs.setStatement(RouterUtil.removeSchema(stmt, schema));
+        rrs.setSchema(schema);
+        rrs.setTable(table);
+        rrs.setTableAlias(tableAlias);
+        if (primaryKey != null) {
+            rrs.setPrimaryKey(primaryKey);
+        }
+        rrs.setGroupByCols(groupByCols);
+        rrs.setCanRunInReadDB(canRunInReadDB);
+        rrs.setLimitStart(limitStart);
+        rrs.setLimitSize(limitSize);
+        RouterUtil.routeToSingleNode(rrs, dataNode);
+        RouteResultsetNode node = rrs.getNodes()[0];
+        node.setLimitStart(nodeLimitStart);
+        node.setLimitSize(nodeLimitSize);
+        return rrs;
+    }
+
+    private static TableConfig getShardingTable(String schemaName, String tableName) {
+        SchemaConfig schemaConfig = DbleServer.getInstance().getConfig().getSchemas().get(schemaName);
+        if (schemaConfig == null) {
+            return null;
+        }
+        TableConfig tc = schemaConfig.getTables().get(tableName);
+        if (tc == null || tc.isGlobalTable() || tc.getParentTC() != null || tc.getRule() == null ||
+                tc.getPartitionColumn() == null || tc.getDataNodes().size() <= 1) {
+            return null;
+        }
+        return tc;
+    }
+
+    private static boolean isSameRoute(RouteResultset rrs, RouteResultset templateRrs) {
+        RouteResultsetNode node = rrs.getNodes()[0];
+        RouteResultsetNode templateNode = templateRrs.getNodes()[0];
+        return rrs.getStatement().equals(templateRrs.getStatement()) &&
+                node.getName().equals(templateNode.getName()) &&
+                node.getStatement().equals(templateNode.getStatement()) &&
+                node.canRunINReadDB(true) == templateNode.canRunINReadDB(true);
+    }
+}
@@ -32,6 +32,27 @@ public abstract class AbstractPartitionAlgorithm implements RuleAlgorithm, Seria
     public void init() {
     }
 
+    /**
+     * the batch version of calculate(String) for the long IN list, the multi-row insert and the lines of load data,
+     * the algorithms parse and look up the values without boxing when they can
+     *
+     * @param values      the column values
+     * @param nodeIndexes filled with the node index of values[i], -1 if no node matches
+     */
+    public void calculate(String[] values, int[] nodeIndexes) {
+        for (int i = 0; i < values.length; i++) {
+            nodeIndexes[i] = toNodeIndex(calculate(values[i]));
+        }
+    }
+
+    protected static int toNodeIndex(Integer nodeIndex) {
+        return nodeIndex == null ? -1 : nodeIndex;
+    }
+
+    protected static Integer toInteger(int nodeIndex) {
+        return nodeIndex < 0 ? null : nodeIndex;
+    }
+
     /**
      * return the index of node
      * retrun an empty array means router to all node
@@ -14,6 +14,8 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 
 /**
@@ -26,6 +28,10 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
     private static final Logger LOGGER = LoggerFactory.getLogger(AutoPartitionByLong.class);
     private String mapFile;
     private LongRange[] longRanges;
+    /* the ranges sorted by start for binary search, null if some ranges overlap */
+    private long[] rangeStarts;
+    private long[] rangeEnds;
+    private int[] rangeNodes;
     private int defaultNode = -1;
 
     @Override
@@ -42,11 +48,9 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
     public Integer calculate(String columnValue) {
         //columnValue = NumberParseUtil.eliminateQuote(columnValue);
         try {
-            long value = Long.parseLong(columnValue);
-            for (LongRange longRang : this.longRanges) {
-                if (value <= longRang.valueEnd && value >= longRang.valueStart) {
-                    return longRang.nodeIndex;
-                }
+            int nodeIndex = findNode(Long.parseLong(columnValue));
+            if (nodeIndex >= 0) {
+                return nodeIndex;
             }
             // use default node for other value
             if (defaultNode >= 0) {
@@ -58,25 +62,61 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
         }
     }
 
+    @Override
+    public void calculate(String[] values, int[] nodeIndexes) {
+        for (int i = 0; i < values.length; i++) {
+            try {
+                nodeIndexes[i] = findNodeOrDefault(Long.parseLong(values[i]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("columnValue:" + values[i] + " Please eliminate any quote and non number within it.", e);
+            }
+        }
+    }
+
+    private int findNodeOrDefault(long value) {
+        int nodeIndex = findNode(value);
+        return nodeIndex >= 0 ? nodeIndex : defaultNode;
+    }
+
     /**
-     * @param columnValue
-     * @return
+     * binary search in the ranges sorted by start, linear search if some ranges overlap
+     *
+     * @return -1 if the value is not in any range
      */
-    public boolean isUseDefaultNode(String columnValue) {
-        try {
-            long value = Long.parseLong(columnValue);
+    private int findNode(long value) {
+        if (rangeStarts == null) {
             for (LongRange longRang : this.longRanges) {
                 if (value <= longRang.valueEnd && value >= longRang.valueStart) {
-                    return false;
+                    return longRang.nodeIndex;
                 }
             }
-            if (defaultNode >= 0) {
-                return true;
+            return -1;
+        }
+        int low = 0;
+        int high = rangeStarts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (rangeStarts[mid] > value) {
+                high = mid - 1;
+            } else if (rangeEnds[mid] < value) {
+                low = mid + 1;
+            } else {
+                return rangeNodes[mid];
             }
+        }
+        return -1;
+    }
+
+    /**
+     * @param columnValue
+     * @return
+     */
+    public boolean isUseDefaultNode(String columnValue) {
+        try {
+            return findNode(Long.parseLong(columnValue)) < 0 && defaultNode >= 0;
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("columnValue:" + columnValue + " Please eliminate any quote and non number within it.", e);
         }
-        return false;
     }
 
 
@@ -142,6 +182,7 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
 
             }
             longRanges = longRangeList.toArray(new LongRange[longRangeList.size()]);
+            sortRanges();
         } catch (Exception e) {
             if (e instanceof RuntimeException) {
                 throw (RuntimeException) e;
@@ -158,6 +199,30 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
         }
     }
 
+    private void sortRanges() {
+        LongRange[] sorted = longRanges.clone();
+        Arrays.sort(sorted, new Comparator<LongRange>() {
+            @Override
+            public int compare(LongRange o1, LongRange o2) {
+                return Long.compare(o1.valueStart, o2.valueStart);
+            }
+        });
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i].valueStart <= sorted[i - 1].valueEnd) {
+                LOGGER.info("the ranges in " + mapFile + " overlap, the first matched one in the file is used");
+                return;
+            }
+        }
+        rangeStarts = new long[sorted.length];
+        rangeEnds = new long[sorted.length];
+        rangeNodes = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            rangeStarts[i] = sorted[i].valueStart;
+            rangeEnds[i] = sorted[i].valueEnd;
+            rangeNodes[i] = sorted[i].nodeIndex;
+        }
+    }
+
     public void setDefaultNode(int defaultNode) {
         this.defaultNode = defaultNode;
     }
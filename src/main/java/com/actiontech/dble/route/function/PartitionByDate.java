@@ -61,10 +61,28 @@ public class PartitionByDate extends AbstractPartitionAlgorithm implements RuleA
 
     @Override
     public Integer calculate(String columnValue) {
+        return toInteger(partition(formatter.get(), columnValue));
+    }
+
+    /**
+     * the formatter of the thread is looked up once for all the values
+     */
+    @Override
+    public void calculate(String[] values, int[] nodeIndexes) {
+        SimpleDateFormat format = formatter.get();
+        for (int i = 0; i < values.length; i++) {
+            nodeIndexes[i] = partition(format, values[i]);
+        }
+    }
+
+    /**
+     * @return -1 if no node matches
+     */
+    private int partition(SimpleDateFormat format, String columnValue) {
         try {
-            long targetTime = formatter.get().parse(columnValue).getTime();
+            long targetTime = format.parse(columnValue).getTime();
             if (targetTime < beginDate) {
-                return (defaultNode >= 0) ? defaultNode : null;
+                return defaultNode;
             }
             int targetPartition = (int) ((targetTime - beginDate) / partitionTime);
 
@@ -28,6 +28,17 @@ public final class PartitionByJumpConsistentHash extends AbstractPartitionAlgori
 
     @Override
     public Integer calculate(String columnValue) {
+        return partition(columnValue);
+    }
+
+    @Override
+    public void calculate(String[] values, int[] nodeIndexes) {
+        for (int i = 0; i < values.length; i++) {
+            nodeIndexes[i] = partition(values[i]);
+        }
+    }
+
+    private int partition(String columnValue) {
         int start = hashSliceStart >= 0 ? hashSliceStart : columnValue.length() + hashSliceStart;
         int end = hashSliceEnd > 0 ? hashSliceEnd : columnValue.length() + hashSliceEnd;
         return jumpConsistentHash(StringUtil.hash(columnValue, start, end), partitionCount);
@@ -52,6 +52,17 @@ public final class PartitionByLong extends AbstractPartitionAlgorithm implements
         }
     }
 
+    @Override
+    public void calculate(String[] values, int[] nodeIndexes) {
+        for (int i = 0; i < values.length; i++) {
+            try {
+                nodeIndexes[i] = partitionUtil.partition(Long.parseLong(values[i]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("columnValue:" + values[i] + " Please eliminate any quote and non number within it.", e);
+            }
+        }
+    }
+
     @Override
     public Integer[] calculateRange(String beginValue, String endValue) {
         long begin = Long.parseLong(beginValue);
@@ -16,6 +16,7 @@ import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -61,13 +62,32 @@ public class PartitionByPattern extends AbstractPartitionAlgorithm implements Ru
 
     @Override
     public Integer calculate(String columnValue) {
-        if (!isNumeric(columnValue)) {
-            return defaultNode < 0 ? null : defaultNode;
+        return toInteger(partition(PATTERN.matcher(columnValue), columnValue));
+    }
+
+    /**
+     * one matcher is reset for all the values
+     */
+    @Override
+    public void calculate(String[] values, int[] nodeIndexes) {
+        Matcher matcher = PATTERN.matcher("");
+        for (int i = 0; i < values.length; i++) {
+            nodeIndexes[i] = partition(matcher.reset(values[i]), values[i]);
+        }
+    }
+
+    /**
+     * @param matcher the matcher of PATTERN on columnValue
+     * @return -1 if no node matches
+     */
+    private int partition(Matcher matcher, String columnValue) {
+        if (!matcher.matches()) {
+            return defaultNode;
         }
 
         long value = Long.parseLong(columnValue);
         long hash = value % patternValue;
-        return findNode(hash);
+        return toNodeIndex(findNode(hash));
     }
 
     /* x2 - x1 < m
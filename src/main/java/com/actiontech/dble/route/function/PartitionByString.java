@@ -93,6 +93,17 @@ public final class PartitionByString extends AbstractPartitionAlgorithm implemen
 
     @Override
     public Integer calculate(String key) {
+        return partition(key);
+    }
+
+    @Override
+    public void calculate(String[] values, int[] nodeIndexes) {
+        for (int i = 0; i < values.length; i++) {
+            nodeIndexes[i] = partition(values[i]);
+        }
+    }
+
+    private int partition(String key) {
         int start = hashSliceStart >= 0 ? hashSliceStart : key.length() + hashSliceStart;
         int end = hashSliceEnd > 0 ? hashSliceEnd : key.length() + hashSliceEnd;
         long hash = StringUtil.hash(key, start, end);
@@ -61,6 +61,10 @@ public final class ManagerParseShow {
     public static final int CONNECTION_COUNT = 48;
     public static final int COMMAND_COUNT = 49;
     public static final int BACKEND_STAT = 50;
+    public static final int DATASOURCE_WAIT = 51;
+    public static final int SQL_DIGEST = 52;
+    public static final int SQL_DIGEST_DATANODE = 53;
+    public static final int GLOBAL_TABLE_CHECK = 54;
 
     public static int parse(String stmt, int offset) {
         int i = offset;
@@ -97,6 +101,9 @@ public final class ManagerParseShow {
                 case 'D':
                 case 'd':
                     return show2DCheck(stmt, offset);
+                case 'G':
+                case 'g':
+                    return show2GCheck(stmt, offset);
                 case 'H':
                 case 'h':
                     return show2HCheck(stmt, offset);
@@ -410,6 +417,9 @@ public final class ManagerParseShow {
                         }
                     }
                     return OTHER;
+                case 'W':
+                case 'w':
+                    return show2DataSWaitCheck(stmt, offset);
                 default:
                     return OTHER;
             }
@@ -417,6 +427,22 @@ public final class ManagerParseShow {
         return OTHER;
     }
 
+    //show @@datasource.wait
+    private static int show2DataSWaitCheck(String stmt, int offset) {
+        if (stmt.length() > offset + "ait".length()) {
+            char c1 = stmt.charAt(++offset);
+            char c2 = stmt.charAt(++offset);
+            char c3 = stmt.charAt(++offset);
+            if ((c1 == 'A' || c1 == 'a') && (c2 == 'I' || c2 == 'i') && (c3 == 'T' || c3 == 't')) {
+                if (ParseUtil.isErrorTail(++offset, stmt)) {
+                    return OTHER;
+                }
+                return DATASOURCE_WAIT;
+            }
+        }
+        return OTHER;
+    }
+
     //show @@datasource.syndetail
     private static int show2SynDetailCheck(String stmt, int offset) {
         if (stmt.length() > offset + "etail where name=".length()) {
@@ -686,6 +712,19 @@ public final class ManagerParseShow {
         return OTHER;
     }
 
+    // SHOW @@GLOBAL_TABLE.CHECK
+    private static int show2GCheck(String stmt, int offset) {
+        String globalTableCheck = "GLOBAL_TABLE.CHECK";
+        if (stmt.length() >= offset + globalTableCheck.length() &&
+                stmt.substring(offset, offset + globalTableCheck.length()).equalsIgnoreCase(globalTableCheck)) {
+            if (ParseUtil.isErrorTail(offset + globalTableCheck.length(), stmt)) {
+                return OTHER;
+            }
+            return GLOBAL_TABLE_CHECK;
+        }
+        return OTHER;
+    }
+
     // SHOW @@VERSION
     private static int show2VCheck(String stmt, int offset) {
         if (stmt.length() > offset + "ERSION".length()) {
@@ -1264,6 +1303,9 @@ public final class ManagerParseShow {
                 case 'R':
                 case 'r':
                     return show2SqlRCheck(stmt, offset);
+                case 'D':
+                case 'd':
+                    return show2SqlDCheck(stmt, offset);
                 default:
                     return OTHER;
             }
@@ -1334,6 +1376,35 @@ public final class ManagerParseShow {
         return OTHER;
     }
 
+    // SHOW @@SQL.DIGEST
+    private static int show2SqlDCheck(String stmt, int offset) {
+        if (stmt.length() > offset + "IGEST".length()) {
+            char c1 = stmt.charAt(++offset);
+            char c2 = stmt.charAt(++offset);
+            char c3 = stmt.charAt(++offset);
+            char c4 = stmt.charAt(++offset);
+            char c5 = stmt.charAt(++offset);
+            if ((c1 == 'I' || c1 == 'i') && (c2 == 'G' || c2 == 'g') && (c3 == 'E' || c3 == 'e') &&
+                    (c4 == 'S' || c4 == 's') && (c5 == 'T' || c5 == 't')) {
+                if (stmt.length() > offset + 1 && stmt.charAt(offset + 1) == '.') {
+                    return show2SqlDigestDotCheck(stmt, offset + 1);
+                }
+                return boolTailCheck(stmt, offset, SQL_DIGEST);
+            }
+        }
+        return OTHER;
+    }
+
+    // SHOW @@SQL.DIGEST.DATANODE
+    private static int show2SqlDigestDotCheck(String stmt, int offset) {
+        String dataNode = "DATANODE";
+        if (stmt.length() >= offset + 1 + dataNode.length() &&
+                stmt.substring(offset + 1, offset + 1 + dataNode.length()).equalsIgnoreCase(dataNode)) {
+            return boolTailCheck(stmt, offset + dataNode.length(), SQL_DIGEST_DATANODE);
+        }
+        return OTHER;
+    }
+
     // SHOW @@SQL.RESULTSET
     private static int show2SqlRCheck(String stmt, int offset) {
 
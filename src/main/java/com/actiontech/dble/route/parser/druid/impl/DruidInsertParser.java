@@ -23,6 +23,7 @@ import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.util.GlobalTableUtil;
 import com.actiontech.dble.server.util.SchemaUtil;
 import com.actiontech.dble.server.util.SchemaUtil.SchemaInfo;
+import com.actiontech.dble.sqlengine.SQLQueryResultListener;
 import com.actiontech.dble.util.StringUtil;
 import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.sql.ast.SQLExpr;
@@ -138,52 +139,130 @@ public class DruidInsertParser extends DruidInsertReplaceParser {
         return (insertStmt.getValuesList() != null && insertStmt.getValuesList().size() > 1);
     }
 
-    private void parserChildTable(SchemaInfo schemaInfo, final RouteResultset rrs, MySqlInsertStatement insertStmt,
+    private void parserChildTable(final SchemaInfo schemaInfo, final RouteResultset rrs, final MySqlInsertStatement insertStmt,
                                   final ServerConnection sc) throws SQLNonTransientException {
 
         final SchemaConfig schema = schemaInfo.getSchemaConfig();
         String tableName = schemaInfo.getTable();
         final TableConfig tc = schema.getTables().get(tableName);
-        if (isMultiInsert(insertStmt)) {
-            String msg = "ChildTable multi insert not provided";
-            LOGGER.info(msg);
-            throw new SQLNonTransientException(msg);
-        }
         String joinKey = tc.getJoinKey();
         int joinKeyIndex = getJoinKeyIndex(schemaInfo, insertStmt, joinKey);
-        final String joinKeyVal = insertStmt.getValues().getValues().get(joinKeyIndex).toString();
-        String realVal = StringUtil.removeApostrophe(joinKeyVal);
+        final List<String> joinKeyVals = getJoinKeyValues(schemaInfo, insertStmt, joinKeyIndex);
         final String sql = RouterUtil.removeSchema(insertStmt.toString(), schemaInfo.getSchema());
         rrs.setStatement(sql);
         // try to route by ER parent partion key
-        RouteResultset theRrs = routeByERParentKey(rrs, tc, realVal);
-        if (theRrs != null) {
-            rrs.setFinishedRoute(true);
-        } else {
-            rrs.setFinishedExecute(true);
-            DbleServer.getInstance().getComplexQueryExecutor().execute(new Runnable() {
-                //get child result will be blocked, so use ComplexQueryExecutor
-                @Override
-                public void run() {
-                    // route by sql query root parent's data node
-                    String findRootTBSql = tc.getLocateRTableKeySql().toLowerCase() + joinKeyVal;
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("to find root parent's node sql :" + findRootTBSql);
-                    }
-                    FetchStoreNodeOfChildTableHandler fetchHandler = new FetchStoreNodeOfChildTableHandler(findRootTBSql, sc.getSession2());
-                    String dn = fetchHandler.execute(schema.getName(), tc.getRootParent().getDataNodes());
-                    if (dn == null) {
-                        sc.writeErrMessage(ErrorCode.ER_UNKNOWN_ERROR, "can't find (root) parent sharding node for sql:" + sql);
-                        return;
-                    }
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("found partition node for child table to insert " + dn + " sql :" + sql);
-                    }
-                    RouterUtil.routeToSingleNode(rrs, dn);
-                    sc.getSession2().execute(rrs);
+        if (tc.getDirectRouteTC() != null) {
+            List<String> dataNodes = new ArrayList<>(joinKeyVals.size());
+            for (String joinKeyVal : joinKeyVals) {
+                String dn = getDataNodeByERParentKey(tc, StringUtil.removeApostrophe(joinKeyVal));
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("found partion node (using parent partition rule directly) for child table to insert  " + dn + " sql :" + sql);
                 }
-            });
+                dataNodes.add(dn);
+            }
+            routeChildValues(schemaInfo, rrs, insertStmt, dataNodes);
+            return;
+        }
+
+        // route by sql query root parent's data node
+        final FetchStoreNodeOfChildTableHandler fetchHandler = new FetchStoreNodeOfChildTableHandler(tc, schema.getName(), sc.getSession2());
+        if (fetchHandler.loadFromCache(joinKeyVals)) {
+            routeChildValues(schemaInfo, rrs, insertStmt, getChildDataNodes(joinKeyVals, fetchHandler.getDataNodes()));
+            return;
+        }
+        rrs.setFinishedExecute(true);
+        fetchHandler.execute(new SQLQueryResultListener<Map<String, String>>() {
+            @Override
+            public void onResult(Map<String, String> result) {
+                List<String> dataNodes = getChildDataNodes(joinKeyVals, result);
+                if (dataNodes == null) {
+                    sc.writeErrMessage(ErrorCode.ER_UNKNOWN_ERROR, "can't find (root) parent sharding node for sql:" + sql);
+                    return;
+                }
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("found partition node for child table to insert " + dataNodes + " sql :" + sql);
+                }
+                routeChildValues(schemaInfo, rrs, insertStmt, dataNodes);
+                sc.getSession2().execute(rrs);
+            }
+        });
+    }
+
+    /**
+     * @return the join key value of each row as it is in sql
+     */
+    private List<String> getJoinKeyValues(SchemaInfo schemaInfo, MySqlInsertStatement insertStmt, int joinKeyIndex)
+            throws SQLNonTransientException {
+        List<ValuesClause> valueClauseList = insertStmt.getValuesList();
+        List<String> joinKeyVals = new ArrayList<>(valueClauseList.size());
+        if (valueClauseList.size() == 1) {
+            joinKeyVals.add(valueClauseList.get(0).getValues().get(joinKeyIndex).toString());
+            return joinKeyVals;
+        }
+        int columnNum = getTableColumns(schemaInfo, insertStmt.getColumns());
+        for (ValuesClause valueClause : valueClauseList) {
+            if (valueClause.getValues().size() != columnNum) {
+                String msg = "bad insert sql columnSize != valueSize:" + columnNum + " != " + valueClause.getValues().size() + "values:" + valueClause;
+                LOGGER.info(msg);
+                throw new SQLNonTransientException(msg);
+            }
+            joinKeyVals.add(valueClause.getValues().get(joinKeyIndex).toString());
+        }
+        return joinKeyVals;
+    }
+
+    /**
+     * @return the data node of each row, null if any one is not found
+     */
+    private static List<String> getChildDataNodes(List<String> joinKeyVals, Map<String, String> keyDataNodes) {
+        List<String> dataNodes = new ArrayList<>(joinKeyVals.size());
+        for (String joinKeyVal : joinKeyVals) {
+            String dn = keyDataNodes.get(joinKeyVal);
+            if (dn == null) {
+                return null;
+            }
+            dataNodes.add(dn);
+        }
+        return dataNodes;
+    }
+
+    /**
+     * the rows of the same data node are inserted by one statement
+     */
+    private void routeChildValues(SchemaInfo schemaInfo, RouteResultset rrs, MySqlInsertStatement insertStmt, List<String> dataNodes) {
+        List<ValuesClause> valueClauseList = insertStmt.getValuesList();
+        if (valueClauseList.size() == 1) {
+            RouterUtil.routeToSingleNode(rrs, dataNodes.get(0));
+            return;
+        }
+        Map<String, List<ValuesClause>> nodeValuesMap = groupByDataNode(valueClauseList, dataNodes);
+        RouteResultsetNode[] nodes = new RouteResultsetNode[nodeValuesMap.size()];
+        int count = 0;
+        for (Map.Entry<String, List<ValuesClause>> node : nodeValuesMap.entrySet()) {
+            insertStmt.setValuesList(node.getValue());
+            nodes[count] = new RouteResultsetNode(node.getKey(), rrs.getSqlType(),
+                    RouterUtil.removeSchema(insertStmt.toString(), schemaInfo.getSchema()));
+            count++;
         }
+        insertStmt.setValuesList(valueClauseList);
+        rrs.setNodes(nodes);
+        rrs.setFinishedRoute(true);
+    }
+
+    /**
+     * @return data node -> the rows of it, in the order of the first row of each data node
+     */
+    static Map<String, List<ValuesClause>> groupByDataNode(List<ValuesClause> valueClauseList, List<String> dataNodes) {
+        Map<String, List<ValuesClause>> nodeValuesMap = new LinkedHashMap<>();
+        for (int i = 0; i < valueClauseList.size(); i++) {
+            List<ValuesClause> valuesList = nodeValuesMap.get(dataNodes.get(i));
+            if (valuesList == null) {
+                valuesList = new ArrayList<>();
+                nodeValuesMap.put(dataNodes.get(i), valuesList);
+            }
+            valuesList.add(valueClauseList.get(i));
+        }
+        return nodeValuesMap;
     }
 
 
@@ -253,25 +332,32 @@ public class DruidInsertParser extends DruidInsertReplaceParser {
         Map<Integer, List<ValuesClause>> nodeValuesMap = new HashMap<>();
         TableConfig tableConfig = schema.getTables().get(tableName);
         AbstractPartitionAlgorithm algorithm = tableConfig.getRule().getRuleAlgorithm();
-        for (ValuesClause valueClause : valueClauseList) {
+        String[] shardingValues = new String[valueClauseList.size()];
+        for (int i = 0; i < shardingValues.length; i++) {
+            ValuesClause valueClause = valueClauseList.get(i);
             if (valueClause.getValues().size() != columnNum) {
                 String msg = "bad insert sql columnSize != valueSize:" + columnNum + " != " + valueClause.getValues().size() + "values:" + valueClause;
                 LOGGER.info(msg);
                 throw new SQLNonTransientException(msg);
             }
             SQLExpr expr = valueClause.getValues().get(shardingColIndex);
-            String shardingValue = shardingValueToSting(expr);
-            Integer nodeIndex = algorithm.calculate(shardingValue);
-            // null means can't find any valid index
-            if (nodeIndex == null) {
-                String msg = "can't find any valid datanode :" + tableName + " -> " + partitionColumn + " -> " + shardingValue;
+            shardingValues[i] = shardingValueToSting(expr);
+        }
+        // the rows are calculated in one batch
+        int[] nodeIndexes = new int[shardingValues.length];
+        algorithm.calculate(shardingValues, nodeIndexes);
+        for (int i = 0; i < nodeIndexes.length; i++) {
+            int nodeIndex = nodeIndexes[i];
+            // -1 means can't find any valid index
+            if (nodeIndex < 0) {
+                String msg = "can't find any valid datanode :" + tableName + " -> " + partitionColumn + " -> " + shardingValues[i];
                 LOGGER.info(msg);
                 throw new SQLNonTransientException(msg);
             }
             if (nodeValuesMap.get(nodeIndex) == null) {
                 nodeValuesMap.put(nodeIndex, new ArrayList<ValuesClause>());
             }
-            nodeValuesMap.get(nodeIndex).add(valueClause);
+            nodeValuesMap.get(nodeIndex).add(valueClauseList.get(i));
         }
 
         RouteResultsetNode[] nodes = new RouteResultsetNode[nodeValuesMap.size()];
@@ -28,6 +28,20 @@ import static com.actiontech.dble.server.util.SchemaUtil.SchemaInfo;
 abstract class DruidInsertReplaceParser extends DefaultDruidParser {
     protected static RouteResultset routeByERParentKey(RouteResultset rrs, TableConfig tc, String joinKeyVal)
             throws SQLNonTransientException {
+        String dn = getDataNodeByERParentKey(tc, joinKeyVal);
+        if (dn != null) {
+            if (SQLJob.LOGGER.isDebugEnabled()) {
+                SQLJob.LOGGER.debug("found partion node (using parent partition rule directly) for child table to insert  " + dn + " sql :" + rrs.getStatement());
+            }
+            return RouterUtil.routeToSingleNode(rrs, dn);
+        }
+        return null;
+    }
+
+    /**
+     * @return null if the data node can't be calculated by the parent partition rule directly
+     */
+    protected static String getDataNodeByERParentKey(TableConfig tc, String joinKeyVal) throws SQLNonTransientException {
         if (tc.getDirectRouteTC() != null) {
             Set<ColumnRoutePair> parentColVal = new HashSet<>(1);
             ColumnRoutePair pair = new ColumnRoutePair(joinKeyVal);
@@ -36,11 +50,7 @@ abstract class DruidInsertReplaceParser extends DefaultDruidParser {
             if (dataNodeSet.isEmpty() || dataNodeSet.size() > 1) {
                 throw new SQLNonTransientException("parent key can't find  valid data node ,expect 1 but found: " + dataNodeSet.size());
             }
-            String dn = dataNodeSet.iterator().next();
-            if (SQLJob.LOGGER.isDebugEnabled()) {
-                SQLJob.LOGGER.debug("found partion node (using parent partition rule directly) for child table to insert  " + dn + " sql :" + rrs.getStatement());
-            }
-            return RouterUtil.routeToSingleNode(rrs, dn);
+            return dataNodeSet.iterator().next();
         }
         return null;
     }
@@ -23,6 +23,7 @@ import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.util.GlobalTableUtil;
 import com.actiontech.dble.server.util.SchemaUtil;
 import com.actiontech.dble.server.util.SchemaUtil.SchemaInfo;
+import com.actiontech.dble.sqlengine.SQLQueryResultListener;
 import com.actiontech.dble.util.StringUtil;
 import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.sql.ast.SQLExpr;
@@ -307,18 +308,17 @@ public class DruidReplaceParser extends DruidInsertReplaceParser {
         if (theRrs != null) {
             rrs.setFinishedRoute(true);
         } else {
+            // route by sql query root parent's data node
+            final FetchStoreNodeOfChildTableHandler fetchHandler = new FetchStoreNodeOfChildTableHandler(tc, schema.getName(), sc.getSession2());
+            if (fetchHandler.loadFromCache(Collections.singletonList(joinKeyVal))) {
+                RouterUtil.routeToSingleNode(rrs, fetchHandler.getDataNodes().get(joinKeyVal));
+                return;
+            }
             rrs.setFinishedExecute(true);
-            DbleServer.getInstance().getComplexQueryExecutor().execute(new Runnable() {
-                //get child result will be blocked, so use ComplexQueryExecutor
+            fetchHandler.execute(new SQLQueryResultListener<Map<String, String>>() {
                 @Override
-                public void run() {
-                    // route by sql query root parent's data node
-                    String findRootTBSql = tc.getLocateRTableKeySql().toLowerCase() + joinKeyVal;
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("to find root parent's node sql :" + findRootTBSql);
-                    }
-                    FetchStoreNodeOfChildTableHandler fetchHandler = new FetchStoreNodeOfChildTableHandler(findRootTBSql, sc.getSession2());
-                    String dn = fetchHandler.execute(schema.getName(), tc.getRootParent().getDataNodes());
+                public void onResult(Map<String, String> result) {
+                    String dn = result.get(joinKeyVal);
                     if (dn == null) {
                         sc.writeErrMessage(ErrorCode.ER_UNKNOWN_ERROR, "can't find (root) parent sharding node for sql:" + sql);
                         return;
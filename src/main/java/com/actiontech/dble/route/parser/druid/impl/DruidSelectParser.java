@@ -44,6 +44,8 @@ import java.util.*;
 
 public class DruidSelectParser extends DefaultDruidParser {
     private static HashSet<String> aggregateSet = new HashSet<>(16, 1);
+    /* false if routing in the reactor thread, which must not wait for the meta lock of ddl */
+    private boolean canWaitMeta = true;
 
     static {
         //https://dev.mysql.com/doc/refman/5.7/en/group-by-functions.html
@@ -57,6 +59,7 @@ public class DruidSelectParser extends DefaultDruidParser {
     @Override
     public SchemaConfig visitorParse(SchemaConfig schema, RouteResultset rrs, SQLStatement stmt,
                                      ServerSchemaStatVisitor visitor, ServerConnection sc) throws SQLException {
+        canWaitMeta = sc == null || !sc.isDirectExecuting();
         SQLSelectStatement selectStmt = (SQLSelectStatement) stmt;
         SQLSelectQuery sqlSelectQuery = selectStmt.getSelect().getQuery();
         String schemaName = schema == null ? null : schema.getName();
@@ -105,7 +108,7 @@ public class DruidSelectParser extends DefaultDruidParser {
                 rrs.setStatement(RouterUtil.removeSchema(rrs.getStatement(), schemaInfo.getSchema()));
                 schema = schemaInfo.getSchemaConfig();
 
-                if (DbleServer.getInstance().getTmManager().getSyncView(schema.getName(), schemaInfo.getTable()) != null) {
+                if (DbleServer.getInstance().getTmManager().getSyncView(schema.getName(), schemaInfo.getTable(), canWaitMeta) != null) {
                     rrs.setNeedOptimizer(true);
                     rrs.setSqlStatement(selectStmt);
                     return schema;
@@ -217,7 +220,7 @@ public class DruidSelectParser extends DefaultDruidParser {
                     addToAliaColumn(aliaColumns, selectItem);
                 }
             } else if (itemExpr instanceof SQLAllColumnExpr) {
-                StructureMeta.TableMeta tbMeta = DbleServer.getInstance().getTmManager().getSyncTableMeta(schema.getName(), tc.getName());
+                StructureMeta.TableMeta tbMeta = DbleServer.getInstance().getTmManager().getSyncTableMeta(schema.getName(), tc.getName(), canWaitMeta);
                 if (tbMeta == null) {
                     String msg = "Meta data of table '" + schema.getName() + "." + tc.getName() + "' doesn't exist";
                     LOGGER.info(msg);
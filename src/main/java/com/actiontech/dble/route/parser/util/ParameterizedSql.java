@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.parser.util;
+
+import com.alibaba.druid.sql.dialect.mysql.parser.MySqlLexer;
+import com.alibaba.druid.sql.parser.Lexer;
+import com.alibaba.druid.sql.parser.Token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the shape of a select: the literals are replaced by placeholders, so the statements which
+ * differ only in literal values have the same template.
+ * only the lexer is used, it is much cheaper than parsing the statement.
+ * <p>
+ * besides the template, it records whether the select is a single table select whose where is
+ * a conjunction at top level, and which column each literal is compared with by "column = literal"
+ * in the conjunction. the literals after limit are kept in the template, they are not parameters.
+ * <p>
+ * the parameter markers of a prepared statement are taken as literals whose values are bound later,
+ * so that the parameter which decides the value of a column can be found.
+ */
+public final class ParameterizedSql {
+    private static final String PLACEHOLDER = "?";
+    private static final String CHARS_PLACEHOLDER = "'?'";
+
+    private final String template;
+    private final List<String> literals;
+    /* upper case column the literal is compared with, null if not a "column = literal" in where */
+    private final List<String> literalColumns;
+    /* the parameter index of each literal, -1 if the literal is not a parameter marker */
+    private final List<Integer> literalParams;
+    /* the positions of the parameter markers in the statement */
+    private final int[] paramPositions;
+    /* <upper case identifier, count> of the identifiers in where */
+    private final Map<String, Integer> whereIdentifiers;
+    private final boolean simpleSelect;
+
+    private ParameterizedSql(String template, List<String> literals, List<String> literalColumns, List<Integer> literalParams,
+                             int[] paramPositions, Map<String, Integer> whereIdentifiers, boolean simpleSelect) {
+        this.template = template;
+        this.literals = literals;
+        this.literalColumns = literalColumns;
+        this.literalParams = literalParams;
+        this.paramPositions = paramPositions;
+        this.whereIdentifiers = whereIdentifiers;
+        this.simpleSelect = simpleSelect;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    /**
+     * the literal which the column is compared with, the column must appear only once in where,
+     * so the value of the column is decided by this literal only
+     *
+     * @param column upper case column
+     * @return index of the literal, -1 if not found
+     */
+    public int getColumnLiteral(String column) {
+        if (!simpleSelect || column == null) {
+            return -1;
+        }
+        Integer count = whereIdentifiers.get(column);
+        if (count == null || count != 1) {
+            return -1;
+        }
+        return literalColumns.indexOf(column);
+    }
+
+    public int[] getParamPositions() {
+        return paramPositions;
+    }
+
+    /**
+     * @return whether any parameter may decide the value of a column
+     */
+    public boolean hasColumnParam() {
+        if (!simpleSelect) {
+            return false;
+        }
+        for (int i = 0; i < literalParams.size(); i++) {
+            if (literalParams.get(i) >= 0 && literalColumns.get(i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * the parameter which the column is compared with, see {@link #getColumnLiteral(String)}
+     *
+     * @param column upper case column
+     * @return index of the parameter, -1 if not found
+     */
+    public int getColumnParam(String column) {
+        int index = getColumnLiteral(column);
+        return index < 0 ? -1 : literalParams.get(index);
+    }
+
+    /**
+     * @param sql
+     * @return null if the sql can not be parameterized
+     */
+    public static ParameterizedSql parameterize(String sql) {
+        return doParameterize(sql, false);
+    }
+
+    /**
+     * @param sql the statement of COM_STMT_PREPARE
+     * @return null if the sql can not be parameterized
+     */
+    public static ParameterizedSql parameterizePrepared(String sql) {
+        return doParameterize(sql, true);
+    }
+
+    private static ParameterizedSql doParameterize(String sql, boolean prepared) {
+        try {
+            return new Parameterizer(sql, prepared).parameterize();
+        } catch (RuntimeException e) {
+            // leave the error to the parser
+            return null;
+        }
+    }
+
+    private static String normalizeIdentifier(String identifier) {
+        String name = identifier;
+        if (name.length() > 1 && name.charAt(0) == '`' && name.charAt(name.length() - 1) == '`') {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toUpperCase();
+    }
+
+    private static final class Parameterizer {
+        private final String sql;
+        private final boolean prepared;
+        private final Lexer lexer;
+        private final StringBuilder template;
+        private final List<String> literals = new ArrayList<>();
+        private final List<String> literalColumns = new ArrayList<>();
+        private final List<Integer> literalParams = new ArrayList<>();
+        private final List<Integer> paramPositions = new ArrayList<>();
+        private final Map<String, Integer> whereIdentifiers = new HashMap<>();
+        /* the last 5 tokens and identifiers before current token, index 0 is the nearest */
+        private final Token[] prevTokens = new Token[5];
+        private final String[] prevIdentifiers = new String[5];
+        private int copiedPos = 0;
+        private int prevEndPos = 0;
+        private int depth = 0;
+        private int selectCount = 0;
+        private boolean simpleSelect = true;
+        private boolean inFrom = false;
+        private List<Token> fromTokens = new ArrayList<>();
+        private boolean inWhere = false;
+        private boolean afterLimit = false;
+        /* the column of the last literal, which is confirmed by the next token */
+        private String pendingColumn = null;
+
+        Parameterizer(String sql, boolean prepared) {
+            this.sql = sql;
+            this.prepared = prepared;
+            this.lexer = new MySqlLexer(sql);
+            this.template = new StringBuilder(sql.length());
+        }
+
+        ParameterizedSql parameterize() {
+            for (lexer.nextToken(); ; lexer.nextToken()) {
+                Token token = lexer.token();
+                if (token == Token.ERROR) {
+                    return null;
+                }
+                confirmPendingColumn(token);
+                visit(token);
+                if (token == Token.EOF) {
+                    break;
+                }
+                shift(token);
+                prevEndPos = lexer.pos();
+            }
+            if (selectCount != 1 || !isSingleTable()) {
+                simpleSelect = false;
+            }
+            template.append(sql, copiedPos, sql.length());
+            int[] positions = new int[paramPositions.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = paramPositions.get(i);
+            }
+            return new ParameterizedSql(template.toString(), literals, literalColumns, literalParams, positions,
+                    whereIdentifiers, simpleSelect);
+        }
+
+        private void visit(Token token) {
+            switch (token) {
+                case SELECT:
+                    selectCount++;
+                    break;
+                case FROM:
+                    inFrom = depth == 0 && selectCount == 1;
+                    break;
+                case WHERE:
+                    inFrom = false;
+                    inWhere = depth == 0;
+                    break;
+                case LIMIT:
+                    inFrom = false;
+                    inWhere = false;
+                    afterLimit = true;
+                    break;
+                case GROUP:
+                case ORDER:
+                case HAVING:
+                    inFrom = false;
+                    inWhere = false;
+                    break;
+                case LPAREN:
+                    depth++;
+                    break;
+                case RPAREN:
+                    depth--;
+                    break;
+                case JOIN:
+                case UNION:
+                case OR:
+                case XOR:
+                case NOT:
+                case BANG:
+                case BARBAR:
+                case BETWEEN:
+                case CASE:
+                case FOR:
+                case LOCK:
+                case INTO:
+                    simpleSelect = false;
+                    break;
+                case QUES:
+                    visitParam();
+                    break;
+                case IDENTIFIER:
+                    if (inWhere) {
+                        countWhereIdentifier(normalizeIdentifier(lexer.stringVal()));
+                    }
+                    break;
+                case LITERAL_INT:
+                case LITERAL_FLOAT:
+                case LITERAL_CHARS:
+                    if (!afterLimit) {
+                        addLiteral(token);
+                    }
+                    break;
+                default:
+                    // a column may have the same name as a keyword
+                    if (inWhere && token.name != null && Character.isLetter(token.name.charAt(0))) {
+                        countWhereIdentifier(token.name.toUpperCase());
+                    }
+                    break;
+            }
+            if (inFrom && token != Token.FROM && token != Token.EOF) {
+                fromTokens.add(token);
+            }
+        }
+
+        private void visitParam() {
+            // the limit of the route can not be bound later
+            if (!prepared || afterLimit) {
+                simpleSelect = false;
+            }
+            if (prepared) {
+                paramPositions.add(lexer.pos() - 1);
+                if (!afterLimit) {
+                    addLiteral(Token.QUES);
+                }
+            }
+        }
+
+        private void countWhereIdentifier(String name) {
+            Integer count = whereIdentifiers.get(name);
+            whereIdentifiers.put(name, count == null ? 1 : count + 1);
+        }
+
+        private void addLiteral(Token token) {
+            int start = prevEndPos;
+            while (start < sql.length() && ParseUtil.isSpace(sql.charAt(start))) {
+                start++;
+            }
+            template.append(sql, copiedPos, start);
+            template.append(token == Token.LITERAL_CHARS ? CHARS_PLACEHOLDER : PLACEHOLDER);
+            copiedPos = lexer.pos();
+            String value;
+            if (token == Token.QUES) {
+                value = null;
+            } else if (token == Token.LITERAL_INT) {
+                value = lexer.integerValue().toString();
+            } else if (token == Token.LITERAL_FLOAT) {
+                value = lexer.decimalValue().toString();
+            } else {
+                value = lexer.stringVal();
+            }
+            literals.add(value);
+            literalColumns.add(null);
+            literalParams.add(token == Token.QUES ? paramPositions.size() - 1 : -1);
+            if (token != Token.LITERAL_FLOAT && inWhere && depth == 0) {
+                pendingColumn = getComparedColumn();
+            }
+        }
+
+        /**
+         * [WHERE|AND] [qualifier.]column = literal
+         */
+        private String getComparedColumn() {
+            if (prevTokens[0] != Token.EQ || prevTokens[1] != Token.IDENTIFIER) {
+                return null;
+            }
+            if (isConjunctionStart(prevTokens[2])) {
+                return normalizeIdentifier(prevIdentifiers[1]);
+            }
+            if (prevTokens[2] == Token.DOT && prevTokens[3] == Token.IDENTIFIER && isConjunctionStart(prevTokens[4])) {
+                return normalizeIdentifier(prevIdentifiers[1]);
+            }
+            return null;
+        }
+
+        private boolean isConjunctionStart(Token token) {
+            return token == Token.WHERE || token == Token.AND;
+        }
+
+        private void confirmPendingColumn(Token next) {
+            if (pendingColumn == null) {
+                return;
+            }
+            switch (next) {
+                case AND:
+                case EOF:
+                case SEMI:
+                case LIMIT:
+                case GROUP:
+                case ORDER:
+                case HAVING:
+                    literalColumns.set(literalColumns.size() - 1, pendingColumn);
+                    break;
+                default:
+                    break;
+            }
+            pendingColumn = null;
+        }
+
+        /**
+         * table [AS] [alias] or schema.table [AS] [alias]
+         */
+        private boolean isSingleTable() {
+            int index = 0;
+            if (index >= fromTokens.size() || fromTokens.get(index++) != Token.IDENTIFIER) {
+                return false;
+            }
+            if (index < fromTokens.size() && fromTokens.get(index) == Token.DOT) {
+                index++;
+                if (index >= fromTokens.size() || fromTokens.get(index++) != Token.IDENTIFIER) {
+                    return false;
+                }
+            }
+            if (index < fromTokens.size() && fromTokens.get(index) == Token.AS) {
+                index++;
+            }
+            if (index < fromTokens.size() && fromTokens.get(index) == Token.IDENTIFIER) {
+                index++;
+            }
+            return index == fromTokens.size();
+        }
+
+        private void shift(Token token) {
+            for (int i = prevTokens.length - 1; i > 0; i--) {
+                prevTokens[i] = prevTokens[i - 1];
+                prevIdentifiers[i] = prevIdentifiers[i - 1];
+            }
+            prevTokens[0] = token;
+            prevIdentifiers[0] = token == Token.IDENTIFIER ? lexer.stringVal() : null;
+        }
+    }
+}
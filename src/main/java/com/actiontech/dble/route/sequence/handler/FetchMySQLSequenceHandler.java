@@ -9,6 +9,7 @@ import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.datasource.PhysicalDBNode;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.DelegateResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.ResponseHandler;
 import com.actiontech.dble.config.ServerConfig;
 import com.actiontech.dble.log.alarm.AlarmCode;
@@ -28,9 +29,22 @@ import java.util.List;
 public class FetchMySQLSequenceHandler implements ResponseHandler {
     protected static final Logger LOGGER = LoggerFactory.getLogger(FetchMySQLSequenceHandler.class);
 
-    public void execute(SequenceVal seqVal) {
+    public void execute(final SequenceVal seqVal) {
         ServerConfig conf = DbleServer.getInstance().getConfig();
         PhysicalDBNode mysqlDN = conf.getDataNodes().get(seqVal.dataNode);
+        ResponseHandler handler = new DelegateResponseHandler(this) {
+            @Override
+            public void connectionError(Throwable e, BackendConnection conn) {
+                if (conn == null) {
+                    // no connection was got, such as waiting for one timeout
+                    LOGGER.info("get connection err " + e);
+                    IncrSequenceMySQLHandler.LATEST_ERRORS.put(seqVal.seqName, String.valueOf(e.getMessage()));
+                    seqVal.dbfinished = true;
+                } else {
+                    super.connectionError(e, conn);
+                }
+            }
+        };
         try {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("execute in data node " + seqVal.dataNode +
@@ -39,7 +53,7 @@ public class FetchMySQLSequenceHandler implements ResponseHandler {
             // change Select mode to Update mode. Make sure the query send to the write host
             mysqlDN.getConnection(mysqlDN.getDatabase(), true, true,
                     new RouteResultsetNode(seqVal.dataNode, ServerParse.UPDATE,
-                            seqVal.sql), this, seqVal);
+                            seqVal.sql), handler, seqVal);
         } catch (Exception e) {
             LOGGER.info("get connection err " + e);
         }
@@ -63,7 +77,9 @@ public class FetchMySQLSequenceHandler implements ResponseHandler {
 
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
-        ((SequenceVal) conn.getAttachment()).dbfinished = true;
+        if (conn != null) {
+            ((SequenceVal) conn.getAttachment()).dbfinished = true;
+        }
         LOGGER.info("connectionError " + e);
 
     }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.util;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.TableConfig;
+import com.actiontech.dble.route.RouteResultset;
+import com.actiontech.dble.route.RouteResultsetNode;
+import com.actiontech.dble.route.function.AbstractPartitionAlgorithm;
+import com.actiontech.dble.route.parser.druid.DruidShardingParseInfo;
+import com.actiontech.dble.route.parser.druid.sql.visitor.ActionSQLEvalVisitorUtils;
+import com.actiontech.dble.util.StringUtil;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.expr.*;
+import com.alibaba.druid.sql.ast.statement.*;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlDeleteStatement;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlSelectQueryBlock;
+import com.alibaba.druid.util.JdbcConstants;
+
+import java.util.*;
+
+/**
+ * narrow the IN list on the sharding column to the values stored in each route node, so a batch
+ * lookup of n keys over m nodes sends about n/m values to every node instead of all of them.
+ * <p>
+ * only the IN which is the where or one of its top level AND terms is narrowed: the values removed
+ * from the sql of a node can't match any row of the node, whatever the other terms are.
+ * the multi-row insert is split by node in DruidInsertParser already.
+ */
+public final class InListPruner {
+    private InListPruner() {
+    }
+
+    public static void prune(SchemaConfig schema, DruidShardingParseInfo ctx, SQLStatement statement, RouteResultset rrs) {
+        prune(schema, ctx, statement, rrs, DbleServer.getInstance().getSystemVariables().isLowerCaseTableNames());
+    }
+
+    static void prune(SchemaConfig schema, DruidShardingParseInfo ctx, SQLStatement statement, RouteResultset rrs,
+                      boolean isLowerCase) {
+        RouteResultsetNode[] nodes = rrs.getNodes();
+        if (schema == null || nodes == null || nodes.length < 2 || ctx.getTables() == null ||
+                ctx.getTables().size() != 1 || rrs.getStatement() == null || rrs.getStatement().startsWith("/*")) {
+            return;
+        }
+        TableConfig tc = schema.getTables().get(ctx.getTables().get(0));
+        if (tc == null || tc.isGlobalTable() || tc.getParentTC() != null || tc.getRule() == null ||
+                tc.getPartitionColumn() == null) {
+            return;
+        }
+        SQLExpr where = getWhere(statement);
+        SQLInListExpr inList = where == null ? null : findInList(where, tc.getPartitionColumn());
+        if (inList == null) {
+            return;
+        }
+        Map<String, List<SQLExpr>> nodeValues = groupByNode(inList, tc.getRule().getRuleAlgorithm(), tc.getDataNodes());
+        if (nodeValues == null) {
+            return;
+        }
+        List<SQLExpr> allValues = new ArrayList<>(inList.getTargetList());
+        try {
+            for (RouteResultsetNode node : nodes) {
+                List<SQLExpr> values = nodeValues.get(node.getName());
+                if (values == null || values.size() == allValues.size()) {
+                    continue;
+                }
+                inList.setTargetList(values);
+                node.setStatement(RouterUtil.removeSchema(statement.toString(), schema.getName(), isLowerCase));
+            }
+        } finally {
+            inList.setTargetList(allValues);
+        }
+    }
+
+    /**
+     * @return the where of the single table statement, null if the statement is not supported
+     */
+    static SQLExpr getWhere(SQLStatement statement) {
+        if (statement instanceof SQLSelectStatement) {
+            SQLSelectQuery query = ((SQLSelectStatement) statement).getSelect().getQuery();
+            if (query instanceof MySqlSelectQueryBlock &&
+                    ((MySqlSelectQueryBlock) query).getFrom() instanceof SQLExprTableSource) {
+                return ((MySqlSelectQueryBlock) query).getWhere();
+            }
+        } else if (statement instanceof MySqlDeleteStatement) {
+            MySqlDeleteStatement delete = (MySqlDeleteStatement) statement;
+            if (delete.getTableSource() instanceof SQLExprTableSource && delete.getFrom() == null &&
+                    delete.getUsing() == null) {
+                return delete.getWhere();
+            }
+        } else if (statement instanceof SQLUpdateStatement) {
+            SQLUpdateStatement update = (SQLUpdateStatement) statement;
+            if (update.getTableSource() instanceof SQLExprTableSource) {
+                return update.getWhere();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the IN of the column which is the where or one of its top level AND terms
+     */
+    static SQLInListExpr findInList(SQLExpr where, String column) {
+        if (where instanceof SQLBinaryOpExpr) {
+            SQLBinaryOpExpr and = (SQLBinaryOpExpr) where;
+            if (and.getOperator() != SQLBinaryOperator.BooleanAnd) {
+                return null;
+            }
+            SQLInListExpr inList = findInList(and.getLeft(), column);
+            return inList != null ? inList : findInList(and.getRight(), column);
+        }
+        if (where instanceof SQLInListExpr) {
+            SQLInListExpr inList = (SQLInListExpr) where;
+            if (!inList.isNot() && isColumn(inList.getExpr(), column)) {
+                return inList;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isColumn(SQLExpr expr, String column) {
+        String name;
+        if (expr instanceof SQLIdentifierExpr) {
+            name = ((SQLIdentifierExpr) expr).getName();
+        } else if (expr instanceof SQLPropertyExpr) {
+            name = ((SQLPropertyExpr) expr).getName();
+        } else {
+            return false;
+        }
+        return StringUtil.removeBackQuote(name).equalsIgnoreCase(column);
+    }
+
+    /**
+     * @return the values of every data node in the order of the IN, null if some value is not literal.
+     * NULL is left out, it never matches in a top level term of where
+     */
+    static Map<String, List<SQLExpr>> groupByNode(SQLInListExpr inList, AbstractPartitionAlgorithm algorithm,
+                                                  List<String> dataNodes) {
+        List<SQLExpr> targets = new ArrayList<>(inList.getTargetList().size());
+        List<String> values = new ArrayList<>(inList.getTargetList().size());
+        for (SQLExpr target : inList.getTargetList()) {
+            if (!(target instanceof SQLValuableExpr)) {
+                return null;
+            } else if (target instanceof SQLNullExpr) {
+                continue;
+            }
+            Object value = ActionSQLEvalVisitorUtils.eval(JdbcConstants.MYSQL, target, Collections.<Object>emptyList(), false);
+            if (value == null) {
+                return null;
+            }
+            targets.add(target);
+            values.add(value.toString());
+        }
+        int[] nodeIndexes = new int[values.size()];
+        algorithm.calculate(values.toArray(new String[values.size()]), nodeIndexes);
+        Map<String, List<SQLExpr>> nodeValues = new HashMap<>();
+        for (int i = 0; i < nodeIndexes.length; i++) {
+            if (nodeIndexes[i] < 0) {
+                return null;
+            }
+            String dataNode = dataNodes.get(nodeIndexes[i]);
+            List<SQLExpr> nodeTargets = nodeValues.get(dataNode);
+            if (nodeTargets == null) {
+                nodeTargets = new ArrayList<>();
+                nodeValues.put(dataNode, nodeTargets);
+            }
+            nodeTargets.add(targets.get(i));
+        }
+        return nodeValues;
+    }
+}
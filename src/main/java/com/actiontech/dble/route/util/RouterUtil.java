@@ -116,11 +116,16 @@ public final class RouterUtil {
 
     public static RouteResultset routeFromParser(DruidParser druidParser, SchemaConfig schema, RouteResultset rrs, SQLStatement statement,
                                                  String originSql, LayerCachePool cachePool, ServerSchemaStatVisitor visitor, ServerConnection sc) throws SQLException {
+        if (DbleServer.getInstance().getConfig().getSystem().getUseSqlStat() == 1) {
+            // the sql stat finds the tables from it instead of parsing the sql again
+            rrs.setStatStatement(statement);
+        }
         schema = druidParser.parser(schema, rrs, statement, originSql, cachePool, visitor, sc);
         if (rrs.isFinishedExecute()) {
             return null;
         }
         if (rrs.isFinishedRoute()) {
+            InListPruner.prune(schema, druidParser.getCtx(), statement, rrs);
             return rrs;
         }
 
@@ -161,8 +166,7 @@ public final class RouterUtil {
             i++;
         }
         rrs.setNodes(nodes);
-
-
+        InListPruner.prune(schema, druidParser.getCtx(), statement, rrs);
         return rrs;
     }
 
@@ -379,17 +383,30 @@ public final class RouterUtil {
         String col = tc.getRule().getColumn();
         RuleConfig rule = tc.getRule();
         AbstractPartitionAlgorithm algorithm = rule.getRuleAlgorithm();
+        List<ColumnRoutePair> valuePairs = new ArrayList<>(colRoutePairSet.size());
         for (ColumnRoutePair colPair : colRoutePairSet) {
             if (colPair.colValue != null) {
-                Integer nodeIndex = algorithm.calculate(colPair.colValue);
-                if (nodeIndex == null) {
-                    throw new IllegalArgumentException("can't find datanode for sharding column:" + col + " val:" + colPair.colValue);
-                } else {
-                    String dataNode = tc.getDataNodes().get(nodeIndex);
-                    routeNodeSet.add(dataNode);
-                    colPair.setNodeId(nodeIndex);
+                valuePairs.add(colPair);
+            }
+        }
+        if (!valuePairs.isEmpty()) {
+            // the IN list is calculated in one batch
+            String[] values = new String[valuePairs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = valuePairs.get(i).colValue;
+            }
+            int[] nodeIndexes = new int[values.length];
+            algorithm.calculate(values, nodeIndexes);
+            for (int i = 0; i < values.length; i++) {
+                if (nodeIndexes[i] < 0) {
+                    throw new IllegalArgumentException("can't find datanode for sharding column:" + col + " val:" + values[i]);
                 }
-            } else if (colPair.rangeValue != null) {
+                routeNodeSet.add(tc.getDataNodes().get(nodeIndexes[i]));
+                valuePairs.get(i).setNodeId(nodeIndexes[i]);
+            }
+        }
+        for (ColumnRoutePair colPair : colRoutePairSet) {
+            if (colPair.colValue == null && colPair.rangeValue != null) {
                 Integer[] nodeRange = algorithm.calculateRange(String.valueOf(colPair.rangeValue.getBeginValue()), String.valueOf(colPair.rangeValue.getEndValue()));
                 if (nodeRange != null) {
                     /**
@@ -134,7 +134,27 @@ public class NonBlockingSession implements Session {
     }
 
     @Override
-    public void execute(RouteResultset rrs) {
+    public void execute(final RouteResultset rrs) {
+        RouteResultsetNode[] nodes = rrs.getNodes();
+        if (source.isDirectExecuting() && (rrs.isNeedOptimizer() || nodes == null || nodes.length != 1)) {
+            // only the single node query is executed in the reactor thread
+            source.getProcessor().getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        doExecute(rrs);
+                    } catch (Exception e) {
+                        LOGGER.info(String.valueOf(source) + rrs, e);
+                        source.writeErrMessage(ErrorCode.ER_UNKNOWN_ERROR, e.toString());
+                    }
+                }
+            });
+            return;
+        }
+        doExecute(rrs);
+    }
+
+    private void doExecute(RouteResultset rrs) {
         // clear prev execute resources
         clearHandlesResources();
         if (LOGGER.isDebugEnabled()) {
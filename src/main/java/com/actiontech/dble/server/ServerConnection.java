@@ -14,7 +14,9 @@ import com.actiontech.dble.config.model.SchemaConfig;
 import com.actiontech.dble.config.model.TableConfig;
 import com.actiontech.dble.config.model.UserConfig;
 import com.actiontech.dble.log.transaction.TxnLogHelper;
+import com.actiontech.dble.meta.MetaLockedException;
 import com.actiontech.dble.net.FrontendConnection;
+import com.actiontech.dble.net.mysql.MySQLPacket;
 import com.actiontech.dble.route.RouteResultset;
 import com.actiontech.dble.route.parser.util.Pair;
 import com.actiontech.dble.route.util.RouterUtil;
@@ -46,6 +48,7 @@ import java.util.concurrent.locks.LockSupport;
  */
 public class ServerConnection extends FrontendConnection {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerConnection.class);
+    private static final byte[] SELECT_BYTES = {'S', 'E', 'L', 'E', 'C', 'T'};
     private static final long AUTH_TIMEOUT = 15 * 1000L;
 
     private volatile int txIsolation;
@@ -227,6 +230,34 @@ public class ServerConnection extends FrontendConnection {
         Heartbeat.response(this, data);
     }
 
+    /**
+     * only the select is executed in the reactor thread, and not while some ddl holds the meta lock
+     * which the routing may wait for. the plan which is not a single node one is passed
+     * to the executor by the session after routing
+     */
+    @Override
+    public boolean isDirectExecutable(byte[] data) {
+        return data.length > 5 && data[4] == MySQLPacket.COM_QUERY && isSelect(data, 5) &&
+                DbleServer.getInstance().getTmManager().getMetaCount() == 0;
+    }
+
+    private static boolean isSelect(byte[] data, int offset) {
+        int i = offset;
+        while (i < data.length && (data[i] == ' ' || data[i] == '\t' || data[i] == '\r' || data[i] == '\n')) {
+            i++;
+        }
+        if (data.length < i + SELECT_BYTES.length + 1) {
+            return false;
+        }
+        for (byte b : SELECT_BYTES) {
+            if ((data[i++] & 0xDF) != b) {
+                return false;
+            }
+        }
+        byte next = data[i];
+        return !(Character.isLetterOrDigit(next) || next == '_' || next == '$' || next < 0);
+    }
+
     public void execute(String sql, int type) {
         if (this.isClosed()) {
             LOGGER.info("ignore execute ,server connection is closed " + this);
@@ -251,6 +282,30 @@ public class ServerConnection extends FrontendConnection {
 
     }
 
+    /**
+     * execute the select which is routed already, such as the execution of a prepared statement
+     * routed by its route template, the parsing and routing of query are skipped
+     */
+    public void executeRouted(String sql, RouteResultset rrs) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.valueOf(this) + " " + sql);
+        }
+        this.setExecuteSql(sql);
+        if (!privileges.checkFirewallSQLPolicy(user, sql)) {
+            writeErrMessage(ErrorCode.ERR_WRONG_USED, "The statement is unsafe SQL, reject for user '" + user + "'");
+            return;
+        }
+        if (this.isClosed()) {
+            LOGGER.info("ignore execute ,server connection is closed " + this);
+            return;
+        }
+        if (txInterrupted) {
+            writeErrMessage(ErrorCode.ER_YES, txInterruptMsg);
+            return;
+        }
+        session.execute(rrs);
+    }
+
     public RouteResultset routeSQL(String sql, int type) {
         String db = this.schema;
         if (db == null) {
@@ -300,7 +355,7 @@ public class ServerConnection extends FrontendConnection {
         }
     }
 
-    private void routeEndExecuteSQL(String sql, int type, SchemaConfig schema) {
+    private void routeEndExecuteSQL(final String sql, final int type, final SchemaConfig schema) {
         RouteResultset rrs;
         try {
             rrs = DbleServer.getInstance().getRouterService().route(schema, type, sql, this);
@@ -316,6 +371,15 @@ public class ServerConnection extends FrontendConnection {
                     throw new SQLNonTransientException(msg);
                 }
             }
+        } catch (MetaLockedException e) {
+            // a ddl started while routing in the reactor thread, route again in the executor which can wait for it
+            getProcessor().getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    routeEndExecuteSQL(sql, type, schema);
+                }
+            });
+            return;
         } catch (Exception e) {
             executeException(e, sql);
             return;
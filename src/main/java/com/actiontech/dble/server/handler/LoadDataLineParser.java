@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.server.handler;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * split the data of load data into lines incrementally, the data fed at a time may end in the middle of a line.
+ * the terminators after the escape char or inside an enclosed field are not recognized, as mysql does.
+ * the value of one field can be picked out of each line for routing.
+ * the lines split by one feed are handed over together, so that their values can be routed in one batch.
+ */
+public class LoadDataLineParser {
+    private final char[] fieldTerminator;
+    private final char[] lineTerminator;
+    private final boolean hasEnclose;
+    private final char enclose;
+    private final boolean hasEscape;
+    private final char escape;
+    private final int valueIndex;
+
+    private char[] buf = new char[8192];
+    private int count = 0;
+    private int pos = 0;
+
+    /* the state of the current line */
+    private int lineStart = 0;
+    private int fieldStart = 0;
+    private int fieldNo = 0;
+    private boolean inEnclose = false;
+    private int valueStart = -1;
+    private int valueEnd = -1;
+
+    /* the lines split by the current feed */
+    private int[] lineStarts = new int[64];
+    private int[] lineEnds = new int[64];
+    private String[] lineValues = new String[64];
+    private int lineCount = 0;
+
+    /**
+     * @param valueIndex the index of the field whose value is passed to LineHandler, -1 for none
+     */
+    public LoadDataLineParser(String fieldTerminatedBy, String lineTerminatedBy, String enclose, String escape, int valueIndex) {
+        this.fieldTerminator = fieldTerminatedBy.toCharArray();
+        this.lineTerminator = lineTerminatedBy.toCharArray();
+        this.hasEnclose = enclose != null && enclose.length() > 0;
+        this.enclose = hasEnclose ? enclose.charAt(0) : 0;
+        this.hasEscape = escape != null && escape.length() > 0;
+        this.escape = hasEscape ? escape.charAt(0) : 0;
+        this.valueIndex = valueIndex;
+    }
+
+    public void feed(CharBuffer chars, LineHandler handler) {
+        int len = chars.remaining();
+        if (count + len > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + len));
+        }
+        chars.get(buf, count, len);
+        count += len;
+        scan(handler, false);
+        flushLines(handler);
+        compact();
+    }
+
+    /**
+     * the data is over, the rest is the last line even if it is not terminated
+     */
+    public void finish(LineHandler handler) {
+        scan(handler, true);
+        if (lineStart < count) {
+            endLine(count);
+        }
+        flushLines(handler);
+        compact();
+    }
+
+    private void scan(LineHandler handler, boolean last) {
+        while (pos < count) {
+            char c = buf[pos];
+            int step;
+            if (hasEscape && c == escape) {
+                step = pos + 1 < count || last ? 2 : -1;
+            } else if (inEnclose) {
+                step = scanEnclosed(c, last);
+            } else if (hasEnclose && c == enclose && pos == fieldStart) {
+                inEnclose = true;
+                step = 1;
+            } else {
+                step = scanTerminator(handler, last);
+            }
+            if (step < 0) {
+                // wait for more data to decide
+                return;
+            }
+            pos = Math.min(pos + step, count);
+        }
+    }
+
+    /**
+     * the enclose char ends the field only if it is followed by a terminator, a doubled one is a literal
+     */
+    private int scanEnclosed(char c, boolean last) {
+        if (c != enclose) {
+            return 1;
+        }
+        if (pos + 1 >= count) {
+            if (last) {
+                inEnclose = false;
+                return 1;
+            }
+            return -1;
+        }
+        if (buf[pos + 1] == enclose) {
+            return 2;
+        }
+        int field = match(fieldTerminator, pos + 1, last);
+        int line = match(lineTerminator, pos + 1, last);
+        if (field < 0 || line < 0) {
+            return -1;
+        }
+        if (field > 0 || line > 0) {
+            inEnclose = false;
+        }
+        return 1;
+    }
+
+    private int scanTerminator(LineHandler handler, boolean last) {
+        int matched = match(fieldTerminator, pos, last);
+        if (matched > 0) {
+            endField(pos);
+            fieldNo++;
+            fieldStart = pos + matched;
+            return matched;
+        }
+        if (matched < 0) {
+            return -1;
+        }
+        matched = match(lineTerminator, pos, last);
+        if (matched > 0) {
+            endLine(pos);
+            lineStart = pos + matched;
+            fieldStart = lineStart;
+            return matched;
+        }
+        return matched < 0 ? -1 : 1;
+    }
+
+    /**
+     * @return the length of the terminator if matched, 0 if not, -1 if the data is not enough to decide
+     */
+    private int match(char[] terminator, int at, boolean last) {
+        for (int i = 0; i < terminator.length; i++) {
+            if (at + i >= count) {
+                return last ? 0 : -1;
+            }
+            if (buf[at + i] != terminator[i]) {
+                return 0;
+            }
+        }
+        return terminator.length;
+    }
+
+    private void endField(int end) {
+        if (fieldNo == valueIndex) {
+            valueStart = fieldStart;
+            valueEnd = end;
+        }
+    }
+
+    private void endLine(int end) {
+        endField(end);
+        // empty lines are skipped
+        if (end > lineStart) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                lineValues = Arrays.copyOf(lineValues, lineCount * 2);
+            }
+            lineStarts[lineCount] = lineStart;
+            lineEnds[lineCount] = end;
+            lineValues[lineCount] = valueStart < 0 ? null : parseValue(valueStart, valueEnd);
+            lineCount++;
+        }
+        fieldNo = 0;
+        inEnclose = false;
+        valueStart = -1;
+        valueEnd = -1;
+    }
+
+    /**
+     * remove the enclose chars and the escape chars
+     *
+     * @return null for \N
+     */
+    private String parseValue(int start, int end) {
+        if (hasEnclose && end - start >= 2 && buf[start] == enclose && buf[end - 1] == enclose) {
+            start++;
+            end--;
+        } else if (hasEscape && end - start == 2 && buf[start] == escape && buf[start + 1] == 'N') {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = buf[i];
+            if (hasEscape && c == escape && i + 1 < end) {
+                sb.append(unescape(buf[++i]));
+            } else if (hasEnclose && c == enclose && i + 1 < end && buf[i + 1] == enclose) {
+                sb.append(c);
+                i++;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case '0':
+                return '\0';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'Z':
+                return (char) 26;
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * hand the lines over before compact moves them
+     */
+    private void flushLines(LineHandler handler) {
+        if (lineCount == 0) {
+            return;
+        }
+        handler.onLines(buf, lineStarts, lineEnds, lineValues, lineCount);
+        Arrays.fill(lineValues, 0, lineCount, null);
+        lineCount = 0;
+    }
+
+    private void compact() {
+        if (lineStart == 0) {
+            return;
+        }
+        System.arraycopy(buf, lineStart, buf, 0, count - lineStart);
+        count -= lineStart;
+        pos -= lineStart;
+        fieldStart -= lineStart;
+        if (valueStart >= 0) {
+            valueStart -= lineStart;
+            valueEnd -= lineStart;
+        }
+        lineStart = 0;
+    }
+
+    public interface LineHandler {
+        /**
+         * the arrays are reused by the parser, they are valid only during the call
+         *
+         * @param chars  the i-th line is chars[starts[i], ends[i]), without the line terminator
+         * @param values the value of the field at valueIndex of each line, null if it is \N or missing
+         * @param count  the count of the lines, the arrays may be longer
+         */
+        void onLines(char[] chars, int[] starts, int[] ends, String[] values, int count);
+    }
+}
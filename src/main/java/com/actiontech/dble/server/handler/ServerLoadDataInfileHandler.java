@@ -6,6 +6,8 @@
 package com.actiontech.dble.server.handler;
 
 import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.CharsetUtil;
+import com.actiontech.dble.backend.mysql.LoadDataStream;
 import com.actiontech.dble.cache.LayerCachePool;
 import com.actiontech.dble.config.ErrorCode;
 import com.actiontech.dble.config.model.SchemaConfig;
@@ -38,9 +40,13 @@ import com.univocity.parsers.csv.CsvParserSettings;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -71,6 +77,28 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
     private LayerCachePool tableId2DataNodeCache;
     private boolean isStartLoadData = false;
 
+    /* the lines are streamed to the data nodes while the client is uploading, null if the load is buffered */
+    private volatile Map<String, LoadDataStream> streams;
+    private LoadDataLineParser lineParser;
+    private CharsetDecoder decoder;
+    private ByteBuffer undecoded;
+    private char[] lineTerminator;
+    private int ignoreNumber;
+    private String streamError;
+    private final AtomicBoolean waitingStreams = new AtomicBoolean(false);
+    private final Runnable streamDrainListener = new Runnable() {
+        @Override
+        public void run() {
+            resumeIfDrained();
+        }
+    };
+    private final LoadDataLineParser.LineHandler lineHandler = new LoadDataLineParser.LineHandler() {
+        @Override
+        public void onLines(char[] chars, int[] starts, int[] ends, String[] values, int count) {
+            streamLines(chars, starts, ends, values, count);
+        }
+    };
+
     public int getPackID() {
         return packID;
     }
@@ -175,6 +203,10 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             filePacket.setFileName(fileName.getBytes());
             filePacket.setPacketId(1);
             filePacket.write(buffer, serverConnection, true);
+            List<String> dataNodes = getStreamDataNodes();
+            if (dataNodes != null) {
+                startStreams(dataNodes);
+            }
         } else {
             if (!new File(fileName).exists()) {
                 serverConnection.writeErrMessage(ErrorCode.ER_FILE_NOT_FOUND, fileName + " is not found!");
@@ -203,12 +235,219 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             ByteArrayInputStream inputStream = new ByteArrayInputStream(data, 0, data.length);
             packet.read(inputStream);
 
-            saveByteOrToFile(packet.getData(), false);
+            if (streams != null) {
+                streamData(packet.getData());
+            } else {
+                saveByteOrToFile(packet.getData(), false);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * the data nodes of the load if every line can be routed without parsing sql, null otherwise
+     */
+    private List<String> getStreamDataNodes() {
+        if (tableConfig == null) {
+            return schema.getDataNode() == null ? null : Collections.singletonList(schema.getDataNode());
+        } else if (tableConfig.isGlobalTable()) {
+            return tableConfig.getDataNodes();
+        } else if (tableConfig.getParentTC() == null && tableConfig.getRule() != null && partitionColumnIndex != -1) {
+            return tableConfig.getDataNodes();
+        }
+        return null;
+    }
+
+    /**
+     * send load data to every data node at once, the backends request the file while the client is uploading
+     */
+    private void startStreams(List<String> dataNodes) {
+        String srcStatement = getLoadStatement();
+        Map<String, LoadDataStream> nodeStreams = new LinkedHashMap<>();
+        RouteResultsetNode[] routeResultsetNodes = new RouteResultsetNode[dataNodes.size()];
+        for (int i = 0; i < routeResultsetNodes.length; i++) {
+            String dataNode = dataNodes.get(i);
+            LoadDataStream stream = new LoadDataStream(loadData.getCharset(), streamDrainListener);
+            nodeStreams.put(dataNode, stream);
+            routeResultsetNodes[i] = buildResultSetNode(dataNode, srcStatement);
+            routeResultsetNodes[i].getLoadData().setStream(stream);
+        }
+        RouteResultset rrs = buildResultSet(srcStatement);
+        rrs.setNodes(routeResultsetNodes);
+
+        boolean isSharding = tableConfig != null && !tableConfig.isGlobalTable();
+        lineParser = new LoadDataLineParser(loadData.getFieldTerminatedBy(), loadData.getLineTerminatedBy(),
+                loadData.getEnclose(), loadData.getEscape(), isSharding ? partitionColumnIndex : -1);
+        lineTerminator = loadData.getLineTerminatedBy().toCharArray();
+        decoder = Charset.forName(CharsetUtil.getJavaCharset(loadData.getCharset())).newDecoder().
+                onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ignoreNumber = getIgnoreNumber();
+        streams = nodeStreams;
+        serverConnection.getSession2().execute(rrs);
+    }
+
+    private void streamData(byte[] data) {
+        if (streamError != null) {
+            // the load has failed, drop the rest of the file
+            return;
+        }
+        lineParser.feed(decode(data, false), lineHandler);
+        waitStreams();
+    }
+
+    private void endStreams() {
+        if (streamError == null) {
+            lineParser.feed(decode(new byte[0], true), lineHandler);
+            lineParser.finish(lineHandler);
+        }
+        if (streamError == null) {
+            for (LoadDataStream stream : streams.values()) {
+                stream.end();
+            }
+        }
+    }
+
+    /**
+     * decode the bytes with the ones left by the last packet, a char may be split into two packets
+     */
+    private CharBuffer decode(byte[] data, boolean endOfInput) {
+        ByteBuffer in;
+        if (undecoded == null) {
+            in = ByteBuffer.wrap(data);
+        } else {
+            in = ByteBuffer.allocate(undecoded.remaining() + data.length);
+            in.put(undecoded).put(data);
+            in.flip();
+        }
+        CharBuffer out = CharBuffer.allocate((int) (in.remaining() * decoder.maxCharsPerByte()) + 2);
+        decoder.decode(in, out, endOfInput);
+        if (endOfInput) {
+            decoder.flush(out);
+        }
+        undecoded = in.hasRemaining() ? in : null;
+        out.flip();
+        return out;
+    }
+
+    private void streamLines(char[] chars, int[] starts, int[] ends, String[] values, int count) {
+        if (streamError != null) {
+            return;
+        }
+        int from = Math.min(ignoreNumber, count);
+        ignoreNumber -= from;
+        if (from == count) {
+            return;
+        }
+        if (tableConfig == null || tableConfig.isGlobalTable()) {
+            for (int i = from; i < count; i++) {
+                for (LoadDataStream stream : streams.values()) {
+                    stream.write(chars, starts[i], ends[i], lineTerminator);
+                }
+            }
+            return;
+        }
+        String[] dataNodes = calculateDataNodes(Arrays.copyOfRange(values, from, count));
+        for (int i = from; i < count; i++) {
+            String dataNode = dataNodes[i - from];
+            if (dataNode == null) {
+                abortStreams("can't find any valid datanode :" + tableName + " -> " + getPartitionColumn() + " -> " + values[i]);
+                return;
+            }
+            streams.get(dataNode).write(chars, starts[i], ends[i], lineTerminator);
+        }
+    }
+
+    /**
+     * the lines of one packet are routed in one batch
+     *
+     * @return the data node of each value, null if no valid data node
+     */
+    private String[] calculateDataNodes(String[] values) {
+        String[] result = new String[values.length];
+        int[] nodeIndexes = new int[values.length];
+        try {
+            tableConfig.getRule().getRuleAlgorithm().calculate(values, nodeIndexes);
+        } catch (RuntimeException e) {
+            // some value is invalid, find it one by one
+            for (int i = 0; i < values.length; i++) {
+                result[i] = calculateDataNode(values[i]);
+            }
+            return result;
+        }
+        List<String> dataNodes = tableConfig.getDataNodes();
+        for (int i = 0; i < values.length; i++) {
+            int nodeIndex = nodeIndexes[i];
+            result[i] = nodeIndex < 0 || nodeIndex >= dataNodes.size() ? null : dataNodes.get(nodeIndex);
+        }
+        return result;
+    }
+
+    private String calculateDataNode(String value) {
+        try {
+            Integer nodeIndex = tableConfig.getRule().getRuleAlgorithm().calculate(value);
+            List<String> dataNodes = tableConfig.getDataNodes();
+            if (nodeIndex == null || nodeIndex < 0 || nodeIndex >= dataNodes.size()) {
+                return null;
+            }
+            return dataNodes.get(nodeIndex);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * the backend connections are closed, so the load fails on every data node and the error is sent by the handler
+     */
+    private void abortStreams(String reason) {
+        streamError = reason;
+        for (LoadDataStream stream : streams.values()) {
+            stream.abort(reason);
+        }
+    }
+
+    /**
+     * stop reading from the client until the backends have taken the queued data
+     */
+    private void waitStreams() {
+        if (waitingStreams.get() || !isStreamFull()) {
+            return;
+        }
+        serverConnection.disableRead(this);
+        waitingStreams.set(true);
+        // the streams may be drained before the flag is set
+        resumeIfDrained();
+    }
+
+    /**
+     * called by the drain listener of the streams, read from the client again once no stream is full
+     */
+    private void resumeIfDrained() {
+        if (waitingStreams.get() && !isStreamFull() && waitingStreams.compareAndSet(true, false)) {
+            serverConnection.enableRead(this);
+        }
+    }
+
+    private boolean isStreamFull() {
+        Map<String, LoadDataStream> nodeStreams = streams;
+        if (nodeStreams == null) {
+            return false;
+        }
+        for (LoadDataStream stream : nodeStreams.values()) {
+            if (stream.isFull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getIgnoreNumber() {
+        if (statement.getIgnoreLinesNumber() != null && !"".equals(statement.getIgnoreLinesNumber().toString())) {
+            return Integer.parseInt(statement.getIgnoreLinesNumber().toString());
+        }
+        return 0;
+    }
+
     private synchronized void saveByteOrToFile(byte[] data, boolean isForce) {
         if (data != null) {
             tempByteBufferSize = tempByteBufferSize + data.length;
@@ -401,31 +640,19 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
 
 
     private RouteResultset buildResultSet(Map<String, LoadData> routeMap) {
-        statement.setLocal(true);
-        SQLLiteralExpr fn = new SQLCharExpr(fileName);    //druid will filter path, reset it now
-        statement.setFileName(fn);
-        //replace IGNORE X LINES in SQL to avoid  IGNORING X LINE in every node.
-        String srcStatement = this.ignoreLinesDelete(statement.toString());
-        RouteResultset rrs = new RouteResultset(srcStatement, ServerParse.LOAD_DATA_INFILE_SQL);
-        rrs.setLoadData(true);
-        rrs.setStatement(srcStatement);
-        rrs.setFinishedRoute(true);
+        String srcStatement = getLoadStatement();
+        RouteResultset rrs = buildResultSet(srcStatement);
         int size = routeMap.size();
         RouteResultsetNode[] routeResultsetNodes = new RouteResultsetNode[size];
         int index = 0;
         for (Map.Entry<String, LoadData> entry : routeMap.entrySet()) {
-            RouteResultsetNode rrNode = new RouteResultsetNode(entry.getKey(), ServerParse.LOAD_DATA_INFILE_SQL, srcStatement);
-            rrNode.setStatement(srcStatement);
-            LoadData newLoadData = new LoadData();
-            ObjectUtil.copyProperties(loadData, newLoadData);
-            newLoadData.setLocal(true);
+            RouteResultsetNode rrNode = buildResultSetNode(entry.getKey(), srcStatement);
             LoadData loadData1 = entry.getValue();
             if (loadData1.getFileName() != null) {
-                newLoadData.setFileName(loadData1.getFileName());
+                rrNode.getLoadData().setFileName(loadData1.getFileName());
             } else {
-                newLoadData.setData(loadData1.getData());
+                rrNode.getLoadData().setData(loadData1.getData());
             }
-            rrNode.setLoadData(newLoadData);
 
             routeResultsetNodes[index] = rrNode;
             index++;
@@ -434,6 +661,32 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
         return rrs;
     }
 
+    private RouteResultset buildResultSet(String srcStatement) {
+        RouteResultset rrs = new RouteResultset(srcStatement, ServerParse.LOAD_DATA_INFILE_SQL);
+        rrs.setLoadData(true);
+        rrs.setStatement(srcStatement);
+        rrs.setFinishedRoute(true);
+        return rrs;
+    }
+
+    private RouteResultsetNode buildResultSetNode(String dataNode, String srcStatement) {
+        RouteResultsetNode rrNode = new RouteResultsetNode(dataNode, ServerParse.LOAD_DATA_INFILE_SQL, srcStatement);
+        rrNode.setStatement(srcStatement);
+        LoadData newLoadData = new LoadData();
+        ObjectUtil.copyProperties(loadData, newLoadData);
+        newLoadData.setLocal(true);
+        rrNode.setLoadData(newLoadData);
+        return rrNode;
+    }
+
+    private String getLoadStatement() {
+        statement.setLocal(true);
+        SQLLiteralExpr fn = new SQLCharExpr(fileName);    //druid will filter path, reset it now
+        statement.setFileName(fn);
+        //replace IGNORE X LINES in SQL to avoid  IGNORING X LINE in every node.
+        return this.ignoreLinesDelete(statement.toString());
+    }
+
 
     private String makeSimpleInsert(List<SQLExpr> columns, String[] fields, String table) {
         StringBuilder sb = new StringBuilder();
@@ -527,6 +780,10 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
     public void end(byte packId) {
         isStartLoadData = false;
         this.packID = packId;
+        if (streams != null) {
+            endStreams();
+            return;
+        }
         //empty packet for end
         saveByteOrToFile(null, true);
 
@@ -562,15 +819,12 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
                 parser.beginParsing(new StringReader(content));
                 String[] row = null;
 
-                int ignoreNumber = 0;
-                if (statement.getIgnoreLinesNumber() != null && !"".equals(statement.getIgnoreLinesNumber().toString())) {
-                    ignoreNumber = Integer.parseInt(statement.getIgnoreLinesNumber().toString());
-                }
+                int ignoreLines = getIgnoreNumber();
                 while ((row = parser.parseNext()) != null) {
-                    if (ignoreNumber == 0) {
+                    if (ignoreLines == 0) {
                         parseOneLine(columns, tableSimpleName, row, true, loadData.getLineTerminatedBy());
                     } else {
-                        ignoreNumber--;
+                        ignoreLines--;
                     }
                 }
             } finally {
@@ -617,15 +871,12 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             parser.beginParsing(reader);
             String[] row = null;
 
-            int ignoreNumber = 0;
-            if (statement.getIgnoreLinesNumber() != null && !"".equals(statement.getIgnoreLinesNumber().toString())) {
-                ignoreNumber = Integer.parseInt(statement.getIgnoreLinesNumber().toString());
-            }
+            int ignoreLines = getIgnoreNumber();
             while ((row = parser.parseNext()) != null) {
-                if (ignoreNumber == 0) {
+                if (ignoreLines == 0) {
                     parseOneLine(columns, tableName, row, true, loadData.getLineTerminatedBy());
                 } else {
-                    ignoreNumber--;
+                    ignoreLines--;
                 }
             }
         } catch (FileNotFoundException | UnsupportedEncodingException e) {
@@ -685,6 +936,19 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
 
     public void clear() {
         isStartLoadData = false;
+        if (streams != null) {
+            for (LoadDataStream stream : streams.values()) {
+                if (!stream.isEnded()) {
+                    stream.abort("load data is interrupted");
+                }
+            }
+            streams = null;
+        }
+        lineParser = null;
+        decoder = null;
+        undecoded = null;
+        lineTerminator = null;
+        streamError = null;
         tableId2DataNodeCache = null;
         schema = null;
         tableConfig = null;
@@ -5,18 +5,24 @@
 */
 package com.actiontech.dble.server.handler;
 
+import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.BindValue;
 import com.actiontech.dble.backend.mysql.ByteUtil;
 import com.actiontech.dble.backend.mysql.CharsetUtil;
 import com.actiontech.dble.backend.mysql.PreparedStatement;
 import com.actiontech.dble.config.ErrorCode;
 import com.actiontech.dble.config.Fields;
+import com.actiontech.dble.config.model.SchemaConfig;
 import com.actiontech.dble.net.handler.FrontendPrepareHandler;
 import com.actiontech.dble.net.mysql.ExecutePacket;
 import com.actiontech.dble.net.mysql.LongDataPacket;
 import com.actiontech.dble.net.mysql.OkPacket;
 import com.actiontech.dble.net.mysql.ResetPacket;
+import com.actiontech.dble.route.RouteResultset;
+import com.actiontech.dble.route.RouteTemplate;
+import com.actiontech.dble.route.parser.util.ParameterizedSql;
 import com.actiontech.dble.server.ServerConnection;
+import com.actiontech.dble.server.parser.ServerParse;
 import com.actiontech.dble.server.response.PreparedStmtResponse;
 import com.actiontech.dble.util.HexFormatUtil;
 import com.google.common.escape.Escaper;
@@ -28,7 +34,9 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,6 +45,8 @@ import java.util.Map;
 public class ServerPrepareHandler implements FrontendPrepareHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerPrepareHandler.class);
+    // the high bit of the parameter type in COM_STMT_EXECUTE
+    private static final int PARAM_UNSIGNED_FLAG = 0x8000;
     private static Escaper varcharEscape = null;
 
     static {
@@ -66,8 +76,10 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
         PreparedStatement pStmt;
         if ((pStmt = pStmtForSql.get(sql)) == null) {
             int columnCount = getColumnCount(sql);
-            int paramCount = getParamCount(sql);
-            pStmt = new PreparedStatement(++pStmtId, sql, columnCount, paramCount);
+            ParameterizedSql parameterizedSql = ParameterizedSql.parameterizePrepared(sql);
+            int[] paramPositions = parameterizedSql == null ? getParamPositions(sql) : parameterizedSql.getParamPositions();
+            pStmt = new PreparedStatement(++pStmtId, sql, columnCount, paramPositions);
+            pStmt.setParameterizedSql(parameterizedSql);
             pStmtForSql.put(pStmt.getStatement(), pStmt);
             pStmtForId.put(pStmt.getId(), pStmt);
         }
@@ -125,13 +137,94 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
                 return;
             }
             BindValue[] bindValues = packet.getValues();
+            // binding escapes the string values, so take the sharding value first
+            String shardingValue = getShardingValue(pStmt, bindValues);
             // reset the Parameter
             String sql = prepareStmtBindValue(pStmt, bindValues);
             source.getSession2().setPrepared(true);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("execute prepare sql: " + sql);
             }
+            RouteResultset rrs = routeByTemplate(pStmt, shardingValue, sql);
+            if (rrs != null) {
+                source.executeRouted(sql, rrs);
+                return;
+            }
             source.query(sql);
+            findRouteTemplate(pStmt, sql);
+        }
+    }
+
+    /**
+     * route the select by the route template of the prepared statement with the bound sharding value,
+     * the select need not be parsed
+     *
+     * @return null if the select can not be routed by the template
+     */
+    private RouteResultset routeByTemplate(PreparedStatement pStmt, String shardingValue, String sql) {
+        RouteTemplate template = pStmt.getRouteTemplate();
+        if (template == null || shardingValue == null || !pStmt.getRouteSchema().equals(source.getSchema())) {
+            return null;
+        }
+        return template.route(shardingValue, sql.trim(), ServerParse.SELECT);
+    }
+
+    /**
+     * the select executed by query leaves its route template in the route cache if it has one,
+     * find it and the parameter which decides the sharding value for the next executions
+     */
+    private void findRouteTemplate(PreparedStatement pStmt, String sql) {
+        ParameterizedSql parameterizedSql = pStmt.getParameterizedSql();
+        String schema = source.getSchema();
+        if (pStmt.getRouteTemplate() != null || parameterizedSql == null || !parameterizedSql.hasColumnParam() ||
+                schema == null || sql.endsWith(";") || (ServerParse.parse(sql) & 0xff) != ServerParse.SELECT) {
+            return;
+        }
+        SchemaConfig schemaConfig = DbleServer.getInstance().getConfig().getSchemas().get(schema);
+        if (schemaConfig == null) {
+            return;
+        }
+        RouteTemplate template = DbleServer.getInstance().getRouterService().getRouteTemplate(schemaConfig, source.getUser(), sql);
+        if (template == null) {
+            return;
+        }
+        int shardingParam = parameterizedSql.getColumnParam(template.getShardingColumn());
+        if (shardingParam >= 0) {
+            pStmt.setRouteTemplate(template, schema, shardingParam);
+        }
+    }
+
+    /**
+     * the bound value of the parameter which decides the sharding value, in the form the route of the select uses
+     *
+     * @return null if it is unknown
+     */
+    private static String getShardingValue(PreparedStatement pStmt, BindValue[] bindValues) {
+        int shardingParam = pStmt.getShardingParam();
+        if (shardingParam < 0 || bindValues[shardingParam].isNull()) {
+            return null;
+        }
+        int paramType = pStmt.getParametersType()[shardingParam];
+        if ((paramType & PARAM_UNSIGNED_FLAG) != 0) {
+            // the signed binding is not the value the client sent, let the select be routed as text
+            return null;
+        }
+        BindValue bindValue = bindValues[shardingParam];
+        switch (paramType & 0xff) {
+            case Fields.FIELD_TYPE_TINY:
+                return String.valueOf(bindValue.getByteBinding());
+            case Fields.FIELD_TYPE_SHORT:
+                return String.valueOf(bindValue.getShortBinding());
+            case Fields.FIELD_TYPE_LONG:
+                return String.valueOf(bindValue.getIntBinding());
+            case Fields.FIELD_TYPE_LONGLONG:
+                return String.valueOf(bindValue.getLongBinding());
+            case Fields.FIELD_TYPE_VAR_STRING:
+            case Fields.FIELD_TYPE_STRING:
+            case Fields.FIELD_TYPE_VARCHAR:
+                return String.valueOf(bindValue.getValue());
+            default:
+                return null;
         }
     }
 
@@ -154,21 +247,24 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
         this.pStmtForSql.clear();
     }
 
-    // TODO:the size of columns of prepared statement
+    // the size of columns of prepared statement
     private int getColumnCount(String sql) {
         return 0;
     }
 
-    // the size of parameters of prepared statement
-    private int getParamCount(String sql) {
-        char[] cArr = sql.toCharArray();
-        int count = 0;
-        for (char aCArr : cArr) {
-            if (aCArr == '?') {
-                count++;
+    // the positions of parameters of prepared statement, used if the statement can not be parameterized
+    private int[] getParamPositions(String sql) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                positions.add(i);
             }
         }
-        return count;
+        int[] result = new int[positions.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = positions.get(i);
+        }
+        return result;
     }
 
     /**
@@ -181,18 +277,15 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
     private String prepareStmtBindValue(PreparedStatement pStmt, BindValue[] bindValues) {
         String sql = pStmt.getStatement();
         int[] paramTypes = pStmt.getParametersType();
-        StringBuilder sb = new StringBuilder();
-        int idx = 0;
-        for (int i = 0, len = sql.length(); i < len; i++) {
-            char c = sql.charAt(i);
-            if (c != '?') {
-                sb.append(c);
-                continue;
-            }
+        int[] paramPositions = pStmt.getParametersPosition();
+        StringBuilder sb = new StringBuilder(sql.length() + paramPositions.length * 8);
+        int copied = 0;
+        for (int idx = 0; idx < paramPositions.length; idx++) {
+            sb.append(sql, copied, paramPositions[idx]);
+            copied = paramPositions[idx] + 1;
             // execute the ?
             int paramType = paramTypes[idx];
             BindValue bindValue = bindValues[idx];
-            idx++;
             // if field is empty
             if (bindValue.isNull()) {
                 sb.append("NULL");
@@ -247,6 +340,7 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
                     break;
             }
         }
+        sb.append(sql, copied, sql.length());
         return sb.toString();
     }
 
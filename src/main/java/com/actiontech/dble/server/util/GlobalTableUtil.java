@@ -7,31 +7,24 @@ package com.actiontech.dble.server.util;
 
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.datasource.PhysicalDBNode;
-import com.actiontech.dble.backend.datasource.PhysicalDBPool;
-import com.actiontech.dble.backend.datasource.PhysicalDatasource;
-import com.actiontech.dble.backend.heartbeat.MySQLConsistencyChecker;
-import com.actiontech.dble.backend.mysql.nio.MySQLDataSource;
+import com.actiontech.dble.backend.heartbeat.GlobalTableChecksumChecker;
+import com.actiontech.dble.backend.heartbeat.GlobalTableChecksumChecker.ChunkResult;
 import com.actiontech.dble.config.ServerConfig;
 import com.actiontech.dble.config.model.SchemaConfig;
 import com.actiontech.dble.config.model.SystemConfig;
 import com.actiontech.dble.config.model.TableConfig;
 import com.actiontech.dble.log.alarm.AlarmCode;
 import com.actiontech.dble.meta.protocol.StructureMeta;
-import com.actiontech.dble.sqlengine.SQLQueryResult;
-import com.actiontech.dble.util.StringUtil;
 import com.alibaba.druid.sql.ast.expr.SQLCharExpr;
 import com.alibaba.druid.sql.ast.expr.SQLIdentifierExpr;
 import com.alibaba.druid.sql.ast.statement.SQLCharacterDataType;
 import com.alibaba.druid.sql.ast.statement.SQLColumnDefinition;
-import com.alibaba.fastjson.JSON;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author digdeep@126.com
@@ -48,12 +41,8 @@ public final class GlobalTableUtil {
      * for check GlobalTable consistency
      */
     public static final String GLOBAL_TABLE_CHECK_COLUMN = "_dble_op_time";
-    public static final String COUNT_COLUMN = "record_count";
-    public static final String MAX_COLUMN = "max_timestamp";
-    public static final String INNER_COLUMN = "inner_col_exist";
-    private static volatile int isInnerColumnCheckFinished = 0;
-    private static volatile int isColumnCountCheckFinished = 0;
-    private static final ReentrantLock LOCK = new ReentrantLock(false);
+    private static final AtomicBoolean CHECKING = new AtomicBoolean(false);
+    private static final Map<String, List<ChunkResult>> CHECK_RESULTS = new ConcurrentHashMap<>();
 
     public static Map<String, TableConfig> getGlobalTableMap() {
         return globalTableMap;
@@ -98,126 +87,66 @@ public final class GlobalTableUtil {
         }
     }
 
+    /**
+     * check the global tables one by one, skipped if the last check is still running
+     */
     public static void consistencyCheck() {
-        ServerConfig config = DbleServer.getInstance().getConfig();
-        for (TableConfig table : globalTableMap.values()) {
-            Map<String, ArrayList<PhysicalDBNode>> executedMap = new HashMap<>();
-            // <table name="travelrecord" dataNode="dn1,dn2,dn3"
-            for (String nodeName : table.getDataNodes()) {
-                Map<String, PhysicalDBNode> map = config.getDataNodes();
-                for (PhysicalDBNode dbNode : map.values()) {
-                    // <dataNode name="dn1" dataHost="localhost1" database="db1" />
-                    if (nodeName.equals(dbNode.getName())) {    // dn1,dn2,dn3
-                        PhysicalDBPool pool = dbNode.getDbPool();
-                        Collection<PhysicalDatasource> allDS = pool.getAllDataSources();
-                        for (PhysicalDatasource pds : allDS) {
-                            if (pds instanceof MySQLDataSource) {
-                                ArrayList<PhysicalDBNode> nodes = executedMap.get(pds.getName());
-                                if (nodes == null) {
-                                    nodes = new ArrayList<>();
-                                }
-                                nodes.add(dbNode);
-                                executedMap.put(pds.getName(), nodes);
-                            }
-                        }
-                    }
+        if (!CHECKING.compareAndSet(false, true)) {
+            LOGGER.info("the last global table consistency check is not finished, skip this one");
+            return;
+        }
+        try {
+            // the tables dropped or no longer global since the last check are not shown
+            CHECK_RESULTS.clear();
+            ServerConfig config = DbleServer.getInstance().getConfig();
+            for (Map.Entry<String, TableConfig> entry : globalTableMap.entrySet()) {
+                if (entry.getValue().getDataNodes().size() > 1) {
+                    consistencyCheck(config, entry.getKey(), entry.getValue());
                 }
             }
-            for (Map.Entry<String, ArrayList<PhysicalDBNode>> entry : executedMap.entrySet()) {
-                ArrayList<PhysicalDBNode> nodes = entry.getValue();
-                String[] schemas = new String[nodes.size()];
-                for (int index = 0; index < nodes.size(); index++) {
-                    schemas[index] = StringUtil.removeBackQuote(nodes.get(index).getDatabase());
-                }
-                Collection<PhysicalDatasource> allDS = nodes.get(0).getDbPool().getAllDataSources();
-                for (PhysicalDatasource pds : allDS) {
-                    if (pds instanceof MySQLDataSource && entry.getKey().equals(pds.getName())) {
-                        MySQLDataSource mds = (MySQLDataSource) pds;
-                        MySQLConsistencyChecker checker = new MySQLConsistencyChecker(mds, schemas, table.getName());
-                        isInnerColumnCheckFinished = 0;
-                        checker.checkInnerColumnExist();
-                        while (isInnerColumnCheckFinished <= 0) {
-                            LOGGER.debug("isInnerColumnCheckFinished:" + isInnerColumnCheckFinished);
-                            try {
-                                TimeUnit.SECONDS.sleep(1);
-                            } catch (InterruptedException e) {
-                                LOGGER.info(e.getMessage());
-                            }
-                        }
-                        LOGGER.debug("isInnerColumnCheckFinished:" + isInnerColumnCheckFinished);
-                        // check another measure
-                        checker = new MySQLConsistencyChecker(mds, schemas, table.getName());
-                        isColumnCountCheckFinished = 0;
-                        checker.checkRecordCount();
-                        while (isColumnCountCheckFinished <= 0) {
-                            LOGGER.debug("isColumnCountCheckFinished:" + isColumnCountCheckFinished);
-                            try {
-                                TimeUnit.SECONDS.sleep(1);
-                            } catch (InterruptedException e) {
-                                LOGGER.info(e.getMessage());
-                            }
-                        }
-                        LOGGER.debug("isColumnCountCheckFinished:" + isColumnCountCheckFinished);
-                        checker = new MySQLConsistencyChecker(mds, schemas, table.getName());
-                        checker.checkMaxTimeStamp();
-                    }
-                }
+        } catch (InterruptedException e) {
+            LOGGER.info("global table consistency check is interrupted");
+        } finally {
+            CHECKING.set(false);
+        }
+    }
+
+    private static void consistencyCheck(ServerConfig config, String fullName, TableConfig table) throws InterruptedException {
+        int dot = fullName.indexOf('.');
+        StructureMeta.TableMeta tableMeta = DbleServer.getInstance().getTmManager().getSyncTableMeta(
+                fullName.substring(0, dot), fullName.substring(dot + 1));
+        if (tableMeta == null) {
+            LOGGER.info("global table " + fullName + " has no meta, skip the consistency check");
+            return;
+        }
+        List<PhysicalDBNode> dataNodes = new ArrayList<>(table.getDataNodes().size());
+        for (String dataNode : table.getDataNodes()) {
+            dataNodes.add(config.getDataNodes().get(dataNode));
+        }
+        SystemConfig system = config.getSystem();
+        GlobalTableChecksumChecker checker = new GlobalTableChecksumChecker(tableMeta, dataNodes,
+                system.getGlobalTableCheckChunkSize(), system.getSqlExecuteTimeout() * 1000L);
+        List<ChunkResult> results = checker.check();
+        CHECK_RESULTS.put(fullName, results);
+        int inconsistent = 0;
+        for (ChunkResult chunk : results) {
+            if (!chunk.isConsistent()) {
+                inconsistent++;
             }
         }
+        if (inconsistent > 0) {
+            LOGGER.warn(AlarmCode.CORE_TABLE_CHECK_WARN + "global table " + fullName + " is not consistent in " +
+                    inconsistent + " chunks, see show @@global_table.check");
+        } else {
+            LOGGER.info("global table " + fullName + " is consistent in " + results.size() + " chunks");
+        }
     }
 
     /**
-     * check one measure for one time
-     *
-     * @param list
-     * @return
+     * @return schema.table -> the chunk results of the last check
      */
-    public static List<SQLQueryResult<Map<String, String>>> finished(List<SQLQueryResult<Map<String, String>>> list) {
-        LOCK.lock();
-        try {
-            //[{"dataNode":"db3","result":{"inner_col_exist":"id,_dble_op_time"},"success":true,"tableName":"COMPANY"}]
-            // {"dataNode":"db2","result":{"max_timestamp":"1450423751170"},"success":true,"tableName":"COMPANY"}
-            // {"dataNode":"db3","result":{"record_count":"1"},"success":true,"tableName":"COMPANY"}
-            LOGGER.debug("list:::::::::::" + JSON.toJSONString(list));
-            for (SQLQueryResult<Map<String, String>> map : list) {
-                Map<String, String> row = map.getResult();
-                if (row != null) {
-                    if (row.containsKey(GlobalTableUtil.MAX_COLUMN)) {
-                        LOGGER.info(map.getDataNode() + "." + map.getTableName() +
-                                "." + GlobalTableUtil.MAX_COLUMN +
-                                ": " + map.getResult().get(GlobalTableUtil.MAX_COLUMN));
-                    }
-                    if (row.containsKey(GlobalTableUtil.COUNT_COLUMN)) {
-                        LOGGER.info(map.getDataNode() + "." + map.getTableName() +
-                                "." + GlobalTableUtil.COUNT_COLUMN +
-                                ": " + map.getResult().get(GlobalTableUtil.COUNT_COLUMN));
-                    }
-                    if (row.containsKey(GlobalTableUtil.INNER_COLUMN)) {
-                        String columnsList = null;
-                        try {
-                            if (StringUtils.isNotBlank(row.get(GlobalTableUtil.INNER_COLUMN)))
-                                columnsList = row.get(GlobalTableUtil.INNER_COLUMN); // id,name,_dble_op_time
-                            LOGGER.debug("columnsList: " + columnsList);
-                        } catch (Exception e) {
-                            LOGGER.info(row.get(GlobalTableUtil.INNER_COLUMN) + ", " + e.getMessage());
-                        } finally {
-                            if (columnsList == null ||
-                                    !columnsList.contains(GlobalTableUtil.GLOBAL_TABLE_CHECK_COLUMN)) {
-                                LOGGER.warn(AlarmCode.CORE_TABLE_CHECK_WARN + map.getDataNode() + "." + map.getTableName() +
-                                        " inner column: " + GlobalTableUtil.GLOBAL_TABLE_CHECK_COLUMN + " is not exist.");
-                            } else {
-                                LOGGER.debug("columnsList: " + columnsList);
-                            }
-                        }
-                    }
-                }
-            }
-        } finally {
-            isInnerColumnCheckFinished = 1;
-            isColumnCountCheckFinished = 1;
-            LOCK.unlock();
-        }
-        return list;
+    public static Map<String, List<ChunkResult>> getCheckResults() {
+        return CHECK_RESULTS;
     }
 
     public static boolean useGlobalTableCheck() {
@@ -5,6 +5,8 @@
 
 package com.actiontech.dble.sqlengine.mpp;
 
+import com.actiontech.dble.backend.mysql.LoadDataStream;
+
 import java.io.Serializable;
 import java.util.List;
 
@@ -21,6 +23,8 @@ public class LoadData implements Serializable {
     private String fieldTerminatedBy;
     private String enclose;
     private String escape;
+    /* the lines are streamed to the data node while the client is uploading, instead of data or fileName */
+    private transient LoadDataStream stream;
 
     public String getEscape() {
         return escape;
@@ -85,4 +89,12 @@ public class LoadData implements Serializable {
     public void setEnclose(String enclose) {
         this.enclose = enclose;
     }
+
+    public LoadDataStream getStream() {
+        return stream;
+    }
+
+    public void setStream(LoadDataStream stream) {
+        this.stream = stream;
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic.stat;
+
+/**
+ * histogram of latency in the way of HdrHistogram with fixed memory:
+ * the values under 32 have their own buckets, every power of 2 above is split into 16 buckets,
+ * so the percentile reported is within about 3% of the real value.
+ * the values larger than MAX_VALUE are recorded as MAX_VALUE.
+ * <p>
+ * not thread safe
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BITS = 5;
+    private static final int LINEAR_COUNT = 1 << LINEAR_BITS;
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 35;
+    public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKET_COUNT = LINEAR_COUNT + (MAX_EXPONENT - LINEAR_BITS + 1) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long totalValue = 0;
+    private long maxValue = 0;
+    private long minValue = Long.MAX_VALUE;
+
+    public LatencyHistogram() {
+    }
+
+    public LatencyHistogram(LatencyHistogram other) {
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        this.totalCount = other.totalCount;
+        this.totalValue = other.totalValue;
+        this.maxValue = other.maxValue;
+        this.minValue = other.minValue;
+    }
+
+    public void record(long value) {
+        long v = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts[indexOf(v)]++;
+        totalCount++;
+        totalValue += v;
+        if (v > maxValue) {
+            maxValue = v;
+        }
+        if (v < minValue) {
+            minValue = v;
+        }
+    }
+
+    /**
+     * @param percentile in (0, 100]
+     * @return the middle of the bucket holding the percentile, 0 if nothing recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(totalCount * Math.min(percentile, 100.0) / 100.0);
+        rank = Math.max(rank, 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long value = lowestValueOf(i) + (bucketWidthOf(i) - 1) / 2;
+                return Math.max(Math.min(value, maxValue), minValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMean() {
+        return totalCount == 0 ? 0 : totalValue / totalCount;
+    }
+
+    public long getMax() {
+        return maxValue;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return LINEAR_COUNT + (exponent - LINEAR_BITS) * SUB_COUNT + sub;
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_COUNT) / SUB_COUNT + LINEAR_BITS;
+        int sub = (index - LINEAR_COUNT) % SUB_COUNT;
+        return (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    private static long bucketWidthOf(int index) {
+        if (index < LINEAR_COUNT) {
+            return 1;
+        }
+        int exponent = (index - LINEAR_COUNT) / SUB_COUNT + LINEAR_BITS;
+        return 1L << (exponent - SUB_BITS);
+    }
+}
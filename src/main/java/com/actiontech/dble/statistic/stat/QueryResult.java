@@ -5,6 +5,10 @@
 
 package com.actiontech.dble.statistic.stat;
 
+import com.alibaba.druid.sql.ast.SQLStatement;
+
+import java.util.Map;
+
 /**
  * QueryResult
  *
@@ -21,13 +25,24 @@ public class QueryResult {
     private long startTime;
     private long endTime;
     private int resultSize;
+    /* the statement parsed when routing, null if the sql is not parsed */
+    private SQLStatement statement;
+    /* the data nodes the sql is routed to -> the time each of them finished */
+    private Map<String, Long> nodeEndTimes;
 
     public QueryResult(String user, int sqlType, String sql, long sqlRows,
                        long netInBytes, long netOutBytes, long startTime, long endTime, int resultSize) {
+        this(user, sqlType, sql, null, null, sqlRows, netInBytes, netOutBytes, startTime, endTime, resultSize);
+    }
+
+    public QueryResult(String user, int sqlType, String sql, SQLStatement statement, Map<String, Long> nodeEndTimes, long sqlRows,
+                       long netInBytes, long netOutBytes, long startTime, long endTime, int resultSize) {
         super();
         this.user = user;
         this.sqlType = sqlType;
         this.sql = sql;
+        this.statement = statement;
+        this.nodeEndTimes = nodeEndTimes;
         this.sqlRows = sqlRows;
         this.netInBytes = netInBytes;
         this.netOutBytes = netOutBytes;
@@ -48,6 +63,14 @@ public class QueryResult {
         return sql;
     }
 
+    public SQLStatement getStatement() {
+        return statement;
+    }
+
+    public Map<String, Long> getNodeEndTimes() {
+        return nodeEndTimes;
+    }
+
     public long getSqlRows() {
         return sqlRows;
     }
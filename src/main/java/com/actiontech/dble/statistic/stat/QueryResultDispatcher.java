@@ -9,11 +9,19 @@ import com.actiontech.dble.DbleServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.ref.WeakReference;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * QueryResultDispatcher
+ * <p>
+ * every thread puts its query results into its own ring without lock, the rings are drained periodically
+ * by one thread at a time which calls the listeners, so the listeners never run concurrently.
+ * the query result is dropped if the ring of the thread is full. the ring of a terminated thread is removed
+ * after its last drain.
  *
  * @author zhuam
  */
@@ -23,13 +31,29 @@ public final class QueryResultDispatcher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultDispatcher.class);
 
+    /* must be power of 2 */
+    private static final int RING_SIZE = 4096;
+
     private static List<QueryResultListener> listeners = new CopyOnWriteArrayList<>();
 
+    private static final List<QueryResultRing> RINGS = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<QueryResultRing> LOCAL_RING = new ThreadLocal<QueryResultRing>() {
+        @Override
+        protected QueryResultRing initialValue() {
+            QueryResultRing ring = new QueryResultRing(RING_SIZE, Thread.currentThread());
+            RINGS.add(ring);
+            return ring;
+        }
+    };
+    private static final ReentrantLock DRAIN_LOCK = new ReentrantLock();
+    private static final AtomicLong DROPPED = new AtomicLong(0);
+
     // load in int
     static {
         listeners.add(UserStatAnalyzer.getInstance());
         listeners.add(TableStatAnalyzer.getInstance());
         listeners.add(QueryConditionAnalyzer.getInstance());
+        listeners.add(SqlDigestAnalyzer.getInstance());
     }
 
     public static void addListener(QueryResultListener listener) {
@@ -48,19 +72,108 @@ public final class QueryResultDispatcher {
     }
 
     public static void dispatchQuery(final QueryResult queryResult) {
-        DbleServer.getInstance().getBusinessExecutor().execute(new Runnable() {
+        dispatchQuery(queryResult, DbleServer.getInstance().getConfig().getSystem().getSqlStatSampling());
+    }
 
-            public void run() {
+    /**
+     * @param sampling only one of every sampling query results of the thread is recorded
+     */
+    static void dispatchQuery(final QueryResult queryResult, int sampling) {
+        QueryResultRing ring = LOCAL_RING.get();
+        if (sampling > 1 && ring.nextSample() % sampling != 0) {
+            return;
+        }
+        if (!ring.offer(queryResult)) {
+            DROPPED.incrementAndGet();
+        }
+    }
 
-                for (QueryResultListener listener : listeners) {
-                    try {
-                        listener.onQueryResult(queryResult);
-                    } catch (Exception e) {
-                        LOGGER.info("error:", e);
+    /**
+     * pass the query results in the rings to the listeners, skipped if another thread is draining
+     */
+    public static void drain() {
+        if (!DRAIN_LOCK.tryLock()) {
+            return;
+        }
+        try {
+            for (QueryResultRing ring : RINGS) {
+                // checked before draining, a terminated owner can't offer after it
+                boolean ownerTerminated = ring.isOwnerTerminated();
+                QueryResult queryResult;
+                while ((queryResult = ring.poll()) != null) {
+                    for (QueryResultListener listener : listeners) {
+                        try {
+                            listener.onQueryResult(queryResult);
+                        } catch (Exception e) {
+                            LOGGER.info("error:", e);
+                        }
                     }
                 }
+                if (ownerTerminated) {
+                    RINGS.remove(ring);
+                }
             }
-        });
+        } finally {
+            DRAIN_LOCK.unlock();
+        }
+        long dropped = DROPPED.getAndSet(0);
+        if (dropped > 0) {
+            LOGGER.info("the sql stat can't keep up with the queries, " + dropped + " query results are dropped");
+        }
+    }
+
+    static int getRingCount() {
+        return RINGS.size();
     }
 
+    /**
+     * single producer single consumer ring, the producer is the owner thread
+     */
+    private static final class QueryResultRing {
+        private final QueryResult[] slots;
+        private final int mask;
+        private final WeakReference<Thread> owner;
+        /* the next slot to poll, written by the consumer only */
+        private final AtomicLong head = new AtomicLong(0);
+        /* the next slot to offer, written by the producer only */
+        private final AtomicLong tail = new AtomicLong(0);
+        private long sampleCount = 0;
+
+        private QueryResultRing(int size, Thread owner) {
+            this.slots = new QueryResult[size];
+            this.mask = size - 1;
+            this.owner = new WeakReference<>(owner);
+        }
+
+        private boolean isOwnerTerminated() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        private long nextSample() {
+            return sampleCount++;
+        }
+
+        private boolean offer(QueryResult queryResult) {
+            long t = tail.get();
+            if (t - head.get() >= slots.length) {
+                return false;
+            }
+            slots[(int) (t & mask)] = queryResult;
+            tail.lazySet(t + 1);
+            return true;
+        }
+
+        private QueryResult poll() {
+            long h = head.get();
+            if (h == tail.get()) {
+                return null;
+            }
+            int index = (int) (h & mask);
+            QueryResult queryResult = slots[index];
+            slots[index] = null;
+            head.lazySet(h + 1);
+            return queryResult;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic.stat;
+
+import com.actiontech.dble.route.parser.util.ParameterizedSql;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * the statistics per sql digest and per data node.
+ * <p>
+ * the digest is the sql with the literals replaced by placeholders, the lists of placeholders are
+ * folded as the digest of mysql, so "in (1, 2)" and "in (1, 2, 3)" have the same digest.
+ * at most DIGEST_CAPACITY digests are kept, when a new digest comes and the table is full,
+ * the one with the least count among EVICTION_SAMPLES random digests is replaced by it (sampled space saving),
+ * so the frequent digests stay and a miss costs no scan of the whole table.
+ * the latency of a data node is from the start of the query to the end of the node's part.
+ */
+public final class SqlDigestAnalyzer implements QueryResultListener {
+    public static final int DIGEST_CAPACITY = 1024;
+    static final int EVICTION_SAMPLES = 8;
+    private static final int MAX_DIGEST_LENGTH = 1024;
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*'?\\?'?(\\s*,\\s*'?\\?'?)+\\s*\\)");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\.\\.\\.\\)(\\s*,\\s*\\(\\.\\.\\.\\))+");
+
+    private static final SqlDigestAnalyzer INSTANCE = new SqlDigestAnalyzer();
+
+    private final int capacity;
+    private Map<String, SqlLatencyStat> digestStats = new HashMap<>();
+    /* the same stats as digestStats, for sampling */
+    private List<SqlLatencyStat> digestList = new ArrayList<>();
+    private Map<String, SqlLatencyStat> dataNodeStats = new HashMap<>();
+
+    SqlDigestAnalyzer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    private SqlDigestAnalyzer() {
+        this(DIGEST_CAPACITY);
+    }
+
+    public static SqlDigestAnalyzer getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void onQueryResult(QueryResult queryResult) {
+        if (queryResult.getSql() == null) {
+            return;
+        }
+        String digest = digest(queryResult.getSql());
+        synchronized (this) {
+            getDigestStat(digest).update(queryResult);
+            if (queryResult.getNodeEndTimes() != null) {
+                for (Map.Entry<String, Long> node : queryResult.getNodeEndTimes().entrySet()) {
+                    SqlLatencyStat stat = dataNodeStats.get(node.getKey());
+                    if (stat == null) {
+                        stat = new SqlLatencyStat(node.getKey(), 0);
+                        dataNodeStats.put(node.getKey(), stat);
+                    }
+                    stat.updateLatency(queryResult.getStartTime(), node.getValue());
+                }
+            }
+        }
+    }
+
+    private SqlLatencyStat getDigestStat(String digest) {
+        SqlLatencyStat stat = digestStats.get(digest);
+        if (stat != null) {
+            return stat;
+        }
+        if (digestList.size() < capacity) {
+            stat = new SqlLatencyStat(digest, 0);
+            digestList.add(stat);
+        } else {
+            int least = leastSampled();
+            SqlLatencyStat evicted = digestList.get(least);
+            digestStats.remove(evicted.getKey());
+            stat = new SqlLatencyStat(digest, evicted.getEstimatedCount());
+            digestList.set(least, stat);
+        }
+        digestStats.put(digest, stat);
+        return stat;
+    }
+
+    /**
+     * @return the index of the least frequent one of the sampled digests, all are sampled if they are few
+     */
+    private int leastSampled() {
+        int size = digestList.size();
+        boolean sampling = size > EVICTION_SAMPLES;
+        int least = -1;
+        for (int i = 0; i < Math.min(size, EVICTION_SAMPLES); i++) {
+            int index = sampling ? ThreadLocalRandom.current().nextInt(size) : i;
+            if (least < 0 || digestList.get(index).getEstimatedCount() < digestList.get(least).getEstimatedCount()) {
+                least = index;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * @return the copies of the digests, the most frequent first
+     */
+    public List<SqlLatencyStat> getDigestStats(boolean isClear) {
+        return copy(isClear, true);
+    }
+
+    /**
+     * @return the copies of the data nodes, the most frequent first
+     */
+    public List<SqlLatencyStat> getDataNodeStats(boolean isClear) {
+        return copy(isClear, false);
+    }
+
+    private synchronized List<SqlLatencyStat> copy(boolean isClear, boolean isDigest) {
+        Map<String, SqlLatencyStat> stats = isDigest ? digestStats : dataNodeStats;
+        List<SqlLatencyStat> list = new ArrayList<>(stats.size());
+        for (SqlLatencyStat stat : stats.values()) {
+            list.add(stat.copy());
+        }
+        if (isClear) {
+            stats.clear();
+            if (isDigest) {
+                digestList.clear();
+            }
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    public synchronized void clear() {
+        digestStats.clear();
+        digestList.clear();
+        dataNodeStats.clear();
+    }
+
+    static String digest(String sql) {
+        ParameterizedSql parameterized = ParameterizedSql.parameterize(sql);
+        String digest = parameterized == null ? sql.trim() : parameterized.getTemplate().trim();
+        if (digest.indexOf('?') >= 0) {
+            digest = PLACEHOLDER_LIST.matcher(digest).replaceAll("(...)");
+            digest = ROW_LIST.matcher(digest).replaceAll("(...) /* , ... */");
+        }
+        if (digest.length() > MAX_DIGEST_LENGTH) {
+            digest = digest.substring(0, MAX_DIGEST_LENGTH);
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic.stat;
+
+/**
+ * the statistics of the queries with the same digest, or routed to the same data node.
+ * the time is in milliseconds.
+ * <p>
+ * not thread safe, see SqlDigestAnalyzer
+ */
+public class SqlLatencyStat implements Comparable<SqlLatencyStat> {
+    private final String key;
+    /* the count the evicted entry had when this one took its place, count + error is an upper bound of the real count */
+    private final long error;
+    private final LatencyHistogram histogram;
+    private long rows = 0;
+    private long netInBytes = 0;
+    private long netOutBytes = 0;
+    private long lastTime = 0;
+
+    public SqlLatencyStat(String key, long error) {
+        this.key = key;
+        this.error = error;
+        this.histogram = new LatencyHistogram();
+    }
+
+    private SqlLatencyStat(SqlLatencyStat other) {
+        this.key = other.key;
+        this.error = other.error;
+        this.histogram = new LatencyHistogram(other.histogram);
+        this.rows = other.rows;
+        this.netInBytes = other.netInBytes;
+        this.netOutBytes = other.netOutBytes;
+        this.lastTime = other.lastTime;
+    }
+
+    public void update(QueryResult queryResult) {
+        updateLatency(queryResult.getStartTime(), queryResult.getEndTime());
+        rows += queryResult.getSqlRows();
+        netInBytes += queryResult.getNetInBytes();
+        netOutBytes += queryResult.getNetOutBytes();
+    }
+
+    /**
+     * count the time only, used for a data node since the rows and bytes of a query are not known per node
+     *
+     * @param endTime the time the part of the query counted by this stat finished, such as a data node's
+     */
+    public void updateLatency(long startTime, long endTime) {
+        histogram.record(endTime - startTime);
+        lastTime = Math.max(lastTime, endTime);
+    }
+
+    public SqlLatencyStat copy() {
+        return new SqlLatencyStat(this);
+    }
+
+    /**
+     * the weight for eviction
+     */
+    long getEstimatedCount() {
+        return histogram.getTotalCount() + error;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getNetInBytes() {
+        return netInBytes;
+    }
+
+    public long getNetOutBytes() {
+        return netOutBytes;
+    }
+
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * the most frequent first
+     */
+    @Override
+    public int compareTo(SqlLatencyStat o) {
+        int result = Long.compare(o.getCount(), getCount());
+        return result != 0 ? result : key.compareTo(o.key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SqlLatencyStat && key.equals(((SqlLatencyStat) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+}
@@ -61,7 +61,7 @@ public final class TableStatAnalyzer implements QueryResultListener {
                 String masterTable = null;
                 List<String> relationTables = new ArrayList<>();
 
-                List<String> tables = sqlParser.parseTableNames(sql);
+                List<String> tables = sqlParser.parseTableNames(sql, queryResult.getStatement());
                 for (int i = 0; i < tables.size(); i++) {
                     String table = tables.get(i);
                     if (i == 0) {
@@ -151,12 +151,14 @@ public final class TableStatAnalyzer implements QueryResultListener {
 
         /**
          * PARSER SQL table name
+         *
+         * @param parsed the statement parsed when routing, the sql is parsed again if it is null
          */
-        public List<String> parseTableNames(String sql) {
+        public List<String> parseTableNames(String sql, SQLStatement parsed) {
             final List<String> tables = new ArrayList<>();
             try {
 
-                SQLStatement stmt = parseStmt(sql);
+                SQLStatement stmt = parsed != null ? parsed : parseStmt(sql);
                 if (stmt instanceof MySqlReplaceStatement) {
                     String table = ((MySqlReplaceStatement) stmt).getTableName().getSimpleName();
                     tables.add(fixName(table));
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConMapTest {
+
+    @Test
+    public void testActiveCount() {
+        ConMap conMap = new ConMap();
+        conMap.changeActiveSchema(null, "db1");
+        conMap.changeActiveSchema(null, "db1");
+        conMap.changeActiveSchema(null, "db2");
+        Assert.assertEquals(3, conMap.getActiveCountForDs());
+        Assert.assertEquals(2, conMap.getActiveCountForSchema("db1"));
+
+        // a borrowed connection changes its schema
+        conMap.changeActiveSchema("db1", "db2");
+        Assert.assertEquals(3, conMap.getActiveCountForDs());
+        Assert.assertEquals(1, conMap.getActiveCountForSchema("db1"));
+        Assert.assertEquals(2, conMap.getActiveCountForSchema("db2"));
+
+        conMap.changeActiveSchema("db2", null);
+        conMap.changeActiveSchema("db1", null);
+        Assert.assertEquals(1, conMap.getActiveCountForDs());
+        Assert.assertEquals(0, conMap.getActiveCountForSchema("db1"));
+        Assert.assertEquals(0, conMap.getActiveCountForSchema("db3"));
+    }
+}
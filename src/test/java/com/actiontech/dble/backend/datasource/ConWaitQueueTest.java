@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.datasource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConWaitQueueTest {
+
+    @Test
+    public void testOrderAndBound() {
+        ConWaitQueue queue = new ConWaitQueue();
+        ConWaitQueue.Waiter first = new ConWaitQueue.Waiter("db1", true, null, null);
+        ConWaitQueue.Waiter second = new ConWaitQueue.Waiter("db2", true, null, null);
+        Assert.assertTrue(queue.offer(first, 2));
+        Assert.assertTrue(queue.offer(second, 2));
+        Assert.assertFalse(queue.offer(new ConWaitQueue.Waiter("db3", true, null, null), 2));
+        Assert.assertEquals(2, queue.getWaiting());
+        Assert.assertEquals(1, queue.getRejectCount());
+
+        Assert.assertSame(first, queue.poll());
+        Assert.assertSame(second, queue.poll());
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(2, queue.getServedCount());
+        long total = 0;
+        for (long count : queue.getWaitTimes()) {
+            total += count;
+        }
+        Assert.assertEquals(2, total);
+    }
+
+    @Test
+    public void testPollSameAutocommit() {
+        ConWaitQueue queue = new ConWaitQueue();
+        ConWaitQueue.Waiter autocommit = new ConWaitQueue.Waiter("db1", true, null, null);
+        ConWaitQueue.Waiter manual = new ConWaitQueue.Waiter("db1", false, null, null);
+        queue.offer(autocommit, 10);
+        queue.offer(manual, 10);
+        Assert.assertSame(manual, queue.poll(false));
+        // no waiter wants the same autocommit, the oldest one takes it
+        Assert.assertSame(autocommit, queue.poll(false));
+        Assert.assertNull(queue.poll(true));
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(2, queue.getServedCount());
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        ConWaitQueue queue = new ConWaitQueue();
+        ConWaitQueue.Waiter waiter = new ConWaitQueue.Waiter("db1", true, null, null);
+        queue.offer(waiter, 10);
+        Assert.assertTrue(queue.removeTimeout(1000).isEmpty());
+        Thread.sleep(20);
+        Assert.assertEquals(1, queue.removeTimeout(10).size());
+        Assert.assertEquals(1, queue.getTimeoutCount());
+        // a timeout waiter is never served
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.heartbeat;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class GlobalTableChecksumCheckerTest {
+
+    private static List<Map<String, String>> rows(String... keyAndChecksums) {
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int i = 0; i < keyAndChecksums.length; i += 2) {
+            Map<String, String> row = new HashMap<>();
+            row.put(GlobalTableChecksumChecker.KEY_COLUMN, keyAndChecksums[i]);
+            row.put(GlobalTableChecksumChecker.ROW_CHECKSUM_COLUMN, keyAndChecksums[i + 1]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testRangeCondition() {
+        List<String> id = Collections.singletonList("`id`");
+        boolean[] integer = {true};
+        Assert.assertEquals("", GlobalTableChecksumChecker.rangeCondition(id, integer, null, null));
+        Assert.assertEquals(" WHERE `id` <= 10", GlobalTableChecksumChecker.rangeCondition(id, integer, null, new String[]{"10"}));
+        Assert.assertEquals(" WHERE `id` > -10 AND `id` <= 20",
+                GlobalTableChecksumChecker.rangeCondition(id, integer, new String[]{"-10"}, new String[]{"20"}));
+        Assert.assertEquals(" WHERE `id` > 'it\\'s'",
+                GlobalTableChecksumChecker.rangeCondition(id, new boolean[]{false}, new String[]{"it's"}, null));
+        // a value which is not an integer is never written as a number
+        Assert.assertEquals(" WHERE `id` > '1 or 1'",
+                GlobalTableChecksumChecker.rangeCondition(id, integer, new String[]{"1 or 1"}, null));
+        // the bounds of a composite key are expanded, no row constructor
+        Assert.assertEquals(" WHERE (`a` > 1 OR (`a` = 1 AND `b` > 'x')) AND (`a` < 1 OR (`a` = 1 AND `b` <= 'y'))",
+                GlobalTableChecksumChecker.rangeCondition(Arrays.asList("`a`", "`b`"), new boolean[]{true, false},
+                        new String[]{"1", "x"}, new String[]{"1", "y"}));
+        Assert.assertEquals(" WHERE (`a` > 1 OR (`a` = 1 AND `b` > 2) OR (`a` = 1 AND `b` = 2 AND `c` > 3))",
+                GlobalTableChecksumChecker.rangeCondition(Arrays.asList("`a`", "`b`", "`c`"), new boolean[]{true, true, true},
+                        new String[]{"1", "2", "3"}, null));
+    }
+
+    @Test
+    public void testIntegerType() {
+        Assert.assertTrue(GlobalTableChecksumChecker.isIntegerType("int"));
+        Assert.assertTrue(GlobalTableChecksumChecker.isIntegerType("BIGINT(20)"));
+        Assert.assertFalse(GlobalTableChecksumChecker.isIntegerType("decimal(10,2)"));
+        Assert.assertFalse(GlobalTableChecksumChecker.isIntegerType("varchar(20)"));
+    }
+
+    @Test
+    public void testRowChecksum() {
+        Assert.assertEquals("CRC32(CONCAT_WS('#',`id`,`name`,CONCAT(ISNULL(`id`),ISNULL(`name`))))",
+                GlobalTableChecksumChecker.rowChecksum(Arrays.asList("`id`", "`name`")));
+    }
+
+    @Test
+    public void testNextChunkSize() {
+        long target = GlobalTableChecksumChecker.CHUNK_TARGET_MILLIS;
+        Assert.assertEquals(500, GlobalTableChecksumChecker.nextChunkSize(1000, target * 3, 1000));
+        Assert.assertEquals(GlobalTableChecksumChecker.MIN_CHUNK_SIZE,
+                GlobalTableChecksumChecker.nextChunkSize(GlobalTableChecksumChecker.MIN_CHUNK_SIZE, target * 3, 1000));
+        Assert.assertEquals(1000, GlobalTableChecksumChecker.nextChunkSize(1000, target, 1000));
+        Assert.assertEquals(800, GlobalTableChecksumChecker.nextChunkSize(400, 1, 1000));
+        Assert.assertEquals(1000, GlobalTableChecksumChecker.nextChunkSize(800, 1, 1000));
+    }
+
+    @Test
+    public void testDiffKeys() {
+        List<List<Map<String, String>>> nodes = new ArrayList<>();
+        nodes.add(rows("1", "11", "2", "22", "3", "33", "5", "55"));
+        nodes.add(rows("1", "11", "2", "20", "4", "44", "5", "55"));
+        nodes.add(rows("1", "11", "2", "22", "5", "55"));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("2", "3", "4")), GlobalTableChecksumChecker.diffKeys(nodes, 10));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("2", "3")), GlobalTableChecksumChecker.diffKeys(nodes, 2));
+
+        nodes.remove(1);
+        nodes.remove(1);
+        nodes.add(rows("1", "11", "2", "22", "3", "33", "5", "55"));
+        Assert.assertTrue(GlobalTableChecksumChecker.diffKeys(nodes, 10).isEmpty());
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler;
+
+import com.actiontech.dble.config.model.TableConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FetchStoreNodeOfChildTableHandlerTest {
+
+    @Test
+    public void testBuildLocateSql() {
+        TableConfig parent = new TableConfig("customer", "id", false, false, TableConfig.TableTypeEnum.TYPE_SHARDING_TABLE,
+                "dn1", null, false);
+        TableConfig child = new TableConfig("orders", "id", false, false, TableConfig.TableTypeEnum.TYPE_SHARDING_TABLE,
+                "dn1", null, false, parent, "customer_code", "code");
+
+        Assert.assertEquals("select distinct customer.code from customer where  customer.code in (1,'a',3)",
+                FetchStoreNodeOfChildTableHandler.buildLocateSql(child.getLocateRTableKeysSql(), Arrays.asList("1", "'a'", "3")));
+        Assert.assertEquals("select distinct customer.code from customer where  customer.code in (2)",
+                FetchStoreNodeOfChildTableHandler.buildLocateSql(child.getLocateRTableKeysSql(), Collections.singletonList("2")));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.backend.mysql.PacketUtil;
+import com.actiontech.dble.config.Fields;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.ItemField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ItemEvaluatorTest {
+
+    private static List<FieldPacket> fieldPackets() {
+        List<FieldPacket> fps = new ArrayList<>();
+        fps.add(PacketUtil.getField("id", Fields.FIELD_TYPE_LONG));
+        fps.add(PacketUtil.getField("flag", Fields.FIELD_TYPE_LONG));
+        fps.add(PacketUtil.getField("name", Fields.FIELD_TYPE_VAR_STRING));
+        return fps;
+    }
+
+    private static List<byte[]> row(int id) {
+        List<byte[]> row = new ArrayList<>();
+        row.add(String.valueOf(id).getBytes());
+        row.add(String.valueOf(id % 2).getBytes());
+        row.add(("name" + id).getBytes());
+        return row;
+    }
+
+    private static ItemEvaluator columnEvaluator(String column) {
+        return ItemEvaluator.ofColumns(fieldPackets(), Collections.<Item>singletonList(new ItemField(null, null, column)));
+    }
+
+    @Test
+    public void testValBool() {
+        ItemEvaluator evaluator = columnEvaluator("flag");
+        Assert.assertTrue(evaluator.valBool(row(11)));
+        Assert.assertFalse(evaluator.valBool(row(10)));
+    }
+
+    @Test
+    public void testConcurrentEvaluate() throws InterruptedException {
+        final ItemEvaluator flagEvaluator = columnEvaluator("flag");
+        final ItemEvaluator nameEvaluator = columnEvaluator("name");
+        final AtomicInteger errors = new AtomicInteger(0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        List<byte[]> row = row(i);
+                        if (flagEvaluator.valBool(row) != (i % 2 == 1)) {
+                            errors.incrementAndGet();
+                        }
+                        if (!new String(nameEvaluator.valBytes(row).get(0)).equals("name" + i)) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, errors.get());
+    }
+}
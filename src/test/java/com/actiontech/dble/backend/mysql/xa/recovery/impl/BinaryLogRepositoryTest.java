@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa.recovery.impl;
+
+import com.actiontech.dble.backend.mysql.xa.CoordinatorLogEntry;
+import com.actiontech.dble.backend.mysql.xa.ParticipantLogEntry;
+import com.actiontech.dble.backend.mysql.xa.TxState;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BinaryLogRepositoryTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("xalog").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testReplayLastState() {
+        BinaryLogRepository repository = new BinaryLogRepository(dir.getPath(), "tmlog");
+        Assert.assertTrue(repository.append(newEntry("'Dble_Server.1.1'", TxState.TX_PREPARING_STATE), true));
+        Assert.assertTrue(repository.append(newEntry("'Dble_Server.1.2'", TxState.TX_PREPARING_STATE), true));
+        Assert.assertTrue(repository.append(newEntry("'Dble_Server.1.1'", TxState.TX_COMMITTING_STATE), true));
+        repository.close();
+
+        Map<String, CoordinatorLogEntry> entries = replay();
+        Assert.assertEquals(2, entries.size());
+        CoordinatorLogEntry entry = entries.get("'Dble_Server.1.1'");
+        Assert.assertEquals(TxState.TX_COMMITTING_STATE, entry.getTxState());
+        Assert.assertEquals(2, entry.getParticipants().length);
+        Assert.assertEquals("db1", entry.getParticipants()[0].getSchema());
+        Assert.assertNull(entry.getParticipants()[1].getSchema());
+        Assert.assertEquals(3306, entry.getParticipants()[1].getPort());
+    }
+
+    @Test
+    public void testConcurrentAppend() throws InterruptedException {
+        final BinaryLogRepository repository = new BinaryLogRepository(dir.getPath(), "tmlog");
+        final AtomicInteger failed = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final int threadId = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 50; j++) {
+                        if (!repository.append(newEntry("'Dble_Server.1." + threadId + "_" + j + "'", TxState.TX_PREPARING_STATE), true)) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        repository.close();
+        Assert.assertEquals(0, failed.get());
+        Assert.assertEquals(400, replay().size());
+    }
+
+    @Test
+    public void testBrokenTail() throws IOException {
+        BinaryLogRepository repository = new BinaryLogRepository(dir.getPath(), "tmlog");
+        repository.append(newEntry("'Dble_Server.1.1'", TxState.TX_PREPARING_STATE), true);
+        repository.close();
+        // a record half written before crash
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "tmlog.bin"), true)) {
+            out.write(new byte[]{0, 0, 0, 100, 1, 2, 3});
+        }
+        Assert.assertEquals(1, replay().size());
+
+        repository = new BinaryLogRepository(dir.getPath(), "tmlog");
+        repository.append(newEntry("'Dble_Server.1.2'", TxState.TX_ROLLBACKING_STATE), true);
+        repository.close();
+        Map<String, CoordinatorLogEntry> entries = replay();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(TxState.TX_ROLLBACKING_STATE, entries.get("'Dble_Server.1.2'").getTxState());
+    }
+
+    @Test
+    public void testCompact() {
+        BinaryLogRepository repository = new BinaryLogRepository(dir.getPath(), "tmlog");
+        for (int i = 0; i < 100; i++) {
+            repository.append(newEntry("'Dble_Server.1." + i + "'", TxState.TX_COMMITTED_STATE), false);
+        }
+        InMemoryRepository memory = new InMemoryRepository();
+        memory.put("'Dble_Server.1.100'", newEntry("'Dble_Server.1.100'", TxState.TX_COMMITTING_STATE));
+        Assert.assertTrue(repository.compact(memory));
+        repository.append(newEntry("'Dble_Server.1.101'", TxState.TX_PREPARING_STATE), true);
+        repository.close();
+
+        Map<String, CoordinatorLogEntry> entries = replay();
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(TxState.TX_COMMITTING_STATE, entries.get("'Dble_Server.1.100'").getTxState());
+        Assert.assertEquals(TxState.TX_PREPARING_STATE, entries.get("'Dble_Server.1.101'").getTxState());
+    }
+
+    private Map<String, CoordinatorLogEntry> replay() {
+        Map<String, CoordinatorLogEntry> entries = new HashMap<>();
+        for (CoordinatorLogEntry entry : new BinaryLogRepository(dir.getPath(), "tmlog").getAllCoordinatorLogEntries()) {
+            entries.put(entry.getId(), entry);
+        }
+        return entries;
+    }
+
+    private static CoordinatorLogEntry newEntry(String id, TxState txState) {
+        ParticipantLogEntry[] participants = new ParticipantLogEntry[3];
+        participants[0] = new ParticipantLogEntry(id, "10.0.0.1", 3306, 0, "db1", TxState.TX_PREPARED_STATE);
+        participants[2] = new ParticipantLogEntry(id, "10.0.0.2", 3306, 0, null, TxState.TX_PREPARED_STATE);
+        return new CoordinatorLogEntry(id, participants, txState);
+    }
+}
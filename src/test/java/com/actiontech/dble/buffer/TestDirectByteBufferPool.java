@@ -180,4 +180,105 @@ public class TestDirectByteBufferPool {
     }
 
 
+    @Test
+    public void testHeapAllocateCount() {
+        DirectByteBufferPool pool = new DirectByteBufferPool(1024, (short) 256, (short) 2);
+        List<ByteBuffer> buffs = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 8; i++) {
+            buffs.add(pool.allocate(256));
+        }
+        Assert.assertEquals(0, pool.getHeapAllocateCount());
+        Assert.assertFalse(pool.allocate(256).isDirect());
+        Assert.assertEquals(1, pool.getHeapAllocateCount());
+        for (ByteBuffer buff : buffs) {
+            pool.recycle(buff);
+        }
+        Assert.assertEquals(pool.capacity(), pool.size());
+        Assert.assertEquals(Long.valueOf(0), pool.getNetDirectMemoryUsage().get(Thread.currentThread().getId()));
+    }
+
+    @Test
+    public void testReactorThreadCache() throws InterruptedException {
+        final DirectByteBufferPool pool = new DirectByteBufferPool(1024, (short) 256, (short) 1);
+        final List<ByteBuffer> buffs = new ArrayList<ByteBuffer>();
+        Thread reactor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer first = pool.allocate();
+                first.put((byte) 1);
+                pool.recycle(first);
+                buffs.add(first);
+                buffs.add(pool.allocate());
+            }
+        }, DirectByteBufferPool.LOCAL_BUF_THREAD_PREX + "NIOREACTOR-0");
+        reactor.start();
+        reactor.join();
+        Assert.assertSame(buffs.get(0), buffs.get(1));
+        Assert.assertEquals(0, buffs.get(1).position());
+        Assert.assertEquals(pool.capacity() - 256, pool.size());
+    }
+
+    @Test
+    public void testRecycleByOtherThread() throws InterruptedException {
+        final DirectByteBufferPool pool = new DirectByteBufferPool(1024, (short) 256, (short) 1);
+        final ByteBuffer cached = pool.allocate();
+        final ByteBuffer released = pool.allocate();
+        final long[] reactorId = new long[1];
+        Thread reactor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reactorId[0] = Thread.currentThread().getId();
+                pool.recycle(cached);
+            }
+        }, DirectByteBufferPool.LOCAL_BUF_THREAD_PREX + "NIOREACTOR-0");
+        reactor.start();
+        reactor.join();
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pool.recycle(released);
+            }
+        });
+        other.start();
+        other.join();
+
+        Map<Long, Long> usage = pool.getNetDirectMemoryUsage();
+        Assert.assertEquals(Long.valueOf(0), usage.get(Thread.currentThread().getId()));
+        // the chunk cached by the reactor is charged to it, which is added to the exited threads now
+        Assert.assertNull(usage.get(reactorId[0]));
+        Assert.assertEquals(Long.valueOf(256), usage.get(DirectByteBufferPool.EXITED_THREADS_ID));
+        Assert.assertNull(usage.get(other.getId()));
+        Assert.assertEquals(pool.capacity() - 256, pool.size());
+    }
+
+    @Test
+    public void testRecycleByExitedThread() throws InterruptedException {
+        final DirectByteBufferPool pool = new DirectByteBufferPool(1024, (short) 256, (short) 1);
+        final ByteBuffer[] held = new ByteBuffer[1];
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                held[0] = pool.allocate(512);
+            }
+        });
+        worker.start();
+        worker.join();
+        Map<Long, Long> usage = pool.getNetDirectMemoryUsage();
+        Assert.assertNull(usage.get(worker.getId()));
+        Assert.assertEquals(Long.valueOf(512), usage.get(DirectByteBufferPool.EXITED_THREADS_ID));
+
+        pool.recycle(held[0]);
+        Assert.assertNull(pool.getNetDirectMemoryUsage().get(DirectByteBufferPool.EXITED_THREADS_ID));
+        Assert.assertEquals(pool.capacity(), pool.size());
+    }
+
+    @Test
+    public void testRecycleTwice() {
+        DirectByteBufferPool pool = new DirectByteBufferPool(1024, (short) 256, (short) 1);
+        ByteBuffer buffer = pool.allocate();
+        pool.recycle(buffer);
+        pool.recycle(buffer);
+        Assert.assertEquals(pool.capacity(), pool.size());
+        Assert.assertEquals(Long.valueOf(0), pool.getNetDirectMemoryUsage().get(Thread.currentThread().getId()));
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.config.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TableConfigTest {
+
+    @Test
+    public void testLocateRootParentSql() {
+        TableConfig parent = new TableConfig("customer", "id", false, false, TableConfig.TableTypeEnum.TYPE_SHARDING_TABLE,
+                "dn1", null, false);
+        TableConfig child = new TableConfig("orders", "id", false, false, TableConfig.TableTypeEnum.TYPE_SHARDING_TABLE,
+                "dn1", null, false, parent, "customer_code", "code");
+        TableConfig grandson = new TableConfig("order_items", "id", false, false, TableConfig.TableTypeEnum.TYPE_SHARDING_TABLE,
+                "dn1", null, false, child, "order_code", "code");
+
+        Assert.assertEquals("SELECT customer.code FROM customer WHERE  customer.code=", child.getLocateRTableKeySql());
+        Assert.assertEquals("SELECT DISTINCT customer.code FROM customer WHERE  customer.code IN (", child.getLocateRTableKeysSql());
+        Assert.assertEquals("SELECT customer.code FROM orders,customer WHERE customer.code=orders.customer_code AND  orders.code=",
+                grandson.getLocateRTableKeySql());
+        Assert.assertEquals("SELECT DISTINCT orders.code FROM orders,customer WHERE customer.code=orders.customer_code AND  orders.code IN (",
+                grandson.getLocateRTableKeysSql());
+        Assert.assertNull(parent.getLocateRTableKeysSql());
+    }
+}
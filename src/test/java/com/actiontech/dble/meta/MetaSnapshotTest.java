@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+import com.actiontech.dble.meta.protocol.StructureMeta;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MetaSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static StructureMeta.TableMeta tableMeta(String name, String column, long version) {
+        StructureMeta.ColumnMeta columnMeta = StructureMeta.ColumnMeta.newBuilder().setName(column).setDataType("int").build();
+        return StructureMeta.TableMeta.newBuilder().setTableName(name).addColumns(columnMeta).setVersion(version).build();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        ProxyMetaManager manager = new ProxyMetaManager();
+        manager.createDatabase("db1");
+        manager.createDatabase("db2");
+        manager.addTable("db1", tableMeta("t1", "id", 1));
+        manager.addTable("db1", tableMeta("t2", "id", 1));
+        manager.addTable("db2", tableMeta("t1", "name", 1));
+        File file = new File(folder.getRoot(), "meta/tableMeta");
+        MetaSnapshot.write(manager.getCatalogs(), file);
+
+        Map<String, Map<String, StructureMeta.TableMeta>> tables = MetaSnapshot.read(file);
+        Assert.assertEquals(2, tables.get("db1").size());
+        Assert.assertEquals(manager.getSyncTableMeta("db1", "t2"), tables.get("db1").get("t2"));
+        Assert.assertEquals("name", tables.get("db2").get("t1").getColumns(0).getName());
+        Assert.assertNull(MetaSnapshot.read(new File(folder.getRoot(), "none")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBrokenFile() throws IOException {
+        ProxyMetaManager manager = new ProxyMetaManager();
+        manager.createDatabase("db1");
+        manager.addTable("db1", tableMeta("t1", "id", 1));
+        File file = new File(folder.getRoot(), "tableMeta");
+        MetaSnapshot.write(manager.getCatalogs(), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            raf.write(raf.read() ^ 1);
+        }
+        MetaSnapshot.read(file);
+    }
+
+    @Test
+    public void testMergeLatestSkipLockedTable() throws InterruptedException {
+        ProxyMetaManager manager = new ProxyMetaManager();
+        manager.createDatabase("db");
+        StructureMeta.TableMeta locked = tableMeta("locked", "id", 1);
+        manager.addTable("db", locked);
+        Map<String, Map<String, StructureMeta.TableMeta>> snapshotTables = new HashMap<>();
+        snapshotTables.put("db", new HashMap<>(manager.getCatalogs().get("db").getTableMetas()));
+
+        ProxyMetaManager latest = new ProxyMetaManager();
+        latest.createDatabase("db");
+        latest.addTable("db", tableMeta("locked", "name", 2));
+
+        // a ddl is running on the table
+        manager.addMetaLock("db", "locked");
+        Assert.assertEquals(0, manager.mergeLatest(latest.getCatalogs(), snapshotTables));
+        Assert.assertSame(locked, manager.getCatalogs().get("db").getTableMeta("locked"));
+        manager.removeMetaLock("db", "locked");
+
+        Assert.assertEquals(1, manager.mergeLatest(latest.getCatalogs(), snapshotTables));
+        Assert.assertEquals("name", manager.getSyncTableMeta("db", "locked").getColumns(0).getName());
+        Assert.assertEquals(0, manager.getMetaCount());
+    }
+
+    @Test
+    public void testMergeLatest() {
+        ProxyMetaManager manager = new ProxyMetaManager();
+        manager.createDatabase("db");
+        StructureMeta.TableMeta same = tableMeta("same", "id", 1);
+        StructureMeta.TableMeta changed = tableMeta("changed", "id", 1);
+        StructureMeta.TableMeta dropped = tableMeta("dropped", "id", 1);
+        StructureMeta.TableMeta altered = tableMeta("altered", "id", 1);
+        Map<String, StructureMeta.TableMeta> snapshot = new HashMap<>();
+        for (StructureMeta.TableMeta tm : new StructureMeta.TableMeta[]{same, changed, dropped, altered}) {
+            manager.addTable("db", tm);
+            snapshot.put(tm.getTableName(), tm);
+        }
+        Map<String, Map<String, StructureMeta.TableMeta>> snapshotTables = new HashMap<>();
+        snapshotTables.put("db", snapshot);
+        // a ddl during loading
+        StructureMeta.TableMeta byDdl = tableMeta("altered", "ddl", 3);
+        manager.addTable("db", byDdl);
+
+        ProxyMetaManager latest = new ProxyMetaManager();
+        latest.createDatabase("db");
+        latest.addTable("db", tableMeta("same", "id", 2));
+        latest.addTable("db", tableMeta("changed", "name", 2));
+        latest.addTable("db", tableMeta("altered", "id", 2));
+        latest.addTable("db", tableMeta("created", "id", 2));
+
+        Assert.assertEquals(3, manager.mergeLatest(latest.getCatalogs(), snapshotTables));
+        Map<String, StructureMeta.TableMeta> tables = manager.getCatalogs().get("db").getTableMetas();
+        Assert.assertSame(same, tables.get("same"));
+        Assert.assertEquals("name", tables.get("changed").getColumns(0).getName());
+        Assert.assertSame(byDdl, tables.get("altered"));
+        Assert.assertNotNull(tables.get("created"));
+        Assert.assertFalse(tables.containsKey("dropped"));
+    }
+}
@@ -174,6 +174,13 @@ public class ManagerParserTest {
         Assert.assertEquals(ManagerParseShow.TIME_STARTUP, ManagerParseShow.parse("show @@TIME.startup", 5));
     }
 
+    @Test
+    public void testShowGlobalTableCheck() {
+        Assert.assertEquals(ManagerParseShow.GLOBAL_TABLE_CHECK, ManagerParseShow.parse("show @@global_table.check", 5));
+        Assert.assertEquals(ManagerParseShow.GLOBAL_TABLE_CHECK, ManagerParseShow.parse("SHOW @@GLOBAL_TABLE.CHECK ", 5));
+        Assert.assertEquals(ManagerParseShow.OTHER, ManagerParseShow.parse("show @@global_table.checks", 5));
+    }
+
     @Test
     public void testShowVersion() {
         Assert.assertEquals(ManagerParseShow.VERSION, ManagerParseShow.parse("show @@version", 5));
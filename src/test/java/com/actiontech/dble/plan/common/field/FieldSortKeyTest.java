@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.plan.common.field;
+
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.util.FastByteOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class FieldSortKeyTest {
+
+    @Test
+    public void testLong() {
+        assertSameOrder(FieldTypes.MYSQL_TYPE_LONGLONG, "-100", "-20", "-3", "0", "7", "12", "345", "18446744073709551615");
+    }
+
+    @Test
+    public void testDecimal() {
+        assertSameOrder(FieldTypes.MYSQL_TYPE_NEWDECIMAL, "-100.5", "-100", "-2.25", "-0.001", "0", "0.00", "0.0012", "0.012",
+                "1", "1.0", "1.5", "9.99", "10", "1e20");
+        assertSameOrder(FieldTypes.MYSQL_TYPE_DOUBLE, "-1.5E3", "-2", "0", "3.25", "1.0E10");
+    }
+
+    @Test
+    public void testString() {
+        assertSameOrder(FieldTypes.MYSQL_TYPE_VAR_STRING, "", "a", "A", "a\u0000", "a\u0000b", "ab", "B", "bĀ", "中");
+    }
+
+    @Test
+    public void testTemporal() {
+        assertSameOrder(FieldTypes.MYSQL_TYPE_DATETIME, "1999-12-31 23:59:59", "2000-01-01 00:00:00", "2000-01-01 00:00:00.5", "2018-06-01 10:00:00");
+        assertSameOrder(FieldTypes.MYSQL_TYPE_DATE, "1999-12-31", "2000-01-01", "2018-06-01");
+    }
+
+    private static void assertSameOrder(FieldTypes type, String... values) {
+        Field field = Field.getFieldItem("c", null, null, null, type.numberValue(), 33, 255, 6, 0);
+        for (String v1 : values) {
+            for (String v2 : values) {
+                byte[] b1 = v1.getBytes(StandardCharsets.UTF_8);
+                byte[] b2 = v2.getBytes(StandardCharsets.UTF_8);
+                byte[] key1 = field.getSortKey(b1);
+                byte[] key2 = field.getSortKey(b2);
+                Assert.assertNotNull(key1);
+                int expect = Integer.signum(field.compare(b1, b2));
+                int actual = Integer.signum(FastByteOperations.compareUnsigned(key1, 0, key1.length, key2, 0, key2.length));
+                Assert.assertEquals(v1 + " vs " + v2, expect, actual);
+            }
+        }
+    }
+}
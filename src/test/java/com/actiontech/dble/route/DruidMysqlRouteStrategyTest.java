@@ -870,14 +870,13 @@ public class DruidMysqlRouteStrategyTest extends TestCase {
 
         SchemaConfig schema = schemaMap.get("TESTDB");
         RouteResultset rrs = null;
-        //not supprot childtable batch insert
+        //childtable batch insert is split by the data node of each parent
         String sql = "insert into orders (id,name,customer_id) values(1,'testonly',1),(2,'testonly',2000001)";
-        try {
-            rrs = routeStrategy.route(schema, 1, sql, null,
-                    cachePool);
-        } catch (Exception e) {
-            Assert.assertEquals("ChildTable multi insert not provided", e.getMessage());
-        }
+        rrs = routeStrategy.route(schema, 1, sql, null,
+                cachePool);
+        Assert.assertEquals(2, rrs.getNodes().length);
+        Assert.assertEquals("dn1", rrs.getNodes()[0].getName());
+        Assert.assertEquals("dn2", rrs.getNodes()[1].getName());
 
         sql = "insert into employee (id,name,customer_id) select id,name,customer_id from customer";
         try {
@@ -81,5 +81,18 @@ public class AutoPartitionByLongTest {
 
     }
 
+    @Test
+    public void testBatch() {
+        AutoPartitionByLong autoPartition = new AutoPartitionByLong();
+        autoPartition.setMapFile("autopartition-long.txt");
+        autoPartition.init();
+        String[] values = {"0", "2000000", "2000001", "4000000", "4000001", "6000000", "6000001", "-1"};
+        int[] nodeIndexes = new int[values.length];
+        autoPartition.calculate(values, nodeIndexes);
+        Assert.assertArrayEquals(new int[]{0, 0, 1, 1, 2, 2, -1, -1}, nodeIndexes);
 
-}
\ No newline at end of file
+        autoPartition.setDefaultNode(0);
+        autoPartition.calculate(values, nodeIndexes);
+        Assert.assertArrayEquals(new int[]{0, 0, 1, 1, 2, 2, 0, 0}, nodeIndexes);
+    }
+}
@@ -154,4 +154,19 @@ public class PartitionByDateTest {
         partition.init();
         Assert.assertEquals(true, 0 == partition.calculate("2012-12-31"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatch() {
+        PartitionByDate partition = new PartitionByDate();
+        partition.setDateFormat("yyyy-MM-dd");
+        partition.setsBeginDate("2014-01-01");
+        partition.setsEndDate("2014-01-30");
+        partition.setsPartionDay("10");
+        partition.init();
+        String[] values = {"2014-01-01", "2014-01-11", "2014-02-15", "2013-12-31"};
+        int[] nodeIndexes = new int[values.length];
+        partition.calculate(values, nodeIndexes);
+        Assert.assertArrayEquals(new int[]{0, 1, 1, -1}, nodeIndexes);
+        Assert.assertNull(partition.calculate("2013-12-31"));
+    }
+}
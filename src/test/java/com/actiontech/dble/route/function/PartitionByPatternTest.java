@@ -40,6 +40,23 @@ public class PartitionByPatternTest {
         Assert.assertEquals(true, 8 == type3.length);
     }
 
+    @Test
+    public void testBatch() {
+        PartitionByPattern autoPartition = new PartitionByPattern();
+        autoPartition.setPatternValue(256);
+        autoPartition.setDefaultNode(2);
+        autoPartition.setMapFile("partition-pattern.txt");
+        autoPartition.init();
+        String[] values = {"0", "45a", "45", "300"};
+        int[] expect = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            expect[i] = autoPartition.calculate(values[i]);
+        }
+        int[] nodeIndexes = new int[values.length];
+        autoPartition.calculate(values, nodeIndexes);
+        Assert.assertArrayEquals(expect, nodeIndexes);
+    }
+
     /*
         public void test2() {
 		PartitionByPattern autoPartition = new PartitionByPattern();
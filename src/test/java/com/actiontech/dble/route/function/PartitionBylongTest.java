@@ -358,6 +358,33 @@ public class PartitionBylongTest {
         Assert.assertEquals(true, 0 == rule.calculate(value));
     }
 
+    @Test
+    public void testBatch() {
+        PartitionByLong rule = new PartitionByLong();
+        rule.setPartitionCount("2,1");
+        rule.setPartitionLength("256,512");
+        rule.init();
+        long[] values = {0, 255, 256, 511, 512, 1023, 1024, -1, -1025, Long.MAX_VALUE, Long.MIN_VALUE};
+        String[] strValues = new String[values.length];
+        int[] expect = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            strValues[i] = String.valueOf(values[i]);
+            expect[i] = rule.calculate(strValues[i]);
+        }
+        int[] nodeIndexes = new int[values.length];
+        rule.calculate(strValues, nodeIndexes);
+        Assert.assertArrayEquals(expect, nodeIndexes);
+
+        for (String bad : new String[]{"", "-", "12a", "'1'", "9223372036854775808"}) {
+            try {
+                rule.calculate(new String[]{bad}, nodeIndexes);
+                Assert.fail(bad);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
     private void checkCalculateRange(Integer[] expect, Integer[] fact) {
         Assert.assertEquals(true, expect.length == fact.length);
         for (int i = 0; i < expect.length; i++) {
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.parser.druid.impl;
+
+import com.alibaba.druid.sql.ast.statement.SQLInsertStatement.ValuesClause;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlInsertStatement;
+import com.alibaba.druid.sql.dialect.mysql.parser.MySqlStatementParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class DruidInsertParserTest {
+
+    @Test
+    public void testGroupChildValuesByDataNode() {
+        String sql = "insert into orders (id,customer_id) values (1,10),(2,20),(3,10),(4,30)";
+        MySqlInsertStatement insertStmt = (MySqlInsertStatement) new MySqlStatementParser(sql).parseStatement();
+        List<ValuesClause> valuesList = insertStmt.getValuesList();
+        Map<String, List<ValuesClause>> nodeValues = DruidInsertParser.groupByDataNode(valuesList,
+                Arrays.asList("dn2", "dn1", "dn2", "dn3"));
+
+        Assert.assertEquals(Arrays.asList("dn2", "dn1", "dn3"), new ArrayList<>(nodeValues.keySet()));
+        Assert.assertEquals(Arrays.asList(valuesList.get(0), valuesList.get(2)), nodeValues.get("dn2"));
+        Assert.assertEquals(Arrays.asList(valuesList.get(1)), nodeValues.get("dn1"));
+        Assert.assertEquals(Arrays.asList(valuesList.get(3)), nodeValues.get("dn3"));
+
+        insertStmt.setValuesList(nodeValues.get("dn2"));
+        Assert.assertTrue(insertStmt.toString().contains("(1, 10)"));
+        Assert.assertTrue(insertStmt.toString().contains("(3, 10)"));
+        Assert.assertFalse(insertStmt.toString().contains("(2, 20)"));
+    }
+}
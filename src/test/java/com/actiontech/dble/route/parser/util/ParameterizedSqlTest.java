@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.parser.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParameterizedSqlTest {
+
+    @Test
+    public void testSameTemplate() {
+        ParameterizedSql sql1 = ParameterizedSql.parameterize("select id, name from orders where id = 1 and name = 'a'");
+        ParameterizedSql sql2 = ParameterizedSql.parameterize("select id, name from orders where id = 200 and name = 'it''s'");
+        Assert.assertEquals("select id, name from orders where id = ? and name = '?'", sql1.getTemplate());
+        Assert.assertEquals(sql1.getTemplate(), sql2.getTemplate());
+        Assert.assertEquals("200", sql2.getLiterals().get(0));
+        Assert.assertEquals("it's", sql2.getLiterals().get(1));
+    }
+
+    @Test
+    public void testLimitNotParameterized() {
+        ParameterizedSql sql1 = ParameterizedSql.parameterize("select * from orders where id = 1 limit 10");
+        ParameterizedSql sql2 = ParameterizedSql.parameterize("select * from orders where id = 1 limit 20");
+        Assert.assertEquals("select * from orders where id = ? limit 10", sql1.getTemplate());
+        Assert.assertNotEquals(sql1.getTemplate(), sql2.getTemplate());
+    }
+
+    @Test
+    public void testColumnLiteral() {
+        ParameterizedSql sql = ParameterizedSql.parameterize("select * from orders o where o.name = 'a' and `ID` = 5");
+        Assert.assertEquals(1, sql.getColumnLiteral("ID"));
+        Assert.assertEquals("5", sql.getLiterals().get(1));
+        Assert.assertEquals(0, sql.getColumnLiteral("NAME"));
+
+        sql = ParameterizedSql.parameterize("select * from testdb.orders as o where id = 05");
+        Assert.assertEquals(0, sql.getColumnLiteral("ID"));
+        Assert.assertEquals("5", sql.getLiterals().get(0));
+    }
+
+    @Test
+    public void testNoColumnLiteral() {
+        // the column appears more than once
+        assertNoColumnLiteral("select * from orders where id = 1 and id > 0");
+        assertNoColumnLiteral("select * from orders where id = 1 or name = 'a'");
+        assertNoColumnLiteral("select * from orders where id = 1 + 1");
+        assertNoColumnLiteral("select * from orders where id = -1");
+        assertNoColumnLiteral("select * from orders where (id = 1)");
+        assertNoColumnLiteral("select * from orders where x between 1 and id = 1");
+        assertNoColumnLiteral("select * from orders, customer where id = 1");
+        assertNoColumnLiteral("select * from orders join customer where id = 1");
+        assertNoColumnLiteral("select * from orders where id = 1 for update");
+        assertNoColumnLiteral("select * from orders where id = 1 and name in (select name from customer)");
+    }
+
+    @Test
+    public void testPrepared() {
+        String stmt = "select * from orders where name = '?' and id = ? and price > ? /* ? */";
+        ParameterizedSql sql = ParameterizedSql.parameterizePrepared(stmt);
+        Assert.assertArrayEquals(new int[]{47, 61}, sql.getParamPositions());
+        Assert.assertTrue(sql.hasColumnParam());
+        Assert.assertEquals(0, sql.getColumnParam("ID"));
+        Assert.assertEquals(-1, sql.getColumnParam("NAME"));
+        Assert.assertEquals(-1, sql.getColumnParam("PRICE"));
+
+        sql = ParameterizedSql.parameterizePrepared("select * from orders where id = ? limit ?");
+        Assert.assertEquals(2, sql.getParamPositions().length);
+        Assert.assertFalse(sql.hasColumnParam());
+        // the parameter markers are not literals of a query
+        Assert.assertEquals(-1, ParameterizedSql.parameterize("select * from orders where id = ?").getColumnLiteral("ID"));
+    }
+
+    private void assertNoColumnLiteral(String stmt) {
+        ParameterizedSql sql = ParameterizedSql.parameterize(stmt);
+        Assert.assertNotNull(sql);
+        Assert.assertEquals(stmt, -1, sql.getColumnLiteral("ID"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.perf;
+
+import com.actiontech.dble.route.function.AbstractPartitionAlgorithm;
+import com.actiontech.dble.route.function.AutoPartitionByLong;
+import com.actiontech.dble.route.function.PartitionByDate;
+import com.actiontech.dble.route.function.PartitionByJumpConsistentHash;
+import com.actiontech.dble.route.function.PartitionByLong;
+import com.actiontech.dble.route.function.PartitionByPattern;
+import com.actiontech.dble.route.function.PartitionByString;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * compare calculate(String) one by one with the batch calculate of the partition algorithms,
+ * as the values of an IN list, a multi-row insert or the lines of a load data packet with BATCH_SIZE values.
+ * it is a main like the other spaces since jmh is not a dependency of the project
+ */
+public class PartitionBatchSpace {
+    private static final int BATCH_SIZE = 5000;
+    private static final int ROUNDS = 2000;
+    private static final int WARM_UP_ROUNDS = 500;
+
+    private final String[] strValues = new String[BATCH_SIZE];
+    private final String[] dateValues = new String[BATCH_SIZE];
+    private final int[] nodeIndexes = new int[BATCH_SIZE];
+    private long blackHole = 0;
+
+    public PartitionBatchSpace() {
+        Random random = new Random(1);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            strValues[i] = String.valueOf(Math.abs(random.nextLong() % 6000000));
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        long begin = 1388534400000L;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            dateValues[i] = format.format(new Date(begin + Math.abs(random.nextLong() % (365 * 86400000L))));
+        }
+    }
+
+    private long perValue(AbstractPartitionAlgorithm algorithm, String[] values, int rounds) {
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String value : values) {
+                blackHole += algorithm.calculate(value);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long batchString(AbstractPartitionAlgorithm algorithm, String[] values, int rounds) {
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            algorithm.calculate(values, nodeIndexes);
+            blackHole += nodeIndexes[r % BATCH_SIZE];
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void run(String name, AbstractPartitionAlgorithm algorithm) {
+        run(name, algorithm, strValues);
+    }
+
+    private void run(String name, AbstractPartitionAlgorithm algorithm, String[] values) {
+        perValue(algorithm, values, WARM_UP_ROUNDS);
+        batchString(algorithm, values, WARM_UP_ROUNDS);
+        double total = (double) ROUNDS * BATCH_SIZE;
+        System.out.println(String.format("%-32s per value %6.1f ns, String[] %6.1f ns",
+                name, perValue(algorithm, values, ROUNDS) / total, batchString(algorithm, values, ROUNDS) / total));
+    }
+
+    public static void main(String[] args) {
+        PartitionBatchSpace test = new PartitionBatchSpace();
+
+        PartitionByLong byLong = new PartitionByLong();
+        byLong.setPartitionCount("64");
+        byLong.setPartitionLength("16");
+        byLong.init();
+        test.run("PartitionByLong", byLong);
+
+        AutoPartitionByLong autoByLong = new AutoPartitionByLong();
+        autoByLong.setMapFile("autopartition-long.txt");
+        autoByLong.init();
+        test.run("AutoPartitionByLong", autoByLong);
+
+        PartitionByString byString = new PartitionByString();
+        byString.setPartitionCount("64");
+        byString.setPartitionLength("16");
+        byString.setHashSlice(":");
+        byString.init();
+        test.run("PartitionByString", byString);
+
+        PartitionByJumpConsistentHash jumpHash = new PartitionByJumpConsistentHash();
+        jumpHash.setPartitionCount(64);
+        jumpHash.init();
+        test.run("PartitionByJumpConsistentHash", jumpHash);
+
+        PartitionByPattern byPattern = new PartitionByPattern();
+        byPattern.setPatternValue(256);
+        byPattern.setDefaultNode(2);
+        byPattern.setMapFile("partition-pattern.txt");
+        byPattern.init();
+        test.run("PartitionByPattern", byPattern);
+
+        PartitionByDate byDate = new PartitionByDate();
+        byDate.setDateFormat("yyyy-MM-dd");
+        byDate.setsBeginDate("2014-01-01");
+        byDate.setsPartionDay("10");
+        byDate.init();
+        test.run("PartitionByDate", byDate, test.dateValues);
+
+        System.out.println("ignore " + test.blackHole);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.util;
+
+import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.TableConfig;
+import com.actiontech.dble.config.model.rule.RuleConfig;
+import com.actiontech.dble.route.RouteResultset;
+import com.actiontech.dble.route.function.PartitionByLong;
+import com.actiontech.dble.route.parser.druid.DruidShardingParseInfo;
+import com.actiontech.dble.server.parser.ServerParse;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.dialect.mysql.parser.MySqlStatementParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class InListPrunerTest {
+    private final SchemaConfig schema;
+
+    public InListPrunerTest() {
+        PartitionByLong algorithm = new PartitionByLong();
+        algorithm.setPartitionCount("2");
+        algorithm.setPartitionLength("512");
+        algorithm.init();
+        TableConfig orders = new TableConfig("orders", "id", false, false, TableConfig.TableTypeEnum.TYPE_SHARDING_TABLE,
+                "dn1,dn2", new RuleConfig("ID", "func", algorithm), true);
+        Map<String, TableConfig> tables = new HashMap<>();
+        tables.put("orders", orders);
+        schema = new SchemaConfig("db", null, tables, -1);
+    }
+
+    private RouteResultset route(String sql, int sqlType) {
+        SQLStatement statement = new MySqlStatementParser(sql).parseStatement();
+        DruidShardingParseInfo ctx = new DruidShardingParseInfo();
+        ctx.addTable("orders");
+        RouteResultset rrs = new RouteResultset(sql, sqlType);
+        RouterUtil.routeToMultiNode(false, rrs, Arrays.asList("dn1", "dn2"));
+        InListPruner.prune(schema, ctx, statement, rrs, false);
+        return rrs;
+    }
+
+    private static String inList(String sql) {
+        String normalized = sql.replaceAll("\\s+", " ");
+        int start = normalized.indexOf("IN (");
+        return normalized.substring(start, normalized.indexOf(')', start) + 1);
+    }
+
+    @Test
+    public void testSelect() {
+        RouteResultset rrs = route("select * from db.orders where id in (1, 513, 2, 600, null) and name = 'a'",
+                ServerParse.SELECT);
+        Assert.assertEquals("IN (1, 2)", inList(rrs.getNodes()[0].getStatement()));
+        Assert.assertEquals("IN (513, 600)", inList(rrs.getNodes()[1].getStatement()));
+        Assert.assertFalse(rrs.getNodes()[0].getStatement().contains("db."));
+        Assert.assertTrue(rrs.getNodes()[1].getStatement().contains("name = 'a'"));
+    }
+
+    @Test
+    public void testDeleteAndUpdate() {
+        RouteResultset rrs = route("delete from orders where orders.id in (3, 700)", ServerParse.DELETE);
+        Assert.assertEquals("IN (3)", inList(rrs.getNodes()[0].getStatement()));
+        Assert.assertEquals("IN (700)", inList(rrs.getNodes()[1].getStatement()));
+
+        rrs = route("update orders set name = 'b' where `id` in ('4', '800') and name = 'a'", ServerParse.UPDATE);
+        Assert.assertEquals("IN ('4')", inList(rrs.getNodes()[0].getStatement()));
+        Assert.assertEquals("IN ('800')", inList(rrs.getNodes()[1].getStatement()));
+    }
+
+    @Test
+    public void testNotPruned() {
+        String[] sqls = {
+            "select * from orders where id in (1, 513) or name = 'a'",
+            "select * from orders where id not in (1, 513)",
+            "select * from orders where id in (1, 513 + 1)",
+            "select * from orders where name in ('1', '513')",
+        };
+        for (String sql : sqls) {
+            RouteResultset rrs = route(sql, ServerParse.SELECT);
+            Assert.assertEquals(sql, rrs.getNodes()[0].getStatement());
+            Assert.assertEquals(sql, rrs.getNodes()[1].getStatement());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.server.handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoadDataLineParserTest {
+
+    private static class Collector implements LoadDataLineParser.LineHandler {
+        private final List<String> lines = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        private int batches = 0;
+
+        @Override
+        public void onLines(char[] chars, int[] starts, int[] ends, String[] lineValues, int count) {
+            batches++;
+            for (int i = 0; i < count; i++) {
+                lines.add(new String(chars, starts[i], ends[i] - starts[i]));
+                values.add(lineValues[i]);
+            }
+        }
+    }
+
+    private static Collector parse(LoadDataLineParser parser, String... pieces) {
+        Collector collector = new Collector();
+        for (String piece : pieces) {
+            parser.feed(CharBuffer.wrap(piece), collector);
+        }
+        parser.finish(collector);
+        return collector;
+    }
+
+    @Test
+    public void testSplitAcrossPackets() {
+        LoadDataLineParser parser = new LoadDataLineParser(",", "\r\n", "\"", "\\", 1);
+        Collector collector = parse(parser, "1,a\r", "\n2,", "b\r\n\r\n3,c");
+        Assert.assertEquals(3, collector.lines.size());
+        Assert.assertEquals("1,a", collector.lines.get(0));
+        Assert.assertEquals("2,b", collector.lines.get(1));
+        Assert.assertEquals("3,c", collector.lines.get(2));
+        Assert.assertEquals("a", collector.values.get(0));
+        Assert.assertEquals("c", collector.values.get(2));
+    }
+
+    @Test
+    public void testEncloseAndEscape() {
+        LoadDataLineParser parser = new LoadDataLineParser(",", "\n", "\"", "\\", 0);
+        Collector collector = parse(parser, "\"x,\ny\",1\n\"a\"\"b\",2\nc\\,d,3\n\\N,4\n");
+        Assert.assertEquals(4, collector.lines.size());
+        Assert.assertEquals("\"x,\ny\",1", collector.lines.get(0));
+        Assert.assertEquals("x,\ny", collector.values.get(0));
+        Assert.assertEquals("a\"b", collector.values.get(1));
+        Assert.assertEquals("c,d", collector.values.get(2));
+        Assert.assertNull(collector.values.get(3));
+    }
+
+    @Test
+    public void testMissingField() {
+        LoadDataLineParser parser = new LoadDataLineParser("\t", "\n", null, "\\", 2);
+        Collector collector = parse(parser, "1\t2\n1\t2\t3");
+        Assert.assertEquals(2, collector.lines.size());
+        Assert.assertNull(collector.values.get(0));
+        Assert.assertEquals("3", collector.values.get(1));
+    }
+
+    @Test
+    public void testLinesOfOneFeedInOneBatch() {
+        LoadDataLineParser parser = new LoadDataLineParser(",", "\n", null, null, 0);
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            data.append(i).append(",x\n");
+        }
+        Collector collector = parse(parser, data.toString(), "100,x");
+        Assert.assertEquals(101, collector.lines.size());
+        Assert.assertEquals(2, collector.batches);
+        Assert.assertEquals("99", collector.values.get(99));
+        Assert.assertEquals("100,x", collector.lines.get(100));
+    }
+}
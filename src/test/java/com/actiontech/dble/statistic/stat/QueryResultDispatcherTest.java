@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic.stat;
+
+import com.actiontech.dble.server.parser.ServerParse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryResultDispatcherTest {
+
+    private static class Recorder implements QueryResultListener {
+        private final List<QueryResult> results = new ArrayList<>();
+
+        @Override
+        public void onQueryResult(QueryResult queryResult) {
+            results.add(queryResult);
+        }
+    }
+
+    private final Recorder recorder = new Recorder();
+
+    @Before
+    public void setUp() {
+        // the analyzers need the server config
+        QueryResultDispatcher.removeAllListener();
+        QueryResultDispatcher.drain();
+        QueryResultDispatcher.addListener(recorder);
+    }
+
+    @After
+    public void tearDown() {
+        QueryResultDispatcher.removeAllListener();
+        QueryResultDispatcher.addListener(UserStatAnalyzer.getInstance());
+        QueryResultDispatcher.addListener(TableStatAnalyzer.getInstance());
+        QueryResultDispatcher.addListener(QueryConditionAnalyzer.getInstance());
+        QueryResultDispatcher.addListener(SqlDigestAnalyzer.getInstance());
+    }
+
+    private static QueryResult newResult(int i) {
+        return new QueryResult("test", ServerParse.SELECT, "select " + i, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void testDrainFromThreads() throws InterruptedException {
+        int ringCount = QueryResultDispatcher.getRingCount();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        QueryResultDispatcher.dispatchQuery(newResult(j), 1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        QueryResultDispatcher.drain();
+        Assert.assertEquals(4000, recorder.results.size());
+        // the rings of the terminated threads are removed
+        Assert.assertEquals(ringCount, QueryResultDispatcher.getRingCount());
+    }
+
+    @Test
+    public void testSampling() {
+        for (int i = 0; i < 100; i++) {
+            QueryResultDispatcher.dispatchQuery(newResult(i), 10);
+        }
+        QueryResultDispatcher.drain();
+        Assert.assertEquals(10, recorder.results.size());
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        for (int i = 0; i < 5000; i++) {
+            QueryResultDispatcher.dispatchQuery(newResult(i), 1);
+        }
+        QueryResultDispatcher.drain();
+        Assert.assertEquals(4096, recorder.results.size());
+        Assert.assertEquals("select 0", recorder.results.get(0).getSql());
+    }
+}
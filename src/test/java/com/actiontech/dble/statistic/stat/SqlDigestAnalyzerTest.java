@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic.stat;
+
+import com.actiontech.dble.server.parser.ServerParse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SqlDigestAnalyzerTest {
+
+    /**
+     * the i-th data node finishes at (i + 1) * time / dataNodes.length
+     */
+    private static QueryResult newResult(String sql, long time, String... dataNodes) {
+        Map<String, Long> nodeEndTimes = new HashMap<>();
+        for (int i = 0; i < dataNodes.length; i++) {
+            nodeEndTimes.put(dataNodes[i], 1000 + (i + 1) * time / dataNodes.length);
+        }
+        return new QueryResult("test", ServerParse.SELECT, sql, null, nodeEndTimes, 1, 10, 100, 1000, 1000 + time, 0);
+    }
+
+    @Test
+    public void testDigest() {
+        Assert.assertEquals("select * from t where id = ? and name = '?'",
+                SqlDigestAnalyzer.digest("select * from t where id = 1 and name = 'a'"));
+        Assert.assertEquals(SqlDigestAnalyzer.digest("select * from t where id in (1, 2)"),
+                SqlDigestAnalyzer.digest("select * from t where id in (3,4,5)"));
+        Assert.assertEquals("insert into t values (...) /* , ... */",
+                SqlDigestAnalyzer.digest("insert into t values (1, 'a'), (2, 'b')"));
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.getTotalCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500, histogram.getValueAtPercentile(50), 500 * 0.04);
+        Assert.assertEquals(990, histogram.getValueAtPercentile(99), 990 * 0.04);
+        Assert.assertEquals(999, histogram.getValueAtPercentile(99.9), 999 * 0.04);
+        for (long value = 1; value < LatencyHistogram.MAX_VALUE; value = value * 3 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(LatencyHistogram.lowestValueOf(index) <= value);
+            Assert.assertTrue(value < LatencyHistogram.lowestValueOf(index + 1));
+        }
+    }
+
+    @Test
+    public void testEvictRareDigest() {
+        SqlDigestAnalyzer analyzer = new SqlDigestAnalyzer(2);
+        for (int i = 0; i < 10; i++) {
+            if (i < 3) {
+                analyzer.onQueryResult(newResult("select * from a where id = " + i, i, "dn1"));
+            }
+            analyzer.onQueryResult(newResult("select * from b where id = " + i, 5, "dn1", "dn2"));
+        }
+        analyzer.onQueryResult(newResult("select * from c", 1, "dn2"));
+        analyzer.onQueryResult(newResult("select * from d", 1, "dn2"));
+
+        List<SqlLatencyStat> digests = analyzer.getDigestStats(false);
+        Assert.assertEquals(2, digests.size());
+        Assert.assertEquals("select * from b where id = ?", digests.get(0).getKey());
+        Assert.assertEquals(10, digests.get(0).getCount());
+        Assert.assertEquals(10, digests.get(0).getRows());
+        Assert.assertEquals("select * from d", digests.get(1).getKey());
+
+        List<SqlLatencyStat> dataNodes = analyzer.getDataNodeStats(true);
+        Assert.assertEquals("dn1", dataNodes.get(0).getKey());
+        Assert.assertEquals(13, dataNodes.get(0).getCount());
+        Assert.assertEquals(12, dataNodes.get(1).getCount());
+        Assert.assertEquals("dn2", dataNodes.get(1).getKey());
+        Assert.assertEquals(5, dataNodes.get(1).getHistogram().getValueAtPercentile(50));
+        // dn1 finishes its part of "from b" at 2 of 5
+        Assert.assertEquals(2, dataNodes.get(0).getHistogram().getValueAtPercentile(90));
+        // the rows of a query are not charged to each of its nodes
+        Assert.assertEquals(0, dataNodes.get(0).getRows());
+        Assert.assertTrue(analyzer.getDataNodeStats(false).isEmpty());
+    }
+
+    @Test
+    public void testSampledEviction() {
+        int capacity = SqlDigestAnalyzer.EVICTION_SAMPLES * 4;
+        SqlDigestAnalyzer analyzer = new SqlDigestAnalyzer(capacity);
+        for (int i = 0; i < 100; i++) {
+            analyzer.onQueryResult(newResult("select * from hot where id = " + i, 1, "dn1"));
+        }
+        for (int i = 0; i < capacity * 10; i++) {
+            analyzer.onQueryResult(newResult("select * from t" + i, 1, "dn1"));
+        }
+        List<SqlLatencyStat> digests = analyzer.getDigestStats(true);
+        Assert.assertEquals(capacity, digests.size());
+        Assert.assertEquals("select * from hot where id = ?", digests.get(0).getKey());
+        Assert.assertEquals(100, digests.get(0).getCount());
+        Assert.assertTrue(analyzer.getDigestStats(false).isEmpty());
+    }
+}